@@ -0,0 +1,164 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.Color;
+import jMono_Framework.graphics.states.BlendState;
+import jMono_Framework.graphics.states.DepthStencilState;
+import jMono_Framework.graphics.states.SamplerState;
+import jMono_Framework.math.Vector2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the fill rate of the {@link SoftwareRasterizer} kernels.
+ * 
+ * <p>
+ * Draws a few hundred sprites into an 800x480 back buffer with every {@link RasterizerKernel}
+ * and prints the number of pixels filled per second. The incremental kernel is also measured through
+ * the {@link TiledRasterizer}, which rasterizes the screen tiles in parallel. Run it with the
+ * framework classes on the class path, for example
+ * {@code java --add-modules jdk.incubator.vector jMono_Framework.graphics.SoftwareRasterizerBenchmark}.
+ * Without the module the Simd kernel falls back to the scalar loop.
+ * 
+ * @author Eric
+ *
+ */
+public class SoftwareRasterizerBenchmark
+{
+	private static final int ScreenWidth = 800;
+	private static final int ScreenHeight = 480;
+	private static final int TextureSize = 64;
+	private static final int SpriteCount = 300;
+	private static final int WarmupFrames = 20;
+	private static final int MeasuredFrames = 100;
+
+	private final SoftwareRasterizer _rasterizer = new SoftwareRasterizer();
+	private final TiledRasterizer _tiledRasterizer = new TiledRasterizer();
+	private final int[] _pixels = new int[ScreenWidth * ScreenHeight];
+	private final int[] _texels = new int[TextureSize * TextureSize];
+	private final AlphaSpanIndex _alphaSpans;
+
+	/** The sprites to draw: x, y, scale and rotation */
+	private final float[] _sprites = new float[SpriteCount * 4];
+
+	public static void main(String[] args)
+	{
+		SoftwareRasterizerBenchmark benchmark = new SoftwareRasterizerBenchmark();
+		for (SamplerState samplerState : new SamplerState[] { SamplerState.PointClamp, SamplerState.LinearClamp })
+		{
+			for (RasterizerKernel kernel : RasterizerKernel.values())
+			{
+				benchmark.run(kernel, samplerState, false);
+			}
+			benchmark.run(RasterizerKernel.Incremental, samplerState, true);
+		}
+		benchmark._tiledRasterizer.dispose();
+	}
+
+	public SoftwareRasterizerBenchmark()
+	{
+		// A round, premultiplied sprite with a fully transparent border.
+		for (int y = 0; y < TextureSize; ++y)
+		{
+			for (int x = 0; x < TextureSize; ++x)
+			{
+				float dx = x - TextureSize / 2 + 0.5f;
+				float dy = y - TextureSize / 2 + 0.5f;
+				int alpha = Math.max(0, 255 - (int) (Math.sqrt(dx * dx + dy * dy) * 255 / (TextureSize / 2)));
+				_texels[x + y * TextureSize] = new Color(x * 4 * alpha / 255, y * 4 * alpha / 255, alpha / 2, alpha).getPackedValue();
+			}
+		}
+
+		// NOTE: Use a fixed seed so every run draws the same scene.
+		Random random = new Random(1234);
+		for (int i = 0; i < SpriteCount; ++i)
+		{
+			_sprites[i * 4 + 0] = random.nextFloat() * ScreenWidth;
+			_sprites[i * 4 + 1] = random.nextFloat() * ScreenHeight;
+			// A third of the sprites are unscaled, a third are scaled and a third are rotated.
+			_sprites[i * 4 + 2] = (i % 3 == 0) ? 1.0f : 0.5f + random.nextFloat() * 2.0f;
+			_sprites[i * 4 + 3] = (i % 3 == 2) ? random.nextFloat() * (float) Math.PI * 2.0f : 0.0f;
+		}
+
+		_alphaSpans = new AlphaSpanIndex(_texels, TextureSize, TextureSize);
+		_rasterizer.setAlphaSpans(_alphaSpans);
+		_rasterizer.setRenderTarget(_pixels, ScreenWidth, ScreenHeight);
+		_tiledRasterizer.setRenderTarget(_pixels, ScreenWidth, ScreenHeight);
+	}
+
+	private void run(RasterizerKernel kernel, SamplerState samplerState, boolean tiled)
+	{
+		_rasterizer.setStates(samplerState, BlendState.AlphaBlend);
+
+		long pixelCount = 0;
+		for (int frame = 0; frame < WarmupFrames; ++frame)
+			pixelCount += drawFrame(kernel, samplerState, tiled);
+
+		pixelCount = 0;
+		long start = System.nanoTime();
+		for (int frame = 0; frame < MeasuredFrames; ++frame)
+			pixelCount += drawFrame(kernel, samplerState, tiled);
+		long elapsed = System.nanoTime() - start;
+
+		double seconds = elapsed / 1.0e9;
+		System.out.println(String.format("%-12s %-24s %8.2f ms/frame %10.2f Mpixels/s",
+				tiled ? "Tiled" : kernel, samplerState.name, seconds * 1000.0 / MeasuredFrames, pixelCount / seconds / 1.0e6));
+	}
+
+	/**
+	 * Draws all the sprites once.
+	 * 
+	 * @return The number of pixels covered by the sprites.
+	 */
+	private long drawFrame(RasterizerKernel kernel, SamplerState samplerState, boolean tiled)
+	{
+		Arrays.fill(_pixels, 0xFF000000);
+
+		long pixelCount = 0;
+		Color tint = Color.White;
+		for (int i = 0; i < SpriteCount; ++i)
+		{
+			float x = _sprites[i * 4 + 0];
+			float y = _sprites[i * 4 + 1];
+			float size = TextureSize * _sprites[i * 4 + 2];
+			float sin = (float) Math.sin(_sprites[i * 4 + 3]);
+			float cos = (float) Math.cos(_sprites[i * 4 + 3]);
+
+			float xAxisX = size * cos;
+			float xAxisY = size * sin;
+			float yAxisX = -size * sin;
+			float yAxisY = size * cos;
+
+			if (tiled)
+			{
+				_tiledRasterizer.addQuad(x, y, xAxisX, xAxisY, yAxisX, yAxisY,
+										 0, 0, TextureSize, TextureSize, TextureSize, TextureSize, _texels, tint.getPackedValue(), 0.0f,
+										 samplerState, BlendState.AlphaBlend, DepthStencilState.None, _alphaSpans);
+				pixelCount += (long) (size * size);
+				continue;
+			}
+
+			switch (kernel)
+			{
+				case Reference:
+					_rasterizer.drawQuad(new Vector2(x, y), new Vector2(xAxisX, xAxisY), new Vector2(yAxisX, yAxisY),
+										 0, 0, TextureSize, TextureSize, TextureSize, TextureSize, _texels, tint);
+					break;
+
+				case Simd:
+					_rasterizer.drawQuadSimd(x, y, xAxisX, xAxisY, yAxisX, yAxisY,
+											 0, 0, TextureSize, TextureSize, TextureSize, TextureSize, _texels, tint.getPackedValue());
+					break;
+
+				case Incremental:
+				default:
+					_rasterizer.drawQuadIncremental(x, y, xAxisX, xAxisY, yAxisX, yAxisY,
+													0, 0, TextureSize, TextureSize, TextureSize, TextureSize, _texels, tint.getPackedValue());
+					break;
+			}
+			pixelCount += (long) (size * size);
+		}
+		_tiledRasterizer.flush();
+		return pixelCount;
+	}
+}
@@ -0,0 +1,147 @@
+package jMono_Framework.graphics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the sorts of the sprite batches.
+ *
+ * <p>
+ * Sorts batches of 1k, 10k and 100k sprites by texture, front to back and back to front, once with
+ * {@link List#sort} and a comparator, like the {@link SpriteBatcher} used to, and once with the
+ * {@link RadixSort} of the sprite keys followed by the reordering of the list. Prints the time per
+ * sort and checks that both give the same order. Run it with the framework classes on the class
+ * path, for example {@code java jMono_Framework.graphics.SpriteSortBenchmark}.
+ *
+ * @author Eric
+ *
+ */
+public class SpriteSortBenchmark
+{
+	private static final int[] SpriteCounts = { 1000, 10000, 100000 };
+	private static final int TextureCount = 32;
+	private static final int WarmupSorts = 200;
+	private static final int MeasuredSorts = 200;
+
+	/** The part of a sprite the sorts look at */
+	private static final class Sprite
+	{
+		final int textureSortingKey;
+		final float depth;
+
+		Sprite(int textureSortingKey, float depth)
+		{
+			this.textureSortingKey = textureSortingKey;
+			this.depth = depth;
+		}
+	}
+
+	private final RadixSort _radixSort = new RadixSort();
+	private int[] _keys = new int[0];
+	private int[] _order = new int[0];
+	private Sprite[] _sorted = new Sprite[0];
+
+	public static void main(String[] args)
+	{
+		SpriteSortBenchmark benchmark = new SpriteSortBenchmark();
+		for (int spriteCount : SpriteCounts)
+		{
+			// NOTE: Use a fixed seed so every run sorts the same sprites.
+			Random random = new Random(1234);
+			List<Sprite> sprites = new ArrayList<Sprite>(spriteCount);
+			for (int i = 0; i < spriteCount; ++i)
+				sprites.add(new Sprite(random.nextInt(TextureCount), random.nextFloat()));
+
+			for (SpriteSortMode sortMode : new SpriteSortMode[] { SpriteSortMode.Texture, SpriteSortMode.FrontToBack, SpriteSortMode.BackToFront })
+				benchmark.run(sprites, sortMode);
+		}
+	}
+
+	private void run(List<Sprite> sprites, SpriteSortMode sortMode)
+	{
+		List<Sprite> comparisonSorted = new ArrayList<Sprite>(sprites);
+		List<Sprite> radixSorted = new ArrayList<Sprite>(sprites);
+		List<Sprite> work = new ArrayList<Sprite>(sprites);
+
+		for (int i = 0; i < WarmupSorts; ++i)
+		{
+			copy(sprites, work);
+			comparisonSort(work, sortMode);
+			copy(sprites, work);
+			radixSort(work, sortMode);
+		}
+
+		long comparisonTime = 0;
+		long radixTime = 0;
+		for (int i = 0; i < MeasuredSorts; ++i)
+		{
+			copy(sprites, work);
+			long start = System.nanoTime();
+			comparisonSort(work, sortMode);
+			comparisonTime += System.nanoTime() - start;
+
+			copy(sprites, work);
+			start = System.nanoTime();
+			radixSort(work, sortMode);
+			radixTime += System.nanoTime() - start;
+		}
+
+		comparisonSort(comparisonSorted, sortMode);
+		radixSort(radixSorted, sortMode);
+		boolean same = true;
+		for (int i = 0; i < sprites.size(); ++i)
+			same &= comparisonSorted.get(i) == radixSorted.get(i);
+
+		System.out.println(String.format("%7d sprites %-12s List.sort %9.3f ms  radix %9.3f ms  %5.2fx  %s",
+				sprites.size(), sortMode, comparisonTime / 1.0e6 / MeasuredSorts, radixTime / 1.0e6 / MeasuredSorts,
+				(double) comparisonTime / radixTime, same ? "same order" : "DIFFERENT ORDER"));
+	}
+
+	private static void copy(List<Sprite> source, List<Sprite> dest)
+	{
+		for (int i = 0; i < source.size(); ++i)
+			dest.set(i, source.get(i));
+	}
+
+	private static void comparisonSort(List<Sprite> sprites, SpriteSortMode sortMode)
+	{
+		switch (sortMode)
+		{
+			case Texture:
+				sprites.sort((a, b) -> Integer.compare(a.textureSortingKey, b.textureSortingKey));
+				break;
+			case FrontToBack:
+				sprites.sort((a, b) -> Float.compare(a.depth, b.depth));
+				break;
+			case BackToFront:
+				sprites.sort((a, b) -> Float.compare(b.depth, a.depth));
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void radixSort(List<Sprite> sprites, SpriteSortMode sortMode)
+	{
+		int count = sprites.size();
+		if (_keys.length < count)
+		{
+			_keys = new int[count];
+			_order = new int[count];
+			_sorted = new Sprite[count];
+		}
+
+		for (int i = 0; i < count; ++i)
+		{
+			Sprite sprite = sprites.get(i);
+			_keys[i] = SpriteBatcher.getSortKey(sortMode, sprite.textureSortingKey, sprite.depth);
+		}
+		_radixSort.sort(_keys, count, _order);
+
+		for (int i = 0; i < count; ++i)
+			_sorted[i] = sprites.get(_order[i]);
+		for (int i = 0; i < count; ++i)
+			sprites.set(i, _sorted[i]);
+	}
+}
@@ -0,0 +1,512 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.graphics.SoftwareRasterizer.QuadSetup;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The vectorized fill loop of {@link SoftwareRasterizer#drawQuadSimd}.
+ *
+ * <p>
+ * Each iteration handles as many pixels as the preferred vector shape of the CPU holds (8 with
+ * AVX2, 16 with AVX-512). Both loops fill the spans found by {@link QuadSetup#findSpan}, evaluate
+ * the texture coordinates with the same float operations and use the same integer formulas for
+ * the color math, so they produce the same pixels.
+ *
+ * <p>
+ * Each row is filled in passes over the whole span: the texels are sampled into a buffer, then
+ * they are tinted and blended over the render target by {@link #blendSpan}. Unscaled quads skip
+ * the sampling and blend straight from the texture.
+ *
+ * <p>
+ * NOTE: This class needs the {@code jdk.incubator.vector} module, both to compile and to run
+ * ({@code --add-modules jdk.incubator.vector}), so it lives in the {@code src-vector} source
+ * folder, compiled on its own against the classes of {@code src}. {@link SoftwareRasterizer} only
+ * loads it by name and falls back to its scalar loop when it or the module is missing.
+ *
+ * @author Eric
+ *
+ */
+final class VectorQuadKernel implements SoftwareRasterizer.FillKernel
+{
+	private static final VectorSpecies<Integer> IntSpecies = IntVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> FloatSpecies = FloatVector.SPECIES_PREFERRED;
+	private static final int Lanes = IntSpecies.length();
+
+	/** The lane indices as floats, used to get the column of each lane */
+	private static final FloatVector LaneOffsets = FloatVector.fromArray(FloatSpecies, laneOffsets(), 0);
+
+	/**
+	 * 1.5 * 2^23, adding it to a float smaller than 2^22 rounds it to an integer stored in the low
+	 * bits of the mantissa.
+	 */
+	private static final float Magic = 12582912.0f;
+	private static final int MagicBits = Float.floatToRawIntBits(Magic);
+
+	/** The texel indices of the current pixels, used to gather the texels */
+	private final int[] _indices = new int[Lanes];
+	/** The texels sampled for the current span, with room for a full vector past its end */
+	private int[] _spanTexels = new int[0];
+	/** The offsets of the left and right texels interpolated for each pixel of the span */
+	private int[] _spanLeft = new int[0];
+	private int[] _spanRight = new int[0];
+	/** The offsets of the top and bottom rows of texels interpolated for each pixel of the span */
+	private int[] _spanTop = new int[0];
+	private int[] _spanBottom = new int[0];
+	/** The horizontal and vertical weights of the texels, out of 256 */
+	private int[] _spanWeightsX = new int[0];
+	private int[] _spanWeightsY = new int[0];
+	/** The texels interpolated on the top row, the bottom row goes in _spanTexels */
+	private int[] _spanTopTexels = new int[0];
+	/** The texels of the last chunk of a span when it is shorter than a vector */
+	private final int[] _tailTexels = new int[Lanes];
+	/** The pixels of the last chunk of a span when it is shorter than a vector */
+	private final int[] _tailPixels = new int[Lanes];
+
+	VectorQuadKernel()
+	{
+		if (FloatSpecies.length() != Lanes)
+			throw new IllegalStateException("The preferred int and float vectors must have the same number of lanes.");
+	}
+
+	private static float[] laneOffsets()
+	{
+		float[] offsets = new float[Lanes];
+		for (int i = 0; i < Lanes; ++i)
+			offsets[i] = i;
+		return offsets;
+	}
+
+	@Override
+	public boolean fillQuad(QuadSetup s, int[] pixels, int stride)
+	{
+		ensureSpanCapacity(s.maxX - s.minX);
+
+		// NOTE: Each sample mode gets its own loop, a single loop switching on the mode per chunk
+		//       is too big for the JIT to keep the vectors in registers.
+		switch (s.sampleMode)
+		{
+			case SoftwareRasterizer.SAMPLE_UNSCALED:
+				fillUnscaled(s, pixels, stride);
+				return true;
+
+			case SoftwareRasterizer.SAMPLE_POINT:
+				fillPoint(s, pixels, stride);
+				return true;
+
+			case SoftwareRasterizer.SAMPLE_LINEAR_CLAMP:
+				fillLinearClamp(s, pixels, stride);
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
+	private void ensureSpanCapacity(int width)
+	{
+		// Leave room for the lanes of the last chunk that are past the end of the span.
+		if (_spanTexels.length >= width + Lanes)
+			return;
+
+		int capacity = width + Lanes;
+		_spanTexels = new int[capacity];
+		_spanLeft = new int[capacity];
+		_spanRight = new int[capacity];
+		_spanTop = new int[capacity];
+		_spanBottom = new int[capacity];
+		_spanWeightsX = new int[capacity];
+		_spanWeightsY = new int[capacity];
+		_spanTopTexels = new int[capacity];
+	}
+
+	private void fillUnscaled(QuadSetup s, int[] pixels, int stride)
+	{
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			int srcX = s.spanStart + s.unscaledOffsetX;
+			int srcY = y + s.unscaledOffsetY;
+			int srcIndex = srcX + srcY * s.srcWidth;
+			int destIndex = s.spanStart + y * stride;
+			int count = s.spanEnd - s.spanStart;
+			if (s.alphaSpans == null)
+			{
+				shadeUnscaled(s, srcIndex, pixels, destIndex, count);
+				continue;
+			}
+
+			// NOTE: Blending an opaque texel is about as fast as copying it here, so only the empty
+			//       runs are skipped. We only skip whole chunks of the span, cutting it anywhere
+			//       else would add partial chunks which cost more than the texels they save.
+			AlphaSpanIndex alphaSpans = s.alphaSpans;
+			int endX = srcX + count;
+			int first = srcX;
+			for (int x = srcX, run = alphaSpans.findRun(srcX, srcY); x < endX; ++run)
+			{
+				int runEnd = Math.min(alphaSpans.getRunEnd(run), endX);
+				if (alphaSpans.getRunKind(run) == AlphaSpanIndex.EMPTY)
+				{
+					int skipStart = srcX + ((x - srcX + Lanes - 1) & -Lanes);
+					int skipEnd = runEnd == endX ? endX : srcX + ((runEnd - srcX) & -Lanes);
+					if (skipStart < skipEnd)
+					{
+						if (skipStart > first)
+							shadeUnscaled(s, srcIndex + first - srcX, pixels, destIndex + first - srcX, skipStart - first);
+						first = skipEnd;
+					}
+				}
+				x = runEnd;
+			}
+			if (endX > first)
+				shadeUnscaled(s, srcIndex + first - srcX, pixels, destIndex + first - srcX, endX - first);
+		}
+	}
+
+	private void shadeUnscaled(QuadSetup s, int srcIndex, int[] pixels, int destIndex, int count)
+	{
+		if (s.tint != 0xFFFFFFFF)
+		{
+			tintSpan(s.srcPixels, srcIndex, count, s.tint);
+			blendSpan(_spanTexels, 0, pixels, destIndex, count);
+		}
+		else
+		{
+			blendSpan(s.srcPixels, srcIndex, pixels, destIndex, count);
+		}
+	}
+
+	private void fillPoint(QuadSetup s, int[] pixels, int stride)
+	{
+		FloatVector uStepX = FloatVector.broadcast(FloatSpecies, s.uStepX);
+		FloatVector vStepX = FloatVector.broadcast(FloatSpecies, s.vStepX);
+		int[] srcPixels = s.srcPixels;
+		int[] spanTexels = _spanTexels;
+
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			float row = (float) (y - s.quadMinY);
+			float uRow = s.uStart + row * s.uStepY;
+			float vRow = s.vStart + row * s.vStepY;
+
+			// NOTE: The lanes past the end of the span sample garbage coordinates, but those are
+			//       clamped like the others so they can't read outside of the texture.
+			int count = s.spanEnd - s.spanStart;
+			for (int i = 0; i < count; i += Lanes)
+			{
+				FloatVector column = LaneOffsets.add((float) (s.spanStart + i - s.quadMinX));
+				FloatVector u = column.mul(uStepX).add(uRow);
+				FloatVector v = column.mul(vStepX).add(vRow);
+				IntVector fetchX = toInt(truncate(u)).add(s.srcStartX).max(s.texelMinX).min(s.texelMaxX);
+				IntVector fetchY = toInt(truncate(v)).add(s.srcStartY).max(s.texelMinY).min(s.texelMaxY);
+				gather(srcPixels, fetchX.add(fetchY.mul(s.srcWidth))).intoArray(spanTexels, i);
+			}
+			if (s.tint != 0xFFFFFFFF)
+				tintSpan(spanTexels, 0, count, s.tint);
+			blendSpan(spanTexels, 0, pixels, s.spanStart + y * stride, count);
+		}
+	}
+
+	// NOTE: Each pass of the linear filter is its own small loop since the JIT stops inlining the
+	//       vector operations of a method past a certain size and then has to box the vectors.
+	private void fillLinearClamp(QuadSetup s, int[] pixels, int stride)
+	{
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			float row = (float) (y - s.quadMinY);
+			int count = s.spanEnd - s.spanStart;
+			int column = s.spanStart - s.quadMinX;
+			linearAxis(s.uStart + row * s.uStepY, s.uStepX, column, count,
+					   s.srcStartX, s.texelMinX, s.texelMaxX, 1,
+					   _spanLeft, _spanRight, _spanWeightsX);
+			linearAxis(s.vStart + row * s.vStepY, s.vStepX, column, count,
+					   s.srcStartY, s.texelMinY, s.texelMaxY, s.srcWidth,
+					   _spanTop, _spanBottom, _spanWeightsY);
+			lerpRow(s.srcPixels, _spanTop, _spanTopTexels, count);
+			lerpRow(s.srcPixels, _spanBottom, _spanTexels, count);
+			lerpRows(count);
+			if (s.tint != 0xFFFFFFFF)
+				tintSpan(_spanTexels, 0, count, s.tint);
+			blendSpan(_spanTexels, 0, pixels, s.spanStart + y * stride, count);
+		}
+	}
+
+	/**
+	 * Finds the 2 texels to interpolate along one axis of the texture for each pixel of a span.
+	 * 
+	 * <p>
+	 * NOTE: See SoftwareRasterizer.drawQuad() for why we don't blend with the texels outside of
+	 * the source rectangle when using spriteSheets or spriteStrips.
+	 * 
+	 * @param rowValue
+	 *        The texture coordinate of the first column of the quad on the current row.
+	 * @param step
+	 *        The change of the texture coordinate from one column to the next.
+	 * @param column
+	 *        The column of the first pixel of the span, relative to the quad.
+	 * @param count
+	 *        The number of pixels in the span.
+	 * @param srcStart
+	 *        The start of the source rectangle on this axis.
+	 * @param texelMin
+	 *        The first texel of the source rectangle on this axis.
+	 * @param texelMax
+	 *        The last texel of the source rectangle on this axis.
+	 * @param scale
+	 *        The distance in the texture array between 2 consecutive texels on this axis.
+	 * @param first
+	 *        Receives the offset of the first texel.
+	 * @param second
+	 *        Receives the offset of the second texel.
+	 * @param weights
+	 *        Receives the weight of the second texel, out of 256.
+	 */
+	private static void linearAxis(float rowValue, float step, int column, int count,
+								   int srcStart, int texelMin, int texelMax, int scale,
+								   int[] first, int[] second, int[] weights)
+	{
+		FloatVector stepX = FloatVector.broadcast(FloatSpecies, step);
+
+		for (int i = 0; i < count; i += Lanes)
+		{
+			FloatVector t = LaneOffsets.add((float) (column + i)).mul(stepX).add(rowValue).sub(0.5f);
+			FloatVector trunc = truncate(t);
+			toInt(truncate(t.sub(trunc).max(0.0f).mul(256.0f))).intoArray(weights, i);
+
+			// Don't step outside of the source rectangle on its last texel.
+			IntVector fetch = toInt(trunc).add(srcStart).max(texelMin).min(texelMax);
+			IntVector offset = fetch.mul(scale);
+			offset.intoArray(first, i);
+			offset.add(IntVector.broadcast(IntSpecies, scale).blend(0, fetch.compare(VectorOperators.EQ, texelMax)))
+				  .intoArray(second, i);
+		}
+	}
+
+	/**
+	 * Interpolates horizontally the texels of one of the 2 rows used by each pixel of a span.
+	 */
+	private void lerpRow(int[] srcPixels, int[] rowOffsets, int[] texels, int count)
+	{
+		int[] left = _spanLeft;
+		int[] right = _spanRight;
+		int[] weights = _spanWeightsX;
+
+		for (int i = 0; i < count; i += Lanes)
+		{
+			IntVector rowOffset = IntVector.fromArray(IntSpecies, rowOffsets, i);
+			IntVector a = gather(srcPixels, IntVector.fromArray(IntSpecies, left, i).add(rowOffset));
+			IntVector b = gather(srcPixels, IntVector.fromArray(IntSpecies, right, i).add(rowOffset));
+			lerpPacked(a, b, IntVector.fromArray(IntSpecies, weights, i)).intoArray(texels, i);
+		}
+	}
+
+	/**
+	 * Interpolates vertically between the 2 rows of texels, the result goes in
+	 * {@link #_spanTexels}.
+	 */
+	private void lerpRows(int count)
+	{
+		int[] top = _spanTopTexels;
+		int[] texels = _spanTexels;
+		int[] weights = _spanWeightsY;
+
+		for (int i = 0; i < count; i += Lanes)
+		{
+			IntVector a = IntVector.fromArray(IntSpecies, top, i);
+			IntVector b = IntVector.fromArray(IntSpecies, texels, i);
+			lerpPacked(a, b, IntVector.fromArray(IntSpecies, weights, i)).intoArray(texels, i);
+		}
+	}
+
+	/**
+	 * Multiplies each channel of the texels of a span by the tint and stores the result in
+	 * {@link #_spanTexels}, which can be the array the texels come from.
+	 * 
+	 * @param texels
+	 *        The array holding the texels.
+	 * @param texelIndex
+	 *        The index of the first texel of the span.
+	 * @param count
+	 *        The number of texels in the span.
+	 * @param tint
+	 *        The packed tint color.
+	 */
+	private void tintSpan(int[] texels, int texelIndex, int count, int tint)
+	{
+		int tintR = tint & 0xFF;
+		int tintG = (tint >>> 8) & 0xFF;
+		int tintB = (tint >>> 16) & 0xFF;
+		int tintA = tint >>> 24;
+		int[] spanTexels = _spanTexels;
+
+		for (int i = 0; i < count; i += Lanes)
+		{
+			int[] src = texels;
+			int srcIndex = texelIndex + i;
+			if (count - i < Lanes && texels != spanTexels)
+			{
+				System.arraycopy(texels, srcIndex, _tailTexels, 0, count - i);
+				src = _tailTexels;
+				srcIndex = 0;
+			}
+
+			IntVector texel = IntVector.fromArray(IntSpecies, src, srcIndex);
+			IntVector r = mul255(texel.and(0xFF), tintR);
+			IntVector g = mul255(texel.lanewise(VectorOperators.LSHR, 8).and(0xFF), tintG);
+			IntVector b = mul255(texel.lanewise(VectorOperators.LSHR, 16).and(0xFF), tintB);
+			IntVector a = mul255(texel.lanewise(VectorOperators.LSHR, 24), tintA);
+			a.lanewise(VectorOperators.LSHL, 24)
+			 .or(b.lanewise(VectorOperators.LSHL, 16))
+			 .or(g.lanewise(VectorOperators.LSHL, 8))
+			 .or(r)
+			 .intoArray(spanTexels, i);
+		}
+	}
+
+	/**
+	 * Blends premultiplied texels over the render target.
+	 * 
+	 * <p>
+	 * NOTE: Unlike the scalar loop we don't special case the opaque and the fully transparent
+	 * texels, the over formula gives the same result for both. The red and blue channels are
+	 * processed together, as are the green and alpha ones, each in its own 16 bits.
+	 * 
+	 * <p>
+	 * NOTE: The tint is applied in its own pass by {@link #tintSpan} and the color math is written
+	 * here instead of in small helpers. The JIT gives up inlining when a method gets too big, or
+	 * when the helper was already compiled on its own, and then has to box the vectors.
+	 * 
+	 * @param texels
+	 *        The array holding the texels.
+	 * @param texelIndex
+	 *        The index of the first texel of the span.
+	 * @param pixels
+	 *        The array of pixels of the render target.
+	 * @param destIndex
+	 *        The index of the first pixel of the span.
+	 * @param count
+	 *        The number of pixels in the span.
+	 */
+	private void blendSpan(int[] texels, int texelIndex, int[] pixels, int destIndex, int count)
+	{
+		for (int i = 0; i < count; i += Lanes)
+		{
+			int[] src = texels;
+			int srcIndex = texelIndex + i;
+			int[] dest = pixels;
+			int dstIndex = destIndex + i;
+
+			// NOTE: Masked loads and stores are a lot slower than plain ones, so the last chunk
+			//       of the span is blended in scratch arrays when it is shorter than a vector.
+			int remaining = count - i;
+			if (remaining < Lanes)
+			{
+				System.arraycopy(texels, srcIndex, _tailTexels, 0, remaining);
+				System.arraycopy(pixels, dstIndex, _tailPixels, 0, remaining);
+				src = _tailTexels;
+				srcIndex = 0;
+				dest = _tailPixels;
+				dstIndex = 0;
+			}
+
+			IntVector texel = IntVector.fromArray(IntSpecies, src, srcIndex);
+			IntVector pixel = IntVector.fromArray(IntSpecies, dest, dstIndex);
+			IntVector invA = IntVector.broadcast(IntSpecies, 255).sub(texel.lanewise(VectorOperators.LSHR, 24));
+			IntVector rb = saturate(texel.and(0x00FF00FF).add(mul255Packed(pixel.and(0x00FF00FF), invA)));
+			IntVector ag = saturate(texel.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF)
+									.add(mul255Packed(pixel.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF), invA)));
+			ag.lanewise(VectorOperators.LSHL, 8).or(rb).intoArray(dest, dstIndex);
+
+			if (remaining < Lanes)
+				System.arraycopy(_tailPixels, 0, pixels, destIndex + i, remaining);
+		}
+	}
+
+	/**
+	 * Clamps to 255 the 2 channels stored in the low 9 bits of each 16 bits.
+	 */
+	private static IntVector saturate(IntVector packed)
+	{
+		IntVector overflow = packed.lanewise(VectorOperators.LSHR, 8).and(0x00010001).mul(0xFF);
+		return packed.or(overflow).and(0x00FF00FF);
+	}
+
+	/**
+	 * {@link #mul255(IntVector, int)} on the 2 channels stored in the low 8 bits of each
+	 * 16 bits. The products never exceed 16 bits so the channels can't overlap.
+	 */
+	private static IntVector mul255Packed(IntVector a, IntVector b)
+	{
+		IntVector t = a.mul(b).add(0x00800080);
+		return t.add(t.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF)).lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF);
+	}
+
+	/**
+	 * Fetches the texels at the given indices.
+	 * 
+	 * <p>
+	 * NOTE: The indices are always clamped to the source rectangle, so we can use the unmasked
+	 * gather which, unlike the masked one, is an intrinsic.
+	 */
+	private IntVector gather(int[] srcPixels, IntVector indices)
+	{
+		indices.intoArray(_indices, 0);
+		return IntVector.fromArray(IntSpecies, srcPixels, 0, _indices, 0);
+	}
+
+	/**
+	 * Rounds the values toward zero like a {@code (int)} cast does.
+	 * 
+	 * <p>
+	 * NOTE: The float to int conversions are not intrinsics in JDK 17, so we use the magic number
+	 * trick instead. It is exact for values smaller than 2^22, which is way more than the texel
+	 * coordinates need.
+	 */
+	private static FloatVector truncate(FloatVector value)
+	{
+		FloatVector abs = value.abs();
+		FloatVector rounded = abs.add(Magic).sub(Magic);
+		FloatVector floor = rounded.blend(rounded.sub(1.0f), rounded.compare(VectorOperators.GT, abs));
+		return floor.blend(floor.neg(), value.compare(VectorOperators.LT, 0.0f));
+	}
+
+	/**
+	 * Converts integral float values smaller than 2^22 to ints.
+	 */
+	private static IntVector toInt(FloatVector integral)
+	{
+		return integral.add(Magic).reinterpretAsInts().sub(MagicBits);
+	}
+
+	/**
+	 * @see SoftwareRasterizer#mul255(int, int)
+	 */
+	private static IntVector mul255(IntVector a, int b)
+	{
+		IntVector t = a.mul(b).add(128);
+		return t.add(t.lanewise(VectorOperators.LSHR, 8)).lanewise(VectorOperators.LSHR, 8);
+	}
+
+	/**
+	 * @see SoftwareRasterizer#lerpPacked(int, int, int)
+	 */
+	private static IntVector lerpPacked(IntVector a, IntVector b, IntVector f)
+	{
+		IntVector invF = IntVector.broadcast(IntSpecies, 256).sub(f);
+		IntVector rb = a.and(0x00FF00FF).mul(invF).add(b.and(0x00FF00FF).mul(f))
+						.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF);
+		IntVector ag = a.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF).mul(invF)
+						.add(b.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF).mul(f)).and(0xFF00FF00);
+		return ag.or(rb);
+	}
+}
@@ -618,6 +618,9 @@ public abstract class Game extends Canvas implements Runnable, AutoCloseable
 			}
 		} while (true);
 
+		// NOTE: The frame time given to the dynamic resolution doesn't include the time we slept.
+		long frameStart = System.nanoTime();
+
 		// Do not allow any update to take longer than our maximum. This makes
 		// sure we draw once every time interval specified by maxElapsedTime.
 		if (_accumulatedElapsedTime.getTicks() > _maxElapsedTime.getTicks())
@@ -691,6 +694,8 @@ public abstract class Game extends Canvas implements Runnable, AutoCloseable
 		else
 		{
 			doDraw(_gameTime);
+			if (_graphicsDeviceManager instanceof GraphicsDeviceManager)
+				((GraphicsDeviceManager) _graphicsDeviceManager).addFrameTime(System.nanoTime() - frameStart);
 		}
 	}
 
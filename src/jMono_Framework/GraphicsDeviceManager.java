@@ -3,6 +3,7 @@ package jMono_Framework;
 import jMono_Framework.dotNet.events.Event;
 import jMono_Framework.dotNet.events.EventArgs;
 import jMono_Framework.dotNet.events.EventHandler;
+import jMono_Framework.graphics.DynamicResolution;
 import jMono_Framework.graphics.GraphicsAdapter;
 import jMono_Framework.graphics.GraphicsDevice;
 import jMono_Framework.graphics.GraphicsProfile;
@@ -26,6 +27,7 @@ public class GraphicsDeviceManager implements IGraphicsDeviceService, IGraphicsD
 	private boolean _drawBegun;
 	boolean disposed;
 	private boolean _hardwareModeSwitch = true;
+	private DynamicResolution _dynamicResolution;
 
 // #if (WINDOWS || WINDOWS_UAP) && DIRECTX
 	private boolean _firstLaunch = true;
@@ -542,6 +544,41 @@ public class GraphicsDeviceManager implements IGraphicsDeviceService, IGraphicsD
 		_preferredDepthStencilFormat = value;
 	}
 
+	public DynamicResolution getDynamicResolution()
+	{
+		return _dynamicResolution;
+	}
+
+	/**
+	 * Sets the dynamic resolution used to scale the resolution of the frames with their frame
+	 * time, or {@code null} to always render at the full resolution.
+	 * 
+	 * @param value
+	 *        The dynamic resolution, or {@code null}.
+	 */
+	public void setDynamicResolution(DynamicResolution value)
+	{
+		_dynamicResolution = value;
+		if (_graphicsDevice != null)
+			_graphicsDevice.setResolutionScale(value != null ? value.getScale() : 1.0f);
+	}
+
+	/**
+	 * Adds the time a frame took to the dynamic resolution, if any, and applies its scale.
+	 * 
+	 * @param nanoseconds
+	 *        The time spent updating and drawing the frame, in nanoseconds.
+	 */
+	void addFrameTime(long nanoseconds)
+	{
+		if (_dynamicResolution == null || _graphicsDevice == null)
+			return;
+
+		_dynamicResolution.addFrameTime(nanoseconds);
+		if (_graphicsDevice.getResolutionScale() != _dynamicResolution.getScale())
+			_graphicsDevice.setResolutionScale(_dynamicResolution.getScale());
+	}
+
 	public boolean synchronizeWithVerticalRetrace()
 	{
 		return _synchronizedWithVerticalRetrace;
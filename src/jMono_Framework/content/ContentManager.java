@@ -12,6 +12,7 @@ import jMono_Framework.graphics.IGraphicsDeviceService;
 import jMono_Framework.graphics.SpriteFont;
 import jMono_Framework.graphics.Texture;
 import jMono_Framework.graphics.Texture2D;
+import jMono_Framework.graphics.TextureAtlas;
 import jMono_Framework.graphics.effect.Effect;
 import jMono_Framework.utilities.StringHelpers;
 
@@ -42,6 +43,7 @@ public class ContentManager implements AutoCloseable
 	private Map<String, Object> loadedAssets = new HashMap<String, Object>();
 	private List<AutoCloseable> disposableAssets = new ArrayList<AutoCloseable>();
 	private boolean disposed;
+	private TextureAtlas _textureAtlas;
 
 	private static Object ContentManagerLock = new Object();
 	private static List<WeakReference<?>> ContentManagers = new ArrayList<WeakReference<?>>();
@@ -236,6 +238,20 @@ public class ContentManager implements AutoCloseable
 		// Load the asset.
 		result = readAsset(assetName, null, type);
 
+		// NOTE: The handle to the atlas region is cached, so loading the texture again returns it,
+		//       and the original texture is released right away since its texels were copied.
+		if (_textureAtlas != null && result instanceof Texture2D)
+		{
+			Texture2D texture = (Texture2D) result;
+			Texture2D region = _textureAtlas.add(texture);
+			if (region != texture)
+			{
+				disposableAssets.remove(texture);
+				texture.close();
+				result = (T) region;
+			}
+		}
+
 		loadedAssets.put(key, result);
 		return result;
 	}
@@ -760,6 +776,28 @@ public class ContentManager implements AutoCloseable
 	{
 		return this.serviceProvider;
 	}
+
+	public TextureAtlas getTextureAtlas()
+	{
+		return _textureAtlas;
+	}
+
+	/**
+	 * Sets the atlas the textures loaded from now on are packed into.
+	 * 
+	 * <p>
+	 * {@link #load(String, Class)} then returns the handles to the regions of the atlas instead of
+	 * the textures, which draw exactly like them but let a
+	 * {@link jMono_Framework.graphics.SpriteBatch} draw all the sprites of a page in one batch. The
+	 * atlas isn't disposed when unloading, the same atlas can be shared by several content managers.
+	 * 
+	 * @param value
+	 *        The atlas, or {@code null} to stop packing the textures.
+	 */
+	public void setTextureAtlas(TextureAtlas value)
+	{
+		_textureAtlas = value;
+	}
 	
 	// NOTE: Added these for the readRawAsset() method
 	private final int EOF = -1;
@@ -0,0 +1,178 @@
+package jMono_Framework.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Splits each row of a texture into runs of empty, translucent and opaque texels so the software
+ * rasterizer can skip the empty runs and copy the opaque ones instead of blending every texel.
+ *
+ * <p>
+ * NOTE: A run is only marked empty when all the channels of its texels are 0, a premultiplied
+ * texel with a null alpha can still add color to the render target. Runs shorter than
+ * {@link #MinRunLength} are folded into the translucent runs, which is always correct since those
+ * are blended normally, so that the fill loops don't spend more time switching runs than drawing.
+ *
+ * @author Eric
+ *
+ */
+final class AlphaSpanIndex
+{
+	/** The texels of the run are all transparent black */
+	static final int EMPTY = 0;
+	/** The texels of the run need to be blended */
+	static final int TRANSLUCENT = 1;
+	/** The texels of the run all have an alpha of 255 */
+	static final int OPAQUE = 2;
+
+	/** The length under which an empty or opaque run is merged into the translucent runs */
+	private static final int MinRunLength = 8;
+
+	/** The texels the index was built from */
+	private final int[] _texels;
+	/** The index of the first run of each row, the last entry is the total number of runs */
+	private final int[] _rowRuns;
+	/** The runs of every row, each one packed as its exclusive end column shifted by 2 and its kind */
+	private int[] _runs;
+	private int _runCount;
+
+	/**
+	 * Builds the index of a texture.
+	 *
+	 * @param texels
+	 *        The texels of the texture, packed as ABGR.
+	 * @param width
+	 *        The width of the texture.
+	 * @param height
+	 *        The height of the texture.
+	 */
+	AlphaSpanIndex(int[] texels, int width, int height)
+	{
+		_texels = texels;
+		_rowRuns = new int[height + 1];
+		_runs = new int[height * 4];
+
+		for (int y = 0; y < height; ++y)
+		{
+			_rowRuns[y] = _runCount;
+			int row = y * width;
+			int start = 0;
+			while (start < width)
+			{
+				int kind = kindOf(texels[row + start]);
+				int end = start + 1;
+				while (end < width && kindOf(texels[row + end]) == kind)
+					++end;
+
+				addRun(_rowRuns[y], end, kind, end - start);
+				start = end;
+			}
+		}
+		_rowRuns[height] = _runCount;
+	}
+
+	private static int kindOf(int texel)
+	{
+		if (texel == 0)
+			return EMPTY;
+		return (texel >>> 24) == 255 ? OPAQUE : TRANSLUCENT;
+	}
+
+	/**
+	 * Appends a run to the current row, merging it with the previous run when both end up
+	 * translucent.
+	 */
+	private void addRun(int firstRun, int end, int kind, int length)
+	{
+		if (length < MinRunLength)
+			kind = TRANSLUCENT;
+
+		if (_runCount > firstRun)
+		{
+			int previousKind = _runs[_runCount - 1] & 3;
+			if (previousKind == kind)
+			{
+				_runs[_runCount - 1] = (end << 2) | kind;
+				return;
+			}
+		}
+
+		if (_runCount == _runs.length)
+			_runs = Arrays.copyOf(_runs, _runs.length * 2);
+		_runs[_runCount++] = (end << 2) | kind;
+	}
+
+	/**
+	 * Returns whether the index describes the given texels. Texture2D replaces its array when its
+	 * data is set, so this catches an index that was not invalidated.
+	 */
+	boolean isBuiltFrom(int[] texels)
+	{
+		return _texels == texels;
+	}
+
+	/**
+	 * Returns whether every texel of a rectangle of the texture is opaque.
+	 *
+	 * @param minX
+	 *        The left of the rectangle.
+	 * @param minY
+	 *        The top of the rectangle.
+	 * @param maxX
+	 *        The right (exclusive) of the rectangle.
+	 * @param maxY
+	 *        The bottom (exclusive) of the rectangle.
+	 * @return {@code true} if each row of the rectangle lies in a single opaque run.
+	 */
+	boolean isOpaque(int minX, int minY, int maxX, int maxY)
+	{
+		// NOTE: Consecutive opaque runs are always merged, so a row is opaque only when the run
+		//       holding its first texel reaches its last one.
+		for (int y = minY; y < maxY; ++y)
+		{
+			int run = findRun(minX, y);
+			if (getRunKind(run) != OPAQUE || getRunEnd(run) < maxX)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the run holding a texel.
+	 *
+	 * @param x
+	 *        The column of the texel.
+	 * @param y
+	 *        The row of the texel.
+	 * @return The index of the run, the following runs of the row have the following indices.
+	 */
+	int findRun(int x, int y)
+	{
+		int low = _rowRuns[y];
+		int high = _rowRuns[y + 1] - 1;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if ((_runs[middle] >>> 2) <= x)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the column (exclusive) where a run ends.
+	 */
+	int getRunEnd(int run)
+	{
+		return _runs[run] >>> 2;
+	}
+
+	/**
+	 * Returns whether a run is {@link #EMPTY}, {@link #TRANSLUCENT} or {@link #OPAQUE}.
+	 */
+	int getRunKind(int run)
+	{
+		return _runs[run] & 3;
+	}
+}
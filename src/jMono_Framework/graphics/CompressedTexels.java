@@ -0,0 +1,164 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.Rectangle;
+
+/**
+ * The texels of a DXT texture, kept in their 4x4 blocks.
+ *
+ * <p>
+ * The software renderer decodes the blocks a draw samples through the {@link DecodedBlockCache}
+ * of the device, the levels are never decoded as a whole to be drawn. Each change of the blocks
+ * increments the version of the texels, which tells the cache its copies of the blocks are stale.
+ *
+ * @author Eric
+ *
+ */
+final class CompressedTexels
+{
+	private final SurfaceFormat _format;
+	private final int _width;
+	private final int _height;
+
+	/** The blocks of each mip level, null until the data of the level is set */
+	private final byte[][] _blocks;
+	/** Incremented each time the blocks change */
+	private volatile int _version;
+
+	CompressedTexels(SurfaceFormat format, int width, int height, int levelCount)
+	{
+		_format = format;
+		_width = width;
+		_height = height;
+		_blocks = new byte[levelCount][];
+	}
+
+	SurfaceFormat getFormat()
+	{
+		return _format;
+	}
+
+	int getVersion()
+	{
+		return _version;
+	}
+
+	/**
+	 * Sets the blocks of a mip level, or of a rectangle of it.
+	 * 
+	 * @param level
+	 *        The mip level.
+	 * @param rect
+	 *        The rectangle of the level the blocks cover, or {@code null} for the whole level. Its
+	 *        edges must be on the edges of the blocks, or of the level for its right and bottom
+	 *        edges.
+	 * @param data
+	 *        The blocks, in rows of blocks from the top-left one.
+	 * @param startIndex
+	 *        The index of the first byte of the blocks.
+	 * @param count
+	 *        The number of bytes of the blocks.
+	 * @throws IllegalArgumentException
+	 *         If {@code rect} is not aligned on the blocks or not inside of the level, or if there
+	 *         are not enough bytes for its blocks.
+	 */
+	void setBlocks(int level, Rectangle rect, byte[] data, int startIndex, int count)
+	{
+		int levelWidth = getLevelWidth(level);
+		int levelHeight = getLevelHeight(level);
+		if (rect == null || (rect.x == 0 && rect.y == 0 && rect.width == levelWidth && rect.height == levelHeight))
+		{
+			byte[] blocks = new byte[count];
+			System.arraycopy(data, startIndex, blocks, 0, count);
+			_blocks[level] = blocks;
+			++_version;
+			return;
+		}
+
+		if (rect.x < 0 || rect.y < 0 || rect.width <= 0 || rect.height <= 0 ||
+			rect.x + rect.width > levelWidth || rect.y + rect.height > levelHeight)
+			throw new IllegalArgumentException("The rectangle must be inside of the mip level: rect");
+		if ((rect.x & 3) != 0 || (rect.y & 3) != 0 ||
+			((rect.width & 3) != 0 && rect.x + rect.width != levelWidth) ||
+			((rect.height & 3) != 0 && rect.y + rect.height != levelHeight))
+			throw new IllegalArgumentException("The rectangle of a DXT texture must be aligned on its 4x4 blocks: rect");
+
+		int blockSize = DxtUtil.getBlockSize(_format);
+		int rowSize = ((rect.width + 3) >> 2) * blockSize;
+		int rowCount = (rect.height + 3) >> 2;
+		if (count < rowSize * rowCount)
+			throw new IllegalArgumentException("The data doesn't hold the " + rowSize * rowCount + " bytes of the blocks of the rectangle: count");
+
+		byte[] blocks = _blocks[level];
+		if (!hasBlocks(level))
+		{
+			// NOTE: The blocks outside of the rectangle are zeroed until their data is set.
+			blocks = new byte[DxtUtil.getBlocksSize(_format, levelWidth, levelHeight)];
+			if (_blocks[level] != null)
+				System.arraycopy(_blocks[level], 0, blocks, 0, _blocks[level].length);
+			_blocks[level] = blocks;
+		}
+
+		int levelRowSize = ((levelWidth + 3) >> 2) * blockSize;
+		int offset = (rect.y >> 2) * levelRowSize + (rect.x >> 2) * blockSize;
+		for (int row = 0; row < rowCount; ++row)
+			System.arraycopy(data, startIndex + row * rowSize, blocks, offset + row * levelRowSize, rowSize);
+		++_version;
+	}
+
+	/**
+	 * Returns whether the blocks of a mip level were set and cover the level.
+	 */
+	boolean hasBlocks(int level)
+	{
+		byte[] blocks = _blocks[level];
+		return blocks != null && blocks.length >= DxtUtil.getBlocksSize(_format, getLevelWidth(level), getLevelHeight(level));
+	}
+
+	/**
+	 * Returns the blocks of a mip level, or {@code null} if they don't cover the level, see
+	 * {@link #hasBlocks(int)}.
+	 */
+	byte[] getBlocks(int level)
+	{
+		return hasBlocks(level) ? _blocks[level] : null;
+	}
+
+	int getLevelWidth(int level)
+	{
+		return Math.max(_width >> level, 1);
+	}
+
+	int getLevelHeight(int level)
+	{
+		return Math.max(_height >> level, 1);
+	}
+
+	/**
+	 * Decodes a whole mip level, for the uses of the texels outside of the software renderer. The
+	 * texels are not kept.
+	 *
+	 * @param level
+	 *        The mip level.
+	 * @return The texels of the level, transparent black if its blocks were not set.
+	 */
+	int[] decodeLevel(int level)
+	{
+		int width = getLevelWidth(level);
+		int height = getLevelHeight(level);
+		int[] texels = new int[width * height];
+		byte[] blocks = getBlocks(level);
+		if (blocks != null)
+			DxtUtil.decodeBlocks(_format, blocks, width, height, texels);
+		return texels;
+	}
+
+	/**
+	 * Releases the blocks, for when the texture is disposed.
+	 */
+	void clear()
+	{
+		for (int i = 0; i < _blocks.length; ++i)
+			_blocks[i] = null;
+		++_version;
+	}
+}
@@ -0,0 +1,157 @@
+package jMono_Framework.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last decoded 4x4 blocks of the DXT textures drawn by a device, see
+ * {@link GraphicsDevice#setCompressedTextureStorage(boolean)}.
+ *
+ * <p>
+ * The cache is direct-mapped: a block goes in the slot picked by hashing its texture, level and
+ * position, replacing whichever block was there. The draws copy the blocks they sample into a
+ * region of the level, which the fill loops sample like the texels of an uncompressed texture, so
+ * only the blocks a sprite covers are ever decoded and the ones of the sprites drawn every frame
+ * are decoded once.
+ *
+ * <p>
+ * NOTE: The cache is only used by the thread drawing with the device. The blocks changed by
+ * another thread are detected with the version of the {@link CompressedTexels}.
+ *
+ * @author Eric
+ *
+ */
+final class DecodedBlockCache
+{
+	/** The number of blocks held, 256 KiB of texels */
+	private static final int Capacity = 4096;
+	/** The number of texels of a block */
+	private static final int BlockTexels = 16;
+
+	/** The texels, level and index of the block held by each slot, the texels are null in the empty slots */
+	private final CompressedTexels[] _owners = new CompressedTexels[Capacity];
+	private final int[] _versions = new int[Capacity];
+	private final int[] _keys = new int[Capacity];
+	/** The decoded texels of each slot, 16 per slot in rows of 4 */
+	private final int[] _texels = new int[Capacity * BlockTexels];
+
+	private final int[] _colors = new int[4];
+	private final int[] _alphas = new int[8];
+
+	/** The last region returned by getRegion(), which the next call returns again if it asks for the same one */
+	private int[] _region = new int[0];
+	private CompressedTexels _regionOwner;
+	private int _regionVersion;
+	private int _regionLevel;
+	private int _regionX;
+	private int _regionY;
+	private int _regionWidth;
+	private int _regionHeight;
+
+	/**
+	 * Returns the texels of a region of a mip level, decoding the blocks it covers that are not
+	 * in the cache.
+	 *
+	 * @param texels
+	 *        The blocks of the texture.
+	 * @param level
+	 *        The mip level.
+	 * @param x
+	 *        The left of the region, in texels of the level.
+	 * @param y
+	 *        The top of the region, in texels of the level.
+	 * @param width
+	 *        The width of the region, greater than 0.
+	 * @param height
+	 *        The height of the region, greater than 0.
+	 * @param retained
+	 *        Whether the array returned is still read after the next call, like by the
+	 *        {@link TiledRasterizer}, in which case it isn't reused.
+	 * @return The texels of the region, in rows of {@code width} texels. The texels outside of
+	 *         the level, or of a level whose blocks were not set, are transparent black.
+	 */
+	int[] getRegion(CompressedTexels texels, int level, int x, int y, int width, int height, boolean retained)
+	{
+		int version = texels.getVersion();
+		if (texels == _regionOwner && version == _regionVersion && level == _regionLevel &&
+			x == _regionX && y == _regionY && width == _regionWidth && height == _regionHeight)
+			return _region;
+
+		int[] region = _region;
+		if (retained || region.length < width * height)
+			region = new int[width * height];
+		copyRegion(texels, version, level, x, y, width, height, region);
+
+		_region = region;
+		_regionOwner = texels;
+		_regionVersion = version;
+		_regionLevel = level;
+		_regionX = x;
+		_regionY = y;
+		_regionWidth = width;
+		_regionHeight = height;
+		return region;
+	}
+
+	/**
+	 * Releases the references to the textures, for when the device is disposed.
+	 */
+	void clear()
+	{
+		Arrays.fill(_owners, null);
+		_region = new int[0];
+		_regionOwner = null;
+	}
+
+	private void copyRegion(CompressedTexels texels, int version, int level, int x, int y, int width, int height, int[] region)
+	{
+		byte[] blocks = texels.getBlocks(level);
+		int levelWidth = texels.getLevelWidth(level);
+		int levelHeight = texels.getLevelHeight(level);
+
+		// NOTE: Only the part of the region inside of the level is read from the blocks.
+		int minX = Math.max(x, 0);
+		int minY = Math.max(y, 0);
+		int maxX = Math.min(x + width, levelWidth);
+		int maxY = Math.min(y + height, levelHeight);
+		if (blocks == null || minX >= maxX || minY >= maxY)
+		{
+			Arrays.fill(region, 0, width * height, 0);
+			return;
+		}
+		if (minX > x || minY > y || maxX < x + width || maxY < y + height)
+			Arrays.fill(region, 0, width * height, 0);
+
+		SurfaceFormat format = texels.getFormat();
+		int blockSize = DxtUtil.getBlockSize(format);
+		int blocksPerRow = (levelWidth + 3) >> 2;
+		int ownerHash = System.identityHashCode(texels) * 0x9E3779B9;
+		int[] cached = _texels;
+		for (int blockY = minY >> 2; blockY <= (maxY - 1) >> 2; ++blockY)
+		{
+			int top = Math.max(blockY << 2, minY);
+			int bottom = Math.min((blockY << 2) + 4, maxY);
+			for (int blockX = minX >> 2; blockX <= (maxX - 1) >> 2; ++blockX)
+			{
+				int block = blockX + blockY * blocksPerRow;
+				int key = (block << 4) | level;
+				int hash = ownerHash ^ (key * 0x85EBCA6B);
+				int slot = (hash ^ (hash >>> 16)) & (Capacity - 1);
+				if (_owners[slot] != texels || _keys[slot] != key || _versions[slot] != version)
+				{
+					DxtUtil.decodeBlock(format, blocks, block * blockSize, _colors, _alphas, cached, slot * BlockTexels, 4, 4, 4);
+					_owners[slot] = texels;
+					_keys[slot] = key;
+					_versions[slot] = version;
+				}
+
+				int left = Math.max(blockX << 2, minX);
+				int right = Math.min((blockX << 2) + 4, maxX);
+				for (int row = top; row < bottom; ++row)
+				{
+					System.arraycopy(cached, slot * BlockTexels + ((row & 3) << 2) + (left & 3),
+									 region, (left - x) + (row - y) * width, right - left);
+				}
+			}
+		}
+	}
+}
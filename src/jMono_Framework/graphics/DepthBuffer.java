@@ -0,0 +1,63 @@
+package jMono_Framework.graphics;
+
+import java.util.Arrays;
+
+/**
+ * The depth buffer of a render target of the software renderer, one float per pixel.
+ *
+ * <p>
+ * NOTE: Most games ask for a depth buffer but never enable the depth test for their sprites, so
+ * the values are only allocated by the first draw that tests them. Until then a clear only
+ * records its depth, which is the value the buffer starts with.
+ *
+ * @author Eric
+ *
+ */
+final class DepthBuffer
+{
+	/** The number of pixels of the render target */
+	private final int _size;
+	/** The depth of each pixel, null until the buffer is first used */
+	private float[] _values;
+	/** The depth of the last clear */
+	private float _clearDepth = 1.0f;
+
+	/**
+	 * Creates the depth buffer of a render target.
+	 *
+	 * @param width
+	 *        The width of the render target.
+	 * @param height
+	 *        The height of the render target.
+	 */
+	DepthBuffer(int width, int height)
+	{
+		_size = width * height;
+	}
+
+	/**
+	 * Returns the depth of each pixel, allocating them on the first call.
+	 */
+	float[] getValues()
+	{
+		if (_values == null)
+		{
+			_values = new float[_size];
+			Arrays.fill(_values, _clearDepth);
+		}
+		return _values;
+	}
+
+	/**
+	 * Sets the depth of every pixel.
+	 *
+	 * @param depth
+	 *        The new depth.
+	 */
+	void clear(float depth)
+	{
+		_clearDepth = depth;
+		if (_values != null)
+			Arrays.fill(_values, depth);
+	}
+}
@@ -0,0 +1,157 @@
+package jMono_Framework.graphics;
+
+/**
+ * A union of rectangles of the back buffer, used by the software renderer to track the pixels
+ * that changed since the last present.
+ *
+ * <p>
+ * NOTE: Overlapping rectangles are merged as they are added and the number of rectangles is
+ * bounded, once it is reached the new rectangle is merged with the one it grows the least. The
+ * region can therefore cover a few more pixels than were actually touched, never less.
+ *
+ * @author Eric
+ *
+ */
+final class DirtyRegion
+{
+	/** The maximum number of distinct rectangles, each of them costs one blit when presenting */
+	private static final int MaxRectangles = 16;
+
+	/** The rectangles packed as minX, minY, maxX, maxY, max values are exclusive */
+	private final int[] _rectangles = new int[MaxRectangles * 4];
+	private int _count;
+
+	/**
+	 * Removes all the rectangles from the region.
+	 */
+	void clear()
+	{
+		_count = 0;
+	}
+
+	boolean isEmpty()
+	{
+		return _count == 0;
+	}
+
+	/**
+	 * Returns the number of rectangles in the region.
+	 */
+	int getCount()
+	{
+		return _count;
+	}
+
+	int getMinX(int index)
+	{
+		return _rectangles[index * 4 + 0];
+	}
+
+	int getMinY(int index)
+	{
+		return _rectangles[index * 4 + 1];
+	}
+
+	int getMaxX(int index)
+	{
+		return _rectangles[index * 4 + 2];
+	}
+
+	int getMaxY(int index)
+	{
+		return _rectangles[index * 4 + 3];
+	}
+
+	/**
+	 * Adds a rectangle to the region. Empty rectangles are ignored.
+	 *
+	 * @param minX
+	 *        The left of the rectangle.
+	 * @param minY
+	 *        The top of the rectangle.
+	 * @param maxX
+	 *        The right (exclusive) of the rectangle.
+	 * @param maxY
+	 *        The bottom (exclusive) of the rectangle.
+	 */
+	void add(int minX, int minY, int maxX, int maxY)
+	{
+		if (minX >= maxX || minY >= maxY)
+			return;
+
+		// Merge with every rectangle the new one overlaps, the union can overlap other ones so
+		// we start over until none is left.
+		boolean merged = true;
+		while (merged)
+		{
+			merged = false;
+			for (int i = 0; i < _count; ++i)
+			{
+				int r = i * 4;
+				if (minX <= _rectangles[r + 2] && _rectangles[r + 0] <= maxX &&
+					minY <= _rectangles[r + 3] && _rectangles[r + 1] <= maxY)
+				{
+					minX = Math.min(minX, _rectangles[r + 0]);
+					minY = Math.min(minY, _rectangles[r + 1]);
+					maxX = Math.max(maxX, _rectangles[r + 2]);
+					maxY = Math.max(maxY, _rectangles[r + 3]);
+					remove(i);
+					merged = true;
+					break;
+				}
+			}
+		}
+
+		if (_count == MaxRectangles)
+		{
+			// Merge with the rectangle whose area grows the least.
+			int best = 0;
+			long bestGrowth = Long.MAX_VALUE;
+			for (int i = 0; i < _count; ++i)
+			{
+				int r = i * 4;
+				long area = (long) (_rectangles[r + 2] - _rectangles[r + 0]) * (_rectangles[r + 3] - _rectangles[r + 1]);
+				long union = (long) (Math.max(maxX, _rectangles[r + 2]) - Math.min(minX, _rectangles[r + 0])) *
+							 (Math.max(maxY, _rectangles[r + 3]) - Math.min(minY, _rectangles[r + 1]));
+				if (union - area < bestGrowth)
+				{
+					bestGrowth = union - area;
+					best = i;
+				}
+			}
+			int r = best * 4;
+			minX = Math.min(minX, _rectangles[r + 0]);
+			minY = Math.min(minY, _rectangles[r + 1]);
+			maxX = Math.max(maxX, _rectangles[r + 2]);
+			maxY = Math.max(maxY, _rectangles[r + 3]);
+			remove(best);
+			add(minX, minY, maxX, maxY);
+			return;
+		}
+
+		int r = _count * 4;
+		_rectangles[r + 0] = minX;
+		_rectangles[r + 1] = minY;
+		_rectangles[r + 2] = maxX;
+		_rectangles[r + 3] = maxY;
+		++_count;
+	}
+
+	/**
+	 * Adds all the rectangles of another region to this one.
+	 *
+	 * @param region
+	 *        The region to add.
+	 */
+	void add(DirtyRegion region)
+	{
+		for (int i = 0; i < region._count; ++i)
+			add(region.getMinX(i), region.getMinY(i), region.getMaxX(i), region.getMaxY(i));
+	}
+
+	private void remove(int index)
+	{
+		--_count;
+		System.arraycopy(_rectangles, (index + 1) * 4, _rectangles, index * 4, (_count - index) * 4);
+	}
+}
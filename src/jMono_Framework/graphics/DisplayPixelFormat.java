@@ -0,0 +1,161 @@
+package jMono_Framework.graphics;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+
+/**
+ * Hands the frames of the software renderer to Java2D in the pixel layout of the display.
+ *
+ * <p>
+ * The back buffer holds the pixels packed like {@link jMono_Framework.Color#getPackedValue()},
+ * red in the low byte, which most displays don't use. Drawing it makes Java2D pick a generic
+ * conversion loop on every blit. When the display uses 32 bits pixels with the red and blue
+ * channels swapped, the changed pixels are swizzled in a tight loop into an image compatible with
+ * the display, which Java2D copies without any conversion. When the display already
+ * uses the layout of the back buffer, the frames are drawn as they are.
+ *
+ * <p>
+ * NOTE: The rasterizers keep rendering in their own layout since the texels, the blend kernels
+ * and the metrics all depend on it, the conversion happens once per changed pixel when
+ * presenting. Any other display layout falls back to {@link PresentPath#Generic}.
+ *
+ * @author Eric
+ *
+ */
+final class DisplayPixelFormat
+{
+	/** Whether the display uses the layout of the back buffer */
+	private final boolean _matchesBackBuffer;
+	/** Whether the display uses 32 bits pixels with red in the third byte */
+	private final boolean _swapsRedBlue;
+	private final GraphicsConfiguration _configuration;
+
+	/** Whether the display didn't give us the image we expected, which disables the native path */
+	private volatile boolean _failed;
+
+	/** The frame last handed over, converted to the layout of the display */
+	private BufferedImage _converted;
+	private int[] _convertedPixels;
+
+	/**
+	 * Detects the pixel layout of a display.
+	 *
+	 * @param configuration
+	 *        The configuration of the component the frames are presented to, or {@code null}.
+	 */
+	DisplayPixelFormat(GraphicsConfiguration configuration)
+	{
+		boolean matchesBackBuffer = false;
+		boolean swapsRedBlue = false;
+		ColorModel colorModel = (configuration != null) ? configuration.getColorModel() : null;
+		if (colorModel instanceof DirectColorModel && colorModel.getTransferType() == DataBuffer.TYPE_INT)
+		{
+			DirectColorModel direct = (DirectColorModel) colorModel;
+			if (direct.getRedMask() == 0x0000FF && direct.getGreenMask() == 0x00FF00 && direct.getBlueMask() == 0xFF0000)
+				matchesBackBuffer = true;
+			else if (direct.getRedMask() == 0xFF0000 && direct.getGreenMask() == 0x00FF00 && direct.getBlueMask() == 0x0000FF)
+				swapsRedBlue = true;
+		}
+
+		_configuration = configuration;
+		_matchesBackBuffer = matchesBackBuffer;
+		_swapsRedBlue = swapsRedBlue;
+	}
+
+	/**
+	 * Returns the path the frames take to the display.
+	 *
+	 * @param enabled
+	 *        Whether the native path is enabled.
+	 */
+	PresentPath getPath(boolean enabled)
+	{
+		if (!enabled || _failed || !(_matchesBackBuffer || _swapsRedBlue))
+			return PresentPath.Generic;
+		return PresentPath.Native;
+	}
+
+	/**
+	 * Returns the image to draw to present a frame.
+	 *
+	 * @param image
+	 *        The frame, a {@link BufferedImage#TYPE_INT_BGR} image.
+	 * @param region
+	 *        The region that changed since the last frame handed over, or {@code null} if it all
+	 *        changed.
+	 * @param enabled
+	 *        Whether the native path is enabled, which is given with each frame since the frames
+	 *        can be converted on another thread than the one changing the setting.
+	 * @return The frame in the layout of the display, or {@code image} itself.
+	 */
+	BufferedImage convert(BufferedImage image, DirtyRegion region, boolean enabled)
+	{
+		if (!enabled || _failed || !_swapsRedBlue)
+			return image;
+
+		int width = image.getWidth();
+		int height = image.getHeight();
+		if (_converted == null || _converted.getWidth() != width || _converted.getHeight() != height)
+		{
+			if (!createConvertedImage(width, height))
+				return image;
+			region = null;
+		}
+
+		int[] source = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		int[] dest = _convertedPixels;
+		if (region == null)
+		{
+			swizzle(source, dest, 0, width * height);
+		}
+		else
+		{
+			for (int i = 0; i < region.getCount(); ++i)
+			{
+				int minX = region.getMinX(i);
+				int maxX = region.getMaxX(i);
+				for (int y = region.getMinY(i); y < region.getMaxY(i); ++y)
+					swizzle(source, dest, minX + y * width, maxX - minX);
+			}
+		}
+
+		return _converted;
+	}
+
+	/**
+	 * Creates the image the frames are converted into, falling back to the generic path if the
+	 * display doesn't give us an int image with the layout we detected.
+	 */
+	private boolean createConvertedImage(int width, int height)
+	{
+		BufferedImage converted = _configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+		ColorModel colorModel = converted.getColorModel();
+		if (!(converted.getRaster().getDataBuffer() instanceof DataBufferInt) || !(colorModel instanceof DirectColorModel) ||
+			((DirectColorModel) colorModel).getRedMask() != 0xFF0000 || ((DirectColorModel) colorModel).getBlueMask() != 0x0000FF)
+		{
+			_failed = true;
+			return false;
+		}
+
+		_converted = converted;
+		_convertedPixels = ((DataBufferInt) converted.getRaster().getDataBuffer()).getData();
+		return true;
+	}
+
+	/**
+	 * Swaps the red and blue channels of a run of pixels.
+	 */
+	private static void swizzle(int[] source, int[] dest, int start, int count)
+	{
+		for (int i = start; i < start + count; ++i)
+		{
+			int pixel = source[i];
+			dest[i] = ((pixel & 0xFF) << 16) | (pixel & 0xFF00) | ((pixel >> 16) & 0xFF);
+		}
+	}
+}
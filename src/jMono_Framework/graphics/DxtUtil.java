@@ -1,8 +1,6 @@
 package jMono_Framework.graphics;
 
-import jMono_Framework.Color;
 import jMono_Framework.dotNet.io.BinaryReader;
-import jMono_Framework.dotNet.io.MemoryStream;
 import jMono_Framework.dotNet.io.Stream;
 
 // TODO: If the actual value is important and not just the byte
@@ -12,437 +10,284 @@ public class DxtUtil
 {
 	public static byte[] decompressDxt1(byte[] imageData, int width, int height)
 	{
-		try (MemoryStream imageStream = new MemoryStream(imageData))
-		{
-			return decompressDxt1(imageStream, width, height);
-		}
+		return decompress(SurfaceFormat.Dxt1, imageData, width, height);
 	}
 
 	protected static byte[] decompressDxt1(Stream imageStream, int width, int height)
 	{
-		byte[] imageData = new byte[width * height * 4];
-
-		try (BinaryReader imageReader = new BinaryReader(imageStream))
-		{
-			int blockCountX = (width + 3) / 4;
-			int blockCountY = (height + 3) / 4;
-
-			for (int y = 0; y < blockCountY; ++y)
-			{
-				for (int x = 0; x < blockCountX; ++x)
-				{
-					decompressDxt1Block(imageReader, x, y, blockCountX, width, height, imageData);
-				}
-			}
-		}
+		return decompress(SurfaceFormat.Dxt1, imageStream, width, height);
+	}
 
-		return imageData;
+	public static byte[] decompressDxt3(byte[] imageData, int width, int height)
+	{
+		return decompress(SurfaceFormat.Dxt3, imageData, width, height);
 	}
 
-	private static void decompressDxt1Block(BinaryReader imageReader, int x, int y, int blockCountX, int width,
-			int height, byte[] imageData)
+	protected static byte[] decompressDxt3(Stream imageStream, int width, int height)
 	{
-		int c0 = imageReader.readUInt16();
-		int c1 = imageReader.readUInt16();
+		return decompress(SurfaceFormat.Dxt3, imageStream, width, height);
+	}
 
-		// TODO: Out parameters of primitive data types doesn't work in Java
-		// unless we implement our own wrapper class for all the primitives
-		Color color0 = new Color();
-		Color color1 = new Color();
-		// byte r0 = 0, g0 = 0, b0 = 0;
-		// byte r1 = 0, g1 = 0, b1 = 0;
-		convertRgb565ToRgb888(c0, color0);
-		convertRgb565ToRgb888(c1, color1);
-		byte r0 = (byte) color0.getRed(), g0 = (byte) color0.getGreen(), b0 = (byte) color0.getBlue();
-		byte r1 = (byte) color1.getRed(), g1 = (byte) color1.getGreen(), b1 = (byte) color1.getBlue();
+	public static byte[] decompressDxt5(byte[] imageData, int width, int height)
+	{
+		return decompress(SurfaceFormat.Dxt5, imageData, width, height);
+	}
 
-		int lookupTable = (int) imageReader.readUInt32();
+	protected static byte[] decompressDxt5(Stream imageStream, int width, int height)
+	{
+		return decompress(SurfaceFormat.Dxt5, imageStream, width, height);
+	}
 
-		for (int blockY = 0; blockY < 4; ++blockY)
+	private static byte[] decompress(SurfaceFormat format, Stream imageStream, int width, int height)
+	{
+		byte[] blocks;
+		try (BinaryReader imageReader = new BinaryReader(imageStream))
 		{
-			for (int blockX = 0; blockX < 4; ++blockX)
-			{
-				byte r = 0, g = 0, b = 0, a = (byte) 255;
-				int index = (lookupTable >> 2 * (4 * blockY + blockX)) & 0x03;
+			blocks = imageReader.readBytes(getBlocksSize(format, width, height));
+		}
+		return decompress(format, blocks, width, height);
+	}
 
-				if (c0 > c1)
-				{
-					switch (index)
-					{
-						case 0:
-							r = r0;
-							g = g0;
-							b = b0;
-							break;
-						case 1:
-							r = r1;
-							g = g1;
-							b = b1;
-							break;
-						case 2:
-							r = (byte) ((2 * r0 + r1) / 3);
-							g = (byte) ((2 * g0 + g1) / 3);
-							b = (byte) ((2 * b0 + b1) / 3);
-							break;
-						case 3:
-							r = (byte) ((r0 + 2 * r1) / 3);
-							g = (byte) ((g0 + 2 * g1) / 3);
-							b = (byte) ((b0 + 2 * b1) / 3);
-							break;
-					}
-				}
-				else
-				{
-					switch (index)
-					{
-						case 0:
-							r = r0;
-							g = g0;
-							b = b0;
-							break;
-						case 1:
-							r = r1;
-							g = g1;
-							b = b1;
-							break;
-						case 2:
-							r = (byte) ((r0 + r1) / 2);
-							g = (byte) ((g0 + g1) / 2);
-							b = (byte) ((b0 + b1) / 2);
-							break;
-						case 3:
-							r = 0;
-							g = 0;
-							b = 0;
-							a = 0;
-							break;
-					}
-				}
+	/**
+	 * Decodes the blocks of a surface with {@link #decodeBlocks}, so the textures expanded when
+	 * they are loaded get the same texels as the ones kept compressed.
+	 * 
+	 * @return The texels of the surface, 4 bytes per texel in the RGBA order.
+	 */
+	private static byte[] decompress(SurfaceFormat format, byte[] blocks, int width, int height)
+	{
+		int size = getBlocksSize(format, width, height);
+		if (blocks.length < size)
+			throw new IllegalArgumentException("The " + width + "x" + height + " " + format + " surface needs " + size + " bytes of blocks but " + blocks.length + " were given: imageData");
 
-				int px = (x << 2) + blockX;
-				int py = (y << 2) + blockY;
-				if ((px < width) && (py < height))
-				{
-					int offset = ((py * width) + px) << 2;
-					imageData[offset] = r;
-					imageData[offset + 1] = g;
-					imageData[offset + 2] = b;
-					imageData[offset + 3] = a;
-				}
-			}
+		int[] texels = new int[width * height];
+		decodeBlocks(format, blocks, width, height, texels);
+
+		byte[] imageData = new byte[width * height * 4];
+		for (int i = 0, j = 0; i < texels.length; ++i, j += 4)
+		{
+			int texel = texels[i];
+			imageData[j + 0] = (byte) texel;
+			imageData[j + 1] = (byte) (texel >> 8);
+			imageData[j + 2] = (byte) (texel >> 16);
+			imageData[j + 3] = (byte) (texel >> 24);
 		}
+		return imageData;
 	}
 
-	public static byte[] decompressDxt3(byte[] imageData, int width, int height)
+	/**
+	 * Returns whether a surface format is one of the DXT formats, whose texels can be kept in
+	 * their blocks and decoded with {@link #decodeBlocks}.
+	 */
+	static boolean isDxtFormat(SurfaceFormat format)
 	{
-		try (MemoryStream imageStream = new MemoryStream(imageData))
+		switch (format)
 		{
-			return decompressDxt3(imageStream, width, height);
+			case Dxt1:
+			case Dxt1SRgb:
+			case Dxt1a:
+			case Dxt3:
+			case Dxt3SRgb:
+			case Dxt5:
+			case Dxt5SRgb:
+				return true;
+			default:
+				return false;
 		}
 	}
 
-	protected static byte[] decompressDxt3(Stream imageStream, int width, int height)
+	/**
+	 * Returns the size in bytes of the blocks of a surface of a DXT format.
+	 */
+	static int getBlocksSize(SurfaceFormat format, int width, int height)
 	{
-		byte[] imageData = new byte[width * height * 4];
+		return ((width + 3) / 4) * ((height + 3) / 4) * getBlockSize(format);
+	}
 
-		try (BinaryReader imageReader = new BinaryReader(imageStream))
+	/**
+	 * Decodes the blocks of a surface of a DXT format into texels packed like the ones of a
+	 * {@link SurfaceFormat#Color} texture, red in the low byte.
+	 * 
+	 * <p>
+	 * NOTE: This is the decoder of the decompressDxtN methods too. The blocks are read straight
+	 * from the array and the channels are computed unsigned.
+	 * 
+	 * @param format
+	 *        The DXT format of the blocks.
+	 * @param blocks
+	 *        The blocks, at least {@link #getBlocksSize} bytes.
+	 * @param width
+	 *        The width of the surface.
+	 * @param height
+	 *        The height of the surface.
+	 * @param texels
+	 *        The array receiving the {@code width * height} texels.
+	 */
+	static void decodeBlocks(SurfaceFormat format, byte[] blocks, int width, int height, int[] texels)
+	{
+		int blockSize = getBlockSize(format);
+		int[] colors = new int[4];
+		int[] alphas = new int[8];
+
+		int offset = 0;
+		for (int y = 0; y < height; y += 4)
 		{
-			int blockCountX = (width + 3) / 4;
-			int blockCountY = (height + 3) / 4;
-			
-			for (int y = 0; y < blockCountY; ++y)
+			for (int x = 0; x < width; x += 4, offset += blockSize)
 			{
-				for (int x = 0; x < blockCountX; ++x)
-				{
-					 decompressDxt3Block(imageReader, x, y, blockCountX, width, height, imageData);
-				}
+				decodeBlock(format, blocks, offset, colors, alphas, texels, x + y * width, width,
+							Math.min(4, width - x), Math.min(4, height - y));
 			}
 		}
-		
-		return imageData;
 	}
 
-	private static void decompressDxt3Block(BinaryReader imageReader, int x, int y, int blockCountX, int width,
-			int height, byte[] imageData)
+	/**
+	 * Decodes a block of a surface of a DXT format, see {@link #decodeBlocks}.
+	 * 
+	 * @param format
+	 *        The DXT format of the block.
+	 * @param blocks
+	 *        The blocks of the surface.
+	 * @param offset
+	 *        The index of the first byte of the block.
+	 * @param colors
+	 *        A scratch array of 4 ints.
+	 * @param alphas
+	 *        A scratch array of 8 ints.
+	 * @param texels
+	 *        The array receiving the texels.
+	 * @param texelIndex
+	 *        The index of the top-left texel of the block.
+	 * @param stride
+	 *        The number of texels between two rows of texels.
+	 * @param width
+	 *        The number of columns of the block to write, at most 4.
+	 * @param height
+	 *        The number of rows of the block to write, at most 4.
+	 */
+	static void decodeBlock(SurfaceFormat format, byte[] blocks, int offset, int[] colors, int[] alphas,
+							int[] texels, int texelIndex, int stride, int width, int height)
 	{
-		// NOTE: Since java doesn't have unsigned values, we need to use a
-		// bigger primitive and make sure the data we read is positive.
-		// After all arithmetics is done, we can safely cast down to a byte
-		// since at the end we only care about the binary representation.
-		short a0 = (short) (imageReader.readByte() & 0x00ff);
-		short a1 = (short) (imageReader.readByte() & 0x00ff);
-		short a2 = (short) (imageReader.readByte() & 0x00ff);
-		short a3 = (short) (imageReader.readByte() & 0x00ff);
-		short a4 = (short) (imageReader.readByte() & 0x00ff);
-		short a5 = (short) (imageReader.readByte() & 0x00ff);
-		short a6 = (short) (imageReader.readByte() & 0x00ff);
-		short a7 = (short) (imageReader.readByte() & 0x00ff);
+		boolean isDxt1 = isDxt1(format);
+		boolean isDxt3 = format == SurfaceFormat.Dxt3 || format == SurfaceFormat.Dxt3SRgb;
 
-		int c0 = imageReader.readUInt16();
-		int c1 = imageReader.readUInt16();
+		int colorOffset = isDxt1 ? offset : offset + 8;
+		decodeColors(blocks, colorOffset, isDxt1, colors);
+		int colorIndices = readInt32(blocks, colorOffset + 4);
 
-		// TODO: Out parameters of primitive data types doesn't work in Java
-		// unless we implement our own wrapper class for all the primitives
-		Color color0 = new Color();
-		Color color1 = new Color();
-		// byte r0 = 0, g0 = 0, b0 = 0;
-		// byte r1 = 0, g1 = 0, b1 = 0;
-		convertRgb565ToRgb888(c0, color0);
-		convertRgb565ToRgb888(c1, color1);
-		short r0 = (short) (color0.getRed() & 0x00ff);
-		short g0 = (short) (color0.getGreen() & 0x00ff);
-		short b0 = (short) (color0.getBlue() & 0x00ff);
-		short r1 = (short) (color1.getRed() & 0x00ff);
-		short g1 = (short) (color1.getGreen() & 0x00ff);
-		short b1 = (short) (color1.getBlue() & 0x00ff);
-
-		int lookupTable = (int) imageReader.readUInt32();
+		long alphaIndices = 0L;
+		if (isDxt3)
+		{
+			alphaIndices = readInt32(blocks, offset) & 0xFFFFFFFFL | (long) readInt32(blocks, offset + 4) << 32;
+		}
+		else if (!isDxt1)
+		{
+			decodeAlphas(blocks[offset] & 0xFF, blocks[offset + 1] & 0xFF, alphas);
+			alphaIndices = readInt32(blocks, offset + 2) & 0xFFFFFFFFL | (long) (readInt32(blocks, offset + 6) & 0xFFFF) << 32;
+		}
 
-		int alphaIndex = 0;
-		for (int blockY = 0; blockY < 4; blockY++)
+		for (int blockY = 0; blockY < height; ++blockY)
 		{
-			for (int blockX = 0; blockX < 4; blockX++)
+			int row = texelIndex + blockY * stride;
+			for (int blockX = 0; blockX < width; ++blockX)
 			{
-				byte r = 0, g = 0, b = 0, a = 0;
-
-				int index = (lookupTable >> 2 * (4 * blockY + blockX)) & 0x03;
-				
-				switch (alphaIndex)
-				{
-					case 0:
-						a = (byte) ((a0 & 0x0F) | ((a0 & 0x0F) << 4));
-						break;
-					case 1:
-						a = (byte) ((a0 & 0xF0) | ((a0 & 0xF0) >> 4));
-						break;
-					case 2:
-						a = (byte) ((a1 & 0x0F) | ((a1 & 0x0F) << 4));
-						break;
-					case 3:
-						a = (byte) ((a1 & 0xF0) | ((a1 & 0xF0) >> 4));
-						break;
-					case 4:
-						a = (byte) ((a2 & 0x0F) | ((a2 & 0x0F) << 4));
-						break;
-					case 5:
-						a = (byte) ((a2 & 0xF0) | ((a2 & 0xF0) >> 4));
-						break;
-					case 6:
-						a = (byte) ((a3 & 0x0F) | ((a3 & 0x0F) << 4));
-						break;
-					case 7:
-						a = (byte) ((a3 & 0xF0) | ((a3 & 0xF0) >> 4));
-						break;
-					case 8:
-						a = (byte) ((a4 & 0x0F) | ((a4 & 0x0F) << 4));
-						break;
-					case 9:
-						a = (byte) ((a4 & 0xF0) | ((a4 & 0xF0) >> 4));
-						break;
-					case 10:
-						a = (byte) ((a5 & 0x0F) | ((a5 & 0x0F) << 4));
-						break;
-					case 11:
-						a = (byte) ((a5 & 0xF0) | ((a5 & 0xF0) >> 4));
-						break;
-					case 12:
-						a = (byte) ((a6 & 0x0F) | ((a6 & 0x0F) << 4));
-						break;
-					case 13:
-						a = (byte) ((a6 & 0xF0) | ((a6 & 0xF0) >> 4));
-						break;
-					case 14:
-						a = (byte) ((a7 & 0x0F) | ((a7 & 0x0F) << 4));
-						break;
-					case 15:
-						a = (byte) ((a7 & 0xF0) | ((a7 & 0xF0) >> 4));
-						break;
-				}
-				++alphaIndex;
-
-				switch (index)
-				{
-					case 0:
-						r = (byte) r0;
-						g = (byte) g0;
-						b = (byte) b0;
-						break;
-					case 1:
-						r = (byte) r1;
-						g = (byte) g1;
-						b = (byte) b1;
-						break;
-					case 2:
-						r = (byte) ((2 * r0 + r1) / 3);
-						g = (byte) ((2 * g0 + g1) / 3);
-						b = (byte) ((2 * b0 + b1) / 3);
-						break;
-					case 3:
-						r = (byte) ((r0 + 2 * r1) / 3);
-						g = (byte) ((g0 + 2 * g1) / 3);
-						b = (byte) ((b0 + 2 * b1) / 3);
-						break;
-				}
-
-				int px = (x << 2) + blockX;
-				int py = (y << 2) + blockY;
-				if ((px < width) && (py < height))
-				{
-					int offset = ((py * width) + px) << 2;
-					imageData[offset] = r;
-					imageData[offset + 1] = g;
-					imageData[offset + 2] = b;
-					imageData[offset + 3] = a;
-				}
+				int texel = blockX + 4 * blockY;
+				int color = colors[(colorIndices >>> 2 * texel) & 0x03];
+				if (isDxt3)
+					color = (color & 0x00FFFFFF) | ((int) (alphaIndices >>> 4 * texel) & 0x0F) * 0x11 << 24;
+				else if (!isDxt1)
+					color = (color & 0x00FFFFFF) | alphas[(int) (alphaIndices >>> 3 * texel) & 0x07] << 24;
+				texels[row + blockX] = color;
 			}
 		}
 	}
 
-	public static byte[] decompressDxt5(byte[] imageData, int width, int height)
+	/**
+	 * Returns the size in bytes of a block of a DXT format.
+	 */
+	static int getBlockSize(SurfaceFormat format)
 	{
-		try (MemoryStream imageStream = new MemoryStream(imageData))
-		{
-			return decompressDxt5(imageStream, width, height);
-		}
+		return isDxt1(format) ? 8 : 16;
 	}
 
-	protected static byte[] decompressDxt5(Stream imageStream, int width, int height)
+	private static boolean isDxt1(SurfaceFormat format)
 	{
-		byte[] imageData = new byte[width * height * 4];
+		return format == SurfaceFormat.Dxt1 || format == SurfaceFormat.Dxt1SRgb || format == SurfaceFormat.Dxt1a;
+	}
 
-		try (BinaryReader imageReader = new BinaryReader(imageStream))
+	/**
+	 * Computes the four colors of a color block. The DXT1 blocks whose first color is not greater
+	 * than the second one have three colors and a transparent black.
+	 */
+	private static void decodeColors(byte[] blocks, int offset, boolean isDxt1, int[] colors)
+	{
+		int c0 = (blocks[offset] & 0xFF) | (blocks[offset + 1] & 0xFF) << 8;
+		int c1 = (blocks[offset + 2] & 0xFF) | (blocks[offset + 3] & 0xFF) << 8;
+		int color0 = expandRgb565(c0);
+		int color1 = expandRgb565(c1);
+		colors[0] = color0;
+		colors[1] = color1;
+		if (c0 > c1 || !isDxt1)
 		{
-			int blockCountX = (width + 3) / 4;
-			int blockCountY = (height + 3) / 4;
-
-			for (int y = 0; y < blockCountY; y++)
-			{
-				for (int x = 0; x < blockCountX; x++)
-				{
-					decompressDxt5Block(imageReader, x, y, blockCountX, width, height, imageData);
-				}
-			}
+			colors[2] = blend(color0, color1, 2, 1, 3);
+			colors[3] = blend(color0, color1, 1, 2, 3);
+		}
+		else
+		{
+			colors[2] = blend(color0, color1, 1, 1, 2);
+			colors[3] = 0;
 		}
-
-		return imageData;
 	}
 
-	private static void decompressDxt5Block(BinaryReader imageReader, int x, int y, int blockCountX, int width,
-			int height, byte[] imageData)
+	/**
+	 * Computes the eight alpha values of a DXT5 alpha block.
+	 */
+	private static void decodeAlphas(int alpha0, int alpha1, int[] alphas)
 	{
-		byte alpha0 = imageReader.readByte();
-		byte alpha1 = imageReader.readByte();
-
-		long alphaMask = (long) imageReader.readByte();
-		alphaMask += (long) imageReader.readByte() << 8;
-		alphaMask += (long) imageReader.readByte() << 16;
-		alphaMask += (long) imageReader.readByte() << 24;
-		alphaMask += (long) imageReader.readByte() << 32;
-		alphaMask += (long) imageReader.readByte() << 40;
-
-		int c0 = imageReader.readUInt16();
-		int c1 = imageReader.readUInt16();
-
-		// TODO: Out parameters of primitive data types doesn't work in Java
-		// unless we implement our own wrapper class for all the primitives
-		Color color0 = new Color();
-		Color color1 = new Color();
-		// byte r0 = 0, g0 = 0, b0 = 0;
-		// byte r1 = 0, g1 = 0, b1 = 0;
-		convertRgb565ToRgb888(c0, color0);
-		convertRgb565ToRgb888(c1, color1);
-		byte r0 = (byte) color0.getRed(), g0 = (byte) color0.getGreen(), b0 = (byte) color0.getBlue();
-		byte r1 = (byte) color1.getRed(), g1 = (byte) color1.getGreen(), b1 = (byte) color1.getBlue();
-
-		int lookupTable = (int) imageReader.readUInt32();
-
-		for (int blockY = 0; blockY < 4; blockY++)
+		alphas[0] = alpha0;
+		alphas[1] = alpha1;
+		if (alpha0 > alpha1)
 		{
-			for (int blockX = 0; blockX < 4; blockX++)
-			{
-				byte r = 0, g = 0, b = 0, a = (byte) 255;
-				int index = (lookupTable >> 2 * (4 * blockY + blockX)) & 0x03;
-
-				int alphaIndex = (int) ((alphaMask >> 3 * (4 * blockY + blockX)) & 0x07);
-				if (alphaIndex == 0)
-				{
-					a = alpha0;
-				}
-				else if (alphaIndex == 1)
-				{
-					a = alpha1;
-				}
-				else if (alpha0 > alpha1)
-				{
-					a = (byte) (((8 - alphaIndex) * alpha0 + (alphaIndex - 1) * alpha1) / 7);
-				}
-				else if (alphaIndex == 6)
-				{
-					a = 0;
-				}
-				else if (alphaIndex == 7)
-				{
-					a = (byte) 0xff;
-				}
-				else
-				{
-					a = (byte) (((6 - alphaIndex) * alpha0 + (alphaIndex - 1) * alpha1) / 5);
-				}
-
-				switch (index)
-				{
-					case 0:
-						r = r0;
-						g = g0;
-						b = b0;
-						break;
-					case 1:
-						r = r1;
-						g = g1;
-						b = b1;
-						break;
-					case 2:
-						r = (byte) ((2 * r0 + r1) / 3);
-						g = (byte) ((2 * g0 + g1) / 3);
-						b = (byte) ((2 * b0 + b1) / 3);
-						break;
-					case 3:
-						r = (byte) ((r0 + 2 * r1) / 3);
-						g = (byte) ((g0 + 2 * g1) / 3);
-						b = (byte) ((b0 + 2 * b1) / 3);
-						break;
-				}
-
-				int px = (x << 2) + blockX;
-				int py = (y << 2) + blockY;
-				if ((px < width) && (py < height))
-				{
-					int offset = ((py * width) + px) << 2;
-					imageData[offset] = r;
-					imageData[offset + 1] = g;
-					imageData[offset + 2] = b;
-					imageData[offset + 3] = a;
-				}
-			}
+			for (int i = 2; i < 8; ++i)
+				alphas[i] = ((8 - i) * alpha0 + (i - 1) * alpha1) / 7;
+		}
+		else
+		{
+			for (int i = 2; i < 6; ++i)
+				alphas[i] = ((6 - i) * alpha0 + (i - 1) * alpha1) / 5;
+			alphas[6] = 0;
+			alphas[7] = 255;
 		}
 	}
 
-	// TODO: Out parameters of primitive data types doesn't work in Java
-	// unless we implement our own wrapper class for all the primitives
-	// private static void ConvertRgb565ToRgb888(ushort color, out byte r, out byte g, out byte b)
-	private static void convertRgb565ToRgb888(int color, Color col)
+	/**
+	 * Converts a 565 color to an opaque packed color, each channel rounded to the nearest of the 8
+	 * bits values.
+	 */
+	private static int expandRgb565(int color)
 	{
-		int temp;
+		int r = (color >> 11) * 255 + 16;
+		int g = ((color & 0x07E0) >> 5) * 255 + 32;
+		int b = (color & 0x001F) * 255 + 16;
+		r = (r / 32 + r) / 32;
+		g = (g / 64 + g) / 64;
+		b = (b / 32 + b) / 32;
+		return 0xFF000000 | (b << 16) | (g << 8) | r;
+	}
 
-		temp = (color >> 11) * 255 + 16;
-		// r = (byte) ((temp / 32 + temp) / 32);
-		col.setRed((byte) ((temp / 32 + temp) / 32));
-		temp = ((color & 0x07E0) >> 5) * 255 + 32;
-		// g = (byte) ((temp / 64 + temp) / 64);
-		col.setGreen((byte) ((temp / 64 + temp) / 64));
-		temp = (color & 0x001F) * 255 + 16;
-		// b = (byte) ((temp / 32 + temp) / 32);
-		col.setBlue((byte) ((temp / 32 + temp) / 32));
+	/**
+	 * Computes {@code (weight0 * color0 + weight1 * color1) / divisor} for each color channel of
+	 * two opaque packed colors.
+	 */
+	private static int blend(int color0, int color1, int weight0, int weight1, int divisor)
+	{
+		int r = (weight0 * (color0 & 0xFF) + weight1 * (color1 & 0xFF)) / divisor;
+		int g = (weight0 * ((color0 >> 8) & 0xFF) + weight1 * ((color1 >> 8) & 0xFF)) / divisor;
+		int b = (weight0 * ((color0 >> 16) & 0xFF) + weight1 * ((color1 >> 16) & 0xFF)) / divisor;
+		return 0xFF000000 | (b << 16) | (g << 8) | r;
+	}
+
+	private static int readInt32(byte[] data, int offset)
+	{
+		return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
 	}
-	
 }
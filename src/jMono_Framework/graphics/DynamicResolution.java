@@ -0,0 +1,247 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.dotNet.events.Event;
+import jMono_Framework.dotNet.events.EventArgs;
+import jMono_Framework.time.TimeSpan;
+
+/**
+ * Picks the resolution the software renderer renders at from the time the recent frames took,
+ * trading sharpness for frame rate when the scenes get busy.
+ *
+ * <p>
+ * The time of every frame is added to a rolling window. Once the window is full, the scale is
+ * lowered by one step if the average frame time is over the budget, and raised by one step if it
+ * is under the budget by more than the hysteresis. The window is then emptied so the next
+ * decision is only based on frames rendered at the new scale, which keeps the scale from
+ * oscillating between two steps.
+ *
+ * <p>
+ * NOTE: Set it on the {@link jMono_Framework.GraphicsDeviceManager}, the {@link jMono_Framework.Game}
+ * then measures the time spent updating and drawing each frame, without the time it sleeps, and
+ * applies the scale with {@link GraphicsDevice#setResolutionScale(float)}.
+ *
+ * @author Eric
+ *
+ */
+public class DynamicResolution
+{
+	/** Raised when the scale changes, the new one is given by {@link #getScale()} */
+	public Event<EventArgs> scaleChanged = new Event<EventArgs>();
+
+	private long _frameTimeBudget;
+	private float _minimumScale = 0.5f;
+	private float _scaleStep = 0.1f;
+	private float _hysteresis = 0.2f;
+	private float _scale = 1.0f;
+
+	/** The time in nanoseconds of the frames of the window, used as a ring buffer */
+	private long[] _frameTimes = new long[30];
+	private int _frameCount;
+	private int _nextFrame;
+	private long _frameTimeSum;
+
+	/**
+	 * Creates a dynamic resolution whose frames must take at most the given time.
+	 *
+	 * @param frameTimeBudget
+	 *        The time a frame should take, usually the target elapsed time of the game.
+	 * @throws NullPointerException
+	 *         If {@code frameTimeBudget} is {@code null}.
+	 */
+	public DynamicResolution(TimeSpan frameTimeBudget)
+	{
+		setFrameTimeBudget(frameTimeBudget);
+	}
+
+	public Event<EventArgs> getScaleChanged() { return scaleChanged; }
+
+	/**
+	 * Returns the fraction of the back buffer resolution the frames should be rendered at.
+	 *
+	 * @return The current scale, between the minimum scale and 1.
+	 */
+	public float getScale()
+	{
+		return _scale;
+	}
+
+	public TimeSpan getFrameTimeBudget()
+	{
+		return TimeSpan.fromTicks(_frameTimeBudget / 100L);
+	}
+
+	/**
+	 * Sets the time a frame should take.
+	 *
+	 * @param value
+	 *        The frame time budget.
+	 * @throws NullPointerException
+	 *         If {@code value} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *         If {@code value} is not positive.
+	 */
+	public void setFrameTimeBudget(TimeSpan value)
+	{
+		if (value == null)
+			throw new NullPointerException("value");
+		if (value.getTicks() <= 0)
+			throw new IllegalArgumentException("The frame time budget must be positive: value");
+		// NOTE: A tick is 100 nanoseconds.
+		_frameTimeBudget = value.getTicks() * 100L;
+	}
+
+	public float getMinimumScale()
+	{
+		return _minimumScale;
+	}
+
+	/**
+	 * Sets the lowest scale the frames can be rendered at.
+	 *
+	 * @param value
+	 *        The minimum scale, in the (0, 1] range.
+	 * @throws IllegalArgumentException
+	 *         If {@code value} is outside of the (0, 1] range.
+	 */
+	public void setMinimumScale(float value)
+	{
+		if (!(value > 0.0f && value <= 1.0f))
+			throw new IllegalArgumentException("The minimum scale must be in the (0, 1] range: value");
+		_minimumScale = value;
+		if (_scale < value)
+			changeScale(value);
+	}
+
+	public float getScaleStep()
+	{
+		return _scaleStep;
+	}
+
+	/**
+	 * Sets how much the scale changes at once.
+	 *
+	 * @param value
+	 *        The scale step, in the (0, 1] range.
+	 * @throws IllegalArgumentException
+	 *         If {@code value} is outside of the (0, 1] range.
+	 */
+	public void setScaleStep(float value)
+	{
+		if (!(value > 0.0f && value <= 1.0f))
+			throw new IllegalArgumentException("The scale step must be in the (0, 1] range: value");
+		_scaleStep = value;
+	}
+
+	public float getHysteresis()
+	{
+		return _hysteresis;
+	}
+
+	/**
+	 * Sets the fraction of the budget the average frame time must stay under before the scale is
+	 * raised again.
+	 *
+	 * @param value
+	 *        The hysteresis, in the [0, 1) range.
+	 * @throws IllegalArgumentException
+	 *         If {@code value} is outside of the [0, 1) range.
+	 */
+	public void setHysteresis(float value)
+	{
+		if (!(value >= 0.0f && value < 1.0f))
+			throw new IllegalArgumentException("The hysteresis must be in the [0, 1) range: value");
+		_hysteresis = value;
+	}
+
+	public int getSampleCount()
+	{
+		return _frameTimes.length;
+	}
+
+	/**
+	 * Sets the number of frames averaged before the scale is changed.
+	 *
+	 * @param value
+	 *        The number of frames of the rolling window.
+	 * @throws IllegalArgumentException
+	 *         If {@code value} is not positive.
+	 */
+	public void setSampleCount(int value)
+	{
+		if (value <= 0)
+			throw new IllegalArgumentException("The sample count must be positive: value");
+		_frameTimes = new long[value];
+		clearFrameTimes();
+	}
+
+	/**
+	 * Returns the average time of the frames of the rolling window.
+	 *
+	 * @return The average frame time, {@link TimeSpan#ZERO} if no frame was added since the last
+	 *         change of scale.
+	 */
+	public TimeSpan getAverageFrameTime()
+	{
+		if (_frameCount == 0)
+			return TimeSpan.ZERO;
+		return TimeSpan.fromTicks(_frameTimeSum / _frameCount / 100L);
+	}
+
+	/**
+	 * Adds the time a frame took to the rolling window and updates the scale once it is full.
+	 *
+	 * @param nanoseconds
+	 *        The time the frame took, in nanoseconds.
+	 * @return {@code true} if the scale changed, {@code false} otherwise.
+	 */
+	public boolean addFrameTime(long nanoseconds)
+	{
+		if (_frameCount == _frameTimes.length)
+			_frameTimeSum -= _frameTimes[_nextFrame];
+		else
+			++_frameCount;
+		_frameTimes[_nextFrame] = nanoseconds;
+		_frameTimeSum += nanoseconds;
+		_nextFrame = (_nextFrame + 1) % _frameTimes.length;
+
+		if (_frameCount < _frameTimes.length)
+			return false;
+
+		long average = _frameTimeSum / _frameCount;
+		float scale = _scale;
+		if (average > _frameTimeBudget)
+			scale = Math.max(_minimumScale, _scale - _scaleStep);
+		else if (average < (long) (_frameTimeBudget * (1.0 - _hysteresis)))
+			// NOTE: Snap to 1 so the rounding errors of the steps don't leave us just below it.
+			scale = (_scale + _scaleStep > 0.999f) ? 1.0f : _scale + _scaleStep;
+
+		if (scale == _scale)
+			return false;
+		changeScale(scale);
+		return true;
+	}
+
+	/**
+	 * Goes back to the full resolution and forgets the frames added.
+	 */
+	public void reset()
+	{
+		clearFrameTimes();
+		if (_scale != 1.0f)
+			changeScale(1.0f);
+	}
+
+	private void changeScale(float scale)
+	{
+		_scale = scale;
+		clearFrameTimes();
+		scaleChanged.handleEvent(this, EventArgs.Empty);
+	}
+
+	private void clearFrameTimes()
+	{
+		_frameCount = 0;
+		_nextFrame = 0;
+		_frameTimeSum = 0L;
+	}
+}
@@ -0,0 +1,396 @@
+package jMono_Framework.graphics;
+
+import java.awt.Graphics;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies the frames of the software renderer to the screen on a dedicated thread.
+ *
+ * <p>
+ * The presenter owns several back buffers. When a frame is submitted, its buffer is queued for
+ * the present thread, which blits it to the {@link BufferStrategy} and shows it, and the game
+ * thread carries on rasterizing the next frame into a free buffer. The game thread only waits
+ * when every other buffer is still queued, which bounds the latency to {@code BufferCount - 1}
+ * frames.
+ *
+ * <p>
+ * NOTE: Each buffer remembers the regions changed by the frames submitted since it was last
+ * drawn into. When it becomes the back buffer again those regions are copied from the last
+ * frame submitted, so the content of the back buffer is preserved from one frame to the next as
+ * if there was a single one.
+ *
+ * <p>
+ * NOTE: The settings of the device that change how a frame is presented are submitted along with
+ * it, so a change applies from the next frame submitted and the game thread never modifies what
+ * the present thread is using.
+ *
+ * @author Eric
+ *
+ */
+final class FramePresenter
+{
+	/** The number of back buffers, one is drawn into while the others are queued or shown */
+	static final int BufferCount = 2;
+
+	/**
+	 * A back buffer along with what the present thread needs to show it.
+	 */
+	private static final class Frame
+	{
+		final BufferedImage image;
+		final int[] pixels;
+		/** The region to blit, only used when blitRegion is true */
+		final DirtyRegion presentRegion = new DirtyRegion();
+		boolean blitRegion;
+		/** The regions changed by the frames submitted since this buffer was last drawn into */
+		final DirtyRegion missedRegion = new DirtyRegion();
+		boolean missedAll;
+		/** The time at which the frame was submitted */
+		long submitTime;
+		/** Whether the present thread must stop instead of showing the frame */
+		boolean stop;
+		/** How the frame fits the window and the size of the window when it was submitted */
+		PresentScaling scaling = PresentScaling.None;
+		/** The size the frame was rendered at, only used when it is scaled */
+		int sourceWidth;
+		int sourceHeight;
+		int displayWidth;
+		int displayHeight;
+		/** The present settings of the device when the frame was submitted */
+		boolean parallelScaling;
+		boolean nativePresentation;
+
+		Frame(BufferedImage image)
+		{
+			this.image = image;
+			this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		}
+	}
+
+	private final BufferStrategy _bufferStrategy;
+	/** Scales the frames to the window, only used by the present thread */
+	private final Upscaler _upscaler;
+	/** Converts the frames to the layout of the display, only used by the present thread */
+	private final DisplayPixelFormat _displayPixelFormat;
+	private final int _width;
+	private final int _height;
+	private final Frame[] _frames;
+	/** The frames waiting to be shown, in submission order */
+	private final BlockingQueue<Frame> _queuedFrames = new ArrayBlockingQueue<Frame>(BufferCount);
+	/** The frames that can be drawn into */
+	private final BlockingQueue<Frame> _freeFrames = new ArrayBlockingQueue<Frame>(BufferCount);
+	private final Thread _thread;
+
+	/** The frame the game thread draws into */
+	private Frame _backFrame;
+	/** The number of frames submitted and not shown yet */
+	private final AtomicInteger _queueDepth = new AtomicInteger();
+	/** The time in nanoseconds between the submission of the last frame shown and its show */
+	private volatile long _lastLatency;
+	/** The time in nanoseconds the last frame shown took to be copied to the screen */
+	private volatile long _lastBlitTime;
+	/** The exception that stopped the present thread, rethrown on the game thread */
+	private volatile RuntimeException _failure;
+
+	/**
+	 * Creates a presenter whose first back buffer is an existing image.
+	 *
+	 * @param bufferStrategy
+	 *        The strategy of the window the frames are shown in.
+	 * @param image
+	 *        The current back buffer, its content is kept.
+	 * @param upscaler
+	 *        The upscaler used to fit the frames to the window, which must not be used by another
+	 *        thread until the presenter is disposed.
+	 * @param displayPixelFormat
+	 *        The pixel format the frames are converted to, which must not be used by another
+	 *        thread until the presenter is disposed.
+	 */
+	FramePresenter(BufferStrategy bufferStrategy, BufferedImage image, Upscaler upscaler, DisplayPixelFormat displayPixelFormat)
+	{
+		_bufferStrategy = bufferStrategy;
+		_upscaler = upscaler;
+		_displayPixelFormat = displayPixelFormat;
+		_width = image.getWidth();
+		_height = image.getHeight();
+
+		_frames = new Frame[BufferCount];
+		_frames[0] = new Frame(image);
+		for (int i = 1; i < BufferCount; ++i)
+		{
+			_frames[i] = new Frame(new BufferedImage(_width, _height, image.getType()));
+			_frames[i].missedAll = true;
+			_freeFrames.add(_frames[i]);
+		}
+		_backFrame = _frames[0];
+
+		_thread = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				presentFrames();
+			}
+		}, "jMono present");
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+
+	/**
+	 * Returns the image the game thread draws into.
+	 */
+	BufferedImage getBackBuffer()
+	{
+		return _backFrame.image;
+	}
+
+	/**
+	 * Returns the pixels of the image the game thread draws into.
+	 */
+	int[] getBackBufferPixels()
+	{
+		return _backFrame.pixels;
+	}
+
+	/**
+	 * Returns the number of frames submitted that have not been shown yet.
+	 */
+	int getQueueDepth()
+	{
+		return _queueDepth.get();
+	}
+
+	/**
+	 * Returns the time in nanoseconds between the submission of the last frame shown and the
+	 * moment it was shown.
+	 */
+	long getLastLatency()
+	{
+		return _lastLatency;
+	}
+
+	/**
+	 * Returns the time in nanoseconds the last frame shown took to be copied to the screen.
+	 */
+	long getLastBlitTime()
+	{
+		return _lastBlitTime;
+	}
+
+	/**
+	 * Queues the back buffer to be shown and switches to the next free buffer, waiting for one to
+	 * be shown if there is none.
+	 *
+	 * @param presentRegion
+	 *        The region of the frame to blit, or {@code null} to blit all of it.
+	 * @param changedRegion
+	 *        The region changed since the previous frame, or {@code null} if it all changed.
+	 * @param preserveContents
+	 *        Whether the content of the frame must be copied to the next back buffer.
+	 * @param scaling
+	 *        How the frame fits the window, the present region is ignored unless it is
+	 *        {@link PresentScaling#None}.
+	 * @param sourceWidth
+	 *        The width the frame was rendered at. When it was rendered at a lower resolution than
+	 *        the back buffer, its rows are packed at the start of the buffer and it is scaled to
+	 *        the window directly, the scaling must then not be {@link PresentScaling#None}.
+	 * @param sourceHeight
+	 *        The height the frame was rendered at.
+	 * @param displayWidth
+	 *        The width of the window.
+	 * @param displayHeight
+	 *        The height of the window.
+	 * @param parallelScaling
+	 *        Whether the rows of the frame are scaled concurrently.
+	 * @param nativePresentation
+	 *        Whether the frame is converted to the pixel layout of the display when it can be.
+	 */
+	void submit(DirtyRegion presentRegion, DirtyRegion changedRegion, boolean preserveContents,
+				PresentScaling scaling, int sourceWidth, int sourceHeight, int displayWidth, int displayHeight,
+				boolean parallelScaling, boolean nativePresentation)
+	{
+		checkFailure();
+
+		Frame frame = _backFrame;
+		frame.scaling = scaling;
+		frame.sourceWidth = sourceWidth;
+		frame.sourceHeight = sourceHeight;
+		frame.displayWidth = displayWidth;
+		frame.displayHeight = displayHeight;
+		frame.parallelScaling = parallelScaling;
+		frame.nativePresentation = nativePresentation;
+		frame.presentRegion.clear();
+		frame.blitRegion = presentRegion != null;
+		if (presentRegion != null)
+			frame.presentRegion.add(presentRegion);
+		for (Frame other : _frames)
+		{
+			if (other == frame || other.missedAll)
+				continue;
+			if (changedRegion == null)
+				other.missedAll = true;
+			else
+				other.missedRegion.add(changedRegion);
+		}
+
+		frame.submitTime = System.nanoTime();
+		_queueDepth.incrementAndGet();
+		_queuedFrames.add(frame);
+
+		Frame next = takeUninterruptibly(_freeFrames);
+		checkFailure();
+		if (preserveContents)
+			copyMissedRegion(frame, next);
+		next.missedRegion.clear();
+		next.missedAll = false;
+		_backFrame = next;
+	}
+
+	/**
+	 * Waits for the queued frames to be shown and stops the present thread.
+	 */
+	void dispose()
+	{
+		// NOTE: At most BufferCount - 1 frames are queued, so there is always room for the back
+		//       buffer, which tells the present thread to stop once it reaches it.
+		_backFrame.stop = true;
+		_queuedFrames.add(_backFrame);
+		boolean interrupted = false;
+		while (_thread.isAlive())
+		{
+			try
+			{
+				_thread.join();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Copies the regions a buffer missed from the last frame submitted.
+	 */
+	private void copyMissedRegion(Frame source, Frame target)
+	{
+		if (target.missedAll)
+		{
+			System.arraycopy(source.pixels, 0, target.pixels, 0, _width * _height);
+			return;
+		}
+
+		DirtyRegion region = target.missedRegion;
+		for (int i = 0; i < region.getCount(); ++i)
+		{
+			int minX = region.getMinX(i);
+			int maxX = region.getMaxX(i);
+			for (int y = region.getMinY(i); y < region.getMaxY(i); ++y)
+				System.arraycopy(source.pixels, minX + y * _width, target.pixels, minX + y * _width, maxX - minX);
+		}
+	}
+
+	/**
+	 * The loop of the present thread, which shows the queued frames until it is stopped.
+	 */
+	private void presentFrames()
+	{
+		Frame frame = null;
+		try
+		{
+			while (true)
+			{
+				frame = _queuedFrames.take();
+				if (frame.stop)
+					return;
+				show(frame);
+				_lastLatency = System.nanoTime() - frame.submitTime;
+				_queueDepth.decrementAndGet();
+				_freeFrames.add(frame);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// NOTE: Nobody else interrupts this thread, there is nothing left to show.
+		}
+		catch (RuntimeException e)
+		{
+			_failure = e;
+			// Hand the frame back in case the game thread waits for a free buffer, it then
+			// rethrows the failure.
+			_freeFrames.offer(frame);
+		}
+	}
+
+	private void show(Frame frame)
+	{
+		BufferedImage scaled = null;
+		if (frame.scaling != PresentScaling.None)
+			scaled = _upscaler.scale(frame.pixels, frame.sourceWidth, frame.sourceHeight, _width, _height,
+									 frame.scaling, frame.displayWidth, frame.displayHeight, frame.parallelScaling);
+
+		long start = System.nanoTime();
+		Graphics g = _bufferStrategy.getDrawGraphics();
+		if (scaled != null)
+		{
+			g.drawImage(_displayPixelFormat.convert(scaled, null, frame.nativePresentation), 0, 0, null);
+		}
+		else if (!frame.blitRegion || _bufferStrategy.contentsLost() || _bufferStrategy.contentsRestored())
+		{
+			g.drawImage(_displayPixelFormat.convert(frame.image, null, frame.nativePresentation), 0, 0, _width, _height, null);
+		}
+		else
+		{
+			DirtyRegion region = frame.presentRegion;
+			BufferedImage image = _displayPixelFormat.convert(frame.image, region, frame.nativePresentation);
+			for (int i = 0; i < region.getCount(); ++i)
+			{
+				int minX = region.getMinX(i);
+				int minY = region.getMinY(i);
+				int maxX = region.getMaxX(i);
+				int maxY = region.getMaxY(i);
+				g.drawImage(image, minX, minY, maxX, maxY, minX, minY, maxX, maxY, null);
+			}
+		}
+		g.dispose();
+		_bufferStrategy.show();
+		_lastBlitTime = System.nanoTime() - start;
+	}
+
+	private void checkFailure()
+	{
+		RuntimeException failure = _failure;
+		if (failure != null)
+			throw new IllegalStateException("The present thread failed", failure);
+	}
+
+	private static Frame takeUninterruptibly(BlockingQueue<Frame> queue)
+	{
+		boolean interrupted = false;
+		try
+		{
+			while (true)
+			{
+				try
+				{
+					return queue.take();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+		}
+		finally
+		{
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+}
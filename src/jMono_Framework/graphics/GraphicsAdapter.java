@@ -78,6 +78,11 @@ public class GraphicsAdapter implements AutoCloseable
 // #elif WINDOWS
         // var dc = System.Drawing.Graphics.FromHwnd(IntPtr.Zero).GetHdc();
         // return new DisplayMode(GetDeviceCaps(dc, HORZRES), GetDeviceCaps(dc, VERTRES), GetDeviceCaps(dc, VREFRESH), SurfaceFormat.Color);
+		// NOTE: There is no screen to query when running headless, use the same defaults as the
+		//       platforms without a display mode.
+		if (GraphicsEnvironment.isHeadless())
+			return new DisplayMode(800, 600, 60, SurfaceFormat.Color);
+
 		java.awt.GraphicsDevice gd = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
 		int width = gd.getDisplayMode().getWidth();
 		int height = gd.getDisplayMode().getHeight();
@@ -37,16 +37,15 @@ public class GraphicsCapabilities
 	protected boolean supportsDepthNonLinear;
 	public boolean supportsDepthNonLinear() { return supportsDepthNonLinear; }
 
-	// TODO: For now, the software renderer doesn't support texture compression
 	/**
-	 * Whether the device supports DXT1
+	 * Whether the device supports DXT1, see {@link GraphicsDevice#setCompressedTextureStorage(boolean)}
 	 */
 	protected boolean supportsDxt1;
 	public boolean supportsDxt1() { return supportsDxt1; }
 
-	// TODO: For now, the software renderer doesn't support texture compression
 	/**
-	 * Whether the device supports S3TC (DXT1, DXT3, DXT5)
+	 * Whether the device supports S3TC (DXT1, DXT3, DXT5), see
+	 * {@link GraphicsDevice#setCompressedTextureStorage(boolean)}
 	 */
 	protected boolean supportsS3tc;
 	public boolean supportsS3tc() { return supportsS3tc; }
@@ -1,6 +1,7 @@
 package jMono_Framework.graphics;
 
 import jMono_Framework.Color;
+import jMono_Framework.Game;
 import jMono_Framework.GraphicsDeviceInformation;
 import jMono_Framework.Rectangle;
 import jMono_Framework.dotNet.As;
@@ -15,6 +16,9 @@ import jMono_Framework.graphics.states.BlendState;
 import jMono_Framework.graphics.states.DepthFormat;
 import jMono_Framework.graphics.states.DepthStencilState;
 import jMono_Framework.graphics.states.RasterizerState;
+import jMono_Framework.graphics.states.SamplerState;
+import jMono_Framework.graphics.states.TextureAddressMode;
+import jMono_Framework.graphics.states.TextureFilter;
 import jMono_Framework.graphics.vertices.IVertexType;
 import jMono_Framework.graphics.vertices.IndexBuffer;
 import jMono_Framework.graphics.vertices.PrimitiveType;
@@ -22,7 +26,6 @@ import jMono_Framework.graphics.vertices.VertexBuffer;
 import jMono_Framework.graphics.vertices.VertexDeclaration;
 import jMono_Framework.graphics.vertices.VertexDeclarationCache;
 import jMono_Framework.graphics.vertices.VertexPositionColorTexture;
-import jMono_Framework.math.MathHelper;
 import jMono_Framework.math.Vector2;
 import jMono_Framework.math.Vector4;
 
@@ -30,6 +33,8 @@ import java.awt.Graphics;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -37,6 +42,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.imageio.ImageIO;
+
 public class GraphicsDevice implements AutoCloseable
 {
 	private Viewport _viewport;
@@ -845,9 +852,8 @@ public class GraphicsDevice implements AutoCloseable
 
 	public void drawIndexedPrimitives(PrimitiveType primitiveType, int baseVertex, int startIndex, int primitiveCount)
 	{
-		if (_vertexShader == null)
-			throw new UnsupportedOperationException("Vertex shader must be set before calling DrawIndexedPrimitives.");
-
+		// NOTE: The software renderer doesn't run the shaders, so unlike MonoGame we don't require
+		//       a vertex shader to be set.
 		if (_vertexBuffer == null)
 			throw new UnsupportedOperationException("Vertex buffer must be set before calling DrawIndexedPrimitives.");
 
@@ -898,9 +904,8 @@ public class GraphicsDevice implements AutoCloseable
 
 	public void drawPrimitives(PrimitiveType primitiveType, int vertexStart, int primitiveCount)
 	{
-		if (_vertexShader == null)
-			throw new UnsupportedOperationException("Vertex shader must be set before calling DrawPrimitives.");
-
+		// NOTE: The software renderer doesn't run the shaders, so unlike MonoGame we don't require
+		//       a vertex shader to be set.
 		if (_vertexBuffer == null)
 			throw new IllegalStateException("Vertex buffer must be set before calling DrawPrimitives.");
 
@@ -1038,44 +1043,873 @@ public class GraphicsDevice implements AutoCloseable
 	private Graphics g;
 	/** The array of pixels to be painted on the screen */
 	private int[] pixels;
+	/** The depth buffer of the back buffer, null if the presentation parameters have no depth format */
+	private DepthBuffer _depthBuffer;
+	/** The pixels the draws land in, either the back buffer or the texels of a render target */
+	private int[] _targetPixels;
+	/** The depth buffer of the render target the draws land in, if any */
+	private DepthBuffer _targetDepthBuffer;
+	private int _targetWidth;
+	private int _targetHeight;
+	/** The factor applied to the positions of the draws, only below 1 for a scaled back buffer */
+	private float _targetScale = 1.0f;
+	/** The fraction of the back buffer resolution the frames are rendered at */
+	private float _resolutionScale = 1.0f;
+	/** The pixels the frames are rendered into when they are scaled, null at full resolution */
+	private int[] _scaledPixels;
+	private int _scaledWidth;
+	private int _scaledHeight;
+	/** The column of the scaled frame each column of the back buffer is upscaled from */
+	private int[] _upscaleColumns;
+	/** The pixel pipeline used to draw into the pixels array */
+	private final SoftwareRasterizer _rasterizer = new SoftwareRasterizer();
+	/** The kernel used to rasterize the sprite quads */
+	private RasterizerKernel _rasterizerKernel = RasterizerKernel.Incremental;
+	/** Defers the quads and rasterizes them in parallel, null when tiled rasterization is disabled */
+	private TiledRasterizer _tiledRasterizer;
+	/** The attributes of the vertices of the triangle draws */
+	private final VertexReader _vertexReader = new VertexReader();
+	/** The three vertices of each triangle of the current triangle draw */
+	private int[] _triangleIndices = new int[0];
+	/**
+	 * The texels decoded around the texels a draw from a DXT texture samples, which covers the
+	 * neighbours read by the linear filtering and the rounding of the texture coordinates
+	 */
+	private static final int RegionMargin = 2;
+
+	/** The number of buffers of the BufferStrategy we present to */
+	private static final int BufferCount = 3;
+	/** Whether only the regions of the back buffer that changed are cleared and presented */
+	private boolean _dirtyRegionTracking;
+	/** The pixels changed since the last present */
+	private final DirtyRegion _frameDirtyRegion = new DirtyRegion();
+	/** The pixels drawn since the last clear, which are the only ones a clear needs to rewrite */
+	private final DirtyRegion _clearDirtyRegion = new DirtyRegion();
+	/** The pixels changed by each of the last presents, the buffers we flip to can be that old */
+	private final DirtyRegion[] _presentedDirtyRegions = new DirtyRegion[BufferCount - 1];
+	private int _presentedDirtyRegionIndex;
+	/** The region blitted by the current present */
+	private final DirtyRegion _presentRegion = new DirtyRegion();
+	/** Whether the frames are presented on a dedicated thread */
+	private boolean _pipelinedPresentation;
+	/** Shows the frames and owns the back buffers, null unless presentation is pipelined */
+	private FramePresenter _framePresenter;
+	/** How the frames fit the window they are presented to */
+	private PresentScaling _presentScaling = PresentScaling.None;
+	/** Scales the frames to the window when the present scaling isn't PresentScaling.None */
+	private final Upscaler _upscaler = new Upscaler();
+	/** Converts the frames to the pixel layout of the display, null when the device is headless */
+	private DisplayPixelFormat _displayPixelFormat;
+	/** Whether the frames are handed over in the pixel layout of the display when it can be */
+	private boolean _nativePresentation = true;
+	/** Whether the rows of the frames are scaled concurrently when presenting */
+	private boolean _parallelPresentScaling;
+	/** The decoded blocks of the DXT textures, see setCompressedTextureStorage() */
+	private final DecodedBlockCache _decodedBlockCache = new DecodedBlockCache();
+	/** The color of the last clear, only valid when _isClearColorKnown is true */
+	private int _clearColor;
+	/** Whether every pixel outside of _clearDirtyRegion has the color _clearColor */
+	private boolean _isClearColorKnown;
+
+	/**
+	 * Returns the kernel used by the software renderer to rasterize quads.
+	 * 
+	 * @return The kernel used by the software renderer to rasterize quads.
+	 */
+	public RasterizerKernel getRasterizerKernel()
+	{
+		return _rasterizerKernel;
+	}
+
+	/**
+	 * Sets the kernel used by the software renderer to rasterize quads.
+	 * 
+	 * @param value
+	 *        The kernel used by the software renderer to rasterize quads.
+	 * @throws NullPointerException
+	 *         If {@code value} is {@code null}.
+	 */
+	public void setRasterizerKernel(RasterizerKernel value)
+	{
+		if (value == null)
+			throw new NullPointerException("value");
+		if (_tiledRasterizer != null)
+		{
+			_tiledRasterizer.flush();
+			_tiledRasterizer.setKernel(value);
+		}
+		_rasterizerKernel = value;
+	}
+
+	/**
+	 * Returns whether the software renderer bins the quads into screen tiles and rasterizes the
+	 * tiles in parallel.
+	 * 
+	 * @return {@code true} if tiled rasterization is enabled, {@code false} otherwise.
+	 */
+	public boolean isTiledRasterization()
+	{
+		return _tiledRasterizer != null;
+	}
+
+	/**
+	 * Sets whether the software renderer bins the quads into screen tiles and rasterizes the
+	 * tiles in parallel.
+	 * 
+	 * <p>
+	 * NOTE: The tiles are rasterized with the {@link RasterizerKernel#Incremental} kernel when the
+	 * {@link RasterizerKernel#Reference} kernel is selected.
+	 * The pending tiles are resolved before clearing, presenting or changing the render target.
+	 * 
+	 * @param value
+	 *        {@code true} to enable tiled rasterization, {@code false} to disable it.
+	 */
+	public void setTiledRasterization(boolean value)
+	{
+		if (value == isTiledRasterization())
+			return;
+
+		if (value)
+		{
+			_tiledRasterizer = new TiledRasterizer();
+			_tiledRasterizer.setKernel(_rasterizerKernel);
+		}
+		else
+		{
+			_tiledRasterizer.dispose();
+			_tiledRasterizer = null;
+		}
+	}
+
+	/**
+	 * Rasterizes the quads deferred by the tiled rasterizer, if any.
+	 */
+	private void flushTiles()
+	{
+		if (_tiledRasterizer != null)
+			_tiledRasterizer.flush();
+	}
 	
+	/**
+	 * Returns whether the software renderer only clears and presents the regions of the back buffer
+	 * that changed.
+	 * 
+	 * @return {@code true} if dirty region tracking is enabled, {@code false} otherwise.
+	 */
+	public boolean isDirtyRegionTracking()
+	{
+		return _dirtyRegionTracking;
+	}
+
+	/**
+	 * Sets whether the software renderer only clears and presents the regions of the back buffer
+	 * that changed.
+	 * 
+	 * <p>
+	 * When enabled the device records the bounding box of every quad drawn and every clear since
+	 * the last present, and {@link #present()} only copies those rectangles to the screen. A clear
+	 * using the same color as the previous one only rewrites the pixels drawn since then. This pays
+	 * off for screens where little changes from one frame to the next, a game redrawing the whole
+	 * screen every frame should leave it disabled.
+	 * 
+	 * @param value
+	 *        {@code true} to enable dirty region tracking, {@code false} to disable it.
+	 */
+	public void setDirtyRegionTracking(boolean value)
+	{
+		if (value == _dirtyRegionTracking)
+			return;
+
+		_dirtyRegionTracking = value;
+		invalidateBackBuffer();
+	}
+
+	/**
+	 * Returns whether the software renderer presents the frames on a dedicated thread.
+	 * 
+	 * @return {@code true} if presentation is pipelined, {@code false} otherwise.
+	 */
+	public boolean isPipelinedPresentation()
+	{
+		return _pipelinedPresentation;
+	}
+
+	/**
+	 * Sets whether the software renderer presents the frames on a dedicated thread.
+	 * 
+	 * <p>
+	 * When enabled the back buffer is double buffered. {@link #present()} queues the frame for the
+	 * present thread, which copies it to the screen, and returns as soon as the other buffer is
+	 * free, so the game thread rasterizes the next frame while the previous one is being shown.
+	 * This adds up to a frame of latency, see {@link GraphicsMetrics#getPresentLatency()} and
+	 * {@link GraphicsMetrics#getPresentQueueDepth()}.
+	 * 
+	 * <p>
+	 * NOTE: The content of the back buffer is carried over to the next one, unless the
+	 * {@link PresentationParameters#renderTargetUsage} is {@link RenderTargetUsage#DiscardContents}
+	 * and dirty region tracking is disabled, in which case the back buffer holds an older frame
+	 * after a present. This has no effect on a headless device.
+	 * 
+	 * @param value
+	 *        {@code true} to enable pipelined presentation, {@code false} to disable it.
+	 */
+	public void setPipelinedPresentation(boolean value)
+	{
+		if (value == _pipelinedPresentation)
+			return;
+
+		_pipelinedPresentation = value;
+		if (isHeadless())
+			return;
+
+		flushTiles();
+		boolean targetsBackBuffer = _targetPixels == pixels;
+		if (value)
+		{
+			_framePresenter = new FramePresenter(bufferStrategy, image, _upscaler, _displayPixelFormat);
+		}
+		else
+		{
+			_framePresenter.dispose();
+			image = _framePresenter.getBackBuffer();
+			pixels = _framePresenter.getBackBufferPixels();
+			_framePresenter = null;
+		}
+		if (targetsBackBuffer)
+			_targetPixels = pixels;
+	}
+
+	/**
+	 * Returns how the software renderer fits the back buffer to the window it presents to.
+	 * 
+	 * @return The present scaling mode.
+	 */
+	public PresentScaling getPresentScaling()
+	{
+		return _presentScaling;
+	}
+
+	/**
+	 * Sets how the software renderer fits the back buffer to the window it presents to, for
+	 * example to display a low resolution pixel art game in full screen.
+	 * 
+	 * <p>
+	 * NOTE: Except for {@link PresentScaling#None}, the whole frame is scaled and copied to the
+	 * window on every present, dirty region tracking only saves work when clearing. The time the
+	 * scaling takes is given by {@link GraphicsMetrics#getPresentScaleTime()}.
+	 * 
+	 * @param value
+	 *        The present scaling mode.
+	 * @throws NullPointerException
+	 *         If {@code value} is {@code null}.
+	 */
+	public void setPresentScaling(PresentScaling value)
+	{
+		if (value == null)
+			throw new NullPointerException("value");
+		if (value == _presentScaling)
+			return;
+
+		_presentScaling = value;
+		invalidateBackBuffer();
+	}
+
+	/**
+	 * Returns whether the rows of the frames are scaled concurrently when presenting.
+	 * 
+	 * @return {@code true} if the present scaling is multithreaded, {@code false} otherwise.
+	 */
+	public boolean isParallelPresentScaling()
+	{
+		return _parallelPresentScaling;
+	}
+
+	/**
+	 * Sets whether the rows of the frames are scaled concurrently when presenting.
+	 * 
+	 * @param value
+	 *        {@code true} to scale the rows on several threads, {@code false} to scale them on
+	 *        the thread presenting.
+	 */
+	public void setParallelPresentScaling(boolean value)
+	{
+		_parallelPresentScaling = value;
+	}
+
+	/**
+	 * Returns whether the DXT textures loaded by the content pipeline keep their blocks in memory.
+	 * 
+	 * @return {@code true} if compressed texture storage is enabled, {@code false} otherwise.
+	 */
+	public boolean isCompressedTextureStorage()
+	{
+		return graphicsCapabilities.supportsDxt1() && graphicsCapabilities.supportsS3tc();
+	}
+
+	/**
+	 * Sets whether the DXT textures loaded by the content pipeline keep their blocks in memory.
+	 * 
+	 * <p>
+	 * When enabled the device reports the DXT formats as supported, so the content pipeline stops
+	 * expanding the DXT textures to 32 bits texels when loading them, which takes 4 to 8 times
+	 * their size. Each draw then decodes the 4x4 blocks it samples, through a small cache of the
+	 * last decoded blocks, and the levels are never decoded as a whole. The textures already
+	 * loaded are not affected.
+	 * 
+	 * <p>
+	 * NOTE: The compressed textures are drawn without the index of their transparent texels, so
+	 * they don't skip their empty texels nor hide the sprites under them. The mip levels of a
+	 * compressed texture are the ones it was loaded with, they are not built from the first one.
+	 * 
+	 * @param value
+	 *        {@code true} to keep the DXT textures compressed, {@code false} to expand them when
+	 *        loading them, the default.
+	 */
+	public void setCompressedTextureStorage(boolean value)
+	{
+		graphicsCapabilities.supportsDxt1 = value;
+		graphicsCapabilities.supportsS3tc = value;
+	}
+
+	/**
+	 * Returns the path the frames take to the display when presenting.
+	 * 
+	 * @return {@link PresentPath#None} if the device is headless, {@link PresentPath#Native} if
+	 *         the frames are handed over in the pixel layout of the display,
+	 *         {@link PresentPath#Generic} otherwise.
+	 */
+	public PresentPath getPresentPath()
+	{
+		if (_displayPixelFormat == null)
+			return PresentPath.None;
+		return _displayPixelFormat.getPath(_nativePresentation);
+	}
+
+	/**
+	 * Returns whether the frames are handed over in the pixel layout of the display when it can be.
+	 * 
+	 * @return {@code true} if native presentation is enabled, {@code false} otherwise.
+	 */
+	public boolean isNativePresentation()
+	{
+		return _nativePresentation;
+	}
+
+	/**
+	 * Sets whether the frames are handed over in the pixel layout of the display when it can be.
+	 * 
+	 * <p>
+	 * When enabled, which is the default, the layout of the display is detected and if it is a
+	 * 32 bits one the changed pixels are converted to it before the blit, so Java2D only has to
+	 * copy them. Otherwise, or if the display doesn't give us a compatible image, the device
+	 * falls back to drawing its back buffer as is. {@link #getPresentPath()} tells which path is
+	 * active and {@link GraphicsMetrics#getPresentBlitTime()} how long the blits take.
+	 * 
+	 * @param value
+	 *        {@code true} to enable native presentation, {@code false} to always let Java2D convert
+	 *        the frames.
+	 */
+	public void setNativePresentation(boolean value)
+	{
+		if (value == _nativePresentation)
+			return;
+
+		_nativePresentation = value;
+		// NOTE: The converted copy of the frames is stale after a while on the generic path. The
+		//       setting is handed over with each frame, see FramePresenter.submit().
+		if (_displayPixelFormat != null)
+			invalidateBackBuffer();
+	}
+
+	/**
+	 * Returns the fraction of the back buffer resolution the frames are rendered at.
+	 * 
+	 * @return The resolution scale, 1 when rendering at full resolution.
+	 */
+	public float getResolutionScale()
+	{
+		return _resolutionScale;
+	}
+
+	/**
+	 * Sets the fraction of the back buffer resolution the frames are rendered at.
+	 * 
+	 * <p>
+	 * Below 1 the draws to the back buffer land in a smaller buffer, their positions and the
+	 * scissor rectangle being scaled accordingly, and {@link #present()} upscales it to the back
+	 * buffer, or straight to the window when the {@link #setPresentScaling present scaling} isn't
+	 * {@link PresentScaling#None}, so the frame is only resampled once. The viewport, the
+	 * presentation parameters and the coordinates the game draws with are not affected, so
+	 * {@link SpriteBatch} and the primitive draws keep working in back buffer pixels. Render
+	 * targets are always rendered at their own resolution.
+	 * 
+	 * <p>
+	 * NOTE: Dirty region tracking has no effect while the frames are scaled since the whole back
+	 * buffer is upscaled every frame. The content of the back buffer is lost when the scale
+	 * changes, the frames are expected to be cleared.
+	 * 
+	 * @param value
+	 *        The resolution scale, in the (0, 1] range.
+	 * @throws IllegalArgumentException
+	 *         If {@code value} is outside of the (0, 1] range.
+	 * @see DynamicResolution
+	 */
+	public void setResolutionScale(float value)
+	{
+		if (!(value > 0.0f && value <= 1.0f))
+			throw new IllegalArgumentException("The resolution scale must be in the (0, 1] range: value");
+		if (value == _resolutionScale)
+			return;
+
+		flushTiles();
+		boolean targetsBackBuffer = _targetPixels == pixels || (_targetPixels != null && _targetPixels == _scaledPixels);
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+		int scaledWidth = Math.max(1, Math.round(width * value));
+		int scaledHeight = Math.max(1, Math.round(height * value));
+
+		_resolutionScale = value;
+		if (scaledWidth == width && scaledHeight == height)
+		{
+			_scaledPixels = null;
+		}
+		else
+		{
+			if (_scaledPixels == null || _scaledPixels.length < width * height)
+				_scaledPixels = new int[width * height];
+			_scaledWidth = scaledWidth;
+			_scaledHeight = scaledHeight;
+			if (_upscaleColumns == null || _upscaleColumns.length != width)
+				_upscaleColumns = new int[width];
+			for (int x = 0; x < width; ++x)
+				_upscaleColumns[x] = (int) ((long) x * scaledWidth / width);
+		}
+		invalidateBackBuffer();
+
+		if (targetsBackBuffer)
+			platformApplyDefaultRenderTarget();
+	}
+
+	/**
+	 * Upscales the scaled frame to the back buffer with the nearest pixel, if the frames are
+	 * scaled.
+	 */
+	private void upscaleBackBuffer()
+	{
+		if (_scaledPixels == null)
+			return;
+
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+		int[] columns = _upscaleColumns;
+		int previousRow = -1;
+		for (int y = 0; y < height; ++y)
+		{
+			int row = (int) ((long) y * _scaledHeight / height);
+			int dest = y * width;
+			if (row == previousRow)
+			{
+				// NOTE: The rows sampling the same scaled row are identical.
+				System.arraycopy(pixels, dest - width, pixels, dest, width);
+				continue;
+			}
+
+			int src = row * _scaledWidth;
+			for (int x = 0; x < width; ++x)
+				pixels[dest + x] = _scaledPixels[src + columns[x]];
+			previousRow = row;
+		}
+		_frameDirtyRegion.clear();
+		_frameDirtyRegion.add(0, 0, width, height);
+	}
+
+	/**
+	 * Forgets what is known of the content of the back buffer and of the screen, so the next
+	 * clear and the next presents rewrite every pixel.
+	 */
+	private void invalidateBackBuffer()
+	{
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+
+		_isClearColorKnown = false;
+		_clearDirtyRegion.clear();
+		_frameDirtyRegion.clear();
+		_frameDirtyRegion.add(0, 0, width, height);
+		for (int i = 0; i < _presentedDirtyRegions.length; ++i)
+		{
+			if (_presentedDirtyRegions[i] == null)
+				_presentedDirtyRegions[i] = new DirtyRegion();
+			_presentedDirtyRegions[i].clear();
+			_presentedDirtyRegions[i].add(0, 0, width, height);
+		}
+	}
+
+	/**
+	 * Records that a region of the back buffer was drawn to.
+	 */
+	private void markDirty(int minX, int minY, int maxX, int maxY)
+	{
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+		minX = Math.max(minX, 0);
+		minY = Math.max(minY, 0);
+		maxX = Math.min(maxX, width);
+		maxY = Math.min(maxY, height);
+		_frameDirtyRegion.add(minX, minY, maxX, maxY);
+		_clearDirtyRegion.add(minX, minY, maxX, maxY);
+	}
+
 	private void platformSetup()
 	{
 		maxTextureSlots = 16;
 		maxVertexTextureSlots = 16;
 	}
 
+	/**
+	 * Returns whether the device renders off-screen, without a window to present to.
+	 * 
+	 * <p>
+	 * A device is headless when its {@link PresentationParameters} have no device window handle.
+	 * It renders into its back buffer exactly like a windowed device, {@link #present()} simply
+	 * doesn't copy it anywhere, and the frames can be read with {@link #getBackBufferData} or
+	 * {@link #saveBackBufferAsPng}.
+	 * 
+	 * @return {@code true} if the device is headless, {@code false} otherwise.
+	 */
+	public boolean isHeadless()
+	{
+		return bufferStrategy == null;
+	}
+
+	/**
+	 * Copies the content of the back buffer.
+	 * 
+	 * @param data
+	 *        The array receiving the pixels, packed like {@link Color#getPackedValue()}.
+	 * @see #getBackBufferData(Rectangle, int[], int, int)
+	 */
+	public void getBackBufferData(int[] data)
+	{
+		if (data == null)
+			throw new NullPointerException("data");
+		getBackBufferData(null, data, 0, data.length);
+	}
+
+	/**
+	 * Copies a region of the back buffer.
+	 * 
+	 * @param rect
+	 *        The region to copy, or {@code null} for the whole back buffer.
+	 * @param data
+	 *        The array receiving the pixels, packed like {@link Color#getPackedValue()}.
+	 * @param startIndex
+	 *        The index of the first element of {@code data} to write to.
+	 * @param elementCount
+	 *        The number of pixels to copy, which must be the number of pixels of the region.
+	 * @throws NullPointerException
+	 *         If {@code data} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *         If the region is outside of the back buffer or doesn't match the element count.
+	 */
+	public void getBackBufferData(Rectangle rect, int[] data, int startIndex, int elementCount)
+	{
+		if (data == null)
+			throw new NullPointerException("data");
+
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+		int x = 0, y = 0, w = width, h = height;
+		if (rect != null)
+		{
+			x = rect.x;
+			y = rect.y;
+			w = rect.width;
+			h = rect.height;
+		}
+		if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > width || y + h > height)
+			throw new IllegalArgumentException("The rectangle must be inside of the back buffer: rect");
+		if (elementCount != w * h)
+			throw new IllegalArgumentException("The element count must be the number of pixels of the rectangle: elementCount");
+		if (startIndex < 0 || data.length < startIndex + elementCount)
+			throw new IllegalArgumentException("The data passed has a length of " + data.length + " but " + elementCount + " pixels have been requested.");
+
+		flushTiles();
+		upscaleBackBuffer();
+		for (int row = 0; row < h; ++row)
+			System.arraycopy(pixels, x + (y + row) * width, data, startIndex + row * w, w);
+	}
+
+	/**
+	 * Encodes the content of the back buffer as a PNG image, without its alpha channel.
+	 * 
+	 * @param stream
+	 *        The stream the image is written to.
+	 * @throws IOException
+	 *         If the image could not be written.
+	 */
+	public void saveBackBufferAsPng(OutputStream stream) throws IOException
+	{
+		if (stream == null)
+			throw new NullPointerException("stream");
+
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+		BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_BGR);
+		getBackBufferData(((DataBufferInt) frame.getRaster().getDataBuffer()).getData());
+		ImageIO.write(frame, "png", stream);
+	}
+
 	private void platformInitialize()
 	{
-		image = new BufferedImage(getPresentationParameters().getBackBufferWidth(), getPresentationParameters().getBackBufferHeight(), BufferedImage.TYPE_INT_BGR);
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+
+		DepthFormat depthFormat = getPresentationParameters().getDepthStencilFormat();
+		_depthBuffer = (depthFormat != null && depthFormat != DepthFormat.None) ? new DepthBuffer(width, height) : null;
+
+		if (getPresentationParameters().getDeviceWindowHandle() == null)
+		{
+			// NOTE: Without a window there is nothing to blit to, so we don't need an image either.
+			//       There is also no window to size the viewport after, so it starts covering the
+			//       back buffer instead of the display.
+			image = null;
+			bufferStrategy = null;
+			_displayPixelFormat = null;
+			pixels = new int[width * height];
+			_viewport = new Viewport(0, 0, width, height);
+			_viewport.setMaxDepth(1.0f);
+			invalidateBackBuffer();
+			return;
+		}
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_BGR);
 		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		_displayPixelFormat = new DisplayPixelFormat(getPresentationParameters().getDeviceWindowHandle().getGame().getGraphicsConfiguration());
 
 		// Initialize the buffer strategy
-		getPresentationParameters().getDeviceWindowHandle().getGame().createBufferStrategy(3);
+		getPresentationParameters().getDeviceWindowHandle().getGame().createBufferStrategy(BufferCount);
 		bufferStrategy = getPresentationParameters().getDeviceWindowHandle().getGame().getBufferStrategy();
 		g = bufferStrategy.getDrawGraphics();
+
+		invalidateBackBuffer();
 	}
 
 	private void platformClear(int clearOptions, Vector4 color, float depth, int stencil)
 	{
+		flushTiles();
+
+		if ((clearOptions & ClearOptions.DepthBuffer.getValue()) != 0 && _targetDepthBuffer != null)
+			_targetDepthBuffer.clear(depth);
+		if ((clearOptions & ClearOptions.Target.getValue()) == 0)
+			return;
+
 		int col = new Color(color).getPackedValue();
-		for (int i = 0; i < pixels.length; ++i)
+		if (!_dirtyRegionTracking || _targetPixels != pixels)
 		{
-			pixels[i] = col;
+			Arrays.fill(_targetPixels, 0, _targetWidth * _targetHeight, col);
+			return;
 		}
+
+		if (_isClearColorKnown && _clearColor == col)
+		{
+			// Everything that was not drawn since the last clear already has the right color.
+			int stride = getPresentationParameters().getBackBufferWidth();
+			for (int i = 0; i < _clearDirtyRegion.getCount(); ++i)
+			{
+				int minX = _clearDirtyRegion.getMinX(i);
+				int maxX = _clearDirtyRegion.getMaxX(i);
+				for (int y = _clearDirtyRegion.getMinY(i); y < _clearDirtyRegion.getMaxY(i); ++y)
+					Arrays.fill(pixels, minX + y * stride, maxX + y * stride, col);
+			}
+			_frameDirtyRegion.add(_clearDirtyRegion);
+		}
+		else
+		{
+			Arrays.fill(pixels, col);
+			_frameDirtyRegion.clear();
+			_frameDirtyRegion.add(0, 0, getPresentationParameters().getBackBufferWidth(), getPresentationParameters().getBackBufferHeight());
+			_clearColor = col;
+			_isClearColorKnown = true;
+		}
+		_clearDirtyRegion.clear();
 	}
 
 	private void platformDispose()
 	{
-		
+		if (_framePresenter != null)
+		{
+			_framePresenter.dispose();
+			_framePresenter = null;
+		}
+		_upscaler.dispose();
+		if (_tiledRasterizer != null)
+		{
+			_tiledRasterizer.dispose();
+			_tiledRasterizer = null;
+		}
+		_decodedBlockCache.clear();
 	}
 
 	private void platformPresent()
 	{
+		flushTiles();
+
+		if (isHeadless())
+		{
+			upscaleBackBuffer();
+			_frameDirtyRegion.clear();
+			return;
+		}
+
+		// NOTE: When the frames are both rendered at a lower resolution and scaled to the window,
+		//       the frame goes from its resolution to the window in a single pass of the Upscaler
+		//       instead of being upscaled to the back buffer first. The back buffer is then only
+		//       upscaled when it is read, see getBackBufferData().
+		boolean scaleOnce = _scaledPixels != null && _presentScaling != PresentScaling.None;
+		if (scaleOnce)
+		{
+			_frameDirtyRegion.clear();
+			_frameDirtyRegion.add(0, 0, getPresentationParameters().getBackBufferWidth(), getPresentationParameters().getBackBufferHeight());
+		}
+		else
+		{
+			upscaleBackBuffer();
+		}
+
+		if (_framePresenter != null)
+		{
+			presentPipelined(scaleOnce);
+			return;
+		}
+
+		long start = System.nanoTime();
+		int width = getPresentationParameters().getBackBufferWidth();
+		int height = getPresentationParameters().getBackBufferHeight();
+		if (_presentScaling != PresentScaling.None)
+		{
+			Game game = getPresentationParameters().getDeviceWindowHandle().getGame();
+			BufferedImage scaled;
+			if (scaleOnce)
+				scaled = _upscaler.scale(_scaledPixels, _scaledWidth, _scaledHeight, width, height,
+										 _presentScaling, game.getWidth(), game.getHeight(), _parallelPresentScaling);
+			else
+				scaled = _upscaler.scale(pixels, width, height, _presentScaling, game.getWidth(), game.getHeight(), _parallelPresentScaling);
+			long blitStart = System.nanoTime();
+			g = bufferStrategy.getDrawGraphics();
+			g.drawImage(_displayPixelFormat.convert(scaled, null, _nativePresentation), 0, 0, null);
+			g.dispose();
+			bufferStrategy.show();
+			rotatePresentedDirtyRegions();
+			_graphicsMetrics._presentLatency = System.nanoTime() - start;
+			_graphicsMetrics._presentScaleTime = _upscaler.getLastScaleTime();
+			_graphicsMetrics._presentBlitTime = System.nanoTime() - blitStart;
+			return;
+		}
+
+		if (!_dirtyRegionTracking)
+		{
+			g = bufferStrategy.getDrawGraphics();
+			g.drawImage(_displayPixelFormat.convert(image, null, _nativePresentation), 0, 0, width, height, null);
+			g.dispose();
+			bufferStrategy.show();
+			_graphicsMetrics._presentLatency = System.nanoTime() - start;
+			_graphicsMetrics._presentBlitTime = _graphicsMetrics._presentLatency;
+			return;
+		}
+
+		updatePresentRegion();
+		if (bufferStrategy.contentsLost() || bufferStrategy.contentsRestored())
+			_presentRegion.add(0, 0, width, height);
+
 		g = bufferStrategy.getDrawGraphics();
-		g.drawImage(image, 0, 0, getPresentationParameters().getBackBufferWidth(), getPresentationParameters().getBackBufferHeight(), null);
+		BufferedImage presented = _displayPixelFormat.convert(image, _presentRegion, _nativePresentation);
+		for (int i = 0; i < _presentRegion.getCount(); ++i)
+		{
+			int minX = _presentRegion.getMinX(i);
+			int minY = _presentRegion.getMinY(i);
+			int maxX = _presentRegion.getMaxX(i);
+			int maxY = _presentRegion.getMaxY(i);
+			g.drawImage(presented, minX, minY, maxX, maxY, minX, minY, maxX, maxY, null);
+		}
 		g.dispose();
 		bufferStrategy.show();
+
+		rotatePresentedDirtyRegions();
+		_graphicsMetrics._presentLatency = System.nanoTime() - start;
+		_graphicsMetrics._presentBlitTime = _graphicsMetrics._presentLatency;
+	}
+
+	/**
+	 * Hands the back buffer to the present thread and switches to the next one.
+	 * 
+	 * @param scaleOnce
+	 *        Whether the frame rendered at a lower resolution is handed over as is, to be scaled
+	 *        to the window in a single pass.
+	 */
+	private void presentPipelined(boolean scaleOnce)
+	{
+		boolean targetsBackBuffer = _targetPixels == pixels;
+		Game game = getPresentationParameters().getDeviceWindowHandle().getGame();
+		int sourceWidth = getPresentationParameters().getBackBufferWidth();
+		int sourceHeight = getPresentationParameters().getBackBufferHeight();
+		if (scaleOnce)
+		{
+			// NOTE: The scaled frame is smaller than the back buffer, its rows are packed at its start.
+			sourceWidth = _scaledWidth;
+			sourceHeight = _scaledHeight;
+			System.arraycopy(_scaledPixels, 0, pixels, 0, sourceWidth * sourceHeight);
+		}
+		if (_dirtyRegionTracking)
+		{
+			// NOTE: The present thread checks whether the contents of the buffer strategy were lost.
+			updatePresentRegion();
+			_framePresenter.submit(_presentRegion, _frameDirtyRegion, true, _presentScaling, sourceWidth, sourceHeight,
+								   game.getWidth(), game.getHeight(), _parallelPresentScaling, _nativePresentation);
+			rotatePresentedDirtyRegions();
+		}
+		else
+		{
+			boolean preserveContents = presentationParameters.renderTargetUsage != RenderTargetUsage.DiscardContents;
+			_framePresenter.submit(null, null, preserveContents, _presentScaling, sourceWidth, sourceHeight,
+								   game.getWidth(), game.getHeight(), _parallelPresentScaling, _nativePresentation);
+		}
+
+		image = _framePresenter.getBackBuffer();
+		pixels = _framePresenter.getBackBufferPixels();
+		if (targetsBackBuffer)
+			_targetPixels = pixels;
+
+		_graphicsMetrics._presentLatency = _framePresenter.getLastLatency();
+		_graphicsMetrics._presentQueueDepth = _framePresenter.getQueueDepth();
+		_graphicsMetrics._presentBlitTime = _framePresenter.getLastBlitTime();
+		if (_presentScaling != PresentScaling.None)
+			_graphicsMetrics._presentScaleTime = _upscaler.getLastScaleTime();
+	}
+
+	/**
+	 * Computes the region of the back buffer the current present must copy to the screen.
+	 */
+	private void updatePresentRegion()
+	{
+		// NOTE: The buffer we draw into was last presented BufferCount - 1 frames ago, so it is also
+		//       missing the changes of the frames presented since then.
+		_presentRegion.clear();
+		_presentRegion.add(_frameDirtyRegion);
+		for (DirtyRegion region : _presentedDirtyRegions)
+			_presentRegion.add(region);
+	}
+
+	/**
+	 * Records the changes of the frame just presented and starts a new frame.
+	 */
+	private void rotatePresentedDirtyRegions()
+	{
+		DirtyRegion presented = _presentedDirtyRegions[_presentedDirtyRegionIndex];
+		presented.clear();
+		presented.add(_frameDirtyRegion);
+		_presentedDirtyRegionIndex = (_presentedDirtyRegionIndex + 1) % _presentedDirtyRegions.length;
+		_frameDirtyRegion.clear();
 	}
 
 	private void platformSetViewport(final Viewport value)
@@ -1085,12 +1919,26 @@ public class GraphicsDevice implements AutoCloseable
 
 	private void platformApplyDefaultRenderTarget()
 	{
+		_targetDepthBuffer = _depthBuffer;
+		if (_scaledPixels != null)
+		{
+			_targetPixels = _scaledPixels;
+			_targetWidth = _scaledWidth;
+			_targetHeight = _scaledHeight;
+			_targetScale = _resolutionScale;
+			return;
+		}
 
+		_targetPixels = pixels;
+		_targetWidth = presentationParameters.getBackBufferWidth();
+		_targetHeight = presentationParameters.getBackBufferHeight();
+		_targetScale = 1.0f;
 	}
 
 	private void platformResolveRenderTargets()
 	{
 		// Resolving MSAA render targets should be done here.
+		flushTiles();
 	}
 
 	private IRenderTarget platformApplyRenderTargets()
@@ -1106,6 +1954,18 @@ public class GraphicsDevice implements AutoCloseable
         IRenderTarget renderTarget = (IRenderTarget)_currentRenderTargetBindings[0].getRenderTarget();
 //        _currentDepthStencilView = renderTarget.GetDepthStencilView();
 
+        // NOTE: The software renderer only draws into the first target, and only into 2D ones.
+        if (!(renderTarget instanceof RenderTarget2D))
+        	throw new UnsupportedOperationException("The software renderer can only render to a RenderTarget2D");
+        RenderTarget2D renderTarget2D = (RenderTarget2D) renderTarget;
+        _targetPixels = renderTarget2D.getTexture();
+        _targetDepthBuffer = renderTarget2D.getDepthBuffer();
+        _targetWidth = renderTarget2D.getWidth();
+        _targetHeight = renderTarget2D.getHeight();
+        _targetScale = 1.0f;
+        renderTarget2D.invalidateAlphaSpans();
+        renderTarget2D.invalidateMipLevels(0);
+
         // Set the targets.
 //        lock (_d3dContext)
 //            _d3dContext.OutputMerger.SetTargets(_currentDepthStencilView, _currentRenderTargets);
@@ -1125,775 +1985,703 @@ public class GraphicsDevice implements AutoCloseable
 
 	private void platformDrawIndexedPrimitives(PrimitiveType primitiveType, int baseVertex, int startIndex, int primitiveCount)
 	{
-		throw new UnsupportedOperationException();
+		int triangleCount = setTriangleIndices(primitiveType, primitiveCount, baseVertex, null, _indexBuffer.getIndexData(), startIndex);
+		drawTriangles(_vertexBuffer.getVertexData(), _vertexBuffer.getVertexDeclaration(), triangleCount);
 	}
 
 	private <T> void platformDrawUserPrimitives(PrimitiveType primitiveType, T[] vertexData, int vertexOffset, VertexDeclaration vertexDeclaration, int vertexCount)
 	{
-		throw new UnsupportedOperationException();
+		int primitiveCount = (primitiveType == PrimitiveType.TriangleStrip) ? vertexCount - 2 : vertexCount / 3;
+		int triangleCount = setTriangleIndices(primitiveType, primitiveCount, vertexOffset, null, null, 0);
+		drawTriangles(vertexData, vertexDeclaration, triangleCount);
 	}
 
 	private void platformDrawPrimitives(PrimitiveType primitiveType, int vertexStart, int vertexCount)
 	{
-		throw new UnsupportedOperationException();
+		int primitiveCount = (primitiveType == PrimitiveType.TriangleStrip) ? vertexCount - 2 : vertexCount / 3;
+		int triangleCount = setTriangleIndices(primitiveType, primitiveCount, vertexStart, null, null, 0);
+		drawTriangles(_vertexBuffer.getVertexData(), _vertexBuffer.getVertexDeclaration(), triangleCount);
 	}
 
 	private <T> void platformDrawUserIndexedPrimitives(PrimitiveType primitiveType, T[] vertexData, int vertexOffset, int numVertices, short[] indexData, int indexOffset, int primitiveCount, VertexDeclaration vertexDeclaration)
 	{
-		applyState(true);
-		
-		// Note: For now we only support drawing quads from a triangle PrimitiveType
-		if (primitiveType != PrimitiveType.TriangleList)
+		// NOTE: SpriteBatch draws its sprites as lists of quads, which have dedicated fill loops.
+		if (isSpriteQuadList(primitiveType, vertexData, vertexOffset, numVertices, indexData, indexOffset, primitiveCount, vertexDeclaration))
+		{
+			drawQuads(vertexData, numVertices);
+			return;
+		}
+
+		int triangleCount = setTriangleIndices(primitiveType, primitiveCount, vertexOffset, indexData, null, indexOffset);
+		drawTriangles(vertexData, vertexDeclaration, triangleCount);
+	}
+
+	/**
+	 * Returns whether the triangles of a draw are the quads of sprites, laid out like SpriteBatch
+	 * does: four vertices per quad, top-left, top-right, bottom-left and bottom-right, indexed as
+	 * two triangles. The quads must also be parallelograms with a single color and an axis-aligned
+	 * source rectangle, since that is all the quad fill loops know how to draw.
+	 */
+	private <T> boolean isSpriteQuadList(PrimitiveType primitiveType, T[] vertexData, int vertexOffset, int numVertices,
+										 short[] indexData, int indexOffset, int primitiveCount, VertexDeclaration vertexDeclaration)
+	{
+		if (primitiveType != PrimitiveType.TriangleList || vertexDeclaration != VertexPositionColorTexture.vertexDeclaration ||
+			!(vertexData instanceof VertexPositionColorTexture[]) || vertexOffset != 0 ||
+			(primitiveCount & 1) != 0 || numVertices != primitiveCount * 2 || !(getTextures().getTexture(0) instanceof Texture2D))
+			return false;
+
+		VertexPositionColorTexture[] data = As.as(vertexData, VertexPositionColorTexture[].class);
+		for (int quad = 0, i = indexOffset; quad < numVertices; quad += 4, i += 6)
 		{
-			throw new UnsupportedOperationException("We currently only support PrimitiveType.TriangleList");
+			if (indexData[i + 0] != quad + 0 || indexData[i + 1] != quad + 1 || indexData[i + 2] != quad + 2 ||
+				indexData[i + 3] != quad + 1 || indexData[i + 4] != quad + 3 || indexData[i + 5] != quad + 2)
+				return false;
+
+			VertexPositionColorTexture topLeft = data[quad + 0];
+			VertexPositionColorTexture topRight = data[quad + 1];
+			VertexPositionColorTexture bottomLeft = data[quad + 2];
+			VertexPositionColorTexture bottomRight = data[quad + 3];
+			float errorX = topRight.position.x + bottomLeft.position.x - topLeft.position.x - bottomRight.position.x;
+			float errorY = topRight.position.y + bottomLeft.position.y - topLeft.position.y - bottomRight.position.y;
+			if (Math.abs(errorX) > 0.01f || Math.abs(errorY) > 0.01f)
+				return false;
+
+			int color = topLeft.color.getPackedValue();
+			if (topRight.color.getPackedValue() != color || bottomLeft.color.getPackedValue() != color || bottomRight.color.getPackedValue() != color)
+				return false;
+
+			if (topLeft.textureCoordinate.y != topRight.textureCoordinate.y || topLeft.textureCoordinate.x != bottomLeft.textureCoordinate.x ||
+				bottomRight.textureCoordinate.x != topRight.textureCoordinate.x || bottomRight.textureCoordinate.y != bottomLeft.textureCoordinate.y)
+				return false;
 		}
+		return true;
+	}
+
+	/**
+	 * Draws the quads of a sprite batch, see {@link #isSpriteQuadList}.
+	 */
+	private <T> void drawQuads(T[] vertexData, int numVertices)
+	{
+		applyState(true);
 
-		// TODO: add test code to make sure all 4 color information are the same ?.
-		// TODO: check if not a quad ?
 		VertexPositionColorTexture[] data = As.as(vertexData, VertexPositionColorTexture[].class);
 
-		int destStartX, destStartY, destEndX, destEndY;
-		int srcStartX, srcStartY, srcEndX, srcEndY;
 		Texture2D texture = (Texture2D) getTextures().getTexture(0);
-		Color tint;
-		int i = 0;
+		int[] srcPixels = getQuadTexels(texture);
+		AlphaSpanIndex alphaSpans = texture.getAlphaSpans();
+
+		SamplerState samplerState = samplerStates.getSamplerStateCollection(0);
+		applyRasterizerStates(samplerState);
+		_rasterizer.setAlphaSpans(alphaSpans);
+		if (_dirtyRegionTracking && _targetPixels == pixels)
+			markDirty(vertexData, numVertices);
+
 //TimedBlock.beginTimedBlock("Draw");
-		while (i < numVertices)
+		for (int i = 0; i < numVertices; i += 4)
 		{
-			// NOTE(Eric): rotation is stored in the position.
-			destStartX = (int) (data[i + 0].position.x);
-			destStartY = (int) (data[i + 0].position.y);
-			destEndX = (int) (data[i + 1].position.x);
-			destEndY = (int) (data[i + 2].position.y);
-			
-			// NOTE: Add 0.5f so that the cast always return the right value (rounding error).
-			srcStartX = (int) (data[i + 0].textureCoordinate.x * texture.width + 0.5f);
-			srcStartY = (int) (data[i + 0].textureCoordinate.y * texture.height + 0.5f);
-			srcEndX = (int) (data[i + 1].textureCoordinate.x * texture.width + 0.5f);
-			srcEndY = (int) (data[i + 2].textureCoordinate.y * texture.height + 0.5f);
-			
-			tint = data[i + 0].color;
-
-			Vector2 origin = new Vector2(data[i + 0].position.x, data[i + 0].position.y);
-			Vector2 xAxis = new Vector2(data[i + 1].position.x - data[i + 0].position.x,
-										data[i + 1].position.y - data[i + 0].position.y);
-			Vector2 yAxis = new Vector2(data[i + 2].position.x - data[i + 0].position.x,
-										data[i + 2].position.y - data[i + 0].position.y);
-			
-			drawQuad(origin, xAxis, yAxis, srcStartX, srcStartY, srcEndX, srcEndY, texture.width, texture.height, texture.getTexture(), tint);
-			// TODO: Add rotation handling to this code path since it is faster
-//			drawQuad2(destStartX, destStartY, destEndX, destEndY, srcStartX, srcStartY, srcEndX, srcEndY, texture.width, texture.height, texture.getTexture(), tint);
-			i += 4;
+			drawQuad(texture, srcPixels, alphaSpans, samplerState,
+					 data[i + 0].position.x, data[i + 0].position.y,
+					 data[i + 1].position.x, data[i + 1].position.y,
+					 data[i + 2].position.x, data[i + 2].position.y,
+					 data[i + 0].textureCoordinate.x, data[i + 0].textureCoordinate.y,
+					 data[i + 1].textureCoordinate.x, data[i + 2].textureCoordinate.y,
+					 data[i + 0].color.getPackedValue(), data[i + 0].position.z);
 		}
 //TimedBlock.endTimedBlock("Draw");
 	}
 
-	private <T> void platformDrawUserIndexedPrimitives(PrimitiveType primitiveType, T[] vertexData, int vertexOffset, int numVertices, int[] indexData, int indexOffset, int primitiveCount, VertexDeclaration vertexDeclaration)
+	/**
+	 * Draws a run of the sprites of a {@link SpriteBuffer} with the texture in slot 0, the packed
+	 * counterpart of the quads drawn by {@link #drawUserIndexedPrimitives}.
+	 * 
+	 * @param sprites
+	 *        The sprites of the batch.
+	 * @param order
+	 *        The indices of the sprites in drawing order.
+	 * @param start
+	 *        The index of the first sprite to draw in {@code order}.
+	 * @param end
+	 *        The index after the last sprite to draw in {@code order}.
+	 */
+	void drawSprites(SpriteBuffer sprites, int[] order, int start, int end)
 	{
-		throw new UnsupportedOperationException();
-	}
+		_graphicsMetrics._drawCount++;
+		_graphicsMetrics._primitiveCount += 2L * (end - start);
 
-	private static GraphicsProfile platformGetHighestSupportedGraphicsProfile(GraphicsDevice graphicsDevice)
-	{
-		return GraphicsProfile.Reach;
-	}
+		applyState(true);
 
-	// NOTE: XNA uses premultiplied alpha by default and the color values in
-	//		 the xnb files are premultiplied by the alpha channel.
-	private void drawQuad(Vector2 origin, Vector2 xAxis, Vector2 yAxis,
-						  int srcStartX, int srcStartY, int srcEndX, int srcEndY,
-						  int srcWidth, int srcHeight, int[] srcPixels, Color tint)
-	{
-		// Note: Premultiply tint up front
-		//Vector4 tintVec4 = Color.fromNonPremultiplied(tint.getRed(), tint.getGreen(), tint.getBlue(), tint.getAlpha()).toVector4();
-		Vector4 tintVec4 = tint.toVector4();
-
-		int oldWidth  = srcEndX - srcStartX;
-		int oldHeight = srcEndY - srcStartY;
-
-		// NOTE: Can't use the inv because of numerical imprecision which makes us fetch the wrong pixel
-		//       sometimes for some ratio
-//		float invXAxislengthSq = 1.0f / xAxis.lengthSquared();
-//		float invYAxislengthSq = 1.0f / yAxis.lengthSquared();
-		float xAxislengthSq = xAxis.lengthSquared();
-		float yAxislengthSq = yAxis.lengthSquared();
-
-		int screenWidth = this._viewport.getWidth();
-		int screenHeight = this._viewport.getHeight();
-		
-		// check the bounds
-		int minX = screenWidth;
-		int maxX = 0;
-		int minY = screenHeight;
-		int maxY = 0;
-		
-		Vector2[] pos = new Vector2[]{ origin,
-								   	   Vector2.add(origin, xAxis),
-								   	   Vector2.add(origin, xAxis).add(yAxis),
-								   	   Vector2.add(origin, yAxis) };
-		for (int pIndex = 0; pIndex < pos.length; ++pIndex)
-		{
-			Vector2 testPos = pos[pIndex];
-			int floorX = (int) Math.floor(testPos.x);
-			int ceilX = (int) Math.ceil(testPos.x);
-			int floorY = (int) Math.floor(testPos.y);
-			int ceilY = (int) Math.ceil(testPos.y);
-		
-			if (minX > floorX) { minX = floorX; }
-			if (minY > floorY) { minY = floorY; }
-			if (maxX < ceilX)  { maxX = ceilX; }
-			if (maxY < ceilY)  { maxY = ceilY; }
-		}
-		
-		if (minX < 0) { minX = 0;}
-		if (minY < 0) { minY = 0;}
-		if (maxX > screenWidth)  { maxX = screenWidth; }
-		if (maxY > screenHeight) { maxY = screenHeight; }
-//TimedBlock.beginTimedBlock("ProcessPixel");
-		// Cycle through all the sprites pixels. and apply tint and alpha-blending
-		// Set our starting index position for the source Texture.
-		int destRow = minX + minY * screenWidth;
-		for (int y = minY; y < maxY; ++y)
-		{
-			int destIndex = destRow;
-			for (int x = minX; x < maxX; ++x)
-			{
-				Vector2 pixelPos = new Vector2(x + 0.5f, y + 0.5f);
-				Vector2 d = Vector2.subtract(pixelPos, origin);
-				
-				float edge0 = d.dotProduct(Vector2.negate(perp(xAxis)));
-				float edge1 = Vector2.subtract(d, xAxis).dotProduct(Vector2.negate(perp(yAxis)));
-				float edge2 = Vector2.subtract(d, xAxis).subtract(yAxis).dotProduct(perp(xAxis));
-				float edge3 = Vector2.subtract(d, yAxis).dotProduct(perp(yAxis));
-
-				if ((edge0 <= 0) &&
-					(edge1 <= 0) &&
-					(edge2 <= 0) &&
-					(edge3 <= 0))
-				{
-					Vector4 foregroundColor;
-					if (oldWidth != xAxis.x || oldHeight != yAxis.y)
-					{
-						// NOTE: Can't use the inv because of numerical imprecision which makes us fetch the wrong pixel
-						//       sometimes for some ratio
-//						float u = invXAxislengthSq * d.dotProduct(xAxis);
-//						float v = invYAxislengthSq * d.dotProduct(yAxis);
-						// NOTE: u and v ranges from 0 to 1 into the source texture
-						float u = d.dotProduct(xAxis) / xAxislengthSq;
-						float v = d.dotProduct(yAxis) / yAxislengthSq;
-						
-						float tX, tY;
-						int fetchX, fetchY;
-						// TODO: Add other resizing methods (see TextureFilter.java)
-						switch (this.samplerStates.getSamplerStateCollection(0).getFilter())
-						{
-							case Point:
-								// NOTE: Re-base our texture x to the [0-width] range and y to the [0-height] range
-								tX = u * (float) (oldWidth);
-								tY = v * (float) (oldHeight);
-	
-								fetchX = (int) tX + srcStartX;
-								fetchY = (int) tY + srcStartY;
-					
-								int texelPtr = srcPixels[fetchX + fetchY * srcWidth];
-								foregroundColor = new Vector4((float) ((texelPtr >>  0) & 0xFF),
-				 					 	 					  (float) ((texelPtr >>  8) & 0xFF),
-				 					 	 					  (float) ((texelPtr >> 16) & 0xFF),
-				 					 	 					  (float) ((texelPtr >> 24) & 0xFF));
-								foregroundColor = Vector4.divide(foregroundColor, 255);
-								break;
-								
-							case Linear:
-							default:
-								// NOTE: Re-base our texture x to the [0-width] range and y to the [0-height] range
-								tX = u * (float) (oldWidth) - 0.5f;
-								tY = v * (float) (oldHeight) - 0.5f;
-	
-								fetchX = (int) tX;
-								fetchY = (int) tY;
-					
-								float xDiff = tX - (float) fetchX;
-								float yDiff = tY - (float) fetchY;
-					
-								// NOTE: Need to adjust the u and v here for when we use spriteSheets or spriteStrips
-								fetchX += srcStartX;
-								fetchY += srcStartY;
-								
-								int texelPtrA, texelPtrB, texelPtrC, texelPtrD;
-								
-								// TODO: Validate if it is possible to have different values for u, v and w
-								//       and treat them separately if so.
-								switch (this.samplerStates.getSamplerStateCollection(0).getAddressU())
-								{
-									case Wrap:
-										int nextU = 1;
-										if (xDiff < 0)
-										{
-											nextU = -1;
-											xDiff = -xDiff;
-										}
-										int nextV = 1;
-										if (yDiff < 0)
-										{
-											nextV = -1;
-											yDiff = -yDiff;
-										}
-										texelPtrA = srcPixels[fetchX + fetchY * srcWidth];
-										texelPtrB = srcPixels[((fetchX + nextU + srcWidth) % srcWidth) + (fetchY * srcWidth)];
-										texelPtrC = srcPixels[fetchX + (((fetchY + nextV + srcHeight) % srcHeight) * srcWidth)];
-										texelPtrD = srcPixels[((fetchX + nextU + srcWidth) % srcWidth) + (((fetchY + nextV + srcHeight) % srcHeight) * srcWidth)];
-										break;
-									// NOTE: When using spriteSheets, MonoGame allows blending of the last row or column of pixel in the current sprite
-									//		 with the first row or column of the next sprite in the sheet.  This doesn't seem to be a good idea if the
-									//		 sprites are tightly packed (i.e.: no fully translucent pixels on the boundary) so we don't allow it in our
-									//		 software renderer.
-									// TODO: Validate the note compared to OpenGL when we implement it. We probably want this to be the same on both renderer.
-									case Clamp:
-									default:
-										if (xDiff < 0) xDiff = 0;
-										if (yDiff < 0) yDiff = 0;
-										int srcIndex = (fetchX + fetchY * srcWidth);
-										texelPtrA = srcPixels[srcIndex];
-										// NOTE: Need to MOD u by oldWidth and v by oldHeight to adjust the the boundary for when we use spriteSheets or spriteStrips
-										texelPtrB = srcPixels[srcIndex + (((fetchX % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
-										texelPtrC = srcPixels[srcIndex + (((fetchY % oldHeight) == (oldHeight -1)) ? 0 : srcWidth)];
-										texelPtrD = srcPixels[srcIndex + (((fetchY % oldHeight) == (oldHeight -1)) ? 0 : srcWidth) + (((fetchX % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
-										break;
-								}
-								
-								Vector4 texelA = new Vector4((float) ((texelPtrA >>  0) & 0xFF),
-									 					 	 (float) ((texelPtrA >>  8) & 0xFF),
-									 					 	 (float) ((texelPtrA >> 16) & 0xFF),
-									 					 	 (float) ((texelPtrA >> 24) & 0xFF));
-								Vector4 texelB = new Vector4((float) ((texelPtrB >>  0) & 0xFF),
-									 					 	 (float) ((texelPtrB >>  8) & 0xFF),
-									 					 	 (float) ((texelPtrB >> 16) & 0xFF),
-									 					 	 (float) ((texelPtrB >> 24) & 0xFF));
-								Vector4 texelC = new Vector4((float) ((texelPtrC >>  0) & 0xFF),
-									 					 	 (float) ((texelPtrC >>  8) & 0xFF),
-									 					 	 (float) ((texelPtrC >> 16) & 0xFF),
-									 					 	 (float) ((texelPtrC >> 24) & 0xFF));
-								Vector4 texelD = new Vector4((float) ((texelPtrD >>  0) & 0xFF),
-									 					 	 (float) ((texelPtrD >>  8) & 0xFF),
-									 					 	 (float) ((texelPtrD >> 16) & 0xFF),
-									 					 	 (float) ((texelPtrD >> 24) & 0xFF));
-					
-								// NOTE: Go from sRGB to "linear light" space
-//								texelA = sRGB255ToLinear1(texelA);
-//								texelB = sRGB255ToLinear1(texelB);
-//								texelC = sRGB255ToLinear1(texelC);
-//								texelD = sRGB255ToLinear1(texelD);
-								texelA = Vector4.divide(texelA, 255);
-								texelB = Vector4.divide(texelB, 255);
-								texelC = Vector4.divide(texelC, 255);
-								texelD = Vector4.divide(texelD, 255);
-					
-								foregroundColor = Vector4.lerp(Vector4.lerp(texelA, texelB, xDiff),
-															   Vector4.lerp(texelC, texelD, xDiff),
-															   yDiff);
-						}
-					}
-					else
-					{
-						// NOTE: Re-base our texture x to the [0-width] range and y to the [0-height] range
-						//       and add the offset for when we use spriteSheets or spriteStrips.
-						int fetchX = x - (int) (origin.x+0.5f) + srcStartX;
-						int fetchY = y - (int) (origin.y+0.5f) + srcStartY;
-
-						int texelPtr = srcPixels[fetchX + fetchY * srcWidth];
-						foregroundColor = new Vector4((float) ((texelPtr >>  0) & 0xFF),
-		 	 					  					  (float) ((texelPtr >>  8) & 0xFF),
-		 	 					  					  (float) ((texelPtr >> 16) & 0xFF),
-		 	 					  					  (float) ((texelPtr >> 24) & 0xFF));
-						foregroundColor = Vector4.divide(foregroundColor, 255);
-					}
+		Texture2D texture = (Texture2D) getTextures().getTexture(0);
+		int[] srcPixels = getQuadTexels(texture);
+		AlphaSpanIndex alphaSpans = texture.getAlphaSpans();
 
-					// tint
-					foregroundColor = Vector4.multiply(foregroundColor, tintVec4);
-
-					Vector4 dest = new Vector4((float) ((pixels[x + y * screenWidth] >>  0) & 0xFF),
-										   	   (float) ((pixels[x + y * screenWidth] >>  8) & 0xFF),
-										   	   (float) ((pixels[x + y * screenWidth] >> 16) & 0xFF),
-										   	   (float) ((pixels[x + y * screenWidth] >> 24) & 0xFF));
-
-					// NOTE: Go from sRGB to "linear" brightness space
-//					dest = sRGB255ToLinear1(dest);
-					dest = Vector4.divide(dest, 255);
-		
-					Vector4 blended = Vector4.add(Vector4.multiply(dest, (1.0f - foregroundColor.w)), foregroundColor);
-					blended = Vector4.clamp(blended, Vector4.zero(), Vector4.one());
-
-					// NOTE: Go from "linear light" to sRGB space
-//					Vector4 blended255 = linear1ToSRGB255(blended);
-					Vector4 blended255 = Vector4.multiply(blended, 255);
-		
-					pixels[destIndex] = ((((int) blended255.w) << 24) & 0xff000000) |
-									  	((((int) blended255.z) << 16) & 0xff0000)	|
-									  	((((int) blended255.y) << 8) & 0xff00) |
-									  	  ((int) blended255.x);
-				}
-				++destIndex;
-			}
-			destRow += screenWidth;
+		SamplerState samplerState = samplerStates.getSamplerStateCollection(0);
+		applyRasterizerStates(samplerState);
+		_rasterizer.setAlphaSpans(alphaSpans);
+
+		float[] positions = sprites.positions;
+		float[] texCoords = sprites.texCoords;
+		boolean markDirty = _dirtyRegionTracking && _targetPixels == pixels;
+		for (int i = start; i < end; ++i)
+		{
+			int sprite = order[i];
+			int p = sprite * 8;
+			int t = sprite * 4;
+			if (markDirty)
+				markDirtyQuad(positions[p + 0], positions[p + 1], positions[p + 2], positions[p + 3],
+							  positions[p + 4], positions[p + 5], positions[p + 6], positions[p + 7]);
+
+			drawQuad(texture, srcPixels, alphaSpans, samplerState,
+					 positions[p + 0], positions[p + 1], positions[p + 2], positions[p + 3], positions[p + 4], positions[p + 5],
+					 texCoords[t + 0], texCoords[t + 1], texCoords[t + 2], texCoords[t + 3],
+					 sprites.colors[sprite], sprites.depths[sprite]);
 		}
-//TimedBlock.endTimedBlock_Counted("ProcessPixel", (maxX - minX + 1) * (maxY - minY + 1));;
 	}
 
-	// TODO: This method is faster but I need to add rotation handling to it
-	private void drawQuad2(int destStartX, int destStartY, int destEndX, int destEndY,
-			  			   int srcStartX, int srcStartY, int srcEndX, int srcEndY,
-			  			   int srcWidth, int srcHeight, int[] srcPixels, Color tint)
+	/**
+	 * Draws a single sprite straight from the parameters of {@link SpriteBatch#draw}, for the
+	 * {@link SpriteSortMode#Immediate} mode. The corners are computed exactly like
+	 * {@link SpriteBatchItem#set(float, float, float, float, float, float, float, float, Color, Vector2, Vector2)},
+	 * so the sprite looks the same as when it goes through the {@link SpriteBatcher}, without the
+	 * batch item, the vertex array or the index checks.
+	 * 
+	 * @param texture
+	 *        The texture of the sprite, bound to slot 0.
+	 * @param depth
+	 *        The layer depth of the sprite.
+	 * @param color
+	 *        The packed color of the sprite.
+	 */
+	void drawSprite(Texture2D texture, float depth, float x, float y, float dx, float dy, float w, float h,
+					float sin, float cos, int color, float texCoordTLX, float texCoordTLY, float texCoordBRX, float texCoordBRY)
 	{
-		int screenWidth = this._viewport.getWidth();
-		int screenHeight = this._viewport.getHeight();
-
-		int oldWidth  = srcEndX - srcStartX;
-		int oldHeight = srcEndY - srcStartY;
-		int newWidth  = destEndX - destStartX;
-		int newHeight = destEndY - destStartY;
-		
-		float xRatio = (float) oldWidth / (float) newWidth;
-		float yRatio = (float) oldHeight / (float) newHeight;
+		_graphicsMetrics._drawCount++;
+		_graphicsMetrics._primitiveCount += 2L;
+		_graphicsMetrics._spriteCount++;
 
-		int minX = srcStartX;
-		int minY = srcStartY;
-		int maxX = minX + newWidth;
-		int maxY = minY + newHeight;
+		textures.setTexture(0, texture);
+		applyState(true);
 
-		// check the bounds
-		if (destStartX < 0)
+		AlphaSpanIndex alphaSpans = texture.getAlphaSpans();
+		SamplerState samplerState = samplerStates.getSamplerStateCollection(0);
+		applyRasterizerStates(samplerState);
+		_rasterizer.setAlphaSpans(alphaSpans);
+
+		float topLeftX = x + dx * cos - dy * sin;
+		float topLeftY = y + dx * sin + dy * cos;
+		float topRightX = x + (dx + w) * cos - dy * sin;
+		float topRightY = y + (dx + w) * sin + dy * cos;
+		float bottomLeftX = x + dx * cos - (dy + h) * sin;
+		float bottomLeftY = y + dx * sin + (dy + h) * cos;
+		if (_dirtyRegionTracking && _targetPixels == pixels)
 		{
-			minX += -destStartX;
-			destStartX = 0;
+			float bottomRightX = x + (dx + w) * cos - (dy + h) * sin;
+			float bottomRightY = y + (dx + w) * sin + (dy + h) * cos;
+			markDirtyQuad(topLeftX, topLeftY, topRightX, topRightY, bottomLeftX, bottomLeftY, bottomRightX, bottomRightY);
 		}
-		if (destEndX > screenWidth)
-		{
-			maxX -= destEndX - screenWidth;
-			destEndX = screenWidth;
-		}
-		if (destStartY < 0)
+
+		drawQuad(texture, getQuadTexels(texture), alphaSpans, samplerState,
+				 topLeftX, topLeftY, topRightX, topRightY, bottomLeftX, bottomLeftY,
+				 texCoordTLX, texCoordTLY, texCoordBRX, texCoordBRY, color, depth);
+	}
+
+	/**
+	 * Returns the region the sprites can be drawn into, in the units of their positions: the
+	 * render target, and the scissor rectangle when the scissor test is enabled.
+	 * 
+	 * <p>
+	 * NOTE: The software renderer doesn't offset the sprites by the viewport nor transform them
+	 * by the matrix of the sprite effect, the positions of the sprites are the pixels of the
+	 * render target, scaled when the frames are rendered at a lower resolution.
+	 * 
+	 * @param scissorTestEnable
+	 *        Whether the sprites are clipped by the scissor rectangle.
+	 * @param bounds
+	 *        Receives the bounds, as minX, minY, maxX and maxY.
+	 */
+	void getSpriteBounds(boolean scissorTestEnable, float[] bounds)
+	{
+		float scale = _targetScale;
+		float minX = 0.0f;
+		float minY = 0.0f;
+		float maxX = _targetWidth / scale;
+		float maxY = _targetHeight / scale;
+		if (scissorTestEnable)
 		{
-			minY += -destStartY;
-			destStartY = 0;
+			minX = Math.max(minX, _scissorRectangle.x);
+			minY = Math.max(minY, _scissorRectangle.y);
+			maxX = Math.min(maxX, _scissorRectangle.x + _scissorRectangle.width);
+			maxY = Math.min(maxY, _scissorRectangle.y + _scissorRectangle.height);
 		}
-		if (destEndY > screenHeight)
+		bounds[0] = minX;
+		bounds[1] = minY;
+		bounds[2] = maxX;
+		bounds[3] = maxY;
+	}
+
+	/**
+	 * Returns the texels {@link #drawQuad} samples the first level of a texture from.
+	 * 
+	 * @return The texels, or {@code null} for a DXT texture, whose blocks are decoded by each quad.
+	 */
+	private static int[] getQuadTexels(Texture2D texture)
+	{
+		return (texture.getCompressedTexels() != null) ? null : texture.getTexture();
+	}
+
+	/**
+	 * Draws a sprite quad with the current kernel, or records it in the tiled rasterizer.
+	 * 
+	 * @param topLeftX
+	 *        The position of the top-left corner, with the ones of the top-right and bottom-left
+	 *        corners, the quad is the parallelogram they span.
+	 * @param texCoordTLX
+	 *        The texture coordinates of the top-left corner, followed by the ones of the
+	 *        bottom-right corner.
+	 * @param tint
+	 *        The packed color of the sprite.
+	 * @param depth
+	 *        The layer depth of the sprite.
+	 */
+	private void drawQuad(Texture2D texture, int[] srcPixels, AlphaSpanIndex alphaSpans, SamplerState samplerState,
+						  float topLeftX, float topLeftY, float topRightX, float topRightY, float bottomLeftX, float bottomLeftY,
+						  float texCoordTLX, float texCoordTLY, float texCoordBRX, float texCoordBRY, int tint, float depth)
+	{
+		// NOTE(Eric): rotation is stored in the position.
+		// NOTE: The positions are scaled when the frames are rendered at a lower resolution.
+		float scale = _targetScale;
+		float originX = topLeftX * scale;
+		float originY = topLeftY * scale;
+		float xAxisX = (topRightX - topLeftX) * scale;
+		float xAxisY = (topRightY - topLeftY) * scale;
+		float yAxisX = (bottomLeftX - topLeftX) * scale;
+		float yAxisY = (bottomLeftY - topLeftY) * scale;
+
+		// NOTE: Add 0.5f so that the cast always return the right value (rounding error).
+		int srcStartX = (int) (texCoordTLX * texture.width + 0.5f);
+		int srcStartY = (int) (texCoordTLY * texture.height + 0.5f);
+		int srcEndX = (int) (texCoordBRX * texture.width + 0.5f);
+		int srcEndY = (int) (texCoordBRY * texture.height + 0.5f);
+
+		int[] texels = srcPixels;
+		int textureWidth = texture.width;
+		int textureHeight = texture.height;
+		int level = selectMipLevel(texture, samplerState, xAxisX, xAxisY, yAxisX, yAxisY, srcStartX, srcStartY, srcEndX, srcEndY);
+		if (level > 0)
 		{
-			maxY -= destEndY - screenHeight;
-			destEndY = screenHeight;
+			// NOTE: The source rectangle is rounded to the texels of the level.
+			int half = 1 << (level - 1);
+			texels = (texture.getCompressedTexels() == null) ? texture.getMipLevel(level) : null;
+			textureWidth = texture.getMipWidth(level);
+			textureHeight = texture.getMipHeight(level);
+			srcStartX = (srcStartX + half) >> level;
+			srcStartY = (srcStartY + half) >> level;
+			srcEndX = (srcEndX + half) >> level;
+			srcEndY = (srcEndY + half) >> level;
 		}
 
-		// Extract our tint components
-		short rTint = tint.getRed();
-		short gTint = tint.getGreen();
-		short bTint = tint.getBlue();
-		short aTint = tint.getAlpha();
-//TimedBlock.beginTimedBlock("ProcessPixel");
-		// Cycle through all the sprites pixels. and apply tint and alpha-blending
-		// Set our starting index position for the source Texture.
-		int destRow = destStartX + destStartY * screenWidth;
-		for (int y = minY; y < maxY; ++y, destRow += screenWidth)
+		CompressedTexels compressedTexels = texture.getCompressedTexels();
+		if (compressedTexels != null)
 		{
-			int destIndex = destRow;
-			for (int x = minX; x < maxX; ++x)
-			{
-				// The color of the pixel about to be drawn.
-				int srcColor;
-				
-				// The components of the pixel about to be drawn.
-				int srcR, srcG, srcB, srcA;
+			// NOTE: The quad samples a region of the level around its source rectangle, which is
+			//       moved to the origin of the region. The linear wrap fill loops also read the
+			//       neighbours of the rectangle, and wrap them around the level at its edges.
+			int minX = Math.min(srcStartX, srcEndX);
+			int minY = Math.min(srcStartY, srcEndY);
+			int maxX = Math.max(srcStartX, srcEndX);
+			int maxY = Math.max(srcStartY, srcEndY);
+			if (minX == maxX || minY == maxY)
+				return;
 
-				if (oldWidth != newWidth || oldHeight != newHeight)
+			if (samplerState.getFilter() != TextureFilter.Point && samplerState.getAddressU() == TextureAddressMode.Wrap)
+			{
+				if (minX - RegionMargin >= 0 && maxX + RegionMargin <= textureWidth)
 				{
-					int u, v;
-					// TODO: Add other resizing methods (see TextureFilter.java)
-					switch (this.samplerStates.getSamplerStateCollection(0).getFilter())
-					{
-						case Point:
-							if (newWidth < 0 || newHeight < 0)
-								throw new IllegalArgumentException("new width or new height cannot be less than 0");
-
-							u = (int) (xRatio * ((x - srcStartX) + 0.5f)) + srcStartX;
-							v = (int) (yRatio * ((y - srcStartY) + 0.5f)) + srcStartY;
-							srcColor = srcPixels[u + v * srcWidth];
-//							foregroundCol = srcPixels[(int) (((xRatio * ((x - srcStartX) + 0.5f))) + srcStartX) + (int) (((yRatio * ((y - srcStartY) + 0.5f))) + srcStartY) * srcWidth];
-							srcR = (srcColor) & 0xff;
-							srcG = (srcColor >> 8) & 0xff;
-							srcB = (srcColor >> 16) & 0xff;
-							srcA = (srcColor >> 24) & 0xff;
-							break;
-
-						case Linear:
-						default:
-							if (newWidth < 0 || newHeight < 0)
-								throw new IllegalArgumentException("new width or new height cannot be less than 0");
-							if (srcStartX < 0 || srcStartY < 0)
-								throw new IllegalArgumentException("startX or startY cannot be less than 0");
-
-							int texelA, texelB, texelC, texelD, srcIndex;
-							float x_diff, y_diff;
-
-							// NOTE: this formula was found by reverse engineering what MonoGame does
-							//       so I can get the exact same result.
-							float rU = -0.5f + (xRatio * ((x - srcStartX) + 0.5f));
-							float rV = -0.5f + (yRatio * ((y - srcStartY) + 0.5f));
-							u = (int) (rU);
-							v = (int) (rV);
-							x_diff = rU - u;
-							y_diff = rV - v;
-
-							// NOTE: Need to adjust the u and v here for when we use spriteSheets or spriteStrips
-							u += srcStartX;
-							v += srcStartY;
-
-							// TODO: Validate if it is possible to have different values for u, v and w
-							//       and treat them separately if so.
-							switch (this.samplerStates.getSamplerStateCollection(0).getAddressU())
-							{
-								case Wrap:
-									int nextU = 1;
-									if (x_diff < 0)
-									{
-										nextU = -1;
-										x_diff = -x_diff;
-									}
-									int nextV = 1;
-									if (y_diff < 0)
-									{
-										nextV = -1;
-										y_diff = -y_diff;
-									}
-									texelA = srcPixels[u + v * srcWidth];
-									texelB = srcPixels[((u + nextU + srcWidth) % srcWidth) + (v * srcWidth)];
-									texelC = srcPixels[u + (((v + nextV + srcHeight) % srcHeight) * srcWidth)];
-									texelD = srcPixels[((u + nextU + srcWidth) % srcWidth) + (((v + nextV + srcHeight) % srcHeight) * srcWidth)];
-									break;
-								// NOTE: When using spriteSheets, MonoGame allows blending of the last row or column of pixel in the current sprite
-								//		 with the first row or column of the next sprite in the sheet.  This doesn't seem to be a good idea if the
-								//		 sprites are tightly packed (i.e.: no fully translucent pixels on the boundary) so we don't allow it in our
-								//		 software renderer.
-								// TODO: Validate the note compared to OpenGL when we implement it. We probably want this to be the same on both renderer.
-								case Clamp:
-								default:
-									if (x_diff < 0) x_diff = 0;
-									if (y_diff < 0) y_diff = 0;
-									srcIndex = (u + v * srcWidth);
-									texelA = srcPixels[srcIndex];
-									// NOTE: Need to MOD u by oldWidth and v by oldHeight to adjust the the boundary for when we use spriteSheets or spriteStrips
-									texelB = srcPixels[srcIndex + (((u % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
-									texelC = srcPixels[srcIndex + (((v % oldHeight) == (oldHeight -1)) ? 0 : srcWidth)];
-									texelD = srcPixels[srcIndex + (((v % oldHeight) == (oldHeight -1)) ? 0 : srcWidth) + (((u % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
-									break;
-							}
-
-							float r = MathHelper.lerp(MathHelper.lerp(texelA & 0xff, texelB & 0xff, x_diff),
-													  MathHelper.lerp(texelC & 0xff, texelD & 0xff, x_diff),
-													  y_diff);
-							float g = MathHelper.lerp(MathHelper.lerp((texelA >> 8) & 0xff, (texelB >> 8) & 0xff, x_diff),
-													  MathHelper.lerp((texelC >> 8) & 0xff, (texelD >> 8) & 0xff, x_diff),
-													  y_diff);
-							float b = MathHelper.lerp(MathHelper.lerp((texelA >> 16) & 0xff, (texelB >> 16) & 0xff, x_diff),
-													  MathHelper.lerp((texelC >> 16) & 0xff, (texelD >> 16) & 0xff, x_diff),
-													  y_diff);
-							float a = MathHelper.lerp(MathHelper.lerp((texelA >> 24) & 0xff, (texelB >> 24)& 0xff, x_diff),
-													  MathHelper.lerp((texelC >> 24)& 0xff, (texelD >> 24)& 0xff, x_diff),
-													  y_diff);
-
-							// NOTE: Add 0.5f before casting so it rounds properly
-							r += 0.5f;
-							g += 0.5f;
-							b += 0.5f;
-							a += 0.5f;
-
-//							srcColor = ((((int) a) << 24) & 0xff000000) | ((((int) b) << 16) & 0xff0000) | ((((int) g) << 8) & 0xff00) | ((int) r);
-							srcR = (int) r;
-							srcG = (int) g;
-							srcB = (int) b;
-							srcA = (int) a;
-							break;
-					}
+					minX -= RegionMargin;
+					maxX += RegionMargin;
 				}
 				else
 				{
-					srcColor = srcPixels[x + y * srcWidth];
-					srcR = (srcColor) & 0xff;
-					srcG = (srcColor >> 8) & 0xff;
-					srcB = (srcColor >> 16) & 0xff;
-					srcA = (srcColor >> 24) & 0xff;
-				}
-
-				// The components of the pixel about to be drawn.
-//				srcR = (srcColor >> 16) & 0xff;
-//				srcG = (srcColor >> 8) & 0xff;
-//				srcB = (srcColor) & 0xff;
-//				srcA = (srcColor >> 24) & 0xff;
-	
-				// Using Color.WHITE would have no effect so skip this
-				if (!tint.equals(Color.White))
-				{
-					// Typical tint formula -> original component * tint / 255
-					// also works with premultiplied alpha
-					srcR = srcR * rTint / 255;
-					srcG = srcG * gTint / 255;
-					srcB = srcB * bTint / 255;
-					srcA = srcA * aTint / 255;
-				}
-
-				// The resulting color of the pixel to be drawn
-				int col;
-
-				// If alpha is 255 it completely overrides the existing color.
-				if (srcA == 255 || _blendState == BlendState.Opaque)
-				{
-					col = (srcA << 24 & 0xff000000) | (srcB << 16 & 0x00ff0000) |
-						  (srcG << 8 & 0x0000ff00) | (srcR & 0x000000ff);
+					minX = 0;
+					maxX = textureWidth;
 				}
-				else if (_blendState == BlendState.AlphaBlend)
+				if (minY - RegionMargin >= 0 && maxY + RegionMargin <= textureHeight)
 				{
-					// The color of the pixel already there.
-					int backgroundCol = pixels[destIndex];
-					
-					// Do the alpha-blending with the premultiplied alpha source.
-					int backgroundB = (backgroundCol >> 16) & 0xff;
-					int backgroundG = (backgroundCol >> 8) & 0xff;
-					int backgroundR = (backgroundCol) & 0xff;
-					// Typical over blend formula
-					int r = srcR + (backgroundR * (255 - srcA) / 255);
-					int g = srcG + (backgroundG * (255 - srcA) / 255);
-					int b = srcB + (backgroundB * (255 - srcA) / 255);
-		
-					// NOTE: since this can produce a value greater than 255 for a single
-					// channel we need to clamp those values.
-					r = r > 255 ? 255 : r;
-					g = g > 255 ? 255 : g;
-					b = b > 255 ? 255 : b;
-
-					col = b << 16 | g << 8 | r;
+					minY -= RegionMargin;
+					maxY += RegionMargin;
 				}
 				else
 				{
-					// TODO: Should do the other BlendStates
-					// Defaults to BlendState.OPAQUE.
-					col = srcA << 24 | srcB << 16 | srcG << 8 | srcR;
+					minY = 0;
+					maxY = textureHeight;
 				}
-
-				pixels[destIndex] = col;
-				++destIndex;
 			}
-			// destRow += screenWidth;
+
+			textureWidth = maxX - minX;
+			textureHeight = maxY - minY;
+			texels = _decodedBlockCache.getRegion(compressedTexels, level, minX, minY, textureWidth, textureHeight, _tiledRasterizer != null);
+			srcStartX -= minX;
+			srcStartY -= minY;
+			srcEndX -= minX;
+			srcEndY -= minY;
 		}
-//TimedBlock.endTimedBlock_Counted("ProcessPixel", (maxX - minX + 1) * (maxY - minY + 1));;
-	}
 
-/*	private void drawQuad3(int destStartX, int destStartY, int destEndX, int destEndY,
-	  					  int srcStartX, int srcStartY, int srcEndX, int srcEndY,
-	  					  int srcWidth, int srcHeight, int[] srcPixels, Color tint)
-	{
-		// Note: Premultiply tint up front
-		//Vector4 tintVec4 = Color.fromNonPremultiplied(tint.getRed(), tint.getGreen(), tint.getBlue(), tint.getAlpha()).toVector4();
-		Vector4 tintVec4 = tint.toVector4();
+		if (_tiledRasterizer != null)
+		{
+			_tiledRasterizer.addQuad(originX, originY, xAxisX, xAxisY, yAxisX, yAxisY,
+									 srcStartX, srcStartY, srcEndX, srcEndY,
+									 textureWidth, textureHeight, texels, tint, depth,
+									 samplerState, _blendState, _depthStencilState, alphaSpans);
+			return;
+		}
 
-		Vector2 origin = new Vector2(destStartX, destStartY);
-		Vector2 xAxis = new Vector2(destEndX - destStartX, 0f);
-		Vector2 yAxis = new Vector2(0f, destEndY - destStartY);
-		Rectangle clipRect = new Rectangle();
+		_rasterizer.setDepth(depth);
+		switch (_rasterizerKernel)
+		{
+			case Reference:
+				Vector2 origin = new Vector2(originX, originY);
+				Vector2 xAxis = new Vector2(xAxisX, xAxisY);
+				Vector2 yAxis = new Vector2(yAxisX, yAxisY);
+
+				_rasterizer.drawQuad(origin, xAxis, yAxis, srcStartX, srcStartY, srcEndX, srcEndY, textureWidth, textureHeight, texels, new Color(tint));
+				// TODO: Add rotation handling to this code path since it is faster
+//				_rasterizer.drawQuad2(destStartX, destStartY, destEndX, destEndY, srcStartX, srcStartY, srcEndX, srcEndY, texture.width, texture.height, srcPixels, tint);
+				break;
+
+			case Simd:
+				_rasterizer.drawQuadSimd(originX, originY, xAxisX, xAxisY, yAxisX, yAxisY,
+										 srcStartX, srcStartY, srcEndX, srcEndY,
+										 textureWidth, textureHeight, texels, tint);
+				break;
+
+			case Incremental:
+			default:
+				_rasterizer.drawQuadIncremental(originX, originY, xAxisX, xAxisY, yAxisX, yAxisY,
+												srcStartX, srcStartY, srcEndX, srcEndY,
+												textureWidth, textureHeight, texels, tint);
+				break;
+		}
+	}
 
-		float xAxisLength = xAxis.length();
-		float yAxisLength = yAxis.length();
+	/**
+	 * Picks the mip level a quad samples, from the number of texels its pixels cover.
+	 * 
+	 * <p>
+	 * NOTE: A sprite is a parallelogram, the texels per pixel are the same over the whole quad.
+	 * The level is lowered until the source rectangle is at least a texel wide and high in it.
+	 */
+	private static int selectMipLevel(Texture2D texture, SamplerState samplerState,
+									  float xAxisX, float xAxisY, float yAxisX, float yAxisY,
+									  int srcStartX, int srcStartY, int srcEndX, int srcEndY)
+	{
+		if (texture.getLevelCount() <= 1)
+			return 0;
 
-		Vector2 NxAxis = xAxis.multiply(yAxisLength / xAxisLength);
-		Vector2 NyAxis = yAxis.multiply(xAxisLength / yAxisLength);
+		int srcWidth = Math.abs(srcEndX - srcStartX);
+		int srcHeight = Math.abs(srcEndY - srcStartY);
+		float texelsX = srcWidth / (float) Math.sqrt(xAxisX * xAxisX + xAxisY * xAxisY);
+		float texelsY = srcHeight / (float) Math.sqrt(yAxisX * yAxisX + yAxisY * yAxisY);
+		int level = texture.selectMipLevel(Math.max(texelsX, texelsY), samplerState);
+		while (level > 0 && ((srcWidth >> level) == 0 || (srcHeight >> level) == 0 || !texture.canSampleMipLevel(level)))
+			--level;
+		return level;
+	}
 
-		float invXAxislengthSq = 1.0f / xAxis.lengthSquared();
-		float invYAxislengthSq = 1.0f / yAxis.lengthSquared();
+	/**
+	 * Picks the mip level a triangle samples, from the ratio of its area in texels to its area in
+	 * pixels. A triangle in perspective gets the level of its average minification.
+	 */
+	private int selectMipLevel(Texture2D texture, SamplerState samplerState, int i0, int i1, int i2)
+	{
+		float[] x = _vertexReader.x;
+		float[] y = _vertexReader.y;
+		float[] u = _vertexReader.u;
+		float[] v = _vertexReader.v;
+		float pixelArea = Math.abs((x[i1] - x[i0]) * (y[i2] - y[i0]) - (x[i2] - x[i0]) * (y[i1] - y[i0]));
+		float texelArea = Math.abs((u[i1] - u[i0]) * (v[i2] - v[i0]) - (u[i2] - u[i0]) * (v[i1] - v[i0])) *
+						  texture.width * texture.height;
+		if (!(pixelArea > 0.0f))
+			return 0;
 
-		Rectangle fillRect = new Rectangle(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE);
+		int level = texture.selectMipLevel((float) Math.sqrt(texelArea / pixelArea), samplerState);
+		while (level > 0 && !texture.canSampleMipLevel(level))
+			--level;
+		return level;
+	}
 
-		//int screenWidth = this._viewport.getWidth();
-		//int screenHeight = this._viewport.getHeight();
+	/**
+	 * Draws the triangles listed in {@link #_triangleIndices} with the {@link TriangleKernel}.
+	 */
+	private void drawTriangles(Object[] vertexData, VertexDeclaration vertexDeclaration, int triangleCount)
+	{
+		applyState(true);
 
-		// check the bounds
-		//int xMin = screenWidth;
-		//int xMax = 0;
-		//int yMin = screenHeight;
-		//int yMax = 0;
+		// NOTE: The quads recorded by the tiled rasterizer must land before the triangles.
+		if (_tiledRasterizer != null)
+			_tiledRasterizer.flush();
 
-		Vector2[] pos = new Vector2[]{ origin,
-				   					   Vector2.add(origin, xAxis),
-				   					   Vector2.add(origin, xAxis).add(yAxis),
-				   					   Vector2.add(origin, yAxis) };
-		for (int pIndex = 0; pIndex < pos.length; ++pIndex)
+		int[] indices = _triangleIndices;
+		int first = Integer.MAX_VALUE;
+		int last = Integer.MIN_VALUE;
+		for (int i = 0; i < triangleCount * 3; ++i)
+		{
+			first = Math.min(first, indices[i]);
+			last = Math.max(last, indices[i]);
+		}
+		_vertexReader.read(vertexData, first, last - first + 1, vertexDeclaration);
+		if (_targetScale != 1.0f)
 		{
-			Vector2 testPos = pos[pIndex];
-			int floorX = (int) Math.floor(testPos.x);
-			int ceilX = (int) Math.ceil(testPos.x);
-			int floorY = (int) Math.floor(testPos.y);
-			int ceilY = (int) Math.ceil(testPos.y);
-
-			//if (xMin > floorX) { xMin = floorX; }
-			//if (yMin > floorY) { yMin = floorY; }
-			//if (xMax < ceilX)  { xMax = ceilX; }
-			//if (yMax < ceilY)  { yMax = ceilY; }
-			if (fillRect.x > floorX) { fillRect.x = floorX; }
-			if (fillRect.y > floorY) { fillRect.y = floorY; }
-			if (fillRect.right()  < ceilX) { fillRect.width = ceilX - fillRect.x; }
-			if (fillRect.bottom() < ceilY) { fillRect.height = ceilY - fillRect.y; }
+			for (int i = 0; i <= last - first; ++i)
+			{
+				_vertexReader.x[i] *= _targetScale;
+				_vertexReader.y[i] *= _targetScale;
+			}
 		}
 
-		fillRect = Rectangle.intersect(clipRect, fillRect);
-		//if (xMin < 0) { xMin = 0;}
-		//if (yMin < 0) { yMin = 0;}
-		//if (xMax > screenWidth)  { xMax = screenWidth; }
-		//if (yMax > screenHeight) { yMax = screenHeight; }
+		SamplerState samplerState = samplerStates.getSamplerStateCollection(0);
+		applyRasterizerStates(samplerState);
+		_rasterizer.setCullMode(_rasterizerState.getCullMode());
+		Texture texture = getTextures().getTexture(0);
+		Texture2D mipmappedTexture = null;
+		if (texture instanceof Texture2D)
+		{
+			Texture2D texture2D = (Texture2D) texture;
+			setTriangleTexture(texture2D, 0, samplerState, last - first + 1);
+			if (texture2D.getLevelCount() > 1 && _vertexReader.hasTextureCoordinate())
+				mipmappedTexture = texture2D;
+		}
+		else
+		{
+			_rasterizer.setTexture(null, 0, 0);
+		}
+		int currentLevel = 0;
 
-		if (fillRect.width > 0 && fillRect.height > 0)
+		boolean marksDirty = _dirtyRegionTracking && _targetPixels == pixels;
+		float[] x = _vertexReader.x;
+		float[] y = _vertexReader.y;
+		for (int i = 0; i < triangleCount * 3; i += 3)
 		{
-			Vector2 nXAxis = Vector2.multiply(xAxis, invXAxislengthSq);
-			Vector2 nYAxis = Vector2.multiply(yAxis, invYAxislengthSq);
-
-			// Cycle through all the sprites pixels. and apply tint and alpha-blending
-			// Set our starting index position for the source Texture.
-			int destRow = fillRect.x + fillRect.y * srcWidth;
-			int yMin = fillRect.y;
-			int yMax = fillRect.y + fillRect.height;
-			int xMin = fillRect.x;
-			int xMax = fillRect.x + fillRect.width;
-			for (int y = yMin; y < yMax; ++y)
+			int i0 = indices[i + 0] - first;
+			int i1 = indices[i + 1] - first;
+			int i2 = indices[i + 2] - first;
+			if (marksDirty)
 			{
-				float pixelPy = (float) y;
-				pixelPy -= origin.y;
-				float PynX = pixelPy * nXAxis.y;
-				float PynY = pixelPy * nYAxis.y;
-				float pixelPx = (float) xMin;
-				pixelPx -= origin.x;
-				for (int x = xMin; x < xMax; ++x)
+				markDirty((int) Math.floor(Math.min(x[i0], Math.min(x[i1], x[i2]))),
+						  (int) Math.floor(Math.min(y[i0], Math.min(y[i1], y[i2]))),
+						  (int) Math.ceil(Math.max(x[i0], Math.max(x[i1], x[i2]))),
+						  (int) Math.ceil(Math.max(y[i0], Math.max(y[i1], y[i2]))));
+			}
+			if (mipmappedTexture != null)
+			{
+				int level = selectMipLevel(mipmappedTexture, samplerState, i0, i1, i2);
+				if (level != currentLevel)
 				{
-					float u = (pixelPx * nXAxis.x) + PynX;
-					float v = (pixelPx * nYAxis.x) + PynY;
-
-//TODO: rendu ici dans drawRectangleQuickly
-					float tX = u * (float) (texture.width);
-					float tY = v * (float) (texture.height);
-
-					int xx = (int) tX;
-					int yy = (int) tY;
-
-					float fX = tX - (float)xx;
-					float fY = tY - (float)yy;
-
-					// TODO: Delete these assert
-					assert((xx >= 0) && (xx < texture.width));
-					assert((yy >= 0) && (yy < texture.height));
-
-					int srcIndex = (xx + yy * texture.width);
-					int texelPtrA = texture.pixels[srcIndex];
-					int texelPtrB = texture.pixels[srcIndex + ((xx == (texture.width - 1)) ? 0 : 1)];//((xx % (texture.width -1) == 0) ? 0 : 1)];
-					int texelPtrC = texture.pixels[srcIndex + ((yy == (texture.height -1)) ? 0 : texture.height)];//((yy % (texture.height -1) == 0) ? 0 : texture.width)];
-					int texelPtrD = texture.pixels[srcIndex + ((yy == (texture.height -1)) ? 0 : texture.height) + ((xx == (texture.width - 1)) ? 0 : 1)];// ((yy % (texture.height -1) == 0) ? 0 : texture.width) + ((xx % (texture.width -1) == 0) ? 0 : 1)];
-
-					Vector4 texelA = new Vector4((float) ((texelPtrA >> 16) & 0xFF),
-							 					 (float) ((texelPtrA >>  8) & 0xFF),
-							 					 (float) ((texelPtrA >>  0) & 0xFF),
-							 					 (float) ((texelPtrA >> 24) & 0xFF));
-					Vector4 texelB = new Vector4((float) ((texelPtrB >> 16) & 0xFF),
-							 					 (float) ((texelPtrB >>  8) & 0xFF),
-							 					 (float) ((texelPtrB >>  0) & 0xFF),
-							 					 (float) ((texelPtrB >> 24) & 0xFF));
-					Vector4 texelC = new Vector4((float) ((texelPtrC >> 16) & 0xFF),
-							 					 (float) ((texelPtrC >>  8) & 0xFF),
-							 					 (float) ((texelPtrC >>  0) & 0xFF),
-							 					 (float) ((texelPtrC >> 24) & 0xFF));
-					Vector4 texelD = new Vector4((float) ((texelPtrD >> 16) & 0xFF),
-							 					 (float) ((texelPtrD >>  8) & 0xFF),
-							 					 (float) ((texelPtrD >>  0) & 0xFF),
-							 					 (float) ((texelPtrD >> 24) & 0xFF));
-
-					// NOTE: Go from sRGB to "linear light" space
-//					texelA = sRGB255ToLinear1(texelA);
-//					texelB = sRGB255ToLinear1(texelB);
-//					texelC = sRGB255ToLinear1(texelC);
-//					texelD = sRGB255ToLinear1(texelD);
-					texelA = Vector4.divide(texelA, 255);
-					texelB = Vector4.divide(texelB, 255);
-					texelC = Vector4.divide(texelC, 255);
-					texelD = Vector4.divide(texelD, 255);
-
-					Vector4 texel;
-					// TODO: Add other resizing methods (see TextureFilter.java)
-					switch (this.samplerStates.getSamplerStateCollection(0).getFilter())
-					{
-						case Linear:
-							texel = Vector4.lerp(Vector4.lerp(texelA, texelB, fX),
-												 Vector4.lerp(texelC, texelD, fX),
-												 fY);
-							break;
-//						case Point:
-//							break;
-						default:
-							texel = Vector4.lerp(Vector4.lerp(texelA, texelB, fX),
-									Vector4.lerp(texelC, texelD, fX),
-									fY);
-							break;
-					}
-
-					// tint
-					texel = Vector4.multiply(texel, tintVec4);
+					setTriangleTexture(mipmappedTexture, level, samplerState, last - first + 1);
+					currentLevel = level;
+				}
+			}
+			_rasterizer.drawTriangle(_vertexReader, i0, i1, i2);
+		}
+	}
 
-					Vector4 dest = new Vector4((float) ((pixels[x + y * screenWidth] >> 16) & 0xFF),
-											   (float) ((pixels[x + y * screenWidth] >>  8) & 0xFF),
-											   (float) ((pixels[x + y * screenWidth] >>  0) & 0xFF),
-											   (float) ((pixels[x + y * screenWidth] >> 24) & 0xFF));
+	/**
+	 * Sets a mip level of a texture as the texture of the triangles being drawn. Only the region of
+	 * a DXT texture the texture coordinates of the draw cover is decoded.
+	 * 
+	 * @param vertexCount
+	 *        The number of vertices read by the {@link #_vertexReader}.
+	 */
+	private void setTriangleTexture(Texture2D texture, int level, SamplerState samplerState, int vertexCount)
+	{
+		int width = texture.getMipWidth(level);
+		int height = texture.getMipHeight(level);
+		CompressedTexels compressedTexels = texture.getCompressedTexels();
+		if (compressedTexels == null)
+		{
+			_rasterizer.setTexture(texture.getMipLevel(level), width, height);
+			return;
+		}
+		if (!_vertexReader.hasTextureCoordinate() || vertexCount == 0)
+		{
+			_rasterizer.setTexture(null, 0, 0);
+			return;
+		}
 
-					// NOTE: Go from sRGB to "linear" brightness space
-//					dest = sRGB255ToLinear1(dest);
-					dest = Vector4.divide(dest, 255);
+		// NOTE: The texture coordinates inside of a triangle are between the ones of its vertices,
+		//       even in perspective.
+		float[] u = _vertexReader.u;
+		float[] v = _vertexReader.v;
+		float minU = u[0];
+		float minV = v[0];
+		float maxU = u[0];
+		float maxV = v[0];
+		for (int i = 1; i < vertexCount; ++i)
+		{
+			minU = Math.min(minU, u[i]);
+			minV = Math.min(minV, v[i]);
+			maxU = Math.max(maxU, u[i]);
+			maxV = Math.max(maxV, v[i]);
+		}
 
-					Vector4 blended = Vector4.add(Vector4.multiply(dest, (1.0f - texel.w)), texel);
+		boolean wrap = samplerState.getAddressU() == TextureAddressMode.Wrap;
+		float startX = (float) Math.floor(minU * width) - RegionMargin;
+		float startY = (float) Math.floor(minV * height) - RegionMargin;
+		float endX = (float) Math.ceil(maxU * width) + RegionMargin;
+		float endY = (float) Math.ceil(maxV * height) + RegionMargin;
+		int minX = getRegionStart(startX, endX, width, wrap);
+		int minY = getRegionStart(startY, endY, height, wrap);
+		int maxX = getRegionEnd(startX, endX, width, wrap);
+		int maxY = getRegionEnd(startY, endY, height, wrap);
+		int[] texels = _decodedBlockCache.getRegion(compressedTexels, level, minX, minY, maxX - minX, maxY - minY, false);
+		_rasterizer.setTexture(texels, width, height, minX, minY, maxX - minX);
+	}
 
-					// NOTE: Go from "linear light" to sRGB space
-//					Vector4 blended255 = linear1ToSRGB255(blended);
-					Vector4 blended255 = Vector4.multiply(blended, 255);
+	/**
+	 * Returns the first texel of the region of a DXT texture sampled along an axis, see
+	 * {@link #setTriangleTexture}. The wrapped coordinates crossing an edge of the texture need the
+	 * whole axis, the clamped ones are moved inside of it.
+	 * 
+	 * @param start
+	 *        The first texel the draw samples along the axis.
+	 * @param end
+	 *        The texel after the last one the draw samples along the axis.
+	 * @param size
+	 *        The size of the texture along the axis.
+	 */
+	private static int getRegionStart(float start, float end, int size, boolean wrap)
+	{
+		if (wrap)
+			return (start >= 0.0f && end <= size) ? (int) start : 0;
+		return (int) Math.min(Math.max(start, 0.0f), size - 1);
+	}
 
-					pixels[destIndex++] = ((((int) blended255.w) << 24) & 0xff000000) |
-										  ((((int) blended255.x) << 16) & 0xff0000)	|
-										  ((((int) blended255.y) << 8) & 0xff00) |
-										  ((int) blended255.z);
-				}
-				destRow += screenWidth;
-			}
-		}
-	}*/
+	/**
+	 * Returns the texel after the region of a DXT texture sampled along an axis, see
+	 * {@link #getRegionStart}.
+	 */
+	private static int getRegionEnd(float start, float end, int size, boolean wrap)
+	{
+		if (wrap)
+			return (start >= 0.0f && end <= size) ? (int) end : size;
+		return Math.max((int) Math.min(end, size), getRegionStart(start, end, size, false) + 1);
+	}
 
-	private Vector4	sRGB255ToLinear1(Vector4 c)
+	/**
+	 * Fills {@link #_triangleIndices} with the three vertices of each triangle of a draw.
+	 * 
+	 * @param primitiveType
+	 *        The primitive type of the draw, only the triangle types are supported.
+	 * @param primitiveCount
+	 *        The number of triangles.
+	 * @param baseVertex
+	 *        The offset added to each index.
+	 * @param shortIndices
+	 *        The 16 bits indices of the draw, or {@code null}.
+	 * @param intIndices
+	 *        The 32 bits indices of the draw, or {@code null}. When both are null the vertices
+	 *        are used in order.
+	 * @param indexOffset
+	 *        The first index of the draw.
+	 * @return The number of triangles.
+	 */
+	private int setTriangleIndices(PrimitiveType primitiveType, int primitiveCount, int baseVertex,
+								   short[] shortIndices, int[] intIndices, int indexOffset)
 	{
-		Vector4 result = new Vector4();
+		if (primitiveType != PrimitiveType.TriangleList && primitiveType != PrimitiveType.TriangleStrip)
+			throw new UnsupportedOperationException("The software renderer can only draw triangles");
 
-		float inv255 = 1.0f / 255.0f;
+		if (_triangleIndices.length < primitiveCount * 3)
+			_triangleIndices = new int[primitiveCount * 3];
 
-		result.x = (inv255 * c.x) * (inv255 * c.x);
-		result.y = (inv255 * c.y) * (inv255 * c.y);
-		result.z = (inv255 * c.z) * (inv255 * c.z);
-		result.w = inv255 * c.w;
+		boolean isStrip = primitiveType == PrimitiveType.TriangleStrip;
+		for (int triangle = 0; triangle < primitiveCount; ++triangle)
+		{
+			int element = isStrip ? triangle : triangle * 3;
+			for (int corner = 0; corner < 3; ++corner)
+			{
+				// NOTE: Every other triangle of a strip has its first two vertices swapped so that
+				//       all of them keep the winding order of the first one.
+				int k = (isStrip && (triangle & 1) != 0 && corner < 2) ? element + 1 - corner : element + corner;
+				int index;
+				if (shortIndices != null)
+					index = shortIndices[indexOffset + k] & 0xFFFF;
+				else if (intIndices != null)
+					index = intIndices[indexOffset + k];
+				else
+					index = k;
+				_triangleIndices[triangle * 3 + corner] = baseVertex + index;
+			}
+		}
+		return primitiveCount;
+	}
 
-		return result;
+	/**
+	 * Binds the render target and the current render states to the rasterizers.
+	 */
+	private void applyRasterizerStates(SamplerState samplerState)
+	{
+		_rasterizer.setRenderTarget(_targetPixels, _targetWidth, _targetHeight);
+		_rasterizer.setStates(samplerState, _blendState);
+		if (_tiledRasterizer != null)
+			_tiledRasterizer.setRenderTarget(_targetPixels, _targetWidth, _targetHeight);
+
+		// NOTE: The depth values are only allocated once a draw actually tests them.
+		float[] depthBuffer = null;
+		if (_targetDepthBuffer != null && _depthStencilState.getDepthBufferEnable())
+			depthBuffer = _targetDepthBuffer.getValues();
+		_rasterizer.setDepthBuffer(depthBuffer);
+		_rasterizer.setDepthStencilState(_depthStencilState);
+		if (_tiledRasterizer != null)
+			_tiledRasterizer.setDepthBuffer(depthBuffer);
+
+		// NOTE: Clipping the bounding box of the primitives skips the pixels outside of the scissor
+		//       rectangle entirely instead of testing them one by one.
+		if (_rasterizerState.getScissorTestEnable())
+		{
+			float scale = _targetScale;
+			int clipMinX = Math.round(_scissorRectangle.x * scale);
+			int clipMinY = Math.round(_scissorRectangle.y * scale);
+			int clipMaxX = Math.round((_scissorRectangle.x + _scissorRectangle.width) * scale);
+			int clipMaxY = Math.round((_scissorRectangle.y + _scissorRectangle.height) * scale);
+			_rasterizer.setClip(clipMinX, clipMinY, clipMaxX, clipMaxY);
+			if (_tiledRasterizer != null)
+				_tiledRasterizer.setClip(clipMinX, clipMinY, clipMaxX, clipMaxY);
+		}
 	}
 
-	private Vector4	linear1ToSRGB255(Vector4 c)
+	/**
+	 * Records the bounding box of each quad of a batch in the dirty regions.
+	 */
+	private <T> void markDirty(T[] vertexData, int numVertices)
 	{
-		Vector4 result = new Vector4();
-
-		float one255 = 255.0f;
+		VertexPositionColorTexture[] data = As.as(vertexData, VertexPositionColorTexture[].class);
+		for (int i = 0; i + 3 < numVertices; i += 4)
+			markDirtyQuad(data[i + 0].position.x, data[i + 0].position.y, data[i + 1].position.x, data[i + 1].position.y,
+						  data[i + 2].position.x, data[i + 2].position.y, data[i + 3].position.x, data[i + 3].position.y);
+	}
 
-		result.x = (float) (one255 * Math.sqrt(c.x));
-		result.y = (float) (one255 * Math.sqrt(c.y));
-		result.z = (float) (one255 * Math.sqrt(c.z));
-		result.w = 255.0f * c.w;
+	/**
+	 * Records the bounding box of a quad in the dirty regions, the pixels it covers partially
+	 * included.
+	 */
+	private void markDirtyQuad(float topLeftX, float topLeftY, float topRightX, float topRightY,
+							   float bottomLeftX, float bottomLeftY, float bottomRightX, float bottomRightY)
+	{
+		float minX = Math.min(Math.min(topLeftX, topRightX), Math.min(bottomLeftX, bottomRightX));
+		float minY = Math.min(Math.min(topLeftY, topRightY), Math.min(bottomLeftY, bottomRightY));
+		float maxX = Math.max(Math.max(topLeftX, topRightX), Math.max(bottomLeftX, bottomRightX));
+		float maxY = Math.max(Math.max(topLeftY, topRightY), Math.max(bottomLeftY, bottomRightY));
+		markDirty((int) Math.floor(minX), (int) Math.floor(minY), (int) Math.ceil(maxX), (int) Math.ceil(maxY));
+	}
 
-		return result;
+	private <T> void platformDrawUserIndexedPrimitives(PrimitiveType primitiveType, T[] vertexData, int vertexOffset, int numVertices, int[] indexData, int indexOffset, int primitiveCount, VertexDeclaration vertexDeclaration)
+	{
+		int triangleCount = setTriangleIndices(primitiveType, primitiveCount, vertexOffset, null, indexData, indexOffset);
+		drawTriangles(vertexData, vertexDeclaration, triangleCount);
 	}
 
-	// TODO: should add this to the Vector class
-	private Vector2 perp(Vector2 a)
+	private static GraphicsProfile platformGetHighestSupportedGraphicsProfile(GraphicsDevice graphicsDevice)
 	{
-		return new Vector2(-a.y, a.x);
+		return GraphicsProfile.Reach;
 	}
+
 }
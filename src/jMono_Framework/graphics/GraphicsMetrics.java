@@ -14,6 +14,12 @@ public class GraphicsMetrics
 	protected long _spriteCount;
 	protected long _drawCount;
 	protected long _primitiveCount;
+	protected long _culledSpriteCount;
+	protected long _offscreenSpriteCount;
+	protected long _presentLatency;
+	protected long _presentQueueDepth;
+	protected long _presentScaleTime;
+	protected long _presentBlitTime;
 
 	// / <summary>
 	// / The count of sprites and text characters rendered via <see cref="SpriteBatch"/>.
@@ -30,6 +36,74 @@ public class GraphicsMetrics
 	// / </summary>
 	public long getPrimitiveCount() { return _primitiveCount; }
 
+	/**
+	 * Returns the count of sprites that were not rendered because they were entirely hidden behind
+	 * opaque sprites of the same {@link SpriteBatch} batch.
+	 * 
+	 * @return The count of sprites culled by {@link SpriteBatcher}.
+	 */
+	public long getCulledSpriteCount() { return _culledSpriteCount; }
+
+	/**
+	 * Returns the count of sprites and text characters that were not rendered because they were
+	 * entirely outside of the render target or of the scissor rectangle, see
+	 * {@link SpriteBatch#setOffscreenCulling(boolean)}.
+	 * 
+	 * @return The count of sprites dropped by {@link SpriteBatch}.
+	 */
+	public long getOffscreenSpriteCount() { return _offscreenSpriteCount; }
+
+	/**
+	 * Returns the time between the submission of the last frame shown by
+	 * {@link GraphicsDevice#present()} and the moment it was shown. When presentation is
+	 * pipelined, this is the latency of an earlier frame than the one just presented.
+	 * 
+	 * <p>
+	 * NOTE: This is a gauge rather than a count, {@link #add} and {@link #subtract} keep the value
+	 * of their first operand.
+	 * 
+	 * @return The latency of the last frame shown, in nanoseconds.
+	 */
+	public long getPresentLatency() { return _presentLatency; }
+
+	/**
+	 * Returns the number of frames waiting to be shown by the present thread right after the last
+	 * call to {@link GraphicsDevice#present()}, including the frame it submitted. This is always 0
+	 * when presentation is not pipelined.
+	 * 
+	 * <p>
+	 * NOTE: This is a gauge rather than a count, {@link #add} and {@link #subtract} keep the value
+	 * of their first operand.
+	 * 
+	 * @return The number of frames queued for presentation.
+	 */
+	public long getPresentQueueDepth() { return _presentQueueDepth; }
+
+	/**
+	 * Returns the time the last frame shown took to be scaled to the window, see
+	 * {@link GraphicsDevice#setPresentScaling(PresentScaling)}. This is 0 when the frames are not
+	 * scaled.
+	 * 
+	 * <p>
+	 * NOTE: This is a gauge rather than a count, {@link #add} and {@link #subtract} keep the value
+	 * of their first operand.
+	 * 
+	 * @return The time spent scaling the last frame shown, in nanoseconds.
+	 */
+	public long getPresentScaleTime() { return _presentScaleTime; }
+
+	/**
+	 * Returns the time the last frame shown took to be copied to the window, including its
+	 * conversion to the pixel layout of the display, see {@link GraphicsDevice#getPresentPath()}.
+	 * 
+	 * <p>
+	 * NOTE: This is a gauge rather than a count, {@link #add} and {@link #subtract} keep the value
+	 * of their first operand.
+	 * 
+	 * @return The time spent copying the last frame shown, in nanoseconds.
+	 */
+	public long getPresentBlitTime() { return _presentBlitTime; }
+
 	// / <summary>
 	// / Returns the difference between two sets of metrics.
 	// / </summary>
@@ -38,12 +112,20 @@ public class GraphicsMetrics
 	// / <param name="value2">Source <see cref="GraphicsMetrics"/> on the right of the sub
 	// sign.</param>
 	// / <returns>Difference between two sets of metrics.</returns>
+	// NOTE: The present metrics are gauges of the last frame, they are taken from value1.
 	public static GraphicsMetrics subtract(GraphicsMetrics value1, GraphicsMetrics value2)
 	{
 		long spriteCount = value1._spriteCount - value2._spriteCount;
 		long drawCount = value1._drawCount - value2._drawCount;
 		long primitiveCount = value1._primitiveCount - value2._primitiveCount;
-		return new GraphicsMetrics(spriteCount, drawCount, primitiveCount);
+		long culledSpriteCount = value1._culledSpriteCount - value2._culledSpriteCount;
+		long offscreenSpriteCount = value1._offscreenSpriteCount - value2._offscreenSpriteCount;
+		long presentLatency = value1._presentLatency;
+		long presentQueueDepth = value1._presentQueueDepth;
+		long presentScaleTime = value1._presentScaleTime;
+		long presentBlitTime = value1._presentBlitTime;
+		return new GraphicsMetrics(spriteCount, drawCount, primitiveCount, culledSpriteCount, offscreenSpriteCount,
+								   presentLatency, presentQueueDepth, presentScaleTime, presentBlitTime);
 	}
 
 	// / <summary>
@@ -54,12 +136,20 @@ public class GraphicsMetrics
 	// / <param name="value2">Source <see cref="GraphicsMetrics"/> on the right of the add
 	// sign.</param>
 	// / <returns>Combination of two sets of metrics.</returns>
+	// NOTE: The present metrics are gauges of the last frame, they are taken from value1.
 	public static GraphicsMetrics add(GraphicsMetrics value1, GraphicsMetrics value2)
 	{
 		long spriteCount = value1._spriteCount + value2._spriteCount;
 		long drawCount = value1._drawCount + value2._drawCount;
 		long primitiveCount = value1._primitiveCount + value2._primitiveCount;
-		return new GraphicsMetrics(spriteCount, drawCount, primitiveCount);
+		long culledSpriteCount = value1._culledSpriteCount + value2._culledSpriteCount;
+		long offscreenSpriteCount = value1._offscreenSpriteCount + value2._offscreenSpriteCount;
+		long presentLatency = value1._presentLatency;
+		long presentQueueDepth = value1._presentQueueDepth;
+		long presentScaleTime = value1._presentScaleTime;
+		long presentBlitTime = value1._presentBlitTime;
+		return new GraphicsMetrics(spriteCount, drawCount, primitiveCount, culledSpriteCount, offscreenSpriteCount,
+								   presentLatency, presentQueueDepth, presentScaleTime, presentBlitTime);
 	}
 
 	// Note: Added this since it is provided by default for struct in C#
@@ -68,13 +158,26 @@ public class GraphicsMetrics
 		this._spriteCount = 0L;
 		this._drawCount = 0L;
 		this._primitiveCount = 0L;
+		this._culledSpriteCount = 0L;
+		this._offscreenSpriteCount = 0L;
+		this._presentLatency = 0L;
+		this._presentQueueDepth = 0L;
+		this._presentScaleTime = 0L;
+		this._presentBlitTime = 0L;
 	}
 	
 	// NOTE: Added this utility constructor used in add() and subtract
-	private GraphicsMetrics(long spriteCount, long drawCount, long primitiveCount)
+	private GraphicsMetrics(long spriteCount, long drawCount, long primitiveCount, long culledSpriteCount, long offscreenSpriteCount,
+							long presentLatency, long presentQueueDepth, long presentScaleTime, long presentBlitTime)
 	{
 		this._spriteCount = spriteCount;
 		this._drawCount = drawCount;
 		this._primitiveCount = primitiveCount;
+		this._culledSpriteCount = culledSpriteCount;
+		this._offscreenSpriteCount = offscreenSpriteCount;
+		this._presentLatency = presentLatency;
+		this._presentQueueDepth = presentQueueDepth;
+		this._presentScaleTime = presentScaleTime;
+		this._presentBlitTime = presentBlitTime;
 	}
 }
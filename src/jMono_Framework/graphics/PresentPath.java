@@ -0,0 +1,28 @@
+package jMono_Framework.graphics;
+
+/**
+ * Defines how the software renderer hands its frames to Java2D when presenting.
+ *
+ * @author Eric
+ *
+ */
+public enum PresentPath
+{
+	/**
+	 * There is nothing to present to, the device is headless.
+	 */
+	None,
+
+	/**
+	 * The frames are drawn as they are and Java2D converts them to the pixel layout of the display
+	 * on every blit.
+	 */
+	Generic,
+
+	/**
+	 * The frames are handed over in the pixel layout of the display, either because it already
+	 * matches the one of the back buffer or because the changed pixels are converted by the
+	 * renderer, so the blit is a straight copy.
+	 */
+	Native
+}
@@ -0,0 +1,33 @@
+package jMono_Framework.graphics;
+
+/**
+ * Defines how the software renderer fits the back buffer to the window it presents to.
+ *
+ * @author Eric
+ *
+ */
+public enum PresentScaling
+{
+	/**
+	 * The back buffer is copied as is to the top left corner of the window.
+	 */
+	None,
+
+	/**
+	 * The back buffer is magnified by the largest integer factor that fits the window, with the
+	 * nearest pixel, and centered. Every pixel of the back buffer covers the same number of
+	 * pixels of the window, which keeps pixel art sharp.
+	 */
+	IntegerNearest,
+
+	/**
+	 * The back buffer is stretched to the whole window with bilinear filtering.
+	 */
+	Bilinear,
+
+	/**
+	 * The back buffer is scaled as much as it can while keeping its aspect ratio, with bilinear
+	 * filtering, and centered between black bars.
+	 */
+	Letterbox
+}
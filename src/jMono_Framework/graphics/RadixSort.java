@@ -0,0 +1,117 @@
+package jMono_Framework.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Sorts the sprites of a batch by their 32 bits sort keys with a stable least significant digit
+ * radix sort.
+ *
+ * <p>
+ * The keys are sorted a byte at a time, from the lowest to the highest, along with the index of
+ * their sprite, so the result is the permutation that puts the sprites in order and the sprites
+ * themselves are never compared or moved. The four histograms are counted in a single pass and
+ * the bytes all the keys share are skipped, which is most of them for the texture sorting keys
+ * and for the few distinct layer depths of a typical batch.
+ *
+ * <p>
+ * NOTE: The keys are compared as signed ints, like {@link Integer#compare(int, int)}. Equal keys
+ * keep the order of their sprites, like {@link java.util.List#sort} does.
+ *
+ * @author Eric
+ *
+ */
+final class RadixSort
+{
+	private final int[] _counts = new int[4 * 256];
+
+	/** The keys and indices being sorted, swapped with the second pair after each pass */
+	private int[] _keys = new int[0];
+	private int[] _indices = new int[0];
+	private int[] _swapKeys = new int[0];
+	private int[] _swapIndices = new int[0];
+
+	/**
+	 * Returns the sort key of a float, whose signed order is the one of
+	 * {@link Float#compare(float, float)}: -0.0 before 0.0 and NaN after the positive infinity.
+	 */
+	static int getFloatKey(float value)
+	{
+		int bits = Float.floatToIntBits(value);
+		// NOTE: Flipping the magnitude of the negative values makes the more negative ones smaller.
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+	/**
+	 * Sorts the indices of items by their keys.
+	 *
+	 * @param keys
+	 *        The key of each item, they aren't modified.
+	 * @param count
+	 *        The number of items.
+	 * @param order
+	 *        Receives the indices of the items from the one with the smallest key to the one
+	 *        with the largest key.
+	 */
+	void sort(int[] keys, int count, int[] order)
+	{
+		if (_keys.length < count)
+		{
+			int capacity = Math.max(count, _keys.length * 2);
+			_keys = new int[capacity];
+			_indices = new int[capacity];
+			_swapKeys = new int[capacity];
+			_swapIndices = new int[capacity];
+		}
+
+		// NOTE: Flipping the sign bit makes the signed keys sort as unsigned bytes.
+		int[] counts = _counts;
+		Arrays.fill(counts, 0);
+		int[] sourceKeys = _keys;
+		int[] sourceIndices = _indices;
+		for (int i = 0; i < count; ++i)
+		{
+			int key = keys[i] ^ 0x80000000;
+			sourceKeys[i] = key;
+			sourceIndices[i] = i;
+			++counts[key & 0xFF];
+			++counts[256 + ((key >>> 8) & 0xFF)];
+			++counts[512 + ((key >>> 16) & 0xFF)];
+			++counts[768 + (key >>> 24)];
+		}
+
+		int[] destKeys = _swapKeys;
+		int[] destIndices = _swapIndices;
+		for (int shift = 0; shift < 32 && count > 0; shift += 8)
+		{
+			int histogram = shift * 32;
+			if (counts[histogram + ((sourceKeys[0] >>> shift) & 0xFF)] == count)
+				continue;
+
+			// Turn the counts into the index of the first key of each byte value.
+			int offset = 0;
+			for (int i = histogram; i < histogram + 256; ++i)
+			{
+				int bucketCount = counts[i];
+				counts[i] = offset;
+				offset += bucketCount;
+			}
+
+			for (int i = 0; i < count; ++i)
+			{
+				int key = sourceKeys[i];
+				int dest = counts[histogram + ((key >>> shift) & 0xFF)]++;
+				destKeys[dest] = key;
+				destIndices[dest] = sourceIndices[i];
+			}
+
+			int[] swap = sourceKeys;
+			sourceKeys = destKeys;
+			destKeys = swap;
+			swap = sourceIndices;
+			sourceIndices = destIndices;
+			destIndices = swap;
+		}
+
+		System.arraycopy(sourceIndices, 0, order, 0, count);
+	}
+}
@@ -0,0 +1,30 @@
+package jMono_Framework.graphics;
+
+/**
+ * Defines the kernels the software renderer can use to rasterize sprite quads.
+ * 
+ * @author Eric
+ *
+ */
+public enum RasterizerKernel
+{
+	/**
+	 * Evaluates the edge functions and the texture coordinates from scratch at every pixel using
+	 * vector math. This is the original implementation and it allocates several objects per pixel.
+	 */
+	Reference,
+
+	/**
+	 * Advances the edge functions and the texture coordinates with constant per-row and per-column
+	 * deltas and keeps all the color math in packed integers. Nothing is allocated per pixel.
+	 */
+	Incremental,
+
+	/**
+	 * Same as {@link #Incremental}, but fills 8 or 16 pixels at a time with the Vector API when the
+	 * {@code src-vector} source folder is built and the JVM is started with
+	 * {@code --add-modules jdk.incubator.vector}. Falls back to {@link #Incremental} when the kernel
+	 * or the module is missing or the render states are not vectorized.
+	 */
+	Simd,
+}
@@ -4,11 +4,26 @@ import jMono_Framework.dotNet.events.Event;
 import jMono_Framework.dotNet.events.EventArgs;
 import jMono_Framework.graphics.states.DepthFormat;
 
+/**
+ * A texture the graphics device can draw into.
+ * 
+ * <p>
+ * NOTE: The software renderer draws straight into the texels of the render target while it is
+ * bound with {@link GraphicsDevice#setRenderTarget(RenderTarget2D)}, so once unbound it can be
+ * drawn like any other texture. This is useful to draw layers that rarely change once and then
+ * draw them as a single sprite every frame.
+ * 
+ * @author Eric
+ *
+ */
 public class RenderTarget2D extends Texture2D implements IRenderTarget
 {
 	private DepthFormat depthStencilFormat;
 	public DepthFormat getDepthStencilFormat() { return depthStencilFormat; }
 
+	/** The depth buffer used by the software renderer, created the first time it is bound */
+	private DepthBuffer _depthBuffer;
+
 	private int multiSampleCount;
 	public int getMultiSampleCount() { return multiSampleCount; }
 
@@ -80,6 +95,18 @@ public class RenderTarget2D extends Texture2D implements IRenderTarget
 		this.renderTargetUsage = usage;
 	}
 
+	/**
+	 * Returns the depth buffer the software renderer uses while this render target is bound.
+	 * 
+	 * @return The depth buffer, or {@code null} if the depth format is {@link DepthFormat#None}.
+	 */
+	DepthBuffer getDepthBuffer()
+	{
+		if (_depthBuffer == null && depthStencilFormat != null && depthStencilFormat != DepthFormat.None)
+			_depthBuffer = new DepthBuffer(width, height);
+		return _depthBuffer;
+	}
+
 	@Override
 	protected void graphicsDeviceResetting()
 	{
@@ -0,0 +1,658 @@
+package jMono_Framework.graphics;
+
+import static jMono_Framework.graphics.SoftwareRasterizer.bilerp;
+import static jMono_Framework.graphics.SoftwareRasterizer.mul255;
+
+import jMono_Framework.graphics.SoftwareRasterizer.QuadSetup;
+import jMono_Framework.graphics.states.BlendState;
+
+/**
+ * The scalar fill loop of {@link SoftwareRasterizer#drawQuadIncremental}.
+ *
+ * <p>
+ * Instead of a single loop testing the sampler, the tint and the blend state for every pixel,
+ * each row is filled in passes over the span found by {@link QuadSetup#findSpan}: the texels are
+ * sampled into a buffer, then they are tinted if there is a tint and finally blended over the
+ * render target. Each pass has a dedicated loop per state, chosen once per row, so the JIT only
+ * ever sees small branch free loops.
+ *
+ * <p>
+ * When the depth test is enabled the span is further split by {@link QuadSetup#nextRun} into the
+ * runs of pixels passing the test, so the hidden pixels are neither sampled nor blended.
+ *
+ * <p>
+ * Axis-aligned quads get their own sampling loops. Since u only depends on the column and v on
+ * the row, the horizontal fetches are computed once per quad and the vertical ones once per row.
+ *
+ * @author Eric
+ *
+ */
+final class ScalarQuadKernel implements SoftwareRasterizer.FillKernel
+{
+	/** The texels sampled for the current span */
+	private int[] _spanTexels = new int[0];
+
+	/** The horizontal fetch of each column of an axis-aligned quad, relative to minX */
+	private int[] _columnFetches = new int[0];
+	/** The texel to interpolate with on each column of an axis-aligned quad */
+	private int[] _columnNexts = new int[0];
+	/** The horizontal weight of each column of an axis-aligned quad, out of 256 */
+	private int[] _columnWeights = new int[0];
+
+	@Override
+	public boolean fillQuad(QuadSetup s, int[] pixels, int stride)
+	{
+		ensureCapacity(s.maxX - s.minX);
+
+		switch (s.sampleMode)
+		{
+			case SoftwareRasterizer.SAMPLE_UNSCALED:
+				fillUnscaled(s, pixels, stride);
+				break;
+
+			case SoftwareRasterizer.SAMPLE_POINT:
+				if (s.isAxisAligned)
+					fillPointAxisAligned(s, pixels, stride);
+				else
+					fillPoint(s, pixels, stride);
+				break;
+
+			case SoftwareRasterizer.SAMPLE_LINEAR_WRAP:
+				if (s.isAxisAligned)
+					fillLinearWrapAxisAligned(s, pixels, stride);
+				else
+					fillLinearWrap(s, pixels, stride);
+				break;
+
+			case SoftwareRasterizer.SAMPLE_LINEAR_CLAMP:
+			default:
+				if (s.isAxisAligned)
+					fillLinearClampAxisAligned(s, pixels, stride);
+				else
+					fillLinearClamp(s, pixels, stride);
+				break;
+		}
+		return true;
+	}
+
+	private void ensureCapacity(int width)
+	{
+		if (_spanTexels.length >= width)
+			return;
+
+		_spanTexels = new int[width];
+		_columnFetches = new int[width];
+		_columnNexts = new int[width];
+		_columnWeights = new int[width];
+	}
+
+	private void fillUnscaled(QuadSetup s, int[] pixels, int stride)
+	{
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			int srcY = y + s.unscaledOffsetY;
+			int rowIndex = y * stride;
+			while (s.nextRun(rowIndex))
+			{
+				int srcX = s.runStart + s.unscaledOffsetX;
+				int srcIndex = srcX + srcY * s.srcWidth;
+				int destIndex = s.runStart + rowIndex;
+				int count = s.runEnd - s.runStart;
+				if (s.alphaSpans == null)
+				{
+					shadeSpan(s, s.srcPixels, srcIndex, pixels, destIndex, count);
+					continue;
+				}
+
+				// Skip the empty runs and copy the opaque ones when the blending leaves them unchanged.
+				AlphaSpanIndex alphaSpans = s.alphaSpans;
+				boolean copiesOpaque = s.tint == 0xFFFFFFFF && s.blendMode != SoftwareRasterizer.BLEND_ADDITIVE;
+				int endX = srcX + count;
+				for (int x = srcX, run = alphaSpans.findRun(srcX, srcY); x < endX; ++run)
+				{
+					int runEnd = Math.min(alphaSpans.getRunEnd(run), endX);
+					int kind = alphaSpans.getRunKind(run);
+					int offset = x - srcX;
+					if (kind == AlphaSpanIndex.OPAQUE && copiesOpaque)
+						System.arraycopy(s.srcPixels, srcIndex + offset, pixels, destIndex + offset, runEnd - x);
+					else if (kind != AlphaSpanIndex.EMPTY)
+						shadeSpan(s, s.srcPixels, srcIndex + offset, pixels, destIndex + offset, runEnd - x);
+					x = runEnd;
+				}
+			}
+		}
+	}
+
+	private void fillPoint(QuadSetup s, int[] pixels, int stride)
+	{
+		int[] srcPixels = s.srcPixels;
+		int[] spanTexels = _spanTexels;
+		int srcWidth = s.srcWidth;
+		int srcStartX = s.srcStartX;
+		int srcStartY = s.srcStartY;
+		int texelMinX = s.texelMinX;
+		int texelMinY = s.texelMinY;
+		int texelMaxX = s.texelMaxX;
+		int texelMaxY = s.texelMaxY;
+		float uStepX = s.uStepX;
+		float vStepX = s.vStepX;
+
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			// NOTE: Evaluate the texture coordinates from their distance to the corner of the
+			//       bounding box instead of accumulating the deltas, which keeps the rounding error
+			//       bounded and makes the result independent of where the clipped span starts.
+			float row = (float) (y - s.quadMinY);
+			float uRow = s.uStart + row * s.uStepY;
+			float vRow = s.vStart + row * s.vStepY;
+
+			int rowIndex = y * stride;
+			while (s.nextRun(rowIndex))
+			{
+				int count = s.runEnd - s.runStart;
+				float column = (float) (s.runStart - s.quadMinX);
+				for (int i = 0; i < count; ++i, column += 1.0f)
+				{
+					int fetchX = (int) (uRow + column * uStepX) + srcStartX;
+					int fetchY = (int) (vRow + column * vStepX) + srcStartY;
+					fetchX = fetchX < texelMinX ? texelMinX : (fetchX > texelMaxX ? texelMaxX : fetchX);
+					fetchY = fetchY < texelMinY ? texelMinY : (fetchY > texelMaxY ? texelMaxY : fetchY);
+					spanTexels[i] = srcPixels[fetchX + fetchY * srcWidth];
+				}
+				shadeSpan(s, spanTexels, 0, pixels, s.runStart + rowIndex, count);
+			}
+		}
+	}
+
+	private void fillPointAxisAligned(QuadSetup s, int[] pixels, int stride)
+	{
+		int[] srcPixels = s.srcPixels;
+		int[] spanTexels = _spanTexels;
+		int[] columnFetches = _columnFetches;
+
+		// NOTE: uStepY and vStepX are 0 so we get the exact same coordinates as fillPoint().
+		float column = (float) (s.minX - s.quadMinX);
+		for (int i = 0, width = s.maxX - s.minX; i < width; ++i, column += 1.0f)
+		{
+			int fetchX = (int) (s.uStart + column * s.uStepX) + s.srcStartX;
+			columnFetches[i] = fetchX < s.texelMinX ? s.texelMinX : (fetchX > s.texelMaxX ? s.texelMaxX : fetchX);
+		}
+
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			float row = (float) (y - s.quadMinY);
+			int fetchY = (int) (s.vStart + row * s.vStepY) + s.srcStartY;
+			fetchY = fetchY < s.texelMinY ? s.texelMinY : (fetchY > s.texelMaxY ? s.texelMaxY : fetchY);
+			int srcRow = fetchY * s.srcWidth;
+
+			int rowIndex = y * stride;
+			while (s.nextRun(rowIndex))
+			{
+				int count = s.runEnd - s.runStart;
+				int first = s.runStart - s.minX;
+				for (int i = 0; i < count; ++i)
+					spanTexels[i] = srcPixels[srcRow + columnFetches[first + i]];
+				shadeSpan(s, spanTexels, 0, pixels, s.runStart + rowIndex, count);
+			}
+		}
+	}
+
+	private void fillLinearWrap(QuadSetup s, int[] pixels, int stride)
+	{
+		int[] srcPixels = s.srcPixels;
+		int[] spanTexels = _spanTexels;
+		int srcWidth = s.srcWidth;
+		int srcHeight = s.srcHeight;
+		int srcStartX = s.srcStartX;
+		int srcStartY = s.srcStartY;
+		float uStepX = s.uStepX;
+		float vStepX = s.vStepX;
+
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			float row = (float) (y - s.quadMinY);
+			float uRow = s.uStart + row * s.uStepY;
+			float vRow = s.vStart + row * s.vStepY;
+
+			int rowIndex = y * stride;
+			while (s.nextRun(rowIndex))
+			{
+				int count = s.runEnd - s.runStart;
+				float column = (float) (s.runStart - s.quadMinX);
+				for (int i = 0; i < count; ++i, column += 1.0f)
+				{
+					float tX = uRow + column * uStepX - 0.5f;
+					float tY = vRow + column * vStepX - 0.5f;
+					int fetchX = (int) tX;
+					int fetchY = (int) tY;
+					float xDiff = tX - (float) fetchX;
+					float yDiff = tY - (float) fetchY;
+					fetchX += srcStartX;
+					fetchY += srcStartY;
+
+					int nextU = 1;
+					if (xDiff < 0)
+					{
+						nextU = -1;
+						xDiff = -xDiff;
+					}
+					int nextV = 1;
+					if (yDiff < 0)
+					{
+						nextV = -1;
+						yDiff = -yDiff;
+					}
+					fetchX = fetchX < 0 ? 0 : (fetchX >= srcWidth ? srcWidth - 1 : fetchX);
+					fetchY = fetchY < 0 ? 0 : (fetchY >= srcHeight ? srcHeight - 1 : fetchY);
+					int rowA = fetchY * srcWidth;
+					int rowC = ((fetchY + nextV + srcHeight) % srcHeight) * srcWidth;
+					int nextX = (fetchX + nextU + srcWidth) % srcWidth;
+					spanTexels[i] = bilerp(srcPixels[fetchX + rowA], srcPixels[nextX + rowA],
+										   srcPixels[fetchX + rowC], srcPixels[nextX + rowC],
+										   (int) (xDiff * 256.0f), (int) (yDiff * 256.0f));
+				}
+				shadeSpan(s, spanTexels, 0, pixels, s.runStart + rowIndex, count);
+			}
+		}
+	}
+
+	private void fillLinearWrapAxisAligned(QuadSetup s, int[] pixels, int stride)
+	{
+		int[] srcPixels = s.srcPixels;
+		int[] spanTexels = _spanTexels;
+		int[] columnFetches = _columnFetches;
+		int[] columnNexts = _columnNexts;
+		int[] columnWeights = _columnWeights;
+		int srcWidth = s.srcWidth;
+		int srcHeight = s.srcHeight;
+
+		float column = (float) (s.minX - s.quadMinX);
+		for (int i = 0, width = s.maxX - s.minX; i < width; ++i, column += 1.0f)
+		{
+			float tX = s.uStart + column * s.uStepX - 0.5f;
+			int fetchX = (int) tX;
+			float xDiff = tX - (float) fetchX;
+			fetchX += s.srcStartX;
+
+			int nextU = 1;
+			if (xDiff < 0)
+			{
+				nextU = -1;
+				xDiff = -xDiff;
+			}
+			fetchX = fetchX < 0 ? 0 : (fetchX >= srcWidth ? srcWidth - 1 : fetchX);
+			columnFetches[i] = fetchX;
+			columnNexts[i] = (fetchX + nextU + srcWidth) % srcWidth;
+			columnWeights[i] = (int) (xDiff * 256.0f);
+		}
+
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			float row = (float) (y - s.quadMinY);
+			float tY = s.vStart + row * s.vStepY - 0.5f;
+			int fetchY = (int) tY;
+			float yDiff = tY - (float) fetchY;
+			fetchY += s.srcStartY;
+
+			int nextV = 1;
+			if (yDiff < 0)
+			{
+				nextV = -1;
+				yDiff = -yDiff;
+			}
+			fetchY = fetchY < 0 ? 0 : (fetchY >= srcHeight ? srcHeight - 1 : fetchY);
+			int rowA = fetchY * srcWidth;
+			int rowC = ((fetchY + nextV + srcHeight) % srcHeight) * srcWidth;
+			int fy = (int) (yDiff * 256.0f);
+
+			int rowIndex = y * stride;
+			while (s.nextRun(rowIndex))
+			{
+				int count = s.runEnd - s.runStart;
+				int first = s.runStart - s.minX;
+				for (int i = 0; i < count; ++i)
+				{
+					int fetchX = columnFetches[first + i];
+					int nextX = columnNexts[first + i];
+					spanTexels[i] = bilerp(srcPixels[fetchX + rowA], srcPixels[nextX + rowA],
+										   srcPixels[fetchX + rowC], srcPixels[nextX + rowC],
+										   columnWeights[first + i], fy);
+				}
+				shadeSpan(s, spanTexels, 0, pixels, s.runStart + rowIndex, count);
+			}
+		}
+	}
+
+	// NOTE: See SoftwareRasterizer.drawQuad() for why we don't blend with the texels outside of
+	//       the source rectangle when using spriteSheets or spriteStrips.
+	private void fillLinearClamp(QuadSetup s, int[] pixels, int stride)
+	{
+		int[] srcPixels = s.srcPixels;
+		int[] spanTexels = _spanTexels;
+		int srcWidth = s.srcWidth;
+		int srcStartX = s.srcStartX;
+		int srcStartY = s.srcStartY;
+		int texelMinX = s.texelMinX;
+		int texelMinY = s.texelMinY;
+		int texelMaxX = s.texelMaxX;
+		int texelMaxY = s.texelMaxY;
+		int absWidth = s.absWidth;
+		int absHeight = s.absHeight;
+		float uStepX = s.uStepX;
+		float vStepX = s.vStepX;
+
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			float row = (float) (y - s.quadMinY);
+			float uRow = s.uStart + row * s.uStepY;
+			float vRow = s.vStart + row * s.vStepY;
+
+			int rowIndex = y * stride;
+			while (s.nextRun(rowIndex))
+			{
+				int count = s.runEnd - s.runStart;
+				float column = (float) (s.runStart - s.quadMinX);
+				for (int i = 0; i < count; ++i, column += 1.0f)
+				{
+					float tX = uRow + column * uStepX - 0.5f;
+					float tY = vRow + column * vStepX - 0.5f;
+					int fetchX = (int) tX;
+					int fetchY = (int) tY;
+					float xDiff = tX - (float) fetchX;
+					float yDiff = tY - (float) fetchY;
+					if (xDiff < 0) xDiff = 0;
+					if (yDiff < 0) yDiff = 0;
+					fetchX += srcStartX;
+					fetchY += srcStartY;
+					fetchX = fetchX < texelMinX ? texelMinX : (fetchX > texelMaxX ? texelMaxX : fetchX);
+					fetchY = fetchY < texelMinY ? texelMinY : (fetchY > texelMaxY ? texelMaxY : fetchY);
+
+					int srcIndex = fetchX + fetchY * srcWidth;
+					int nextX = ((fetchX - texelMinX) % absWidth) == (absWidth - 1) ? 0 : 1;
+					int nextY = ((fetchY - texelMinY) % absHeight) == (absHeight - 1) ? 0 : srcWidth;
+					spanTexels[i] = bilerp(srcPixels[srcIndex], srcPixels[srcIndex + nextX],
+										   srcPixels[srcIndex + nextY], srcPixels[srcIndex + nextY + nextX],
+										   (int) (xDiff * 256.0f), (int) (yDiff * 256.0f));
+				}
+				shadeSpan(s, spanTexels, 0, pixels, s.runStart + rowIndex, count);
+			}
+		}
+	}
+
+	private void fillLinearClampAxisAligned(QuadSetup s, int[] pixels, int stride)
+	{
+		int[] srcPixels = s.srcPixels;
+		int[] spanTexels = _spanTexels;
+		int[] columnFetches = _columnFetches;
+		int[] columnNexts = _columnNexts;
+		int[] columnWeights = _columnWeights;
+
+		float column = (float) (s.minX - s.quadMinX);
+		for (int i = 0, width = s.maxX - s.minX; i < width; ++i, column += 1.0f)
+		{
+			float tX = s.uStart + column * s.uStepX - 0.5f;
+			int fetchX = (int) tX;
+			float xDiff = tX - (float) fetchX;
+			if (xDiff < 0) xDiff = 0;
+			fetchX += s.srcStartX;
+			fetchX = fetchX < s.texelMinX ? s.texelMinX : (fetchX > s.texelMaxX ? s.texelMaxX : fetchX);
+			columnFetches[i] = fetchX;
+			columnNexts[i] = ((fetchX - s.texelMinX) % s.absWidth) == (s.absWidth - 1) ? 0 : 1;
+			columnWeights[i] = (int) (xDiff * 256.0f);
+		}
+
+		for (int y = s.minY; y < s.maxY; ++y)
+		{
+			if (!s.findSpan(y))
+				continue;
+
+			float row = (float) (y - s.quadMinY);
+			float tY = s.vStart + row * s.vStepY - 0.5f;
+			int fetchY = (int) tY;
+			float yDiff = tY - (float) fetchY;
+			if (yDiff < 0) yDiff = 0;
+			fetchY += s.srcStartY;
+			fetchY = fetchY < s.texelMinY ? s.texelMinY : (fetchY > s.texelMaxY ? s.texelMaxY : fetchY);
+			int srcRow = fetchY * s.srcWidth;
+			int nextY = ((fetchY - s.texelMinY) % s.absHeight) == (s.absHeight - 1) ? 0 : s.srcWidth;
+			int fy = (int) (yDiff * 256.0f);
+
+			int rowIndex = y * stride;
+			while (s.nextRun(rowIndex))
+			{
+				int count = s.runEnd - s.runStart;
+				int first = s.runStart - s.minX;
+				for (int i = 0; i < count; ++i)
+				{
+					int srcIndex = srcRow + columnFetches[first + i];
+					int nextX = columnNexts[first + i];
+					spanTexels[i] = bilerp(srcPixels[srcIndex], srcPixels[srcIndex + nextX],
+										   srcPixels[srcIndex + nextY], srcPixels[srcIndex + nextY + nextX],
+										   columnWeights[first + i], fy);
+				}
+				shadeSpan(s, spanTexels, 0, pixels, s.runStart + rowIndex, count);
+			}
+		}
+	}
+
+	/**
+	 * Tints the texels of a span if needed and blends them over the render target.
+	 *
+	 * @param s
+	 *        The values computed for the quad.
+	 * @param texels
+	 *        The array holding the texels.
+	 * @param texelIndex
+	 *        The index of the first texel of the span.
+	 * @param pixels
+	 *        The array of pixels of the render target.
+	 * @param destIndex
+	 *        The index of the first pixel of the span.
+	 * @param count
+	 *        The number of pixels in the span.
+	 */
+	private void shadeSpan(QuadSetup s, int[] texels, int texelIndex, int[] pixels, int destIndex, int count)
+	{
+		if (s.tint != 0xFFFFFFFF)
+		{
+			tintSpan(texels, texelIndex, count, s.tint);
+			texels = _spanTexels;
+			texelIndex = 0;
+		}
+		blendSpan(s.blendMode, s.blendEquation, texels, texelIndex, pixels, destIndex, count);
+	}
+
+	/**
+	 * Blends a span of premultiplied colors over the render target, this is also the last stage
+	 * of the {@link TriangleKernel}.
+	 *
+	 * @param blendMode
+	 *        One of the BLEND_XXX constants of {@link SoftwareRasterizer}.
+	 * @param blendEquation
+	 *        The blend state when blendMode is BLEND_GENERIC.
+	 * @param texels
+	 *        The array holding the colors.
+	 * @param texelIndex
+	 *        The index of the first color of the span.
+	 * @param pixels
+	 *        The array of pixels of the render target.
+	 * @param destIndex
+	 *        The index of the first pixel of the span.
+	 * @param count
+	 *        The number of pixels in the span.
+	 */
+	static void blendSpan(int blendMode, SoftwareRasterizer.BlendEquation blendEquation,
+						  int[] texels, int texelIndex, int[] pixels, int destIndex, int count)
+	{
+		switch (blendMode)
+		{
+			case SoftwareRasterizer.BLEND_OPAQUE:
+				System.arraycopy(texels, texelIndex, pixels, destIndex, count);
+				break;
+
+			case SoftwareRasterizer.BLEND_ADDITIVE:
+				blendAdditive(texels, texelIndex, pixels, destIndex, count);
+				break;
+
+			case SoftwareRasterizer.BLEND_NON_PREMULTIPLIED:
+				blendNonPremultiplied(texels, texelIndex, pixels, destIndex, count);
+				break;
+
+			case SoftwareRasterizer.BLEND_GENERIC:
+				blendGeneric(blendEquation, texels, texelIndex, pixels, destIndex, count);
+				break;
+
+			case SoftwareRasterizer.BLEND_OVER:
+			default:
+				blendOver(texels, texelIndex, pixels, destIndex, count);
+				break;
+		}
+	}
+
+	/**
+	 * Multiplies each channel of the texels of a span by the tint and stores the result in
+	 * {@link #_spanTexels}, which can be the array the texels come from.
+	 */
+	private void tintSpan(int[] texels, int texelIndex, int count, int tint)
+	{
+		int[] spanTexels = _spanTexels;
+		int tintR = tint & 0xFF;
+		int tintG = (tint >>> 8) & 0xFF;
+		int tintB = (tint >>> 16) & 0xFF;
+		int tintA = tint >>> 24;
+
+		for (int i = 0; i < count; ++i)
+		{
+			int texel = texels[texelIndex + i];
+			int r = mul255(texel & 0xFF, tintR);
+			int g = mul255((texel >>> 8) & 0xFF, tintG);
+			int b = mul255((texel >>> 16) & 0xFF, tintB);
+			int a = mul255(texel >>> 24, tintA);
+			spanTexels[i] = (a << 24) | (b << 16) | (g << 8) | r;
+		}
+	}
+
+	/**
+	 * Blends premultiplied texels over the render target.
+	 */
+	private static void blendOver(int[] texels, int texelIndex, int[] pixels, int destIndex, int count)
+	{
+		for (int i = 0; i < count; ++i)
+		{
+			int texel = texels[texelIndex + i];
+			int srcA = texel >>> 24;
+			if (srcA == 255)
+			{
+				pixels[destIndex + i] = texel;
+			}
+			else if (texel != 0)
+			{
+				// Typical over blend formula with a premultiplied alpha source.
+				int dest = pixels[destIndex + i];
+				int invA = 255 - srcA;
+				int r = (texel & 0xFF) + mul255(dest & 0xFF, invA);
+				int g = ((texel >>> 8) & 0xFF) + mul255((dest >>> 8) & 0xFF, invA);
+				int b = ((texel >>> 16) & 0xFF) + mul255((dest >>> 16) & 0xFF, invA);
+				int a = srcA + mul255(dest >>> 24, invA);
+
+				// NOTE: since this can produce a value greater than 255 for a single
+				// channel we need to clamp those values.
+				r = r > 255 ? 255 : r;
+				g = g > 255 ? 255 : g;
+				b = b > 255 ? 255 : b;
+				a = a > 255 ? 255 : a;
+
+				pixels[destIndex + i] = (a << 24) | (b << 16) | (g << 8) | r;
+			}
+		}
+	}
+
+	/**
+	 * Adds the texels weighted by their alpha to the render target, like {@link BlendState#Additive}.
+	 */
+	private static void blendAdditive(int[] texels, int texelIndex, int[] pixels, int destIndex, int count)
+	{
+		for (int i = 0; i < count; ++i)
+		{
+			int texel = texels[texelIndex + i];
+			int srcA = texel >>> 24;
+			if (srcA == 0)
+				continue;
+
+			int dest = pixels[destIndex + i];
+			int r = mul255(texel & 0xFF, srcA) + (dest & 0xFF);
+			int g = mul255((texel >>> 8) & 0xFF, srcA) + ((dest >>> 8) & 0xFF);
+			int b = mul255((texel >>> 16) & 0xFF, srcA) + ((dest >>> 16) & 0xFF);
+			int a = mul255(srcA, srcA) + (dest >>> 24);
+
+			r = r > 255 ? 255 : r;
+			g = g > 255 ? 255 : g;
+			b = b > 255 ? 255 : b;
+			a = a > 255 ? 255 : a;
+
+			pixels[destIndex + i] = (a << 24) | (b << 16) | (g << 8) | r;
+		}
+	}
+
+	/**
+	 * Blends texels whose color is not premultiplied by their alpha over the render target, like
+	 * {@link BlendState#NonPremultiplied}.
+	 */
+	private static void blendNonPremultiplied(int[] texels, int texelIndex, int[] pixels, int destIndex, int count)
+	{
+		for (int i = 0; i < count; ++i)
+		{
+			int texel = texels[texelIndex + i];
+			int srcA = texel >>> 24;
+			if (srcA == 255)
+			{
+				pixels[destIndex + i] = texel;
+			}
+			else if (srcA != 0)
+			{
+				int dest = pixels[destIndex + i];
+				int invA = 255 - srcA;
+				int r = mul255(texel & 0xFF, srcA) + mul255(dest & 0xFF, invA);
+				int g = mul255((texel >>> 8) & 0xFF, srcA) + mul255((dest >>> 8) & 0xFF, invA);
+				int b = mul255((texel >>> 16) & 0xFF, srcA) + mul255((dest >>> 16) & 0xFF, invA);
+				int a = mul255(srcA, srcA) + mul255(dest >>> 24, invA);
+
+				// NOTE: Each product is rounded on its own so the sum can still reach 256.
+				r = r > 255 ? 255 : r;
+				g = g > 255 ? 255 : g;
+				b = b > 255 ? 255 : b;
+				a = a > 255 ? 255 : a;
+
+				pixels[destIndex + i] = (a << 24) | (b << 16) | (g << 8) | r;
+			}
+		}
+	}
+
+	/**
+	 * Blends the texels with any blend state.
+	 */
+	private static void blendGeneric(SoftwareRasterizer.BlendEquation equation,
+									 int[] texels, int texelIndex, int[] pixels, int destIndex, int count)
+	{
+		for (int i = 0; i < count; ++i)
+			pixels[destIndex + i] = equation.blend(texels[texelIndex + i], pixels[destIndex + i]);
+	}
+}
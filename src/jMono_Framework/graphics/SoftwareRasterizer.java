@@ -0,0 +1,1560 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.Color;
+import jMono_Framework.graphics.states.Blend;
+import jMono_Framework.graphics.states.BlendFunction;
+import jMono_Framework.graphics.states.BlendState;
+import jMono_Framework.graphics.states.CompareFunction;
+import jMono_Framework.graphics.states.CullMode;
+import jMono_Framework.graphics.states.DepthStencilState;
+import jMono_Framework.graphics.states.SamplerState;
+import jMono_Framework.graphics.states.TextureAddressMode;
+import jMono_Framework.graphics.states.TextureFilter;
+import jMono_Framework.math.MathHelper;
+import jMono_Framework.math.Vector2;
+import jMono_Framework.math.Vector4;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * The pixel pipeline of the software renderer.
+ * 
+ * <p>
+ * This class holds the quad rasterization kernels used by {@link GraphicsDevice} to fill its
+ * back buffer. The {@link GraphicsDevice} binds the destination pixels and the current render
+ * states before each draw and then submits the quads one at a time. The draws that are not made
+ * of sprites are submitted as triangles instead, see {@link #drawTriangle}.
+ * 
+ * @author Eric
+ *
+ */
+final class SoftwareRasterizer
+{
+	/** The array of pixels we are rendering into */
+	private int[] _pixels;
+	/** The width in pixels of the render target, which is also the stride of a row */
+	private int _width;
+	/** The height in pixels of the render target */
+	private int _height;
+
+	/** The region of the render target the draws are clipped to, max values are exclusive */
+	private int _clipMinX;
+	private int _clipMinY;
+	private int _clipMaxX;
+	private int _clipMaxY;
+
+	/** The sampler state used to fetch the texels of the source texture */
+	private SamplerState _samplerState;
+	/** The blend state used to combine the source and destination colors */
+	private BlendState _blendState;
+
+	/** The way the scaled quads fetch their texels, one of the SAMPLE_XXX constants */
+	private int _sampleMode;
+	/** The way the texels are combined with the render target, one of the BLEND_XXX constants */
+	private int _blendMode;
+	/** The blend state decoded for the BLEND_GENERIC fill loops */
+	private final BlendEquation _blendEquation = new BlendEquation();
+
+	/** The runs of transparent and opaque texels of the texture being drawn, if known */
+	private AlphaSpanIndex _alphaSpans;
+
+	/** The depth of each pixel of the render target, or null if it has no depth buffer */
+	private float[] _depthBuffer;
+	/** The depth stencil state used to test and write the depth of the pixels */
+	private DepthStencilState _depthStencilState;
+	/** The depth of the quads drawn next */
+	private float _depth;
+
+	/** The texture of the triangles, or null to draw them with their vertex colors only */
+	private int[] _texels;
+	private int _textureWidth;
+	private int _textureHeight;
+	private int _regionX;
+	private int _regionY;
+	private int _regionWidth;
+	/** The faces of the triangles that are not drawn */
+	private CullMode _cullMode = CullMode.CullCounterClockwiseFace;
+
+	/** The values computed by setupQuad() for the quad being drawn */
+	private final QuadSetup _setup = new QuadSetup();
+	/** The scalar fill loop */
+	private final FillKernel _scalarKernel = new ScalarQuadKernel();
+	/** The fill loop of the triangles */
+	private final TriangleKernel _triangleKernel = new TriangleKernel();
+	/** The vectorized fill loop, or null when the Vector API is not available */
+	private final FillKernel _simdKernel = createSimdKernel();
+
+	/** The constructor of the vectorized fill loop, or null when the Vector API is not available */
+	private static final Constructor<? extends FillKernel> SimdKernelConstructor = findSimdKernel();
+
+	/**
+	 * Looks up the vectorized fill loop.
+	 * 
+	 * <p>
+	 * NOTE: The class is only referenced by name so that this class still loads when the JVM is
+	 * started without the {@code jdk.incubator.vector} module. It is compiled separately from the
+	 * {@code src-vector} source folder, which may be left out of the build entirely.
+	 */
+	private static Constructor<? extends FillKernel> findSimdKernel()
+	{
+		try
+		{
+			Class<? extends FillKernel> kernelClass = Class.forName("jMono_Framework.graphics.VectorQuadKernel").asSubclass(FillKernel.class);
+			Constructor<? extends FillKernel> constructor = kernelClass.getDeclaredConstructor();
+			// Make sure the incubator classes can actually be linked before we rely on them.
+			constructor.newInstance();
+			return constructor;
+		}
+		catch (ReflectiveOperationException | LinkageError e)
+		{
+			return null;
+		}
+	}
+
+	private static FillKernel createSimdKernel()
+	{
+		if (SimdKernelConstructor == null)
+			return null;
+
+		try
+		{
+			return SimdKernelConstructor.newInstance();
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Sets the destination of the following draws.
+	 * 
+	 * @param pixels
+	 *        The array of pixels to render into.
+	 * @param width
+	 *        The width in pixels of the render target.
+	 * @param height
+	 *        The height in pixels of the render target.
+	 */
+	void setRenderTarget(int[] pixels, int width, int height)
+	{
+		_pixels = pixels;
+		_width = width;
+		_height = height;
+		setClip(0, 0, width, height);
+	}
+
+	/**
+	 * Restricts the following draws to a region of the render target.
+	 * 
+	 * <p>
+	 * NOTE: Every draw method except {@link #drawQuad2} honours the clip region, the pixels outside
+	 * of it are never visited.
+	 * 
+	 * @param minX
+	 *        The left of the region.
+	 * @param minY
+	 *        The top of the region.
+	 * @param maxX
+	 *        The right (exclusive) of the region.
+	 * @param maxY
+	 *        The bottom (exclusive) of the region.
+	 */
+	void setClip(int minX, int minY, int maxX, int maxY)
+	{
+		_clipMinX = Math.max(minX, 0);
+		_clipMinY = Math.max(minY, 0);
+		_clipMaxX = Math.min(maxX, _width);
+		_clipMaxY = Math.min(maxY, _height);
+	}
+
+	/**
+	 * Sets the render states used by the following draws.
+	 * 
+	 * <p>
+	 * NOTE: This is where the fill loops are selected, once per batch, so the sampler and blend
+	 * states are never looked at again while drawing the quads. Whether a quad is unscaled or
+	 * axis-aligned is still decided per quad by setupQuad().
+	 * 
+	 * @param samplerState
+	 *        The sampler state of the first texture slot.
+	 * @param blendState
+	 *        The current blend state.
+	 */
+	void setStates(SamplerState samplerState, BlendState blendState)
+	{
+		if (samplerState == _samplerState && blendState == _blendState)
+			return;
+
+		_samplerState = samplerState;
+		_blendState = blendState;
+
+		// NOTE: The anisotropic filters fall back to linear filtering and only AddressU is looked
+		//       at, AddressV always follows it.
+		if (samplerState.getFilter() == TextureFilter.Point)
+			_sampleMode = SAMPLE_POINT;
+		else if (samplerState.getAddressU() == TextureAddressMode.Wrap)
+			_sampleMode = SAMPLE_LINEAR_WRAP;
+		else
+			_sampleMode = SAMPLE_LINEAR_CLAMP;
+
+		// NOTE: The presets are matched by value since the GraphicsDevice binds its own copies
+		//       of them, anything else goes through the generic blend equation.
+		if (blendState.getColorWriteChannels() != ColorWriteChannels.All)
+			_blendMode = BLEND_GENERIC;
+		else if (isPreset(blendState, Blend.One, Blend.Zero))
+			_blendMode = BLEND_OPAQUE;
+		else if (isPreset(blendState, Blend.One, Blend.InverseSourceAlpha))
+			_blendMode = BLEND_OVER;
+		else if (isPreset(blendState, Blend.SourceAlpha, Blend.One))
+			_blendMode = BLEND_ADDITIVE;
+		else if (isPreset(blendState, Blend.SourceAlpha, Blend.InverseSourceAlpha))
+			_blendMode = BLEND_NON_PREMULTIPLIED;
+		else
+			_blendMode = BLEND_GENERIC;
+		_blendEquation.set(blendState);
+	}
+
+	/**
+	 * Sets the depth buffer of the render target, which must have one value per pixel.
+	 * 
+	 * <p>
+	 * NOTE: Like the blend states, the depth test is ignored by the reference {@link #drawQuad}.
+	 * 
+	 * @param depthBuffer
+	 *        The depth buffer, or {@code null} to draw without depth testing.
+	 */
+	void setDepthBuffer(float[] depthBuffer)
+	{
+		_depthBuffer = depthBuffer;
+	}
+
+	/**
+	 * Sets the depth stencil state used by the following draws. Only the depth test and depth
+	 * write settings are honoured, the stencil settings are ignored.
+	 * 
+	 * @param depthStencilState
+	 *        The current depth stencil state.
+	 */
+	void setDepthStencilState(DepthStencilState depthStencilState)
+	{
+		_depthStencilState = depthStencilState;
+	}
+
+	/**
+	 * Sets the depth of the quads drawn next, which is constant over a quad.
+	 * 
+	 * @param depth
+	 *        The depth, usually between 0 (near) and 1 (far).
+	 */
+	void setDepth(float depth)
+	{
+		_depth = depth;
+	}
+
+	/**
+	 * Sets the runs of empty, translucent and opaque texels of the texture used by the following
+	 * draws, which lets the unscaled quads skip the empty texels and copy the opaque ones.
+	 * 
+	 * @param alphaSpans
+	 *        The index of the texture, or {@code null} to blend every texel. It is ignored by the
+	 *        draws using another array of texels than the one it was built from.
+	 */
+	void setAlphaSpans(AlphaSpanIndex alphaSpans)
+	{
+		_alphaSpans = alphaSpans;
+	}
+
+	/**
+	 * Sets the texture of the triangles drawn next. The quads get their texture with each draw.
+	 * 
+	 * @param texels
+	 *        The premultiplied texels of the texture, or {@code null} to draw the triangles with
+	 *        their vertex colors only.
+	 * @param width
+	 *        The width of the texture.
+	 * @param height
+	 *        The height of the texture.
+	 */
+	void setTexture(int[] texels, int width, int height)
+	{
+		setTexture(texels, width, height, 0, 0, width);
+	}
+
+	/**
+	 * Sets the texture of the triangles drawn next, of which only a region is held, like the
+	 * texels decoded from a DXT texture.
+	 * 
+	 * @param texels
+	 *        The premultiplied texels of the region, which must hold every texel the triangles
+	 *        sample.
+	 * @param width
+	 *        The width of the texture.
+	 * @param height
+	 *        The height of the texture.
+	 * @param regionX
+	 *        The left of the region in the texture.
+	 * @param regionY
+	 *        The top of the region in the texture.
+	 * @param regionWidth
+	 *        The width of the region, the number of texels of each row of {@code texels}.
+	 */
+	void setTexture(int[] texels, int width, int height, int regionX, int regionY, int regionWidth)
+	{
+		_texels = texels;
+		_textureWidth = width;
+		_textureHeight = height;
+		_regionX = regionX;
+		_regionY = regionY;
+		_regionWidth = regionWidth;
+	}
+
+	/**
+	 * Sets the faces of the triangles that are not drawn. The quads are never culled.
+	 * 
+	 * @param cullMode
+	 *        The cull mode of the current rasterizer state.
+	 */
+	void setCullMode(CullMode cullMode)
+	{
+		_cullMode = cullMode;
+	}
+
+	// NOTE: XNA uses premultiplied alpha by default and the color values in
+	//		 the xnb files are premultiplied by the alpha channel.
+	void drawQuad(Vector2 origin, Vector2 xAxis, Vector2 yAxis,
+						  int srcStartX, int srcStartY, int srcEndX, int srcEndY,
+						  int srcWidth, int srcHeight, int[] srcPixels, Color tint)
+	{
+		// Note: Premultiply tint up front
+		//Vector4 tintVec4 = Color.fromNonPremultiplied(tint.getRed(), tint.getGreen(), tint.getBlue(), tint.getAlpha()).toVector4();
+		Vector4 tintVec4 = tint.toVector4();
+
+		int oldWidth  = srcEndX - srcStartX;
+		int oldHeight = srcEndY - srcStartY;
+
+		// NOTE: Can't use the inv because of numerical imprecision which makes us fetch the wrong pixel
+		//       sometimes for some ratio
+//		float invXAxislengthSq = 1.0f / xAxis.lengthSquared();
+//		float invYAxislengthSq = 1.0f / yAxis.lengthSquared();
+		float xAxislengthSq = xAxis.lengthSquared();
+		float yAxislengthSq = yAxis.lengthSquared();
+
+		int screenWidth = _width;
+		int screenHeight = _height;
+		
+		// check the bounds
+		int minX = screenWidth;
+		int maxX = 0;
+		int minY = screenHeight;
+		int maxY = 0;
+		
+		Vector2[] pos = new Vector2[]{ origin,
+								   	   Vector2.add(origin, xAxis),
+								   	   Vector2.add(origin, xAxis).add(yAxis),
+								   	   Vector2.add(origin, yAxis) };
+		for (int pIndex = 0; pIndex < pos.length; ++pIndex)
+		{
+			Vector2 testPos = pos[pIndex];
+			int floorX = (int) Math.floor(testPos.x);
+			int ceilX = (int) Math.ceil(testPos.x);
+			int floorY = (int) Math.floor(testPos.y);
+			int ceilY = (int) Math.ceil(testPos.y);
+		
+			if (minX > floorX) { minX = floorX; }
+			if (minY > floorY) { minY = floorY; }
+			if (maxX < ceilX)  { maxX = ceilX; }
+			if (maxY < ceilY)  { maxY = ceilY; }
+		}
+		
+		if (minX < _clipMinX) { minX = _clipMinX; }
+		if (minY < _clipMinY) { minY = _clipMinY; }
+		if (maxX > _clipMaxX) { maxX = _clipMaxX; }
+		if (maxY > _clipMaxY) { maxY = _clipMaxY; }
+//TimedBlock.beginTimedBlock("ProcessPixel");
+		// Cycle through all the sprites pixels. and apply tint and alpha-blending
+		// Set our starting index position for the source Texture.
+		int destRow = minX + minY * screenWidth;
+		for (int y = minY; y < maxY; ++y)
+		{
+			int destIndex = destRow;
+			for (int x = minX; x < maxX; ++x)
+			{
+				Vector2 pixelPos = new Vector2(x + 0.5f, y + 0.5f);
+				Vector2 d = Vector2.subtract(pixelPos, origin);
+				
+				float edge0 = d.dotProduct(Vector2.negate(perp(xAxis)));
+				float edge1 = Vector2.subtract(d, xAxis).dotProduct(Vector2.negate(perp(yAxis)));
+				float edge2 = Vector2.subtract(d, xAxis).subtract(yAxis).dotProduct(perp(xAxis));
+				float edge3 = Vector2.subtract(d, yAxis).dotProduct(perp(yAxis));
+
+				if ((edge0 <= 0) &&
+					(edge1 <= 0) &&
+					(edge2 <= 0) &&
+					(edge3 <= 0))
+				{
+					Vector4 foregroundColor;
+					if (oldWidth != xAxis.x || oldHeight != yAxis.y)
+					{
+						// NOTE: Can't use the inv because of numerical imprecision which makes us fetch the wrong pixel
+						//       sometimes for some ratio
+//						float u = invXAxislengthSq * d.dotProduct(xAxis);
+//						float v = invYAxislengthSq * d.dotProduct(yAxis);
+						// NOTE: u and v ranges from 0 to 1 into the source texture
+						float u = d.dotProduct(xAxis) / xAxislengthSq;
+						float v = d.dotProduct(yAxis) / yAxislengthSq;
+						
+						float tX, tY;
+						int fetchX, fetchY;
+						// TODO: Add other resizing methods (see TextureFilter.java)
+						switch (_samplerState.getFilter())
+						{
+							case Point:
+								// NOTE: Re-base our texture x to the [0-width] range and y to the [0-height] range
+								tX = u * (float) (oldWidth);
+								tY = v * (float) (oldHeight);
+	
+								fetchX = (int) tX + srcStartX;
+								fetchY = (int) tY + srcStartY;
+					
+								int texelPtr = srcPixels[fetchX + fetchY * srcWidth];
+								foregroundColor = new Vector4((float) ((texelPtr >>  0) & 0xFF),
+				 					 	 					  (float) ((texelPtr >>  8) & 0xFF),
+				 					 	 					  (float) ((texelPtr >> 16) & 0xFF),
+				 					 	 					  (float) ((texelPtr >> 24) & 0xFF));
+								foregroundColor = Vector4.divide(foregroundColor, 255);
+								break;
+								
+							case Linear:
+							default:
+								// NOTE: Re-base our texture x to the [0-width] range and y to the [0-height] range
+								tX = u * (float) (oldWidth) - 0.5f;
+								tY = v * (float) (oldHeight) - 0.5f;
+	
+								fetchX = (int) tX;
+								fetchY = (int) tY;
+					
+								float xDiff = tX - (float) fetchX;
+								float yDiff = tY - (float) fetchY;
+					
+								// NOTE: Need to adjust the u and v here for when we use spriteSheets or spriteStrips
+								fetchX += srcStartX;
+								fetchY += srcStartY;
+								
+								int texelPtrA, texelPtrB, texelPtrC, texelPtrD;
+								
+								// TODO: Validate if it is possible to have different values for u, v and w
+								//       and treat them separately if so.
+								switch (_samplerState.getAddressU())
+								{
+									case Wrap:
+										int nextU = 1;
+										if (xDiff < 0)
+										{
+											nextU = -1;
+											xDiff = -xDiff;
+										}
+										int nextV = 1;
+										if (yDiff < 0)
+										{
+											nextV = -1;
+											yDiff = -yDiff;
+										}
+										texelPtrA = srcPixels[fetchX + fetchY * srcWidth];
+										texelPtrB = srcPixels[((fetchX + nextU + srcWidth) % srcWidth) + (fetchY * srcWidth)];
+										texelPtrC = srcPixels[fetchX + (((fetchY + nextV + srcHeight) % srcHeight) * srcWidth)];
+										texelPtrD = srcPixels[((fetchX + nextU + srcWidth) % srcWidth) + (((fetchY + nextV + srcHeight) % srcHeight) * srcWidth)];
+										break;
+									// NOTE: When using spriteSheets, MonoGame allows blending of the last row or column of pixel in the current sprite
+									//		 with the first row or column of the next sprite in the sheet.  This doesn't seem to be a good idea if the
+									//		 sprites are tightly packed (i.e.: no fully translucent pixels on the boundary) so we don't allow it in our
+									//		 software renderer.
+									// TODO: Validate the note compared to OpenGL when we implement it. We probably want this to be the same on both renderer.
+									case Clamp:
+									default:
+										if (xDiff < 0) xDiff = 0;
+										if (yDiff < 0) yDiff = 0;
+										int srcIndex = (fetchX + fetchY * srcWidth);
+										texelPtrA = srcPixels[srcIndex];
+										// NOTE: Need to MOD u by oldWidth and v by oldHeight to adjust the the boundary for when we use spriteSheets or spriteStrips
+										texelPtrB = srcPixels[srcIndex + (((fetchX % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
+										texelPtrC = srcPixels[srcIndex + (((fetchY % oldHeight) == (oldHeight -1)) ? 0 : srcWidth)];
+										texelPtrD = srcPixels[srcIndex + (((fetchY % oldHeight) == (oldHeight -1)) ? 0 : srcWidth) + (((fetchX % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
+										break;
+								}
+								
+								Vector4 texelA = new Vector4((float) ((texelPtrA >>  0) & 0xFF),
+									 					 	 (float) ((texelPtrA >>  8) & 0xFF),
+									 					 	 (float) ((texelPtrA >> 16) & 0xFF),
+									 					 	 (float) ((texelPtrA >> 24) & 0xFF));
+								Vector4 texelB = new Vector4((float) ((texelPtrB >>  0) & 0xFF),
+									 					 	 (float) ((texelPtrB >>  8) & 0xFF),
+									 					 	 (float) ((texelPtrB >> 16) & 0xFF),
+									 					 	 (float) ((texelPtrB >> 24) & 0xFF));
+								Vector4 texelC = new Vector4((float) ((texelPtrC >>  0) & 0xFF),
+									 					 	 (float) ((texelPtrC >>  8) & 0xFF),
+									 					 	 (float) ((texelPtrC >> 16) & 0xFF),
+									 					 	 (float) ((texelPtrC >> 24) & 0xFF));
+								Vector4 texelD = new Vector4((float) ((texelPtrD >>  0) & 0xFF),
+									 					 	 (float) ((texelPtrD >>  8) & 0xFF),
+									 					 	 (float) ((texelPtrD >> 16) & 0xFF),
+									 					 	 (float) ((texelPtrD >> 24) & 0xFF));
+					
+								texelA = Vector4.divide(texelA, 255);
+								texelB = Vector4.divide(texelB, 255);
+								texelC = Vector4.divide(texelC, 255);
+								texelD = Vector4.divide(texelD, 255);
+					
+								foregroundColor = Vector4.lerp(Vector4.lerp(texelA, texelB, xDiff),
+															   Vector4.lerp(texelC, texelD, xDiff),
+															   yDiff);
+						}
+					}
+					else
+					{
+						// NOTE: Re-base our texture x to the [0-width] range and y to the [0-height] range
+						//       and add the offset for when we use spriteSheets or spriteStrips.
+						int fetchX = x - (int) (origin.x+0.5f) + srcStartX;
+						int fetchY = y - (int) (origin.y+0.5f) + srcStartY;
+
+						int texelPtr = srcPixels[fetchX + fetchY * srcWidth];
+						foregroundColor = new Vector4((float) ((texelPtr >>  0) & 0xFF),
+		 	 					  					  (float) ((texelPtr >>  8) & 0xFF),
+		 	 					  					  (float) ((texelPtr >> 16) & 0xFF),
+		 	 					  					  (float) ((texelPtr >> 24) & 0xFF));
+						foregroundColor = Vector4.divide(foregroundColor, 255);
+					}
+
+					// tint
+					foregroundColor = Vector4.multiply(foregroundColor, tintVec4);
+
+					Vector4 dest = new Vector4((float) ((_pixels[x + y * screenWidth] >>  0) & 0xFF),
+										   	   (float) ((_pixels[x + y * screenWidth] >>  8) & 0xFF),
+										   	   (float) ((_pixels[x + y * screenWidth] >> 16) & 0xFF),
+										   	   (float) ((_pixels[x + y * screenWidth] >> 24) & 0xFF));
+
+					dest = Vector4.divide(dest, 255);
+		
+					Vector4 blended = Vector4.add(Vector4.multiply(dest, (1.0f - foregroundColor.w)), foregroundColor);
+					blended = Vector4.clamp(blended, Vector4.zero(), Vector4.one());
+
+					Vector4 blended255 = Vector4.multiply(blended, 255);
+		
+					_pixels[destIndex] = ((((int) blended255.w) << 24) & 0xff000000) |
+									  	((((int) blended255.z) << 16) & 0xff0000)	|
+									  	((((int) blended255.y) << 8) & 0xff00) |
+									  	  ((int) blended255.x);
+				}
+				++destIndex;
+			}
+			destRow += screenWidth;
+		}
+//TimedBlock.endTimedBlock_Counted("ProcessPixel", (maxX - minX + 1) * (maxY - minY + 1));;
+	}
+
+	// TODO: This method is faster but I need to add rotation handling to it
+	void drawQuad2(int destStartX, int destStartY, int destEndX, int destEndY,
+			  			   int srcStartX, int srcStartY, int srcEndX, int srcEndY,
+			  			   int srcWidth, int srcHeight, int[] srcPixels, Color tint)
+	{
+		int screenWidth = _width;
+		int screenHeight = _height;
+
+		int oldWidth  = srcEndX - srcStartX;
+		int oldHeight = srcEndY - srcStartY;
+		int newWidth  = destEndX - destStartX;
+		int newHeight = destEndY - destStartY;
+		
+		float xRatio = (float) oldWidth / (float) newWidth;
+		float yRatio = (float) oldHeight / (float) newHeight;
+
+		int minX = srcStartX;
+		int minY = srcStartY;
+		int maxX = minX + newWidth;
+		int maxY = minY + newHeight;
+
+		// check the bounds
+		if (destStartX < 0)
+		{
+			minX += -destStartX;
+			destStartX = 0;
+		}
+		if (destEndX > screenWidth)
+		{
+			maxX -= destEndX - screenWidth;
+			destEndX = screenWidth;
+		}
+		if (destStartY < 0)
+		{
+			minY += -destStartY;
+			destStartY = 0;
+		}
+		if (destEndY > screenHeight)
+		{
+			maxY -= destEndY - screenHeight;
+			destEndY = screenHeight;
+		}
+
+		// Extract our tint components
+		short rTint = tint.getRed();
+		short gTint = tint.getGreen();
+		short bTint = tint.getBlue();
+		short aTint = tint.getAlpha();
+//TimedBlock.beginTimedBlock("ProcessPixel");
+		// Cycle through all the sprites pixels. and apply tint and alpha-blending
+		// Set our starting index position for the source Texture.
+		int destRow = destStartX + destStartY * screenWidth;
+		for (int y = minY; y < maxY; ++y, destRow += screenWidth)
+		{
+			int destIndex = destRow;
+			for (int x = minX; x < maxX; ++x)
+			{
+				// The color of the pixel about to be drawn.
+				int srcColor;
+				
+				// The components of the pixel about to be drawn.
+				int srcR, srcG, srcB, srcA;
+
+				if (oldWidth != newWidth || oldHeight != newHeight)
+				{
+					int u, v;
+					// TODO: Add other resizing methods (see TextureFilter.java)
+					switch (_samplerState.getFilter())
+					{
+						case Point:
+							if (newWidth < 0 || newHeight < 0)
+								throw new IllegalArgumentException("new width or new height cannot be less than 0");
+
+							u = (int) (xRatio * ((x - srcStartX) + 0.5f)) + srcStartX;
+							v = (int) (yRatio * ((y - srcStartY) + 0.5f)) + srcStartY;
+							srcColor = srcPixels[u + v * srcWidth];
+//							foregroundCol = srcPixels[(int) (((xRatio * ((x - srcStartX) + 0.5f))) + srcStartX) + (int) (((yRatio * ((y - srcStartY) + 0.5f))) + srcStartY) * srcWidth];
+							srcR = (srcColor) & 0xff;
+							srcG = (srcColor >> 8) & 0xff;
+							srcB = (srcColor >> 16) & 0xff;
+							srcA = (srcColor >> 24) & 0xff;
+							break;
+
+						case Linear:
+						default:
+							if (newWidth < 0 || newHeight < 0)
+								throw new IllegalArgumentException("new width or new height cannot be less than 0");
+							if (srcStartX < 0 || srcStartY < 0)
+								throw new IllegalArgumentException("startX or startY cannot be less than 0");
+
+							int texelA, texelB, texelC, texelD, srcIndex;
+							float x_diff, y_diff;
+
+							// NOTE: this formula was found by reverse engineering what MonoGame does
+							//       so I can get the exact same result.
+							float rU = -0.5f + (xRatio * ((x - srcStartX) + 0.5f));
+							float rV = -0.5f + (yRatio * ((y - srcStartY) + 0.5f));
+							u = (int) (rU);
+							v = (int) (rV);
+							x_diff = rU - u;
+							y_diff = rV - v;
+
+							// NOTE: Need to adjust the u and v here for when we use spriteSheets or spriteStrips
+							u += srcStartX;
+							v += srcStartY;
+
+							// TODO: Validate if it is possible to have different values for u, v and w
+							//       and treat them separately if so.
+							switch (_samplerState.getAddressU())
+							{
+								case Wrap:
+									int nextU = 1;
+									if (x_diff < 0)
+									{
+										nextU = -1;
+										x_diff = -x_diff;
+									}
+									int nextV = 1;
+									if (y_diff < 0)
+									{
+										nextV = -1;
+										y_diff = -y_diff;
+									}
+									texelA = srcPixels[u + v * srcWidth];
+									texelB = srcPixels[((u + nextU + srcWidth) % srcWidth) + (v * srcWidth)];
+									texelC = srcPixels[u + (((v + nextV + srcHeight) % srcHeight) * srcWidth)];
+									texelD = srcPixels[((u + nextU + srcWidth) % srcWidth) + (((v + nextV + srcHeight) % srcHeight) * srcWidth)];
+									break;
+								// NOTE: When using spriteSheets, MonoGame allows blending of the last row or column of pixel in the current sprite
+								//		 with the first row or column of the next sprite in the sheet.  This doesn't seem to be a good idea if the
+								//		 sprites are tightly packed (i.e.: no fully translucent pixels on the boundary) so we don't allow it in our
+								//		 software renderer.
+								// TODO: Validate the note compared to OpenGL when we implement it. We probably want this to be the same on both renderer.
+								case Clamp:
+								default:
+									if (x_diff < 0) x_diff = 0;
+									if (y_diff < 0) y_diff = 0;
+									srcIndex = (u + v * srcWidth);
+									texelA = srcPixels[srcIndex];
+									// NOTE: Need to MOD u by oldWidth and v by oldHeight to adjust the the boundary for when we use spriteSheets or spriteStrips
+									texelB = srcPixels[srcIndex + (((u % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
+									texelC = srcPixels[srcIndex + (((v % oldHeight) == (oldHeight -1)) ? 0 : srcWidth)];
+									texelD = srcPixels[srcIndex + (((v % oldHeight) == (oldHeight -1)) ? 0 : srcWidth) + (((u % oldWidth) == (oldWidth - 1)) ? 0 : 1)];
+									break;
+							}
+
+							float r = MathHelper.lerp(MathHelper.lerp(texelA & 0xff, texelB & 0xff, x_diff),
+													  MathHelper.lerp(texelC & 0xff, texelD & 0xff, x_diff),
+													  y_diff);
+							float g = MathHelper.lerp(MathHelper.lerp((texelA >> 8) & 0xff, (texelB >> 8) & 0xff, x_diff),
+													  MathHelper.lerp((texelC >> 8) & 0xff, (texelD >> 8) & 0xff, x_diff),
+													  y_diff);
+							float b = MathHelper.lerp(MathHelper.lerp((texelA >> 16) & 0xff, (texelB >> 16) & 0xff, x_diff),
+													  MathHelper.lerp((texelC >> 16) & 0xff, (texelD >> 16) & 0xff, x_diff),
+													  y_diff);
+							float a = MathHelper.lerp(MathHelper.lerp((texelA >> 24) & 0xff, (texelB >> 24)& 0xff, x_diff),
+													  MathHelper.lerp((texelC >> 24)& 0xff, (texelD >> 24)& 0xff, x_diff),
+													  y_diff);
+
+							// NOTE: Add 0.5f before casting so it rounds properly
+							r += 0.5f;
+							g += 0.5f;
+							b += 0.5f;
+							a += 0.5f;
+
+//							srcColor = ((((int) a) << 24) & 0xff000000) | ((((int) b) << 16) & 0xff0000) | ((((int) g) << 8) & 0xff00) | ((int) r);
+							srcR = (int) r;
+							srcG = (int) g;
+							srcB = (int) b;
+							srcA = (int) a;
+							break;
+					}
+				}
+				else
+				{
+					srcColor = srcPixels[x + y * srcWidth];
+					srcR = (srcColor) & 0xff;
+					srcG = (srcColor >> 8) & 0xff;
+					srcB = (srcColor >> 16) & 0xff;
+					srcA = (srcColor >> 24) & 0xff;
+				}
+
+				// The components of the pixel about to be drawn.
+//				srcR = (srcColor >> 16) & 0xff;
+//				srcG = (srcColor >> 8) & 0xff;
+//				srcB = (srcColor) & 0xff;
+//				srcA = (srcColor >> 24) & 0xff;
+	
+				// Using Color.WHITE would have no effect so skip this
+				if (!tint.equals(Color.White))
+				{
+					// Typical tint formula -> original component * tint / 255
+					// also works with premultiplied alpha
+					srcR = srcR * rTint / 255;
+					srcG = srcG * gTint / 255;
+					srcB = srcB * bTint / 255;
+					srcA = srcA * aTint / 255;
+				}
+
+				// The resulting color of the pixel to be drawn
+				int col;
+
+				// If alpha is 255 it completely overrides the existing color.
+				if (_blendMode == BLEND_OPAQUE || (srcA == 255 && _blendMode == BLEND_OVER))
+				{
+					col = (srcA << 24 & 0xff000000) | (srcB << 16 & 0x00ff0000) |
+						  (srcG << 8 & 0x0000ff00) | (srcR & 0x000000ff);
+				}
+				else if (_blendMode == BLEND_OVER)
+				{
+					// The color of the pixel already there.
+					int backgroundCol = _pixels[destIndex];
+					
+					// Do the alpha-blending with the premultiplied alpha source.
+					int backgroundB = (backgroundCol >> 16) & 0xff;
+					int backgroundG = (backgroundCol >> 8) & 0xff;
+					int backgroundR = (backgroundCol) & 0xff;
+					// Typical over blend formula
+					int r = srcR + (backgroundR * (255 - srcA) / 255);
+					int g = srcG + (backgroundG * (255 - srcA) / 255);
+					int b = srcB + (backgroundB * (255 - srcA) / 255);
+		
+					// NOTE: since this can produce a value greater than 255 for a single
+					// channel we need to clamp those values.
+					r = r > 255 ? 255 : r;
+					g = g > 255 ? 255 : g;
+					b = b > 255 ? 255 : b;
+
+					col = b << 16 | g << 8 | r;
+				}
+				else
+				{
+					col = _blendEquation.blend(srcA << 24 | srcB << 16 | srcG << 8 | srcR, _pixels[destIndex]);
+				}
+
+				_pixels[destIndex] = col;
+				++destIndex;
+			}
+			// destRow += screenWidth;
+		}
+//TimedBlock.endTimedBlock_Counted("ProcessPixel", (maxX - minX + 1) * (maxY - minY + 1));;
+	}
+
+	// TODO: should add this to the Vector class
+	private Vector2 perp(Vector2 a)
+	{
+		return new Vector2(-a.y, a.x);
+	}
+
+	/**
+	 * Draws a textured quad using incrementally evaluated edge functions.
+	 * 
+	 * <p>
+	 * This produces the same image as {@link #drawQuad}, but the four edge functions and the
+	 * texture coordinates are evaluated once at the top-left corner of the bounding box and then
+	 * advanced with constant per-column and per-row deltas. The edge functions are only tested
+	 * to find the pixels of each row that are inside of the quad (see {@link QuadSetup#findSpan}).
+	 * All the color math is done on packed integers so nothing is allocated per pixel. A pixel
+	 * gets the same value whatever the clip region is, so a quad can be drawn one tile at a time.
+	 * 
+	 * <p>
+	 * NOTE: The source texels and the tint are expected to be premultiplied by their alpha.
+	 * 
+	 * @param originX
+	 *        The x coordinate of the top-left corner of the quad.
+	 * @param originY
+	 *        The y coordinate of the top-left corner of the quad.
+	 * @param xAxisX
+	 *        The x component of the vector going from the top-left to the top-right corner.
+	 * @param xAxisY
+	 *        The y component of the vector going from the top-left to the top-right corner.
+	 * @param yAxisX
+	 *        The x component of the vector going from the top-left to the bottom-left corner.
+	 * @param yAxisY
+	 *        The y component of the vector going from the top-left to the bottom-left corner.
+	 * @param srcStartX
+	 *        The left texel of the source rectangle.
+	 * @param srcStartY
+	 *        The top texel of the source rectangle.
+	 * @param srcEndX
+	 *        The right texel (exclusive) of the source rectangle.
+	 * @param srcEndY
+	 *        The bottom texel (exclusive) of the source rectangle.
+	 * @param srcWidth
+	 *        The width of the source texture.
+	 * @param srcHeight
+	 *        The height of the source texture.
+	 * @param srcPixels
+	 *        The texels of the source texture.
+	 * @param tint
+	 *        The packed color used to tint the quad.
+	 */
+	void drawQuadIncremental(float originX, float originY,
+							 float xAxisX, float xAxisY, float yAxisX, float yAxisY,
+							 int srcStartX, int srcStartY, int srcEndX, int srcEndY,
+							 int srcWidth, int srcHeight, int[] srcPixels, int tint)
+	{
+		if (setupQuad(originX, originY, xAxisX, xAxisY, yAxisX, yAxisY, srcStartX, srcStartY, srcEndX, srcEndY, srcWidth, srcHeight, srcPixels, tint))
+			_scalarKernel.fillQuad(_setup, _pixels, _width);
+	}
+
+	/**
+	 * Draws a textured quad like {@link #drawQuadIncremental}, but fills 8 or 16 pixels per
+	 * iteration using the {@code jdk.incubator.vector} module.
+	 * 
+	 * <p>
+	 * NOTE: Only the premultiplied alpha blending of {@link BlendState#AlphaBlend} and the point
+	 * and clamped linear samplers are vectorized, without depth testing. Anything else, a build
+	 * without the {@code src-vector} source folder or a JVM started without
+	 * {@code --add-modules jdk.incubator.vector}, falls back to the scalar loop.
+	 * 
+	 * @see #drawQuadIncremental
+	 */
+	void drawQuadSimd(float originX, float originY,
+					  float xAxisX, float xAxisY, float yAxisX, float yAxisY,
+					  int srcStartX, int srcStartY, int srcEndX, int srcEndY,
+					  int srcWidth, int srcHeight, int[] srcPixels, int tint)
+	{
+		if (!setupQuad(originX, originY, xAxisX, xAxisY, yAxisX, yAxisY, srcStartX, srcStartY, srcEndX, srcEndY, srcWidth, srcHeight, srcPixels, tint))
+			return;
+
+		if (_simdKernel == null || _setup.blendMode != BLEND_OVER || _setup.depthBuffer != null || !_simdKernel.fillQuad(_setup, _pixels, _width))
+			_scalarKernel.fillQuad(_setup, _pixels, _width);
+	}
+
+	/**
+	 * Draws a triangle of any shape with the current render states, see {@link TriangleKernel}.
+	 * 
+	 * @param vertices
+	 *        The vertices of the draw.
+	 * @param i0
+	 *        The index of the first vertex of the triangle.
+	 * @param i1
+	 *        The index of the second vertex of the triangle.
+	 * @param i2
+	 *        The index of the third vertex of the triangle.
+	 */
+	void drawTriangle(VertexReader vertices, int i0, int i1, int i2)
+	{
+		TriangleKernel k = _triangleKernel;
+		k.pixels = _pixels;
+		k.stride = _width;
+		k.clipMinX = _clipMinX;
+		k.clipMinY = _clipMinY;
+		k.clipMaxX = _clipMaxX;
+		k.clipMaxY = _clipMaxY;
+		k.texels = _texels;
+		k.textureWidth = _textureWidth;
+		k.textureHeight = _textureHeight;
+		k.regionX = _regionX;
+		k.regionY = _regionY;
+		k.regionWidth = _regionWidth;
+		k.linear = _sampleMode != SAMPLE_POINT;
+		k.wrap = _samplerState.getAddressU() == TextureAddressMode.Wrap;
+		k.blendMode = _blendMode;
+		k.blendEquation = _blendEquation;
+		boolean testsDepth = _depthBuffer != null && _depthStencilState != null && _depthStencilState.getDepthBufferEnable();
+		k.depthBuffer = testsDepth ? _depthBuffer : null;
+		k.depthFunction = testsDepth ? _depthStencilState.getDepthBufferFunction() : CompareFunction.Always;
+		k.depthWrite = testsDepth && _depthStencilState.getDepthBufferWriteEnable();
+		k.cullMode = _cullMode;
+		k.fillTriangle(vertices, i0, i1, i2);
+	}
+
+	/**
+	 * Returns whether the {@code jdk.incubator.vector} module could be loaded.
+	 * 
+	 * @return {@code true} if {@link #drawQuadSimd} uses the Vector API, {@code false} if it always
+	 *         falls back to the scalar loop.
+	 */
+	static boolean isSimdSupported()
+	{
+		return SimdKernelConstructor != null;
+	}
+
+	/**
+	 * Computes the values shared by the fill loops for a quad and stores them in {@link #_setup}.
+	 * 
+	 * @return {@code false} if the quad does not cover any pixel of the clip region.
+	 */
+	private boolean setupQuad(float originX, float originY,
+							   float xAxisX, float xAxisY, float yAxisX, float yAxisY,
+							   int srcStartX, int srcStartY, int srcEndX, int srcEndY,
+							   int srcWidth, int srcHeight, int[] srcPixels, int tint)
+	{
+		int oldWidth  = srcEndX - srcStartX;
+		int oldHeight = srcEndY - srcStartY;
+
+		float xAxisLengthSq = xAxisX * xAxisX + xAxisY * xAxisY;
+		float yAxisLengthSq = yAxisX * yAxisX + yAxisY * yAxisY;
+		if (xAxisLengthSq == 0.0f || yAxisLengthSq == 0.0f || oldWidth == 0 || oldHeight == 0)
+			return false;
+
+		// Find the bounding box of the quad and clip it to the clip region.
+		float x1 = originX + xAxisX;
+		float y1 = originY + xAxisY;
+		float x2 = x1 + yAxisX;
+		float y2 = y1 + yAxisY;
+		float x3 = originX + yAxisX;
+		float y3 = originY + yAxisY;
+
+		int minX = (int) Math.floor(Math.min(Math.min(originX, x1), Math.min(x2, x3)));
+		int minY = (int) Math.floor(Math.min(Math.min(originY, y1), Math.min(y2, y3)));
+		int maxX = (int) Math.ceil(Math.max(Math.max(originX, x1), Math.max(x2, x3)));
+		int maxY = (int) Math.ceil(Math.max(Math.max(originY, y1), Math.max(y2, y3)));
+
+		// NOTE: The edge functions and texture coordinates are anchored to the unclipped bounding box
+		//       so a pixel gets the exact same values whatever clip region it is drawn with.
+		int quadMinX = minX;
+		int quadMinY = minY;
+
+		if (minX < _clipMinX) { minX = _clipMinX; }
+		if (minY < _clipMinY) { minY = _clipMinY; }
+		if (maxX > _clipMaxX) { maxX = _clipMaxX; }
+		if (maxY > _clipMaxY) { maxY = _clipMaxY; }
+		if (minX >= maxX || minY >= maxY)
+			return false;
+
+		// NOTE: Each edge function is e(x, y) = d . n where d is the vector from a corner of the
+		//       quad to the pixel center and n is the outward normal of the edge, which makes
+		//       them linear in x and y. A pixel is inside when all of them are <= 0.
+		float dX = (float) quadMinX + 0.5f - originX;
+		float dY = (float) quadMinY + 0.5f - originY;
+
+		float edge0Start = dX * xAxisY - dY * xAxisX;
+		float edge1Start = (dX - xAxisX) * yAxisY - (dY - xAxisY) * yAxisX;
+		float edge2Start = (dY - xAxisY - yAxisY) * xAxisX - (dX - xAxisX - yAxisX) * xAxisY;
+		float edge3Start = (dY - yAxisY) * yAxisX - (dX - yAxisX) * yAxisY;
+
+		// Per-column deltas of the edge functions.
+		float edge0StepX = xAxisY;
+		float edge1StepX = yAxisY;
+		float edge2StepX = -xAxisY;
+		float edge3StepX = -yAxisY;
+
+		// Per-row deltas of the edge functions.
+		float edge0StepY = -xAxisX;
+		float edge1StepY = -yAxisX;
+		float edge2StepY = xAxisX;
+		float edge3StepY = yAxisX;
+
+		// NOTE: u and v range from 0 to 1 into the source rectangle, so we re-base them to the
+		//       [0-width] and [0-height] ranges up front.
+		float uScale = (float) oldWidth / xAxisLengthSq;
+		float vScale = (float) oldHeight / yAxisLengthSq;
+		float uStart = (dX * xAxisX + dY * xAxisY) * uScale;
+		float vStart = (dX * yAxisX + dY * yAxisY) * vScale;
+		float uStepX = xAxisX * uScale;
+		float uStepY = xAxisY * uScale;
+		float vStepX = yAxisX * vScale;
+		float vStepY = yAxisY * vScale;
+
+		// NOTE: When the quad is axis-aligned u only depends on the column and v on the row, which
+		//       lets the fill loops compute them once per quad and once per row.
+		boolean isAxisAligned = xAxisY == 0.0f && yAxisX == 0.0f;
+		int sampleMode = (isAxisAligned && oldWidth == xAxisX && oldHeight == yAxisY) ? SAMPLE_UNSCALED : _sampleMode;
+
+		// Used to keep the fetches inside of the source rectangle, even when the quad is flipped.
+		int texelMinX = Math.min(srcStartX, srcEndX);
+		int texelMinY = Math.min(srcStartY, srcEndY);
+		int texelMaxX = Math.max(srcStartX, srcEndX) - 1;
+		int texelMaxY = Math.max(srcStartY, srcEndY) - 1;
+		int absWidth  = texelMaxX - texelMinX + 1;
+		int absHeight = texelMaxY - texelMinY + 1;
+
+		// Offsets from the destination pixel to the source texel for the unscaled path.
+		int unscaledOffsetX = srcStartX - (int) (originX + 0.5f);
+		int unscaledOffsetY = srcStartY - (int) (originY + 0.5f);
+
+		QuadSetup s = _setup;
+		s.minX = minX;
+		s.minY = minY;
+		s.maxX = maxX;
+		s.maxY = maxY;
+		s.quadMinX = quadMinX;
+		s.quadMinY = quadMinY;
+		s.edge0Start = edge0Start;
+		s.edge1Start = edge1Start;
+		s.edge2Start = edge2Start;
+		s.edge3Start = edge3Start;
+		s.edge0StepX = edge0StepX;
+		s.edge1StepX = edge1StepX;
+		s.edge2StepX = edge2StepX;
+		s.edge3StepX = edge3StepX;
+		s.edge0StepY = edge0StepY;
+		s.edge1StepY = edge1StepY;
+		s.edge2StepY = edge2StepY;
+		s.edge3StepY = edge3StepY;
+		s.uStart = uStart;
+		s.vStart = vStart;
+		s.uStepX = uStepX;
+		s.uStepY = uStepY;
+		s.vStepX = vStepX;
+		s.vStepY = vStepY;
+		s.sampleMode = sampleMode;
+		s.blendMode = _blendMode;
+		s.blendEquation = _blendEquation;
+		// NOTE: Only the blend modes leaving the render target untouched for a transparent black
+		//       texel can skip the empty runs.
+		boolean skipsEmpty = _blendMode == BLEND_OVER || _blendMode == BLEND_ADDITIVE || _blendMode == BLEND_NON_PREMULTIPLIED;
+		s.alphaSpans = (sampleMode == SAMPLE_UNSCALED && skipsEmpty && _alphaSpans != null && _alphaSpans.isBuiltFrom(srcPixels)) ? _alphaSpans : null;
+		s.isAxisAligned = isAxisAligned;
+		boolean testsDepth = _depthBuffer != null && _depthStencilState != null && _depthStencilState.getDepthBufferEnable();
+		s.depthBuffer = testsDepth ? _depthBuffer : null;
+		s.depthFunction = testsDepth ? _depthStencilState.getDepthBufferFunction() : CompareFunction.Always;
+		s.depthWrite = testsDepth && _depthStencilState.getDepthBufferWriteEnable();
+		s.depth = _depth;
+		s.texelMinX = texelMinX;
+		s.texelMinY = texelMinY;
+		s.texelMaxX = texelMaxX;
+		s.texelMaxY = texelMaxY;
+		s.absWidth = absWidth;
+		s.absHeight = absHeight;
+		s.unscaledOffsetX = unscaledOffsetX;
+		s.unscaledOffsetY = unscaledOffsetY;
+		s.srcPixels = srcPixels;
+		s.srcWidth = srcWidth;
+		s.srcHeight = srcHeight;
+		s.srcStartX = srcStartX;
+		s.srcStartY = srcStartY;
+		s.tint = tint;
+		return true;
+	}
+
+	static final int SAMPLE_UNSCALED = 0;
+	static final int SAMPLE_POINT = 1;
+	static final int SAMPLE_LINEAR_WRAP = 2;
+	static final int SAMPLE_LINEAR_CLAMP = 3;
+
+	/** The premultiplied alpha blending of {@link BlendState#AlphaBlend} */
+	static final int BLEND_OVER = 0;
+	/** The source replaces the render target, like {@link BlendState#Opaque} */
+	static final int BLEND_OPAQUE = 1;
+	/** The blending of {@link BlendState#Additive} */
+	static final int BLEND_ADDITIVE = 2;
+	/** The blending of {@link BlendState#NonPremultiplied} */
+	static final int BLEND_NON_PREMULTIPLIED = 3;
+	/** Any other blend state, evaluated with {@link BlendEquation} */
+	static final int BLEND_GENERIC = 4;
+
+	/**
+	 * Returns whether a blend state adds the source and destination terms with the same blend
+	 * factors for the color and alpha channels, which is how the BlendState presets are built.
+	 */
+	private static boolean isPreset(BlendState blendState, Blend sourceBlend, Blend destinationBlend)
+	{
+		return blendState.getColorBlendFunction() == BlendFunction.Add &&
+			   blendState.getAlphaBlendFunction() == BlendFunction.Add &&
+			   blendState.getColorSourceBlend() == sourceBlend &&
+			   blendState.getAlphaSourceBlend() == sourceBlend &&
+			   blendState.getColorDestinationBlend() == destinationBlend &&
+			   blendState.getAlphaDestinationBlend() == destinationBlend;
+	}
+
+	/**
+	 * Returns whether a blend state replaces the render target with the source color, whatever
+	 * its alpha.
+	 */
+	static boolean hidesDestination(BlendState blendState)
+	{
+		return blendState.getColorWriteChannels() == ColorWriteChannels.All &&
+			   isPreset(blendState, Blend.One, Blend.Zero);
+	}
+
+	/**
+	 * Returns whether a blend state replaces the render target with the source color when its
+	 * alpha is 255, which is the case of the opaque, alpha blend and non-premultiplied presets.
+	 */
+	static boolean hidesDestinationWithOpaqueTexels(BlendState blendState)
+	{
+		return blendState.getColorWriteChannels() == ColorWriteChannels.All &&
+			   (isPreset(blendState, Blend.One, Blend.Zero) ||
+				isPreset(blendState, Blend.One, Blend.InverseSourceAlpha) ||
+				isPreset(blendState, Blend.SourceAlpha, Blend.InverseSourceAlpha));
+	}
+
+	/**
+	 * Compares the depth of a pixel being drawn with the depth stored in the depth buffer.
+	 * 
+	 * @param function
+	 *        The depth test.
+	 * @param depth
+	 *        The depth of the pixel being drawn.
+	 * @param stored
+	 *        The depth stored for the pixel.
+	 * @return {@code true} if the pixel passes the depth test.
+	 */
+	static boolean compareDepth(CompareFunction function, float depth, float stored)
+	{
+		switch (function)
+		{
+			case Never:			return false;
+			case Less:			return depth < stored;
+			case LessEqual:		return depth <= stored;
+			case Equal:			return depth == stored;
+			case GreaterEqual:	return depth >= stored;
+			case Greater:		return depth > stored;
+			case NotEqual:		return depth != stored;
+			case Always:
+			default:			return true;
+		}
+	}
+
+	/**
+	 * Multiplies two 8 bit color components where 255 represents 1.0, rounding to nearest.
+	 */
+	static int mul255(int a, int b)
+	{
+		int t = a * b + 128;
+		return (t + (t >> 8)) >> 8;
+	}
+
+	/**
+	 * Linearly interpolates all four channels of two packed colors at once.
+	 * 
+	 * @param a
+	 *        The first packed color.
+	 * @param b
+	 *        The second packed color.
+	 * @param f
+	 *        The weight of {@code b} in the [0-256] range.
+	 * @return The interpolated packed color.
+	 */
+	static int lerpPacked(int a, int b, int f)
+	{
+		int invF = 256 - f;
+		int rb = (((a & 0x00FF00FF) * invF + (b & 0x00FF00FF) * f) >>> 8) & 0x00FF00FF;
+		int ag = (((a >>> 8) & 0x00FF00FF) * invF + ((b >>> 8) & 0x00FF00FF) * f) & 0xFF00FF00;
+		return ag | rb;
+	}
+
+	/**
+	 * Bilinearly interpolates four packed texels.
+	 * 
+	 * @param a
+	 *        The top-left texel.
+	 * @param b
+	 *        The top-right texel.
+	 * @param c
+	 *        The bottom-left texel.
+	 * @param d
+	 *        The bottom-right texel.
+	 * @param fx
+	 *        The horizontal weight in the [0-256] range.
+	 * @param fy
+	 *        The vertical weight in the [0-256] range.
+	 * @return The interpolated packed texel.
+	 */
+	static int bilerp(int a, int b, int c, int d, int fx, int fy)
+	{
+		return lerpPacked(lerpPacked(a, b, fx), lerpPacked(c, d, fx), fy);
+	}
+
+	/**
+	 * The values computed once per quad and shared by the scalar and the vectorized fill loops.
+	 * The edge functions and texture coordinates are anchored to the top-left pixel center of the
+	 * unclipped bounding box, see {@link SoftwareRasterizer#drawQuadIncremental}.
+	 */
+	static final class QuadSetup
+	{
+		/** The bounding box of the quad clipped to the clip region, max values are exclusive */
+		int minX;
+		int minY;
+		int maxX;
+		int maxY;
+		/** The top-left corner of the unclipped bounding box */
+		int quadMinX;
+		int quadMinY;
+
+		/** The edge functions at the anchor and their per-column and per-row deltas */
+		float edge0Start;
+		float edge1Start;
+		float edge2Start;
+		float edge3Start;
+		float edge0StepX;
+		float edge1StepX;
+		float edge2StepX;
+		float edge3StepX;
+		float edge0StepY;
+		float edge1StepY;
+		float edge2StepY;
+		float edge3StepY;
+
+		/** The texture coordinates at the anchor, in texels, and their deltas */
+		float uStart;
+		float vStart;
+		float uStepX;
+		float uStepY;
+		float vStepX;
+		float vStepY;
+
+		/** One of the SAMPLE_XXX constants */
+		int sampleMode;
+		/** One of the BLEND_XXX constants */
+		int blendMode;
+		/** The blend state of the quad when blendMode is BLEND_GENERIC */
+		BlendEquation blendEquation;
+		/** The runs of the source texture for the unscaled quads, or null to blend every texel */
+		AlphaSpanIndex alphaSpans;
+		/** Whether the sides of the quad are parallel to the axes of the render target */
+		boolean isAxisAligned;
+		/** The source rectangle, max values are inclusive */
+		int texelMinX;
+		int texelMinY;
+		int texelMaxX;
+		int texelMaxY;
+		int absWidth;
+		int absHeight;
+		/** Offsets from the destination pixel to the source texel for the unscaled path */
+		int unscaledOffsetX;
+		int unscaledOffsetY;
+
+		int[] srcPixels;
+		int srcWidth;
+		int srcHeight;
+		int srcStartX;
+		int srcStartY;
+		int tint;
+
+		/** The depth buffer of the render target, or null when the depth test is disabled */
+		float[] depthBuffer;
+		/** The depth test, only used when depthBuffer is not null */
+		CompareFunction depthFunction;
+		/** Whether the pixels passing the depth test write the depth of the quad */
+		boolean depthWrite;
+		/** The depth of the quad */
+		float depth;
+
+		/** The pixels of the row found by findSpan() that are inside of the quad, spanEnd is exclusive */
+		int spanStart;
+		int spanEnd;
+		/** The pixels of the span found by nextRun() that pass the depth test, runEnd is exclusive */
+		int runStart;
+		int runEnd;
+		/** The first pixel of the span nextRun() has not looked at yet */
+		private int _runCursor;
+
+		/**
+		 * Finds the pixels of a row whose center is inside of the quad and stores them in
+		 * {@link #spanStart} and {@link #spanEnd}.
+		 * 
+		 * <p>
+		 * NOTE: Testing the edges once per row instead of once per pixel keeps the fill loops
+		 * free of branches, which is what lets us vectorize them. Each edge function is linear along
+		 * the row, so the pixels it accepts are a prefix or a suffix of the row. We start from the
+		 * analytic solution and then evaluate the edge with the exact same float operations a
+		 * per-pixel test would use, so rounding can never make the two disagree.
+		 * 
+		 * @param y
+		 *        The row, between minY and maxY.
+		 * @return {@code false} if no pixel of the row is inside of the quad.
+		 */
+		boolean findSpan(int y)
+		{
+			float row = (float) (y - quadMinY);
+			int start = minX - quadMinX;
+			int end = maxX - quadMinX;
+
+			long span = clipSpan(edge0Start + row * edge0StepY, edge0StepX, start, end);
+			span = clipSpan(edge1Start + row * edge1StepY, edge1StepX, (int) (span >> 32), (int) span);
+			span = clipSpan(edge2Start + row * edge2StepY, edge2StepX, (int) (span >> 32), (int) span);
+			span = clipSpan(edge3Start + row * edge3StepY, edge3StepX, (int) (span >> 32), (int) span);
+
+			spanStart = (int) (span >> 32) + quadMinX;
+			spanEnd = (int) span + quadMinX;
+			_runCursor = spanStart;
+			return spanStart < spanEnd;
+		}
+
+		/**
+		 * Finds the next run of pixels of the span that pass the depth test and stores it in
+		 * {@link #runStart} and {@link #runEnd}. Without depth test the whole span is a single run.
+		 * 
+		 * <p>
+		 * NOTE: This is the early depth test, the pixels hidden behind what was already drawn are
+		 * rejected before their texels are even sampled. The pixels of the run also get their depth
+		 * written right away, when depth writes are enabled, since they are all going to be drawn.
+		 * 
+		 * @param rowIndex
+		 *        The index in the depth buffer of the first pixel of the row.
+		 * @return {@code false} if the span has no more pixels passing the depth test.
+		 */
+		boolean nextRun(int rowIndex)
+		{
+			int x = _runCursor;
+			if (depthBuffer == null)
+			{
+				runStart = x;
+				runEnd = spanEnd;
+				_runCursor = spanEnd;
+				return x < spanEnd;
+			}
+
+			float[] buffer = depthBuffer;
+			while (x < spanEnd && !passesDepthTest(buffer[rowIndex + x]))
+				++x;
+			runStart = x;
+			while (x < spanEnd && passesDepthTest(buffer[rowIndex + x]))
+			{
+				if (depthWrite)
+					buffer[rowIndex + x] = depth;
+				++x;
+			}
+			runEnd = x;
+			_runCursor = x;
+			return runStart < runEnd;
+		}
+
+		/**
+		 * Compares the depth of the quad with the depth stored for a pixel.
+		 */
+		boolean passesDepthTest(float stored)
+		{
+			return compareDepth(depthFunction, depth, stored);
+		}
+
+		/**
+		 * Narrows the columns [start, end) to the ones where {@code edgeRow + column * stepX <= 0}.
+		 * 
+		 * @return The new start in the high 32 bits and the new end in the low 32 bits.
+		 */
+		private static long clipSpan(float edgeRow, float stepX, int start, int end)
+		{
+			if (start >= end)
+				return ((long) start << 32) | end;
+
+			if (stepX > 0)
+			{
+				// The edge accepts a prefix of the row, find the first column it rejects.
+				int c = clamp((int) Math.floor(-edgeRow / stepX) + 1, start, end);
+				while (c > start && edgeRow + (float) (c - 1) * stepX > 0)
+					--c;
+				while (c < end && !(edgeRow + (float) c * stepX > 0))
+					++c;
+				end = c;
+			}
+			else if (stepX < 0)
+			{
+				// The edge accepts a suffix of the row, find the first column it accepts.
+				int c = clamp((int) Math.ceil(-edgeRow / stepX), start, end);
+				while (c > start && !(edgeRow + (float) (c - 1) * stepX > 0))
+					--c;
+				while (c < end && edgeRow + (float) c * stepX > 0)
+					++c;
+				start = c;
+			}
+			else if (edgeRow > 0)
+			{
+				end = start;
+			}
+			return ((long) start << 32) | (end & 0xFFFFFFFFL);
+		}
+
+		private static int clamp(int value, int min, int max)
+		{
+			return value < min ? min : (value > max ? max : value);
+		}
+	}
+
+	/**
+	 * The blend state of the render target decoded into plain fields, which evaluates the full
+	 * blend equation of a pixel without allocating. This is the slow path used by the blend states
+	 * that don't have a dedicated fill loop.
+	 * 
+	 * <p>
+	 * Each channel is computed as {@code function(source * sourceFactor, destination * destinationFactor)}
+	 * with 255 representing 1.0, and the channels that are not written keep the destination value.
+	 */
+	static final class BlendEquation
+	{
+		private BlendFunction _colorFunction;
+		private BlendFunction _alphaFunction;
+		private Blend _colorSource;
+		private Blend _colorDestination;
+		private Blend _alphaSource;
+		private Blend _alphaDestination;
+		/** The blend factor packed like a pixel */
+		private int _blendFactor;
+		/** The bits of a pixel that get written */
+		private int _writeMask;
+
+		/**
+		 * Decodes a blend state.
+		 * 
+		 * @param blendState
+		 *        The blend state, only its first target blend state is used.
+		 */
+		void set(BlendState blendState)
+		{
+			_colorFunction = blendState.getColorBlendFunction();
+			_alphaFunction = blendState.getAlphaBlendFunction();
+			_colorSource = blendState.getColorSourceBlend();
+			_colorDestination = blendState.getColorDestinationBlend();
+			_alphaSource = blendState.getAlphaSourceBlend();
+			_alphaDestination = blendState.getAlphaDestinationBlend();
+			_blendFactor = blendState.getBlendFactor().getPackedValue();
+
+			int channels = blendState.getColorWriteChannels().getValue();
+			_writeMask = ((channels & ColorWriteChannels.Red.getValue()) != 0 ? 0x000000FF : 0) |
+						 ((channels & ColorWriteChannels.Green.getValue()) != 0 ? 0x0000FF00 : 0) |
+						 ((channels & ColorWriteChannels.Blue.getValue()) != 0 ? 0x00FF0000 : 0) |
+						 ((channels & ColorWriteChannels.Alpha.getValue()) != 0 ? 0xFF000000 : 0);
+		}
+
+		/**
+		 * Blends a source color with a destination color.
+		 * 
+		 * @param source
+		 *        The packed source color.
+		 * @param dest
+		 *        The packed destination color.
+		 * @return The packed color to write to the render target.
+		 */
+		int blend(int source, int dest)
+		{
+			int srcA = source >>> 24;
+			int destA = dest >>> 24;
+
+			int result = 0;
+			for (int shift = 0; shift < 24; shift += 8)
+			{
+				int src = (source >>> shift) & 0xFF;
+				int dst = (dest >>> shift) & 0xFF;
+				int constant = (_blendFactor >>> shift) & 0xFF;
+				int srcTerm = mul255(src, factor(_colorSource, src, srcA, dst, destA, constant, false));
+				int dstTerm = mul255(dst, factor(_colorDestination, src, srcA, dst, destA, constant, false));
+				result |= combine(_colorFunction, src, srcTerm, dst, dstTerm) << shift;
+			}
+
+			int constantA = _blendFactor >>> 24;
+			int srcTerm = mul255(srcA, factor(_alphaSource, srcA, srcA, destA, destA, constantA, true));
+			int dstTerm = mul255(destA, factor(_alphaDestination, srcA, srcA, destA, destA, constantA, true));
+			result |= combine(_alphaFunction, srcA, srcTerm, destA, dstTerm) << 24;
+
+			return (result & _writeMask) | (dest & ~_writeMask);
+		}
+
+		/**
+		 * Returns the value of a blend factor for one channel, in the [0-255] range.
+		 */
+		private static int factor(Blend blend, int src, int srcA, int dest, int destA, int constant, boolean isAlpha)
+		{
+			switch (blend)
+			{
+				case One:						return 255;
+				case Zero:						return 0;
+				case SourceColor:				return src;
+				case InverseSourceColor:		return 255 - src;
+				case SourceAlpha:				return srcA;
+				case InverseSourceAlpha:		return 255 - srcA;
+				case DestinationColor:			return dest;
+				case InverseDestinationColor:	return 255 - dest;
+				case DestinationAlpha:			return destA;
+				case InverseDestinationAlpha:	return 255 - destA;
+				case BlendFactor:				return constant;
+				case InverseBlendFactor:		return 255 - constant;
+				case SourceAlphaSaturation:		return isAlpha ? 255 : Math.min(srcA, 255 - destA);
+				default:						return 255;
+			}
+		}
+
+		/**
+		 * Applies a blend function to the weighted source and destination terms of one channel.
+		 * 
+		 * <p>
+		 * NOTE: Like Direct3D and OpenGL, Min and Max ignore the blend factors.
+		 */
+		private static int combine(BlendFunction function, int src, int srcTerm, int dest, int destTerm)
+		{
+			switch (function)
+			{
+				case Subtract:
+					return Math.max(srcTerm - destTerm, 0);
+				case ReverseSubtract:
+					return Math.max(destTerm - srcTerm, 0);
+				case Max:
+					return Math.max(src, dest);
+				case Min:
+					return Math.min(src, dest);
+				case Add:
+				default:
+					return Math.min(srcTerm + destTerm, 255);
+			}
+		}
+	}
+
+	/**
+	 * A fill loop for the quads prepared by setupQuad(), implemented outside of this class so
+	 * each one can have a dedicated loop per state combination and depend on optional modules.
+	 */
+	interface FillKernel
+	{
+		/**
+		 * Fills the pixels covered by a quad using the sample and blend modes of the setup.
+		 * 
+		 * @param setup
+		 *        The values computed for the quad.
+		 * @param pixels
+		 *        The array of pixels to render into.
+		 * @param stride
+		 *        The width in pixels of a row of the render target.
+		 * @return {@code false} if the sample or blend mode is not supported and nothing was drawn.
+		 */
+		boolean fillQuad(QuadSetup setup, int[] pixels, int stride);
+	}
+}
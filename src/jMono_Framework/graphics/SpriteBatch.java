@@ -33,6 +33,22 @@ public class SpriteBatch extends GraphicsResource
 	Effect _effect;
 	boolean _beginCalled;
 
+	/** The list the draws are recorded into, between beginRecording() and endRecording() */
+	SpriteCommandList _recording;
+	SpriteSortMode _recordingSortMode;
+
+	/**
+	 * The distance in pixels a sprite must be from the visible region to be culled, which covers
+	 * the rounding of the clipping of the rasterizers.
+	 */
+	private static final float CullingMargin = 1.0f;
+
+	private boolean _offscreenCulling = true;
+	/** The region the sprites are visible in, as minX, minY, maxX and maxY, see updateVisibleBounds() */
+	private final float[] _visibleBounds = new float[4];
+	/** The corners of the bounds of the command list being drawn */
+	private final float[] _commandListCorners = new float[8];
+
 	Effect _spriteEffect;
 	private final EffectParameter _matrixTransform;
 	private final EffectPass _spritePass;
@@ -169,6 +185,9 @@ public class SpriteBatch extends GraphicsResource
 	 */
 	public void end()
 	{
+		if (_recording != null)
+			throw new IllegalStateException("End cannot be called while recording, EndRecording must be called instead.");
+
 		_beginCalled = false;
 
 		if (!(_sortMode.equals(SpriteSortMode.Immediate)))
@@ -177,6 +196,251 @@ public class SpriteBatch extends GraphicsResource
 		_batcher.drawBatch(_sortMode, _effect);
 	}
 
+	/**
+	 * Begins recording the sprites and text drawn into a {@link SpriteCommandList}, in the order
+	 * they are drawn.
+	 * 
+	 * @param commandList
+	 *        The list the sprites are added to.
+	 * @throws NullPointerException
+	 *         If {@code commandList} is null.
+	 * @throws IllegalStateException
+	 *         If called between {@link #begin()} and {@link #end()} or while already recording.
+	 * @see #beginRecording(SpriteCommandList, SpriteSortMode)
+	 */
+	public void beginRecording(SpriteCommandList commandList) throws IllegalStateException
+	{
+		beginRecording(commandList, SpriteSortMode.Deferred);
+	}
+
+	/**
+	 * Begins recording the sprites and text drawn into a {@link SpriteCommandList}.
+	 * 
+	 * <p>
+	 * Between this method and {@link #endRecording()} the draw calls are validated and their
+	 * sprites computed like in a batch, but they are added to the list instead of being drawn.
+	 * The states of the sprites are the ones of the batch the list is replayed into.
+	 * 
+	 * @param commandList
+	 *        The list the sprites are added to.
+	 * @param sortMode
+	 *        The order the sprites are kept in, they are sorted once when the recording ends.
+	 *        {@link SpriteSortMode#Immediate} keeps them in the order they are drawn, like
+	 *        {@link SpriteSortMode#Deferred}.
+	 * @throws NullPointerException
+	 *         If {@code commandList} is null.
+	 * @throws IllegalStateException
+	 *         If called between {@link #begin()} and {@link #end()} or while already recording.
+	 */
+	public void beginRecording(SpriteCommandList commandList, SpriteSortMode sortMode) throws IllegalStateException
+	{
+		if (commandList == null)
+			throw new NullPointerException("commandList");
+		if (_beginCalled)
+			throw new IllegalStateException("BeginRecording cannot be called until End or EndRecording has been successfully called.");
+
+		_recording = commandList;
+		_recordingSortMode = (sortMode == null) ? SpriteSortMode.Deferred : sortMode;
+		// NOTE: The sprites recorded are never flushed, they are kept until replayed.
+		_sortMode = SpriteSortMode.Deferred;
+		_beginCalled = true;
+	}
+
+	/**
+	 * Ends the recording of a {@link SpriteCommandList} and sorts its sprites.
+	 * 
+	 * @throws IllegalStateException
+	 *         If {@link #beginRecording(SpriteCommandList)} wasn't called.
+	 */
+	public void endRecording() throws IllegalStateException
+	{
+		if (_recording == null)
+			throw new IllegalStateException("EndRecording was called, but BeginRecording has not yet been called.");
+
+		_recording.finish(_recordingSortMode);
+		_recording = null;
+		_beginCalled = false;
+	}
+
+	/**
+	 * Draws the sprites of a {@link SpriteCommandList} in the current batch.
+	 * 
+	 * @param commandList
+	 *        The sprites to draw.
+	 * @see #draw(SpriteCommandList, Matrix)
+	 */
+	public void draw(SpriteCommandList commandList)
+	{
+		draw(commandList, null);
+	}
+
+	/**
+	 * Draws the sprites of a {@link SpriteCommandList} in the current batch, after the sprites
+	 * already drawn. They are copied without computing them again, and sorted with the other
+	 * sprites of the batch if its sort mode sorts them.
+	 * 
+	 * @param commandList
+	 *        The sprites to draw.
+	 * @param transformMatrix
+	 *        An optional matrix the corners of the sprites are transformed by, {@code null} to draw
+	 *        them where they were recorded.
+	 * @throws NullPointerException
+	 *         If {@code commandList} is null.
+	 * @throws IllegalStateException
+	 *         If called outside of {@link #begin()} and {@link #end()}, or while recording.
+	 */
+	public void draw(SpriteCommandList commandList, Matrix transformMatrix)
+	{
+		if (commandList == null)
+			throw new NullPointerException("commandList");
+		if (!_beginCalled || _recording != null)
+			throw new IllegalStateException(
+					"Draw was called, but Begin has not yet been called. Begin must be called successfully before you can call Draw.");
+
+		if (commandList.getCount() == 0)
+			return;
+
+		// NOTE: The sprites are only tested one by one when the list straddles the visible region.
+		float[] bounds = null;
+		if (_offscreenCulling)
+		{
+			updateVisibleBounds();
+			float[] corners = _commandListCorners;
+			commandList.getCorners(transformMatrix, corners);
+			if (SpriteBuffer.isOutside(corners, 0, _visibleBounds))
+			{
+				graphicsDevice._graphicsMetrics._offscreenSpriteCount += (long) commandList.getCount();
+				return;
+			}
+			if (!isInside(corners))
+				bounds = _visibleBounds;
+		}
+
+		int culledCount = _batcher.addAll(commandList._sprites, transformMatrix, bounds);
+		graphicsDevice._graphicsMetrics._offscreenSpriteCount += (long) culledCount;
+		flushIfNeeded();
+	}
+
+	/**
+	 * Returns whether sprites are dropped when they are entirely outside of the render target or
+	 * of the scissor rectangle.
+	 * 
+	 * @return {@code true} if the offscreen sprites are culled, {@code false} otherwise.
+	 */
+	public boolean isOffscreenCulling()
+	{
+		return _offscreenCulling;
+	}
+
+	/**
+	 * Sets whether sprites are dropped when they are entirely outside of the render target or of
+	 * the scissor rectangle, counted by {@link GraphicsMetrics#getOffscreenSpriteCount()}.
+	 * 
+	 * <p>
+	 * The bounds of each sprite, rotation included, are tested when it is drawn, so the sprites
+	 * that can't cover any pixel never reach the batch. The sprites of a
+	 * {@link SpriteCommandList} are tested with their transform matrix, all at once when the list
+	 * is entirely inside or outside of the visible region. The render target and the scissor
+	 * rectangle are the ones of the device when the sprite is drawn, and the scissor rectangle is
+	 * only used if the rasterizer state of the batch enables the scissor test.
+	 * 
+	 * @param value
+	 *        {@code true} to cull the offscreen sprites, the default, {@code false} to batch all the
+	 *        sprites, like when the render target or the scissor rectangle changes before
+	 *        {@link #end()} is called.
+	 */
+	public void setOffscreenCulling(boolean value)
+	{
+		_offscreenCulling = value;
+	}
+
+	/**
+	 * Updates {@link #_visibleBounds} from the current render target and scissor rectangle,
+	 * extended by the {@link #CullingMargin}.
+	 */
+	private void updateVisibleBounds()
+	{
+		float[] bounds = _visibleBounds;
+		graphicsDevice.getSpriteBounds(_rasterizerState.getScissorTestEnable(), bounds);
+		bounds[0] -= CullingMargin;
+		bounds[1] -= CullingMargin;
+		bounds[2] += CullingMargin;
+		bounds[3] += CullingMargin;
+	}
+
+	/**
+	 * Returns whether corners, in the layout of the ones of a sprite, are all inside of
+	 * {@link #_visibleBounds}.
+	 */
+	private boolean isInside(float[] corners)
+	{
+		float[] bounds = _visibleBounds;
+		for (int i = 0; i < 8; i += 2)
+		{
+			if (corners[i + 0] < bounds[0] || corners[i + 1] < bounds[1] || corners[i + 0] > bounds[2] || corners[i + 1] > bounds[3])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether a sprite is entirely outside of {@link #_visibleBounds}, from the parameters
+	 * of {@link SpriteBatchItem#set(float, float, float, float, float, float, float, float, Color, Vector2, Vector2)}.
+	 */
+	private boolean isOffscreen(float x, float y, float dx, float dy, float w, float h, float sin, float cos)
+	{
+		updateVisibleBounds();
+
+		// NOTE: The sprite is the parallelogram spanned by its top-left corner and its two axes.
+		float originX = x + dx * cos - dy * sin;
+		float originY = y + dx * sin + dy * cos;
+		float xAxisX = w * cos;
+		float xAxisY = w * sin;
+		float yAxisX = -h * sin;
+		float yAxisY = h * cos;
+		float minX = originX + Math.min(xAxisX, 0.0f) + Math.min(yAxisX, 0.0f);
+		float minY = originY + Math.min(xAxisY, 0.0f) + Math.min(yAxisY, 0.0f);
+		float maxX = originX + Math.max(xAxisX, 0.0f) + Math.max(yAxisX, 0.0f);
+		float maxY = originY + Math.max(xAxisY, 0.0f) + Math.max(yAxisY, 0.0f);
+
+		float[] bounds = _visibleBounds;
+		return maxX < bounds[0] || maxY < bounds[1] || minX > bounds[2] || minY > bounds[3];
+	}
+
+	/**
+	 * Returns whether the sprites are stored in flat arrays until they are drawn.
+	 * 
+	 * @return {@code true} if the storage is packed, {@code false} otherwise.
+	 */
+	public boolean isPackedStorage()
+	{
+		return _batcher.isPackedStorage();
+	}
+
+	/**
+	 * Sets whether the sprites are stored in flat arrays until they are drawn.
+	 * 
+	 * <p>
+	 * By default each sprite is stored in a {@link SpriteBatchItem} made of four vertex objects,
+	 * which are reused from batch to batch. When the storage is packed, the corners, texture
+	 * coordinates, colors, depths and textures of the sprites are stored in flat arrays of
+	 * primitives instead, which the batch sorts through an array of indices and the software
+	 * renderer reads directly. It is faster for batches of thousands of sprites, since there are no
+	 * objects to follow or to write references into. Both storages draw the same pixels.
+	 * 
+	 * @param value
+	 *        {@code true} to store the sprites in flat arrays, {@code false} to store them in batch
+	 *        items, the default.
+	 * @throws IllegalStateException
+	 *         If called between {@link #begin()} and {@link #end()}.
+	 */
+	public void setPackedStorage(boolean value) throws IllegalStateException
+	{
+		if (_beginCalled)
+			throw new IllegalStateException("The storage cannot change between Begin and End.");
+		_batcher.setPackedStorage(value);
+	}
+
 	void setup()
 	{
 		GraphicsDevice gd = graphicsDevice;
@@ -539,14 +803,22 @@ public class SpriteBatch extends GraphicsResource
 			float depth,
 			boolean autoFlush)
 	{
-		SpriteBatchItem item = _batcher.createBatchItem();
-
-		item.depth = depth;
-		item.texture = texture;
+		float sin = (float) Math.sin(rotation);
+		float cos = (float) Math.cos(rotation);
+		if (_offscreenCulling && _recording == null &&
+			isOffscreen(destinationRectangle.x, destinationRectangle.y, -origin.x, -origin.y,
+						destinationRectangle.z, destinationRectangle.w, sin, cos))
+		{
+			graphicsDevice._graphicsMetrics._offscreenSpriteCount++;
+			return;
+		}
 
 		if (sourceRectangle != null)
 		{
-			_tempRect = new Rectangle(sourceRectangle);
+			_tempRect.x = sourceRectangle.x;
+			_tempRect.y = sourceRectangle.y;
+			_tempRect.width = sourceRectangle.width;
+			_tempRect.height = sourceRectangle.height;
 		}
 		else
 		{
@@ -556,6 +828,16 @@ public class SpriteBatch extends GraphicsResource
 			_tempRect.height = texture.height;
 		}
 
+		// NOTE: The regions of a TextureAtlas are drawn from their page, so the sprites of the same
+		//       page don't flush the batch and sort together.
+		Texture2D atlasPage = texture.getAtlasPage();
+		if (atlasPage != null)
+		{
+			_tempRect.x += texture.getAtlasX();
+			_tempRect.y += texture.getAtlasY();
+			texture = atlasPage;
+		}
+
 		_texCoordTL.x = (_tempRect.x / (float) texture.width);
 		_texCoordTL.y = (_tempRect.y / (float) texture.height);
 		_texCoordBR.x = (_tempRect.x + _tempRect.width) / (float) texture.width;
@@ -574,16 +856,55 @@ public class SpriteBatch extends GraphicsResource
 			_texCoordTL.x = temp;
 		}
 
-		item.set(destinationRectangle.x,
-				 destinationRectangle.y,
-				 -origin.x, -origin.y,
-				 destinationRectangle.z,
-				 destinationRectangle.w,
-				 (float) Math.sin(rotation),
-				 (float) Math.cos(rotation),
-				 color,
-				 _texCoordTL,
-				_texCoordBR);
+		if (_recording != null)
+		{
+			_recording._sprites.add(texture,
+									depth,
+									destinationRectangle.x,
+									destinationRectangle.y,
+									-origin.x, -origin.y,
+									destinationRectangle.z,
+									destinationRectangle.w,
+									sin,
+									cos,
+									color,
+									_texCoordTL,
+									_texCoordBR);
+			return;
+		}
+
+		// NOTE: In Immediate mode the sprites are drawn on the spot, without going through the
+		//       batcher, unless a custom effect has passes to apply. The glyphs of a text are still
+		//       batched, they share their texture and are flushed together.
+		if (autoFlush && _effect == null && _sortMode == SpriteSortMode.Immediate)
+		{
+			graphicsDevice.drawSprite(texture,
+									  depth,
+									  destinationRectangle.x,
+									  destinationRectangle.y,
+									  -origin.x, -origin.y,
+									  destinationRectangle.z,
+									  destinationRectangle.w,
+									  sin,
+									  cos,
+									  color.getPackedValue(),
+									  _texCoordTL.x, _texCoordTL.y,
+									  _texCoordBR.x, _texCoordBR.y);
+			return;
+		}
+
+		_batcher.addItem(texture,
+						 depth,
+						 destinationRectangle.x,
+						 destinationRectangle.y,
+						 -origin.x, -origin.y,
+						 destinationRectangle.z,
+						 destinationRectangle.w,
+						 sin,
+						 cos,
+						 color,
+						 _texCoordTL,
+						 _texCoordBR);
 
 		if (autoFlush)
 		{
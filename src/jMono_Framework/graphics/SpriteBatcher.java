@@ -3,13 +3,23 @@ package jMono_Framework.graphics;
 import jMono_Framework.graphics.effect.Effect;
 import jMono_Framework.graphics.effect.EffectPass;
 import jMono_Framework.graphics.effect.EffectPassCollection;
+import jMono_Framework.graphics.states.BlendState;
+import jMono_Framework.graphics.states.DepthStencilState;
+import jMono_Framework.graphics.states.SamplerState;
+import jMono_Framework.graphics.states.TextureAddressMode;
+import jMono_Framework.graphics.states.TextureFilter;
 import jMono_Framework.graphics.vertices.PrimitiveType;
 import jMono_Framework.graphics.vertices.VertexPositionColorTexture;
 
+import jMono_Framework.Color;
+import jMono_Framework.math.Matrix;
+import jMono_Framework.math.Vector2;
+
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Queue;
 
 /**
@@ -41,6 +51,11 @@ public class SpriteBatcher
 	 */
 	private final int InitialVertexArraySize = 256;
 
+	/**
+	 * The maximum number of opaque rectangles the occlusion pass tests the sprites against.
+	 */
+	private static final int MaxOccluders = 16;
+
 	/**
 	 * The list of batch items to process.
 	 */
@@ -63,6 +78,33 @@ public class SpriteBatcher
 
 	private VertexPositionColorTexture[] _vertexArray;
 
+	/**
+	 * The opaque rectangles found by the occlusion pass, packed as minX, minY, maxX, maxY.
+	 */
+	private final float[] _occluders = new float[MaxOccluders * 4];
+	/** Whether the occlusion pass culls the sprites whatever their texels, set by {@link #canCullOccludedItems()} */
+	private boolean _hidesAnyTexel;
+	/** Whether the linear filter samples the whole texture, set by {@link #canCullOccludedItems()} */
+	private boolean _samplesWholeTexture;
+
+	/**
+	 * Whether the sprites are stored in {@link #_sprites} instead of batch items.
+	 */
+	private boolean _packedStorage;
+	private final SpriteBuffer _sprites = new SpriteBuffer();
+	/** The corners of the sprite of a command list being added to the batch items */
+	private final float[] _corners = new float[8];
+	/** The indices of the sprites in drawing order */
+	private int[] _order = new int[InitialBatchSize];
+
+	private final RadixSort _radixSort = new RadixSort();
+	/** The sort key of each sprite */
+	private int[] _sortKeys = new int[InitialBatchSize];
+	/** The sorting key of each texture of {@link #_sprites} */
+	private int[] _textureSortingKeys = new int[0];
+	/** The batch items in drawing order, while they are put back into the list */
+	private SpriteBatchItem[] _sortedItems = new SpriteBatchItem[0];
+
 	public SpriteBatcher(GraphicsDevice device)
 	{
 		_device = device;
@@ -73,6 +115,48 @@ public class SpriteBatcher
 		ensureArrayCapacity(InitialBatchSize);
 	}
 
+	public boolean isPackedStorage()
+	{
+		return _packedStorage;
+	}
+
+	/**
+	 * Sets whether the sprites are stored in flat arrays rather than in {@link SpriteBatchItem}s,
+	 * see {@link SpriteBatch#setPackedStorage(boolean)}.
+	 * 
+	 * @param value
+	 *        {@code true} to store the sprites in flat arrays, {@code false} to store them in batch
+	 *        items.
+	 * @throws IllegalStateException
+	 *         If sprites are waiting to be drawn.
+	 */
+	public void setPackedStorage(boolean value)
+	{
+		if (_batchItemList.size() > 0 || _sprites.count > 0)
+			throw new IllegalStateException("The storage can't change while sprites are waiting to be drawn.");
+		_packedStorage = value;
+	}
+
+	/**
+	 * Adds a sprite to the batch, in a batch item or in the flat arrays depending on the storage.
+	 * 
+	 * @see SpriteBatchItem#set(float, float, float, float, float, float, float, float, Color, Vector2, Vector2)
+	 */
+	public void addItem(Texture2D texture, float depth, float x, float y, float dx, float dy, float w, float h,
+						float sin, float cos, Color color, Vector2 texCoordTL, Vector2 texCoordBR)
+	{
+		if (_packedStorage)
+		{
+			_sprites.add(texture, depth, x, y, dx, dy, w, h, sin, cos, color, texCoordTL, texCoordBR);
+			return;
+		}
+
+		SpriteBatchItem item = createBatchItem();
+		item.texture = texture;
+		item.depth = depth;
+		item.set(x, y, dx, dy, w, h, sin, cos, color, texCoordTL, texCoordBR);
+	}
+
 	/**
 	 * Create an instance of SpriteBatchItem if there is none available in the free item queue.
 	 * Otherwise, a previously allocated SpriteBatchItem is reused.
@@ -108,8 +192,7 @@ public class SpriteBatcher
 		int start = 0;
 		if (_index != null)
 		{
-			// _index.CopyTo(newIndex, 0);
-			Arrays.copyOf(newIndex, _index.length);
+			System.arraycopy(_index, 0, newIndex, 0, _index.length);
 			start = _index.length / 6;
 		}
 		for (int i = start; i < numBatchItems; ++i)
@@ -139,45 +222,110 @@ public class SpriteBatcher
 	}
 
 	/**
-	 * Comparison of the underlying Texture objects for each given SpriteBatchitem.
+	 * Adds the sprites of a {@link SpriteCommandList} to the batch.
 	 * 
-	 * @param a
-	 *        First SpriteBatchItem used in the comparison.
-	 * @param b
-	 *        Second SpriteBatchItem used in the comparison.
-	 * @return 0 if they are equal, -1 or 1 otherwise.
+	 * <p>
+	 * NOTE: The packed storage copies the arrays of the list, the batch items are filled from them
+	 * one by one.
+	 * 
+	 * @param sprites
+	 *        The sprites of the list.
+	 * @param transform
+	 *        The matrix the corners are transformed by, or {@code null}.
+	 * @param bounds
+	 *        The bounds the sprites entirely outside of are dropped, or {@code null} to add them
+	 *        all, see {@link SpriteBuffer#isOutside}.
+	 * @return The number of sprites dropped.
 	 */
-	static int compareTexture(SpriteBatchItem a, SpriteBatchItem b)
+	int addAll(SpriteBuffer sprites, Matrix transform, float[] bounds)
 	{
-		return Integer.compare(a.texture.getSortingKey(), b.texture.getSortingKey());
+		if (_packedStorage)
+			return _sprites.addAll(sprites, transform, bounds);
+
+		float[] corners = _corners;
+		float[] texCoords = sprites.texCoords;
+		int culledCount = 0;
+		for (int i = 0; i < sprites.count; ++i)
+		{
+			SpriteBuffer.transformCorners(sprites.positions, i * 8, transform, corners, 0);
+			if (bounds != null && SpriteBuffer.isOutside(corners, 0, bounds))
+			{
+				++culledCount;
+				continue;
+			}
+
+			SpriteBatchItem item = createBatchItem();
+			item.texture = sprites.textures[sprites.textureIds[i]];
+			item.depth = sprites.depths[i];
+			Color color = new Color(sprites.colors[i]);
+			int t = i * 4;
+			setVertex(item.vertexTL, corners[0], corners[1], item.depth, color, texCoords[t + 0], texCoords[t + 1]);
+			setVertex(item.vertexTR, corners[2], corners[3], item.depth, color, texCoords[t + 2], texCoords[t + 1]);
+			setVertex(item.vertexBL, corners[4], corners[5], item.depth, color, texCoords[t + 0], texCoords[t + 3]);
+			setVertex(item.vertexBR, corners[6], corners[7], item.depth, color, texCoords[t + 2], texCoords[t + 3]);
+		}
+		return culledCount;
+	}
+
+	private static void setVertex(VertexPositionColorTexture vertex, float x, float y, float depth, Color color, float u, float v)
+	{
+		vertex.position.x = x;
+		vertex.position.y = y;
+		vertex.position.z = depth;
+		vertex.color = color;
+		vertex.textureCoordinate.x = u;
+		vertex.textureCoordinate.y = v;
 	}
 
 	/**
-	 * Compares the Depth of a against b returning -1 if a is less than b,
-	 * 0 if equal, and 1 if a is greater than b. The test uses Float.compare(float, float)
-	 * @param a
-	 *        First SpriteBatchItem used in the comparison.
-	 * @param b
-	 *        Second SpriteBatchItem used in the comparison.
-	 * @return -1 if a is less than b, 0 if equal, and 1 if a is greater than b.
+	 * Returns the sort key of a sprite for a sort mode.
+	 * 
+	 * @param sortMode
+	 *        {@link SpriteSortMode#Texture}, {@link SpriteSortMode#FrontToBack} or
+	 *        {@link SpriteSortMode#BackToFront}.
+	 * @param textureSortingKey
+	 *        The sorting key of the texture of the sprite.
+	 * @param depth
+	 *        The layer depth of the sprite.
+	 * @return The key, the sprites are drawn from the smallest to the largest.
 	 */
-	static int compareDepth(SpriteBatchItem a, SpriteBatchItem b)
+	static int getSortKey(SpriteSortMode sortMode, int textureSortingKey, float depth)
 	{
-		return Float.compare(a.depth, b.depth);
+		switch (sortMode)
+		{
+			case Texture:
+				return textureSortingKey;
+			case FrontToBack:
+				return RadixSort.getFloatKey(depth);
+			case BackToFront:
+				// NOTE: Inverting the bits reverses the order of the keys.
+				return ~RadixSort.getFloatKey(depth);
+			default:
+				return 0;
+		}
 	}
 
 	/**
-	 * Implements the opposite of compareDepth, where b is compared against a.
-	 * 
-	 * @param a
-	 *        First SpriteBatchItem used in the comparison.
-	 * @param b
-	 *        Second SpriteBatchItem used in the comparison.
-	 * @return -1 if b is less than a, 0 if equal, and 1 if b is greater than a.
+	 * Returns whether the sprites are sorted with a sort mode, otherwise they are drawn in the
+	 * order they were added.
+	 */
+	static boolean isSorted(SpriteSortMode sortMode)
+	{
+		return sortMode == SpriteSortMode.Texture || sortMode == SpriteSortMode.FrontToBack ||
+			   sortMode == SpriteSortMode.BackToFront;
+	}
+
+	/**
+	 * Makes sure {@link #_order} and {@link #_sortKeys} hold at least a number of sprites.
 	 */
-	static int compareReverseDepth(SpriteBatchItem a, SpriteBatchItem b)
+	private void ensureSortCapacity(int count)
 	{
-		return Float.compare(b.depth, a.depth);
+		if (_order.length < count)
+		{
+			int capacity = Math.max(count, _order.length * 2);
+			_order = new int[capacity];
+			_sortKeys = new int[capacity];
+		}
 	}
 
 	/**
@@ -191,25 +339,22 @@ public class SpriteBatcher
 	 */
 	public void drawBatch(SpriteSortMode sortMode, Effect effect)
 	{
+		if (_packedStorage)
+		{
+			drawSprites(sortMode, effect);
+			return;
+		}
+
 		// nothing to do
 		if (_batchItemList.size() == 0)
 			return;
 
 		// sort the batch items
-		switch (sortMode)
-		{
-			case Texture:
-				_batchItemList.sort(SpriteBatcher::compareTexture);
-				break;
-			case FrontToBack:
-				_batchItemList.sort(SpriteBatcher::compareDepth);
-				break;
-			case BackToFront:
-				_batchItemList.sort(SpriteBatcher::compareReverseDepth);
-				break;
-			default:
-				break;
-		}
+		if (isSorted(sortMode))
+			sortItems(sortMode);
+
+		// Drop the sprites that are entirely hidden behind the opaque sprites drawn after them.
+		_device._graphicsMetrics._culledSpriteCount += (long) cullOccludedItems();
 
 		// Determine how many iterations through the drawing code we need to make
 		int batchIndex = 0;
@@ -265,6 +410,356 @@ public class SpriteBatcher
 		_batchItemList.clear();
 	}
 
+	/**
+	 * Removes the batch items whose quad is entirely covered by the opaque, axis-aligned sprites
+	 * drawn after them.
+	 * 
+	 * <p>
+	 * The items are walked from the last one drawn to the first one while collecting the opaque
+	 * rectangles. A sprite is an occluder when the blend state replaces the render target with its
+	 * colors, which needs an alpha of 255 for both its tint and the texels of its source rectangle
+	 * unless the blend state is opaque. Only the {@link #MaxOccluders} largest occluders are kept.
+	 * 
+	 * <p>
+	 * NOTE: Nothing is culled when the depth test is enabled, since a later sprite could then fail
+	 * it and leave the earlier one visible.
+	 * 
+	 * @return The number of items removed.
+	 */
+	private int cullOccludedItems()
+	{
+		if (!canCullOccludedItems())
+			return 0;
+
+		int occluderCount = 0;
+		int culledCount = 0;
+		for (int i = _batchItemList.size() - 1; i >= 0; --i)
+		{
+			SpriteBatchItem item = _batchItemList.get(i);
+			VertexPositionColorTexture tl = item.vertexTL;
+			VertexPositionColorTexture tr = item.vertexTR;
+			VertexPositionColorTexture bl = item.vertexBL;
+			VertexPositionColorTexture br = item.vertexBR;
+			float minX = Math.min(Math.min(tl.position.x, tr.position.x), Math.min(bl.position.x, br.position.x));
+			float minY = Math.min(Math.min(tl.position.y, tr.position.y), Math.min(bl.position.y, br.position.y));
+			float maxX = Math.max(Math.max(tl.position.x, tr.position.x), Math.max(bl.position.x, br.position.x));
+			float maxY = Math.max(Math.max(tl.position.y, tr.position.y), Math.max(bl.position.y, br.position.y));
+
+			if (isOccluded(minX, minY, maxX, maxY, occluderCount))
+			{
+				// Release the texture and return the item to the queue.
+				item.texture = null;
+				_freeBatchItemQueue.add(item);
+				_batchItemList.set(i, null);
+				++culledCount;
+				continue;
+			}
+
+			boolean isAxisAligned = tl.position.y == tr.position.y && bl.position.y == br.position.y &&
+									tl.position.x == bl.position.x && tr.position.x == br.position.x;
+			if (!isAxisAligned || tl.color.getAlpha() != 255 || (maxX - minX) * (maxY - minY) <= 0.0f)
+				continue;
+
+			if (!_hidesAnyTexel && !isOpaque(item.texture, tl.textureCoordinate.x, tl.textureCoordinate.y,
+											br.textureCoordinate.x, br.textureCoordinate.y))
+				continue;
+
+			occluderCount = addOccluder(minX, minY, maxX, maxY, occluderCount);
+		}
+
+		if (culledCount > 0)
+			_batchItemList.removeIf(Objects::isNull);
+		return culledCount;
+	}
+
+	/**
+	 * Removes the sprites of {@link #_order} hidden behind the opaque sprites drawn after them, see
+	 * {@link #cullOccludedItems()}.
+	 * 
+	 * @param count
+	 *        The number of sprites in {@link #_order}.
+	 * @return The number of sprites removed.
+	 */
+	private int cullOccludedSprites(int count)
+	{
+		if (!canCullOccludedItems())
+			return 0;
+
+		SpriteBuffer sprites = _sprites;
+		float[] positions = sprites.positions;
+		float[] texCoords = sprites.texCoords;
+		int[] order = _order;
+		int occluderCount = 0;
+		int culledCount = 0;
+		for (int i = count - 1; i >= 0; --i)
+		{
+			int sprite = order[i];
+			int p = sprite * 8;
+			float tlX = positions[p + 0], tlY = positions[p + 1];
+			float trX = positions[p + 2], trY = positions[p + 3];
+			float blX = positions[p + 4], blY = positions[p + 5];
+			float brX = positions[p + 6], brY = positions[p + 7];
+			float minX = Math.min(Math.min(tlX, trX), Math.min(blX, brX));
+			float minY = Math.min(Math.min(tlY, trY), Math.min(blY, brY));
+			float maxX = Math.max(Math.max(tlX, trX), Math.max(blX, brX));
+			float maxY = Math.max(Math.max(tlY, trY), Math.max(blY, brY));
+
+			if (isOccluded(minX, minY, maxX, maxY, occluderCount))
+			{
+				order[i] = -1;
+				++culledCount;
+				continue;
+			}
+
+			boolean isAxisAligned = tlY == trY && blY == brY && tlX == blX && trX == brX;
+			if (!isAxisAligned || (sprites.colors[sprite] >>> 24) != 255 || (maxX - minX) * (maxY - minY) <= 0.0f)
+				continue;
+
+			int t = sprite * 4;
+			if (!_hidesAnyTexel && !isOpaque(sprites.textures[sprites.textureIds[sprite]], texCoords[t + 0], texCoords[t + 1],
+											texCoords[t + 2], texCoords[t + 3]))
+				continue;
+
+			occluderCount = addOccluder(minX, minY, maxX, maxY, occluderCount);
+		}
+
+		if (culledCount > 0)
+		{
+			int kept = 0;
+			for (int i = 0; i < count; ++i)
+			{
+				if (order[i] >= 0)
+					order[kept++] = order[i];
+			}
+		}
+		return culledCount;
+	}
+
+	/**
+	 * Returns whether the current states let the occlusion pass cull sprites, and sets
+	 * {@link #_hidesAnyTexel} and {@link #_samplesWholeTexture} for it.
+	 */
+	private boolean canCullOccludedItems()
+	{
+		BlendState blendState = _device.getBlendState();
+		_hidesAnyTexel = SoftwareRasterizer.hidesDestination(blendState);
+		if (!_hidesAnyTexel && !SoftwareRasterizer.hidesDestinationWithOpaqueTexels(blendState))
+			return false;
+
+		DepthStencilState depthStencilState = _device.getDepthStencilState();
+		if (depthStencilState != null && depthStencilState.getDepthBufferEnable())
+			return false;
+
+		// NOTE: The linear filter wraps around the whole texture, not just the source rectangle.
+		SamplerState samplerState = _device.getSamplerStates().getSamplerStateCollection(0);
+		_samplesWholeTexture = samplerState != null &&
+							   samplerState.getFilter() != TextureFilter.Point &&
+							   samplerState.getAddressU() == TextureAddressMode.Wrap;
+		return true;
+	}
+
+	/**
+	 * Returns whether a rectangle is entirely covered by one of the occluders.
+	 */
+	private boolean isOccluded(float minX, float minY, float maxX, float maxY, int occluderCount)
+	{
+		float[] occluders = _occluders;
+		for (int j = 0; j < occluderCount * 4; j += 4)
+		{
+			if (minX >= occluders[j + 0] && minY >= occluders[j + 1] &&
+				maxX <= occluders[j + 2] && maxY <= occluders[j + 3])
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the texels a sprite samples are all opaque.
+	 */
+	private boolean isOpaque(Texture2D texture, float texCoordTLX, float texCoordTLY, float texCoordBRX, float texCoordBRY)
+	{
+		int srcStartX = (int) (texCoordTLX * texture.width + 0.5f);
+		int srcStartY = (int) (texCoordTLY * texture.height + 0.5f);
+		int srcEndX = (int) (texCoordBRX * texture.width + 0.5f);
+		int srcEndY = (int) (texCoordBRY * texture.height + 0.5f);
+		// NOTE: The mip levels blend the texels around the source rectangle in.
+		return (_samplesWholeTexture || texture.getLevelCount() > 1) ?
+				texture.isOpaque(0, 0, texture.width, texture.height) :
+				texture.isOpaque(Math.min(srcStartX, srcEndX), Math.min(srcStartY, srcEndY),
+								 Math.max(srcStartX, srcEndX), Math.max(srcStartY, srcEndY));
+	}
+
+	/**
+	 * Adds an occluder, replacing the smallest one when they are all used.
+	 * 
+	 * @return The number of occluders.
+	 */
+	private int addOccluder(float minX, float minY, float maxX, float maxY, int occluderCount)
+	{
+		// Keep the largest occluders, they are the ones most likely to hide the next sprites.
+		float[] occluders = _occluders;
+		int slot = occluderCount;
+		if (occluderCount == MaxOccluders)
+		{
+			float area = (maxX - minX) * (maxY - minY);
+			slot = -1;
+			for (int j = 0; j < MaxOccluders * 4; j += 4)
+			{
+				float occluderArea = (occluders[j + 2] - occluders[j + 0]) * (occluders[j + 3] - occluders[j + 1]);
+				if (occluderArea < area)
+				{
+					area = occluderArea;
+					slot = j / 4;
+				}
+			}
+			if (slot < 0)
+				return occluderCount;
+		}
+		else
+		{
+			++occluderCount;
+		}
+		occluders[slot * 4 + 0] = minX;
+		occluders[slot * 4 + 1] = minY;
+		occluders[slot * 4 + 2] = maxX;
+		occluders[slot * 4 + 3] = maxY;
+		return occluderCount;
+	}
+
+	/**
+	 * Draws the sprites stored in {@link #_sprites}, the packed counterpart of
+	 * {@link #drawBatch(SpriteSortMode, Effect)}. The sprites are sorted through {@link #_order}
+	 * and each run of sprites sharing a texture is handed to the device in one draw.
+	 */
+	private void drawSprites(SpriteSortMode sortMode, Effect effect)
+	{
+		SpriteBuffer sprites = _sprites;
+		int count = sprites.count;
+		if (count == 0)
+			return;
+
+		sortSprites(sortMode, count);
+
+		// Drop the sprites that are entirely hidden behind the opaque sprites drawn after them.
+		int culledCount = cullOccludedSprites(count);
+		_device._graphicsMetrics._culledSpriteCount += (long) culledCount;
+		count -= culledCount;
+
+		_device._graphicsMetrics._spriteCount += (long) count;
+
+		int[] order = _order;
+		int[] textureIds = sprites.textureIds;
+		int start = 0;
+		while (start < count)
+		{
+			int textureId = textureIds[order[start]];
+			int end = start + 1;
+			while (end < count && textureIds[order[end]] == textureId)
+				++end;
+
+			Texture2D texture = sprites.textures[textureId];
+			_device.getTextures().setTexture(0, texture);
+			flushSprites(start, end, effect, texture);
+			start = end;
+		}
+		sprites.clear();
+	}
+
+	/**
+	 * Sorts the batch items with the {@link RadixSort}, which gives the order of the items and
+	 * then puts them back into the list in that order.
+	 */
+	private void sortItems(SpriteSortMode sortMode)
+	{
+		List<SpriteBatchItem> items = _batchItemList;
+		int count = items.size();
+		ensureSortCapacity(count);
+		int[] keys = _sortKeys;
+		for (int i = 0; i < count; ++i)
+		{
+			SpriteBatchItem item = items.get(i);
+			keys[i] = getSortKey(sortMode, item.texture.getSortingKey(), item.depth);
+		}
+
+		int[] order = _order;
+		_radixSort.sort(keys, count, order);
+
+		if (_sortedItems.length < count)
+			_sortedItems = new SpriteBatchItem[Math.max(count, _sortedItems.length * 2)];
+		SpriteBatchItem[] sortedItems = _sortedItems;
+		for (int i = 0; i < count; ++i)
+			sortedItems[i] = items.get(order[i]);
+		for (int i = 0; i < count; ++i)
+			items.set(i, sortedItems[i]);
+		Arrays.fill(sortedItems, 0, count, null);
+	}
+
+	/**
+	 * Fills {@link #_order} with the indices of the sprites of {@link #_sprites} in drawing order,
+	 * sorted with the {@link RadixSort}.
+	 */
+	private void sortSprites(SpriteSortMode sortMode, int count)
+	{
+		ensureSortCapacity(count);
+		int[] order = _order;
+		if (!isSorted(sortMode))
+		{
+			for (int i = 0; i < count; ++i)
+				order[i] = i;
+			return;
+		}
+
+		SpriteBuffer sprites = _sprites;
+		if (_textureSortingKeys.length < sprites.textureCount)
+			_textureSortingKeys = new int[sprites.textures.length];
+		int[] textureSortingKeys = _textureSortingKeys;
+		for (int i = 0; i < sprites.textureCount; ++i)
+			textureSortingKeys[i] = sprites.textures[i].getSortingKey();
+
+		int[] keys = _sortKeys;
+		int[] textureIds = sprites.textureIds;
+		float[] depths = sprites.depths;
+		for (int i = 0; i < count; ++i)
+			keys[i] = getSortKey(sortMode, textureSortingKeys[textureIds[i]], depths[i]);
+
+		_radixSort.sort(keys, count, order);
+	}
+
+	/**
+	 * Sends a run of sprites sharing a texture to the graphics device, the packed counterpart of
+	 * {@link #flushVertexArray(int, int, Effect, Texture)}.
+	 * 
+	 * @param start
+	 *        The index of the first sprite in {@link #_order}.
+	 * @param end
+	 *        The index after the last sprite in {@link #_order}.
+	 * @param effect
+	 *        The custom effect to apply to the sprites.
+	 * @param texture
+	 *        The texture of the sprites.
+	 */
+	private void flushSprites(int start, int end, Effect effect, Texture texture)
+	{
+		if (effect != null)
+		{
+			EffectPassCollection passes = effect.currentTechnique.getPasses();
+			for (EffectPass pass : passes)
+			{
+				pass.apply();
+
+				// Whatever happens in pass.Apply, make sure the texture being drawn
+				// ends up in Textures[0].
+				_device.getTextures().setTexture(0, texture);
+
+				_device.drawSprites(_sprites, _order, start, end);
+			}
+		}
+		else
+		{
+			_device.drawSprites(_sprites, _order, start, end);
+		}
+	}
+
 	/**
 	 * Sends the triangle list to the graphics device. Here is where the actual drawing starts.
 	 * 
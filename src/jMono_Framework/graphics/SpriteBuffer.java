@@ -0,0 +1,280 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.Color;
+import jMono_Framework.math.Matrix;
+import jMono_Framework.math.Vector2;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Stores the sprites of a batch in flat arrays, one entry per sprite, for the
+ * {@link SpriteBatcher} in packed mode, see {@link SpriteBatch#setPackedStorage(boolean)}.
+ *
+ * <p>
+ * A {@link SpriteBatchItem} is made of four vertices, each with its own position, color and
+ * texture coordinate objects, which the batcher and the quad fill loops chase for every sprite.
+ * Here the sprites are only primitives, the textures are replaced by their index in the table of
+ * the textures of the batch, and the arrays grow geometrically so they are allocated once for the
+ * largest batch drawn.
+ *
+ * <p>
+ * NOTE: The corners are computed exactly like {@link SpriteBatchItem#set}, so both storages draw
+ * the same pixels. The color is read when the sprite is added, not when the batch is drawn.
+ *
+ * @author Eric
+ *
+ */
+final class SpriteBuffer
+{
+	/** Initialization size of the arrays, in sprites */
+	private static final int InitialCapacity = 256;
+
+	/** The number of sprites stored */
+	int count;
+
+	/** The corners of each sprite, top-left, top-right, bottom-left and bottom-right, 8 floats per sprite */
+	float[] positions = new float[InitialCapacity * 8];
+	/** The texture coordinates of the top-left and bottom-right corners, 4 floats per sprite */
+	float[] texCoords = new float[InitialCapacity * 4];
+	/** The packed color of each sprite */
+	int[] colors = new int[InitialCapacity];
+	/** The layer depth of each sprite */
+	float[] depths = new float[InitialCapacity];
+	/** The index of the texture of each sprite in {@link #textures} */
+	int[] textureIds = new int[InitialCapacity];
+
+	/** The textures of the batch, in the order they were first drawn */
+	Texture2D[] textures = new Texture2D[16];
+	int textureCount;
+
+	private final IdentityHashMap<Texture2D, Integer> _textureIds = new IdentityHashMap<Texture2D, Integer>();
+	/** The texture of the last sprite added and its id, most sprites share the texture of the previous one */
+	private Texture2D _lastTexture;
+	private int _lastTextureId;
+	/** The ids in this buffer of the textures of the buffer being added, see {@link #addAll} */
+	private int[] _textureIdMap = new int[16];
+
+	/**
+	 * Adds a sprite, see {@link SpriteBatchItem#set(float, float, float, float, float, float, float, float, Color, Vector2, Vector2)}.
+	 */
+	void add(Texture2D texture, float depth, float x, float y, float dx, float dy, float w, float h,
+			 float sin, float cos, Color color, Vector2 texCoordTL, Vector2 texCoordBR)
+	{
+		if (count == colors.length)
+			grow();
+
+		int sprite = count++;
+		float[] positions = this.positions;
+		int p = sprite * 8;
+		positions[p + 0] = x + dx * cos - dy * sin;
+		positions[p + 1] = y + dx * sin + dy * cos;
+		positions[p + 2] = x + (dx + w) * cos - dy * sin;
+		positions[p + 3] = y + (dx + w) * sin + dy * cos;
+		positions[p + 4] = x + dx * cos - (dy + h) * sin;
+		positions[p + 5] = y + dx * sin + (dy + h) * cos;
+		positions[p + 6] = x + (dx + w) * cos - (dy + h) * sin;
+		positions[p + 7] = y + (dx + w) * sin + (dy + h) * cos;
+
+		int t = sprite * 4;
+		texCoords[t + 0] = texCoordTL.x;
+		texCoords[t + 1] = texCoordTL.y;
+		texCoords[t + 2] = texCoordBR.x;
+		texCoords[t + 3] = texCoordBR.y;
+
+		colors[sprite] = color.getPackedValue();
+		depths[sprite] = depth;
+		textureIds[sprite] = getTextureId(texture);
+	}
+
+	/**
+	 * Adds the sprites of another buffer, like a {@link SpriteCommandList} being replayed. The
+	 * arrays are copied as they are unless the sprites are transformed, culled or their textures
+	 * have other ids in this buffer.
+	 * 
+	 * @param source
+	 *        The sprites to add.
+	 * @param transform
+	 *        The matrix the corners are transformed by, like {@link Vector2#transform(Vector2, Matrix, Vector2)},
+	 *        or {@code null} to add them as they are.
+	 * @param bounds
+	 *        The bounds the sprites entirely outside of are dropped, see {@link #isOutside}, or
+	 *        {@code null} to add them all.
+	 * @return The number of sprites dropped.
+	 */
+	int addAll(SpriteBuffer source, Matrix transform, float[] bounds)
+	{
+		int sourceCount = source.count;
+		while (count + sourceCount > colors.length)
+			grow();
+
+		if (_textureIdMap.length < source.textureCount)
+			_textureIdMap = new int[source.textures.length];
+		int[] textureIdMap = _textureIdMap;
+		boolean sameIds = true;
+		for (int i = 0; i < source.textureCount; ++i)
+		{
+			textureIdMap[i] = getTextureId(source.textures[i]);
+			sameIds &= textureIdMap[i] == i;
+		}
+
+		if (bounds != null)
+		{
+			// NOTE: The sprites are written at the end of the buffer and kept only if they are visible.
+			int culledCount = 0;
+			int[] sourceTextureIds = source.textureIds;
+			for (int i = 0; i < sourceCount; ++i)
+			{
+				int sprite = count;
+				transformCorners(source.positions, i * 8, transform, positions, sprite * 8);
+				if (isOutside(positions, sprite * 8, bounds))
+				{
+					++culledCount;
+					continue;
+				}
+
+				System.arraycopy(source.texCoords, i * 4, texCoords, sprite * 4, 4);
+				colors[sprite] = source.colors[i];
+				depths[sprite] = source.depths[i];
+				textureIds[sprite] = textureIdMap[sourceTextureIds[i]];
+				++count;
+			}
+			return culledCount;
+		}
+
+		if (transform == null)
+		{
+			System.arraycopy(source.positions, 0, positions, count * 8, sourceCount * 8);
+		}
+		else
+		{
+			for (int i = 0; i < sourceCount; ++i)
+				transformCorners(source.positions, i * 8, transform, positions, (count + i) * 8);
+		}
+		System.arraycopy(source.texCoords, 0, texCoords, count * 4, sourceCount * 4);
+		System.arraycopy(source.colors, 0, colors, count, sourceCount);
+		System.arraycopy(source.depths, 0, depths, count, sourceCount);
+
+		if (sameIds)
+		{
+			System.arraycopy(source.textureIds, 0, textureIds, count, sourceCount);
+		}
+		else
+		{
+			int[] sourceTextureIds = source.textureIds;
+			for (int i = 0; i < sourceCount; ++i)
+				textureIds[count + i] = textureIdMap[sourceTextureIds[i]];
+		}
+
+		count += sourceCount;
+		return 0;
+	}
+
+	/**
+	 * Copies the corners of a sprite, transformed like {@link Vector2#transform(Vector2, Matrix, Vector2)}.
+	 * 
+	 * @param transform
+	 *        The matrix the corners are transformed by, or {@code null} to copy them as they are.
+	 */
+	static void transformCorners(float[] source, int sourceIndex, Matrix transform, float[] dest, int destIndex)
+	{
+		if (transform == null)
+		{
+			System.arraycopy(source, sourceIndex, dest, destIndex, 8);
+			return;
+		}
+
+		for (int i = 0; i < 8; i += 2)
+		{
+			float x = source[sourceIndex + i + 0];
+			float y = source[sourceIndex + i + 1];
+			dest[destIndex + i + 0] = (x * transform.M11) + (y * transform.M21) + transform.M41;
+			dest[destIndex + i + 1] = (x * transform.M12) + (y * transform.M22) + transform.M42;
+		}
+	}
+
+	/**
+	 * Returns whether the corners of a sprite are all on the same side out of bounds.
+	 * 
+	 * @param bounds
+	 *        The bounds, as minX, minY, maxX and maxY.
+	 */
+	static boolean isOutside(float[] positions, int index, float[] bounds)
+	{
+		float minX = Math.min(Math.min(positions[index + 0], positions[index + 2]), Math.min(positions[index + 4], positions[index + 6]));
+		float minY = Math.min(Math.min(positions[index + 1], positions[index + 3]), Math.min(positions[index + 5], positions[index + 7]));
+		float maxX = Math.max(Math.max(positions[index + 0], positions[index + 2]), Math.max(positions[index + 4], positions[index + 6]));
+		float maxY = Math.max(Math.max(positions[index + 1], positions[index + 3]), Math.max(positions[index + 5], positions[index + 7]));
+		return maxX < bounds[0] || maxY < bounds[1] || minX > bounds[2] || minY > bounds[3];
+	}
+
+	/**
+	 * Puts the sprites in a new order.
+	 * 
+	 * @param order
+	 *        The index of the sprite to put at each position.
+	 */
+	void reorder(int[] order)
+	{
+		float[] positions = new float[this.positions.length];
+		float[] texCoords = new float[this.texCoords.length];
+		int[] colors = new int[this.colors.length];
+		float[] depths = new float[this.depths.length];
+		int[] textureIds = new int[this.textureIds.length];
+		for (int i = 0; i < count; ++i)
+		{
+			int sprite = order[i];
+			System.arraycopy(this.positions, sprite * 8, positions, i * 8, 8);
+			System.arraycopy(this.texCoords, sprite * 4, texCoords, i * 4, 4);
+			colors[i] = this.colors[sprite];
+			depths[i] = this.depths[sprite];
+			textureIds[i] = this.textureIds[sprite];
+		}
+		this.positions = positions;
+		this.texCoords = texCoords;
+		this.colors = colors;
+		this.depths = depths;
+		this.textureIds = textureIds;
+	}
+
+	/**
+	 * Removes the sprites and releases their textures.
+	 */
+	void clear()
+	{
+		Arrays.fill(textures, 0, textureCount, null);
+		textureCount = 0;
+		_textureIds.clear();
+		_lastTexture = null;
+		count = 0;
+	}
+
+	private int getTextureId(Texture2D texture)
+	{
+		if (texture == _lastTexture)
+			return _lastTextureId;
+
+		Integer id = _textureIds.get(texture);
+		if (id == null)
+		{
+			if (textureCount == textures.length)
+				textures = Arrays.copyOf(textures, textureCount * 2);
+			id = textureCount;
+			textures[textureCount++] = texture;
+			_textureIds.put(texture, id);
+		}
+		_lastTexture = texture;
+		_lastTextureId = id;
+		return id;
+	}
+
+	private void grow()
+	{
+		int capacity = colors.length * 2;
+		positions = Arrays.copyOf(positions, capacity * 8);
+		texCoords = Arrays.copyOf(texCoords, capacity * 4);
+		colors = Arrays.copyOf(colors, capacity);
+		depths = Arrays.copyOf(depths, capacity);
+		textureIds = Arrays.copyOf(textureIds, capacity);
+	}
+}
@@ -0,0 +1,127 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.math.Matrix;
+
+/**
+ * A list of sprites recorded once by a {@link SpriteBatch} and replayed into a sprite batch every
+ * frame, for the parts of a scene that don't change, like the layers of a tile map or the frame of
+ * a user interface.
+ *
+ * <p>
+ * The sprites are recorded between {@link SpriteBatch#beginRecording(SpriteCommandList)} and
+ * {@link SpriteBatch#endRecording()} with the usual draw and draw string calls, which validate
+ * their arguments and compute the corners and texture coordinates of the sprites once. Replaying
+ * the list with {@link SpriteBatch#draw(SpriteCommandList)} between {@link SpriteBatch#begin()} and
+ * {@link SpriteBatch#end()} copies the recorded sprites into the batch, which draws them with its
+ * own states like the sprites drawn around them. A transform matrix can be given to move the
+ * sprites, like scrolling a layer, without recording them again.
+ *
+ * <p>
+ * NOTE: The list is sorted once when the recording ends, with the sort mode given to
+ * {@link SpriteBatch#beginRecording(SpriteCommandList, SpriteSortMode)}, so it doesn't need to be
+ * sorted when replayed into a {@link SpriteSortMode#Deferred} batch. The list keeps a reference to
+ * the textures of its sprites until it is cleared.
+ *
+ * @author Eric
+ *
+ */
+public class SpriteCommandList
+{
+	final SpriteBuffer _sprites = new SpriteBuffer();
+
+	/** The corners of the rectangle bounding the sprites, see {@link #getCorners} */
+	private final float[] _bounds = new float[8];
+
+	/**
+	 * Returns the number of sprites recorded.
+	 *
+	 * @return The number of sprites.
+	 */
+	public int getCount()
+	{
+		return _sprites.count;
+	}
+
+	/**
+	 * Removes the recorded sprites and releases their textures.
+	 */
+	public void clear()
+	{
+		_sprites.clear();
+		updateBounds();
+	}
+
+	/**
+	 * Ends the recording of the list, see {@link SpriteBatch#endRecording()}.
+	 */
+	void finish(SpriteSortMode sortMode)
+	{
+		sort(sortMode);
+		updateBounds();
+	}
+
+	/**
+	 * Returns the corners of the rectangle bounding the sprites once transformed, in the layout of
+	 * the corners of a sprite, see {@link SpriteBuffer#isOutside}.
+	 *
+	 * @param transform
+	 *        The matrix the sprites are transformed by, or {@code null}.
+	 * @param corners
+	 *        Receives the corners.
+	 */
+	void getCorners(Matrix transform, float[] corners)
+	{
+		SpriteBuffer.transformCorners(_bounds, 0, transform, corners, 0);
+	}
+
+	private void updateBounds()
+	{
+		SpriteBuffer sprites = _sprites;
+		float[] positions = sprites.positions;
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < sprites.count * 8; i += 2)
+		{
+			minX = Math.min(minX, positions[i + 0]);
+			minY = Math.min(minY, positions[i + 1]);
+			maxX = Math.max(maxX, positions[i + 0]);
+			maxY = Math.max(maxY, positions[i + 1]);
+		}
+
+		float[] bounds = _bounds;
+		bounds[0] = minX;
+		bounds[1] = minY;
+		bounds[2] = maxX;
+		bounds[3] = minY;
+		bounds[4] = minX;
+		bounds[5] = maxY;
+		bounds[6] = maxX;
+		bounds[7] = maxY;
+	}
+
+	/**
+	 * Sorts the recorded sprites.
+	 *
+	 * @param sortMode
+	 *        The sort mode, the sprites are left in the order they were recorded if it is neither
+	 *        {@link SpriteSortMode#Texture}, {@link SpriteSortMode#FrontToBack} nor
+	 *        {@link SpriteSortMode#BackToFront}.
+	 */
+	private void sort(SpriteSortMode sortMode)
+	{
+		SpriteBuffer sprites = _sprites;
+		int count = sprites.count;
+		if (!SpriteBatcher.isSorted(sortMode) || count < 2)
+			return;
+
+		int[] keys = new int[count];
+		for (int i = 0; i < count; ++i)
+			keys[i] = SpriteBatcher.getSortKey(sortMode, sprites.textures[sprites.textureIds[i]].getSortingKey(), sprites.depths[i]);
+
+		int[] order = new int[count];
+		new RadixSort().sort(keys, count, order);
+		sprites.reorder(order);
+	}
+}
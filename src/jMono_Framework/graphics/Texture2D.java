@@ -3,6 +3,7 @@ package jMono_Framework.graphics;
 import jMono_Framework.Color;
 import jMono_Framework.Rectangle;
 import jMono_Framework.dotNet.io.Stream;
+import jMono_Framework.graphics.states.SamplerState;
 
 import java.io.OutputStream;
 
@@ -19,6 +20,21 @@ public class Texture2D extends Texture
 	protected int height;
 	protected int arraySize;
 
+	/** The runs of empty, translucent and opaque texels used by the software renderer */
+	private AlphaSpanIndex _alphaSpans;
+	/** The texels of the mip levels set with setData(), the first one is unused, null until a level is set */
+	private int[][] _mipLevels;
+	/** The texels of the mip levels built from the previous level, null until a level is sampled */
+	private int[][] _generatedMipLevels;
+	/** The blocks of a DXT texture, null for the other formats */
+	private CompressedTexels _compressedTexels;
+
+	/** The page of the {@link TextureAtlas} this texture is a region of, or null */
+	private Texture2D _atlasPage;
+	/** The position of the region in its page */
+	private int _atlasX;
+	private int _atlasY;
+
 	public Rectangle getBounds()
 	{
 		return new Rectangle(0, 0, this.width, this.height);
@@ -67,6 +83,34 @@ public class Texture2D extends Texture
 		platformConstruct(width, height, mipmap, format, type, shared);
 	}
 
+	/**
+	 * Creates a handle to a region of a page of a {@link TextureAtlas}. The handle doesn't hold
+	 * any texel until something other than a {@link SpriteBatch} samples it.
+	 * 
+	 * @param atlasPage
+	 *        The page the region is in.
+	 * @param x
+	 *        The left of the region in the page.
+	 * @param y
+	 *        The top of the region in the page.
+	 * @param width
+	 *        The width of the region.
+	 * @param height
+	 *        The height of the region.
+	 */
+	Texture2D(Texture2D atlasPage, int x, int y, int width, int height)
+	{
+		this.setGraphicsDevice(atlasPage.getGraphicsDevice());
+		this.width = width;
+		this.height = height;
+		this._format = atlasPage._format;
+		this._levelCount = 1;
+		this.arraySize = 1;
+		this._atlasPage = atlasPage;
+		this._atlasX = x;
+		this._atlasY = y;
+	}
+
 	public int getWidth()
 	{
 		return width;
@@ -77,6 +121,26 @@ public class Texture2D extends Texture
 		return height;
 	}
 
+	/**
+	 * Returns the page of the {@link TextureAtlas} this texture is a region of.
+	 * 
+	 * @return The page of the atlas, or {@code null} if this texture isn't an atlas region.
+	 */
+	Texture2D getAtlasPage()
+	{
+		return _atlasPage;
+	}
+
+	int getAtlasX()
+	{
+		return _atlasX;
+	}
+
+	int getAtlasY()
+	{
+		return _atlasY;
+	}
+
 	// TODO: Should I create all primitives type or send the primitives through
 	// this method as their Wrapper Class counterpart ?
 	// This means creating a bunch of utilities method to do the conversion
@@ -84,10 +148,13 @@ public class Texture2D extends Texture
 	{
 		if (data == null)
 			throw new NullPointerException("data cannot be null");
+		if (_atlasPage != null)
+			throw new UnsupportedOperationException("The data of an atlas region can't be set, set it before adding the texture to the atlas.");
 
 		if (arraySlice > 0 && !getGraphicsDevice().getGraphicsCapabilities().supportsTextureArrays)
 			throw new IllegalArgumentException("Texture arrays are not supported on this graphics device: arraySlice");
 
+		_alphaSpans = null;
 		platformSetData(level, arraySlice, rect, data, startIndex, elementCount);
 	}
 
@@ -96,10 +163,13 @@ public class Texture2D extends Texture
 	{
 		if (data == null)
 			throw new NullPointerException("data cannot be null");
+		if (_atlasPage != null)
+			throw new UnsupportedOperationException("The data of an atlas region can't be set, set it before adding the texture to the atlas.");
 
 		if (arraySlice > 0 && !getGraphicsDevice().getGraphicsCapabilities().supportsTextureArrays)
 			throw new IllegalArgumentException("Texture arrays are not supported on this graphics device: arraySlice");
 
+		_alphaSpans = null;
 		platformSetData(level, arraySlice, rect, data, startIndex, elementCount);
 	}
 
@@ -171,6 +241,33 @@ public class Texture2D extends Texture
 		this.getData(0, null, data, 0, data.length);
 	}
 
+	/**
+	 * Returns the runs of empty, translucent and opaque texels of each row of the texture.
+	 * 
+	 * <p>
+	 * NOTE: The index is built the first time it is needed after the data was set, setting the data
+	 * of every mip level would otherwise build one index per level.
+	 * 
+	 * @return The index of the texture, or {@code null} if the texels don't cover the whole texture
+	 *         or if it keeps its DXT blocks.
+	 */
+	AlphaSpanIndex getAlphaSpans()
+	{
+		// NOTE: The DXT textures are never decoded as a whole to be drawn.
+		if (_compressedTexels != null)
+			return null;
+
+		int[] texels = getTexture();
+		if (_alphaSpans != null && _alphaSpans.isBuiltFrom(texels))
+			return _alphaSpans;
+
+		if (texels.length < width * height)
+			return null;
+
+		_alphaSpans = new AlphaSpanIndex(texels, width, height);
+		return _alphaSpans;
+	}
+
 	public static Texture2D fromStream(GraphicsDevice graphicsDevice, Stream stream)
 	{
 		return platformFromStream(graphicsDevice, stream);
@@ -210,6 +307,209 @@ public class Texture2D extends Texture
 	// #                        Platform specific code                        #
 	// ########################################################################
 
+	/**
+	 * Returns the texels of a mip level.
+	 * 
+	 * <p>
+	 * NOTE: The levels whose data wasn't set are built from the previous level with a 2x2 box
+	 * filter the first time they are needed after the data of the levels below them was set, which
+	 * is cheap next to reading the whole texture when it is drawn minified.
+	 * 
+	 * <p>
+	 * NOTE: The levels of a DXT texture are not decoded as a whole, the software renderer decodes
+	 * the blocks it samples through {@link #getCompressedTexels()} instead.
+	 * 
+	 * @param level
+	 *        The mip level, less than {@link #getLevelCount()}.
+	 * @return The texels of the level, {@link #getMipWidth(int)} by {@link #getMipHeight(int)}
+	 *         unless the data set for it didn't cover the level, or {@code null} for a DXT texture.
+	 */
+	int[] getMipLevel(int level)
+	{
+		if (_compressedTexels != null)
+			return null;
+		if (level == 0)
+			return getTexture();
+
+		if (_mipLevels != null && _mipLevels[level] != null)
+			return _mipLevels[level];
+
+		if (_generatedMipLevels == null)
+			_generatedMipLevels = new int[_levelCount][];
+		if (_generatedMipLevels[level] == null)
+		{
+			int[] source = getMipLevel(level - 1);
+			int sourceWidth = getMipWidth(level - 1);
+			int sourceHeight = getMipHeight(level - 1);
+			if (source.length < sourceWidth * sourceHeight)
+				return source;
+			_generatedMipLevels[level] = downsample(source, sourceWidth, sourceHeight);
+		}
+		return _generatedMipLevels[level];
+	}
+
+	/**
+	 * Returns whether a mip level can be sampled, that is whether its texels cover the level. The
+	 * levels of a DXT texture whose blocks were not set are not built from the previous level,
+	 * which would decode it as a whole.
+	 */
+	boolean canSampleMipLevel(int level)
+	{
+		if (_compressedTexels != null)
+			return _compressedTexels.hasBlocks(level);
+		return getMipLevel(level).length >= getMipWidth(level) * getMipHeight(level);
+	}
+
+	int getMipWidth(int level)
+	{
+		return Math.max(width >> level, 1);
+	}
+
+	int getMipHeight(int level)
+	{
+		return Math.max(height >> level, 1);
+	}
+
+	/**
+	 * Picks the mip level to sample when drawing the texture at a given scale, the most detailed
+	 * level with at most one texel per pixel, like the nearest mip filter of the GPUs but rounding
+	 * down so the sprites drawn slightly minified stay sharp.
+	 * 
+	 * @param texelsPerPixel
+	 *        The number of texels covered by a pixel along the most minified axis.
+	 * @param samplerState
+	 *        The sampler state, whose level of detail bias and max mip level are honored.
+	 * @return The mip level, 0 if the texture doesn't have mip levels.
+	 */
+	int selectMipLevel(float texelsPerPixel, SamplerState samplerState)
+	{
+		if (_levelCount <= 1)
+			return 0;
+
+		float bias = samplerState.getMipMapLevelOfDetailBias();
+		int level;
+		if (bias == 0.0f)
+			// NOTE: The exponent of a float is the log2 rounded down.
+			level = (texelsPerPixel >= 1.0f) ? Math.getExponent(Math.min(texelsPerPixel, Float.MAX_VALUE)) : 0;
+		else
+			level = (int) Math.floor(Math.log(texelsPerPixel) * (1.0 / Math.log(2.0)) + bias);
+
+		// NOTE: The max mip level is the index of the most detailed level that can be used.
+		int minLevel = Math.min(Math.max(samplerState.getMaxMipLevel(), 0), _levelCount - 1);
+		return Math.min(Math.max(level, minLevel), _levelCount - 1);
+	}
+
+	/**
+	 * Returns the texels of the first level. The texels of a DXT texture are decoded on each call
+	 * and not kept, the software renderer samples its blocks through {@link #getCompressedTexels()}.
+	 */
+	@Override
+	protected int[] getTexture()
+	{
+		if (_compressedTexels != null)
+			return _compressedTexels.decodeLevel(0);
+		return super.getTexture();
+	}
+
+	/**
+	 * Returns the blocks of a DXT texture.
+	 * 
+	 * @return The blocks, or {@code null} if the texture isn't stored compressed.
+	 */
+	CompressedTexels getCompressedTexels()
+	{
+		return _compressedTexels;
+	}
+
+	@Override
+	protected void dispose(boolean disposing)
+	{
+		if (disposing && _compressedTexels != null)
+			_compressedTexels.clear();
+
+		super.dispose(disposing);
+	}
+
+	/**
+	 * Discards the mip levels built by {@link #getMipLevel(int)} above a level, for when the texels
+	 * of the level change, like when the software renderer draws into a render target. The levels
+	 * set with setData() are kept.
+	 * 
+	 * @param level
+	 *        The mip level whose texels changed.
+	 */
+	void invalidateMipLevels(int level)
+	{
+		if (_generatedMipLevels == null)
+			return;
+		for (int i = level + 1; i < _generatedMipLevels.length; ++i)
+			_generatedMipLevels[i] = null;
+	}
+
+	/**
+	 * Averages each 2x2 block of texels of a level into a texel of the next level. The odd
+	 * last column or row of a level is averaged with itself.
+	 */
+	private static int[] downsample(int[] source, int sourceWidth, int sourceHeight)
+	{
+		int width = Math.max(sourceWidth >> 1, 1);
+		int height = Math.max(sourceHeight >> 1, 1);
+		int[] texels = new int[width * height];
+		for (int y = 0; y < height; ++y)
+		{
+			int top = Math.min(y * 2, sourceHeight - 1) * sourceWidth;
+			int bottom = Math.min(y * 2 + 1, sourceHeight - 1) * sourceWidth;
+			for (int x = 0; x < width; ++x)
+			{
+				int left = Math.min(x * 2, sourceWidth - 1);
+				int right = Math.min(x * 2 + 1, sourceWidth - 1);
+				int a = source[top + left];
+				int b = source[top + right];
+				int c = source[bottom + left];
+				int d = source[bottom + right];
+
+				// NOTE: Two channels are summed at once, the sums of four bytes fit in 16 bits.
+				int redBlue = (((a & 0xFF00FF) + (b & 0xFF00FF) + (c & 0xFF00FF) + (d & 0xFF00FF) + 0x020002) >>> 2) & 0xFF00FF;
+				int greenAlpha = ((((a >>> 8) & 0xFF00FF) + ((b >>> 8) & 0xFF00FF) + ((c >>> 8) & 0xFF00FF) + ((d >>> 8) & 0xFF00FF) + 0x020002) >>> 2) & 0xFF00FF;
+				texels[x + y * width] = redBlue | (greenAlpha << 8);
+			}
+		}
+		return texels;
+	}
+
+	/**
+	 * Returns whether every texel of a rectangle of the texture is opaque, using the index returned
+	 * by {@link #getAlphaSpans()}.
+	 * 
+	 * @param minX
+	 *        The left of the rectangle.
+	 * @param minY
+	 *        The top of the rectangle.
+	 * @param maxX
+	 *        The right (exclusive) of the rectangle.
+	 * @param maxY
+	 *        The bottom (exclusive) of the rectangle.
+	 * @return {@code true} if the rectangle is inside of the texture and all its texels have an
+	 *         alpha of 255, {@code false} if not or if it can't be known.
+	 */
+	boolean isOpaque(int minX, int minY, int maxX, int maxY)
+	{
+		if (minX < 0 || minY < 0 || maxX > width || maxY > height || minX >= maxX || minY >= maxY)
+			return false;
+
+		AlphaSpanIndex alphaSpans = getAlphaSpans();
+		return alphaSpans != null && alphaSpans.isOpaque(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Discards the index returned by {@link #getAlphaSpans()}, for when the texels are modified in
+	 * place, like the software renderer does when drawing into a render target.
+	 */
+	void invalidateAlphaSpans()
+	{
+		_alphaSpans = null;
+	}
+
 	private boolean _shared;
 
 	private boolean _renderTarget;
@@ -221,6 +521,13 @@ public class Texture2D extends Texture
 		_renderTarget = (type.equals(SurfaceType.RenderTarget));
 		_mipmap = mipmap;
 
+		// NOTE: The DXT textures keep their blocks and are decoded when they are sampled.
+		if (!_renderTarget && DxtUtil.isDxtFormat(format))
+		{
+			_compressedTexels = new CompressedTexels(format, width, height, _levelCount);
+			return;
+		}
+
 		// Create texture
 		getTexture();
 	}
@@ -546,6 +853,15 @@ public class Texture2D extends Texture
 //			desc.OptionFlags |= SharpDX.Direct3D11.ResourceOptionFlags.Shared;
 
 //		return new SharpDX.Direct3D11.Texture2D(GraphicsDevice._d3dDevice, desc);
+		if (_atlasPage != null)
+		{
+			// NOTE: The region is sampled outside of a SpriteBatch, give it its own copy of the texels.
+			int[] pageTexels = _atlasPage.getTexture();
+			int[] texels = new int[width * height];
+			for (int y = 0; y < height; ++y)
+				System.arraycopy(pageTexels, _atlasX + (_atlasY + y) * _atlasPage.width, texels, y * width, width);
+			return texels;
+		}
 		return new int[width * height];
 	}
 
@@ -566,15 +882,37 @@ public class Texture2D extends Texture
 	// NOTE(Eric): The data is expected to be in the RGBA format
 	private void platformSetData(int level, int arraySlice, Rectangle rect, byte[] data, int startIndex, int elementCount)
 	{
+		if (_compressedTexels != null)
+		{
+			if (level < _levelCount)
+				_compressedTexels.setBlocks(level, rect, data, startIndex, elementCount);
+			return;
+		}
+
 		int elementSize = 4; //_format.getSize();
-		this._texture = new int[elementCount / elementSize];
+		int[] texels = new int[elementCount / elementSize];
 		for (int i = 0, j = 0; i < elementCount; i += 4, ++j)
 		{
-			this._texture[j] = (data[i + 3] & 0xFF) << 24 |	// A component
-							   (data[i + 2] & 0xFF) << 16 |	// B component
-							   (data[i + 1] & 0xFF) <<  8 |	// G component
-							   (data[i + 0] & 0xFF);		// R component
+			texels[j] = (data[i + 3] & 0xFF) << 24 |	// A component
+						(data[i + 2] & 0xFF) << 16 |	// B component
+						(data[i + 1] & 0xFF) <<  8 |	// G component
+						(data[i + 0] & 0xFF);			// R component
 		}
+
+		// NOTE: The levels after the first one are kept aside, the ones that are not set are built
+		//       from the previous level when they are sampled, see getMipLevel(). Only those built
+		//       from the changed level are discarded, the ones set here are kept.
+		if (level == 0)
+			this._texture = texels;
+		else if (level < _levelCount)
+		{
+			if (_mipLevels == null)
+				_mipLevels = new int[_levelCount][];
+			_mipLevels[level] = texels;
+		}
+		else
+			return;
+		invalidateMipLevels(level);
 	}
 
 }
@@ -0,0 +1,400 @@
+package jMono_Framework.graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packs many small textures into a few large pages, so the sprites drawn from them share a
+ * texture and a {@link SpriteBatch} doesn't have to flush every time the texture changes.
+ *
+ * <p>
+ * Adding a texture copies its texels into the first page with room for it and returns a handle to
+ * that region of the page. The handle is a {@link Texture2D} of the size of the original texture,
+ * which can be drawn, sized and given source rectangles exactly like the original. The
+ * {@link SpriteBatch} draws it from its page, so the sprites of a page are drawn in one batch
+ * and sort together with {@link SpriteSortMode#Texture}. The pages are packed with a bottom-left
+ * skyline, and a new page is created when a texture doesn't fit any of them. A texture larger than
+ * a page isn't packed, it is returned as it is.
+ *
+ * <p>
+ * Each region is surrounded by a border of padding filled with the texels of its edges, so the
+ * linear filtering doesn't blend in the texels of the neighboring regions. Wrapping the texture
+ * coordinates wraps around the whole page though, regions meant to be tiled with
+ * {@link jMono_Framework.graphics.states.TextureAddressMode#Wrap} shouldn't be packed.
+ *
+ * <p>
+ * NOTE: The atlas owns its pages, closing it disposes them and the handles become unusable. A
+ * {@link jMono_Framework.content.ContentManager} can pack the textures it loads into an atlas, see
+ * {@link jMono_Framework.content.ContentManager#setTextureAtlas(TextureAtlas)}.
+ *
+ * @author Eric
+ *
+ */
+public class TextureAtlas implements AutoCloseable
+{
+	/** The default size of the pages */
+	public static final int DefaultPageSize = 1024;
+
+	private final GraphicsDevice _graphicsDevice;
+	private final int _pageWidth;
+	private final int _pageHeight;
+	private int _padding = 1;
+
+	private final List<Page> _pages = new ArrayList<Page>();
+
+	/**
+	 * Creates an atlas with pages of {@link #DefaultPageSize} by {@link #DefaultPageSize} texels.
+	 *
+	 * @param graphicsDevice
+	 *        The device the pages are created on.
+	 * @throws NullPointerException
+	 *         If {@code graphicsDevice} is {@code null}.
+	 */
+	public TextureAtlas(GraphicsDevice graphicsDevice)
+	{
+		this(graphicsDevice, DefaultPageSize, DefaultPageSize);
+	}
+
+	/**
+	 * Creates an atlas with pages of the given size.
+	 *
+	 * @param graphicsDevice
+	 *        The device the pages are created on.
+	 * @param pageWidth
+	 *        The width of the pages.
+	 * @param pageHeight
+	 *        The height of the pages.
+	 * @throws NullPointerException
+	 *         If {@code graphicsDevice} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *         If {@code pageWidth} or {@code pageHeight} is not positive.
+	 */
+	public TextureAtlas(GraphicsDevice graphicsDevice, int pageWidth, int pageHeight)
+	{
+		if (graphicsDevice == null)
+			throw new NullPointerException("graphicsDevice");
+		if (pageWidth <= 0)
+			throw new IllegalArgumentException("The page width must be positive: pageWidth");
+		if (pageHeight <= 0)
+			throw new IllegalArgumentException("The page height must be positive: pageHeight");
+
+		_graphicsDevice = graphicsDevice;
+		_pageWidth = pageWidth;
+		_pageHeight = pageHeight;
+	}
+
+	public int getPageWidth()
+	{
+		return _pageWidth;
+	}
+
+	public int getPageHeight()
+	{
+		return _pageHeight;
+	}
+
+	public int getPadding()
+	{
+		return _padding;
+	}
+
+	/**
+	 * Sets the number of texels around the regions added from now on, filled with the texels of
+	 * their edges.
+	 *
+	 * @param value
+	 *        The padding, 1 by default, which is enough for the linear filtering, 0 if the regions
+	 *        are only drawn with {@link jMono_Framework.graphics.states.TextureFilter#Point}.
+	 * @throws IllegalArgumentException
+	 *         If {@code value} is negative.
+	 */
+	public void setPadding(int value)
+	{
+		if (value < 0)
+			throw new IllegalArgumentException("The padding can't be negative: value");
+		_padding = value;
+	}
+
+	public int getPageCount()
+	{
+		return _pages.size();
+	}
+
+	/**
+	 * Returns a page of the atlas.
+	 *
+	 * @param index
+	 *        The index of the page, the pages are created in order.
+	 * @return The texture of the page.
+	 */
+	public Texture2D getPage(int index)
+	{
+		return _pages.get(index).texture;
+	}
+
+	/**
+	 * Packs a texture into the atlas.
+	 *
+	 * @param texture
+	 *        The texture to pack, its texels are copied and it can be disposed afterward.
+	 * @return The handle to the region of the page the texture was packed into, or {@code texture}
+	 *         itself if it is empty, larger than a page or doesn't hold the texels of its whole
+	 *         surface.
+	 * @throws NullPointerException
+	 *         If {@code texture} is {@code null}.
+	 */
+	public Texture2D add(Texture2D texture)
+	{
+		if (texture == null)
+			throw new NullPointerException("texture");
+
+		int width = texture.width + 2 * _padding;
+		int height = texture.height + 2 * _padding;
+		int[] texels = texture.getTexture();
+		if (width > _pageWidth || height > _pageHeight || texture.width == 0 || texture.height == 0 ||
+			texels.length < texture.width * texture.height)
+			return texture;
+
+		Page page = null;
+		boolean inserted = false;
+		for (int i = 0; i < _pages.size() && !inserted; ++i)
+		{
+			page = _pages.get(i);
+			inserted = page.insert(width, height);
+		}
+		if (!inserted)
+		{
+			page = new Page(new Texture2D(_graphicsDevice, _pageWidth, _pageHeight), _pageWidth, _pageHeight);
+			_pages.add(page);
+			page.insert(width, height);
+		}
+
+		int x = page.insertedX + _padding;
+		int y = page.insertedY + _padding;
+		copy(texels, texture.width, texture.height, page.texture.getTexture(), _pageWidth, x, y, _padding);
+		page.texture.invalidateAlphaSpans();
+
+		Texture2D region = new Texture2D(page.texture, x, y, texture.width, texture.height);
+		region.name = texture.name;
+		return region;
+	}
+
+	/**
+	 * Packs textures into the atlas, from the tallest to the shortest, which wastes less room than
+	 * adding them in any order.
+	 *
+	 * @param textures
+	 *        The textures to pack.
+	 * @return The handles returned by {@link #add(Texture2D)}, in the order of {@code textures}.
+	 * @throws NullPointerException
+	 *         If {@code textures} or one of its textures is {@code null}.
+	 */
+	public List<Texture2D> addAll(List<Texture2D> textures)
+	{
+		if (textures == null)
+			throw new NullPointerException("textures");
+
+		Integer[] order = new Integer[textures.size()];
+		for (int i = 0; i < order.length; ++i)
+		{
+			if (textures.get(i) == null)
+				throw new NullPointerException("textures");
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingInt((Integer i) -> -textures.get(i).height)
+											   .thenComparingInt(i -> -textures.get(i).width));
+
+		Texture2D[] regions = new Texture2D[order.length];
+		for (int i : order)
+			regions[i] = add(textures.get(i));
+
+		List<Texture2D> result = new ArrayList<Texture2D>(regions.length);
+		for (Texture2D region : regions)
+			result.add(region);
+		return result;
+	}
+
+	/**
+	 * Disposes the pages of the atlas.
+	 */
+	@Override
+	public void close()
+	{
+		for (Page page : _pages)
+			page.texture.close();
+		_pages.clear();
+	}
+
+	/**
+	 * Copies the texels of a texture into a page and fills the padding around them with the
+	 * texels of the edges.
+	 */
+	private static void copy(int[] source, int width, int height, int[] page, int pageWidth, int x, int y, int padding)
+	{
+		for (int row = -padding; row < height + padding; ++row)
+		{
+			int sourceRow = Math.min(Math.max(row, 0), height - 1) * width;
+			int dest = x + (y + row) * pageWidth;
+			System.arraycopy(source, sourceRow, page, dest, width);
+			for (int i = 1; i <= padding; ++i)
+			{
+				page[dest - i] = source[sourceRow];
+				page[dest + width - 1 + i] = source[sourceRow + width - 1];
+			}
+		}
+	}
+
+	/**
+	 * A page and the skyline of the rectangles packed into it.
+	 *
+	 * <p>
+	 * The skyline is the list of horizontal segments formed by the tops of the rectangles, from
+	 * left to right. A rectangle is placed on the segment where its top ends up the lowest, and
+	 * raises the skyline under it.
+	 */
+	private static final class Page
+	{
+		final Texture2D texture;
+		private final int _width;
+		private final int _height;
+
+		private int[] _segmentX = new int[16];
+		private int[] _segmentY = new int[16];
+		private int[] _segmentWidth = new int[16];
+		private int _segmentCount;
+
+		/** The position of the last rectangle inserted */
+		int insertedX;
+		int insertedY;
+
+		Page(Texture2D texture, int width, int height)
+		{
+			this.texture = texture;
+			_width = width;
+			_height = height;
+			_segmentWidth[0] = width;
+			_segmentCount = 1;
+		}
+
+		/**
+		 * Finds room for a rectangle and raises the skyline under it.
+		 *
+		 * @return {@code true} if the rectangle fits, its position is then given by
+		 *         {@link #insertedX} and {@link #insertedY}, {@code false} otherwise.
+		 */
+		boolean insert(int width, int height)
+		{
+			int best = -1;
+			int bestY = 0;
+			int bestTop = Integer.MAX_VALUE;
+			int bestWidth = Integer.MAX_VALUE;
+			for (int i = 0; i < _segmentCount; ++i)
+			{
+				int y = fit(i, width, height);
+				if (y < 0)
+					continue;
+
+				// NOTE: Ties go to the narrowest segment, which leaves the wide ones to the wide rectangles.
+				int top = y + height;
+				if (top < bestTop || (top == bestTop && _segmentWidth[i] < bestWidth))
+				{
+					best = i;
+					bestY = y;
+					bestTop = top;
+					bestWidth = _segmentWidth[i];
+				}
+			}
+			if (best < 0)
+				return false;
+
+			insertedX = _segmentX[best];
+			insertedY = bestY;
+			raise(best, insertedX, bestTop, width);
+			return true;
+		}
+
+		/**
+		 * Returns the y a rectangle would be placed at on a segment, or -1 if it doesn't fit.
+		 */
+		private int fit(int index, int width, int height)
+		{
+			if (_segmentX[index] + width > _width)
+				return -1;
+
+			int y = 0;
+			for (int i = index, remaining = width; remaining > 0; ++i)
+			{
+				y = Math.max(y, _segmentY[i]);
+				if (y + height > _height)
+					return -1;
+				remaining -= _segmentWidth[i];
+			}
+			return y;
+		}
+
+		/**
+		 * Inserts the segment of the top of a rectangle and shrinks or removes the ones under it.
+		 */
+		private void raise(int index, int x, int y, int width)
+		{
+			insertSegment(index, x, y, width);
+
+			int right = x + width;
+			int next = index + 1;
+			while (next < _segmentCount && _segmentX[next] < right)
+			{
+				int overlap = right - _segmentX[next];
+				if (overlap < _segmentWidth[next])
+				{
+					_segmentX[next] += overlap;
+					_segmentWidth[next] -= overlap;
+					break;
+				}
+				removeSegment(next);
+			}
+
+			// Merge the neighboring segments at the same height
+			for (int i = 0; i < _segmentCount - 1;)
+			{
+				if (_segmentY[i] == _segmentY[i + 1])
+				{
+					_segmentWidth[i] += _segmentWidth[i + 1];
+					removeSegment(i + 1);
+				}
+				else
+				{
+					++i;
+				}
+			}
+		}
+
+		private void insertSegment(int index, int x, int y, int width)
+		{
+			if (_segmentCount == _segmentX.length)
+			{
+				_segmentX = Arrays.copyOf(_segmentX, _segmentCount * 2);
+				_segmentY = Arrays.copyOf(_segmentY, _segmentCount * 2);
+				_segmentWidth = Arrays.copyOf(_segmentWidth, _segmentCount * 2);
+			}
+			int count = _segmentCount - index;
+			System.arraycopy(_segmentX, index, _segmentX, index + 1, count);
+			System.arraycopy(_segmentY, index, _segmentY, index + 1, count);
+			System.arraycopy(_segmentWidth, index, _segmentWidth, index + 1, count);
+			_segmentX[index] = x;
+			_segmentY[index] = y;
+			_segmentWidth[index] = width;
+			++_segmentCount;
+		}
+
+		private void removeSegment(int index)
+		{
+			int count = _segmentCount - index - 1;
+			System.arraycopy(_segmentX, index + 1, _segmentX, index, count);
+			System.arraycopy(_segmentY, index + 1, _segmentY, index, count);
+			System.arraycopy(_segmentWidth, index + 1, _segmentWidth, index, count);
+			--_segmentCount;
+		}
+	}
+}
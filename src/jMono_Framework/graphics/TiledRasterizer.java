@@ -0,0 +1,417 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.graphics.states.BlendState;
+import jMono_Framework.graphics.states.DepthStencilState;
+import jMono_Framework.graphics.states.SamplerState;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Defers the quads drawn by the software renderer and rasterizes them in parallel.
+ *
+ * <p>
+ * The render target is split into square tiles of {@link #TileSize} pixels. Every quad is
+ * recorded along with the texture and render states it was submitted with and its index is
+ * appended to the bin of each tile its bounding box overlaps. When {@link #flush()} is called,
+ * the tiles are rasterized concurrently on a {@link ForkJoinPool}. Since no two tiles share a
+ * pixel and the bins are filled in submission order, the result is identical to drawing the
+ * quads one after the other.
+ *
+ * @author Eric
+ *
+ */
+final class TiledRasterizer
+{
+	/** The width and height in pixels of a tile */
+	static final int TileSize = 64;
+	/** log2(TileSize) */
+	private static final int TileShift = 6;
+
+	/** The number of floats describing the geometry of a quad */
+	private static final int GeometryStride = 6;
+	/** The number of ints describing the source rectangle of a quad */
+	private static final int SourceStride = 6;
+	/** The number of ints describing the clip region of a quad */
+	private static final int ClipStride = 4;
+
+	/** The initial number of quads (and of bin entries per tile) we can hold before growing */
+	private static final int InitialCapacity = 256;
+
+	/** The pool the tiles are rasterized on */
+	private final ForkJoinPool _pool;
+
+	/** Whether the tiles are filled with the vectorized kernel */
+	private boolean _useSimd;
+
+	/** The array of pixels we are rendering into */
+	private int[] _pixels;
+	/** The depth buffer of the render target, or null if it has none */
+	private float[] _depthBuffer;
+	/** The width in pixels of the render target */
+	private int _width;
+	/** The height in pixels of the render target */
+	private int _height;
+	/** The number of tiles on each row */
+	private int _tilesX;
+	/** The number of rows of tiles */
+	private int _tilesY;
+	/** The region of the render target the following quads are restricted to */
+	private int _clipMinX;
+	private int _clipMinY;
+	private int _clipMaxX;
+	private int _clipMaxY;
+
+	/** The number of quads recorded since the last flush */
+	private int _quadCount;
+	/** The origin, x axis and y axis of each quad */
+	private float[] _geometry = new float[InitialCapacity * GeometryStride];
+	/** The source rectangle and the size of the source texture of each quad */
+	private int[] _source = new int[InitialCapacity * SourceStride];
+	/** The clip region each quad was submitted with */
+	private int[] _clips = new int[InitialCapacity * ClipStride];
+	/** The packed tint of each quad */
+	private int[] _tints = new int[InitialCapacity];
+	/** The depth of each quad */
+	private float[] _depths = new float[InitialCapacity];
+	/** The texels of the source texture of each quad */
+	private int[][] _texels = new int[InitialCapacity][];
+	/** The sampler state each quad was submitted with */
+	private SamplerState[] _samplerStates = new SamplerState[InitialCapacity];
+	/** The blend state each quad was submitted with */
+	private BlendState[] _blendStates = new BlendState[InitialCapacity];
+	/** The depth stencil state each quad was submitted with */
+	private DepthStencilState[] _depthStencilStates = new DepthStencilState[InitialCapacity];
+	/** The runs of transparent and opaque texels of the source texture of each quad, if known */
+	private AlphaSpanIndex[] _alphaSpans = new AlphaSpanIndex[InitialCapacity];
+
+	/** The indices of the quads overlapping each tile, in submission order */
+	private int[][] _bins = new int[0][];
+	/** The number of quads in the bin of each tile */
+	private int[] _binCounts = new int[0];
+	/** One pixel pipeline per tile so the tiles never share any mutable state */
+	private SoftwareRasterizer[] _tileRasterizers = new SoftwareRasterizer[0];
+
+	/**
+	 * Creates a new TiledRasterizer using one worker per available processor.
+	 */
+	TiledRasterizer()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new TiledRasterizer.
+	 *
+	 * @param parallelism
+	 *        The number of worker threads used to rasterize the tiles.
+	 */
+	TiledRasterizer(int parallelism)
+	{
+		_pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Sets the destination of the following draws.
+	 *
+	 * <p>
+	 * NOTE: If the render target changes, the quads recorded so far are rasterized first. The clip
+	 * region is reset to the whole render target.
+	 *
+	 * @param pixels
+	 *        The array of pixels to render into.
+	 * @param width
+	 *        The width in pixels of the render target.
+	 * @param height
+	 *        The height in pixels of the render target.
+	 */
+	void setRenderTarget(int[] pixels, int width, int height)
+	{
+		_clipMinX = 0;
+		_clipMinY = 0;
+		_clipMaxX = width;
+		_clipMaxY = height;
+
+		if (_pixels == pixels && _width == width && _height == height)
+			return;
+
+		flush();
+
+		_pixels = pixels;
+		_width = width;
+		_height = height;
+		_tilesX = (width + TileSize - 1) >> TileShift;
+		_tilesY = (height + TileSize - 1) >> TileShift;
+
+		int tileCount = _tilesX * _tilesY;
+		if (_bins.length < tileCount)
+		{
+			int oldCount = _bins.length;
+			_bins = Arrays.copyOf(_bins, tileCount);
+			_binCounts = Arrays.copyOf(_binCounts, tileCount);
+			_tileRasterizers = Arrays.copyOf(_tileRasterizers, tileCount);
+			for (int i = oldCount; i < tileCount; ++i)
+			{
+				_bins[i] = new int[InitialCapacity];
+				_tileRasterizers[i] = new SoftwareRasterizer();
+			}
+		}
+	}
+
+	/**
+	 * Sets the depth buffer of the render target, like {@link SoftwareRasterizer#setDepthBuffer}.
+	 *
+	 * <p>
+	 * NOTE: If the depth buffer changes, the quads recorded so far are rasterized first.
+	 *
+	 * @param depthBuffer
+	 *        The depth buffer, or {@code null} to draw without depth testing.
+	 */
+	void setDepthBuffer(float[] depthBuffer)
+	{
+		if (_depthBuffer == depthBuffer)
+			return;
+
+		flush();
+		_depthBuffer = depthBuffer;
+	}
+
+	/**
+	 * Restricts the following quads to a region of the render target, like
+	 * {@link SoftwareRasterizer#setClip}. The quads recorded so far keep their own clip region.
+	 *
+	 * @param minX
+	 *        The left of the region.
+	 * @param minY
+	 *        The top of the region.
+	 * @param maxX
+	 *        The right (exclusive) of the region.
+	 * @param maxY
+	 *        The bottom (exclusive) of the region.
+	 */
+	void setClip(int minX, int minY, int maxX, int maxY)
+	{
+		_clipMinX = Math.max(minX, 0);
+		_clipMinY = Math.max(minY, 0);
+		_clipMaxX = Math.min(maxX, _width);
+		_clipMaxY = Math.min(maxY, _height);
+	}
+
+	/**
+	 * Sets the kernel used to rasterize the tiles. Only {@link RasterizerKernel#Simd} makes a
+	 * difference, every other kernel uses {@link SoftwareRasterizer#drawQuadIncremental}.
+	 * 
+	 * @param kernel
+	 *        The kernel selected on the {@link GraphicsDevice}.
+	 */
+	void setKernel(RasterizerKernel kernel)
+	{
+		_useSimd = kernel == RasterizerKernel.Simd;
+	}
+
+	/**
+	 * Records a quad and bins it into the tiles it overlaps. The arguments are the same as
+	 * {@link SoftwareRasterizer#drawQuadIncremental}, plus the depth passed to
+	 * {@link SoftwareRasterizer#setDepth}, the render states and the index passed to
+	 * {@link SoftwareRasterizer#setAlphaSpans}.
+	 */
+	void addQuad(float originX, float originY,
+				 float xAxisX, float xAxisY, float yAxisX, float yAxisY,
+				 int srcStartX, int srcStartY, int srcEndX, int srcEndY,
+				 int srcWidth, int srcHeight, int[] srcPixels, int tint, float depth,
+				 SamplerState samplerState, BlendState blendState, DepthStencilState depthStencilState,
+				 AlphaSpanIndex alphaSpans)
+	{
+		float x1 = originX + xAxisX;
+		float y1 = originY + xAxisY;
+		float x2 = x1 + yAxisX;
+		float y2 = y1 + yAxisY;
+		float x3 = originX + yAxisX;
+		float y3 = originY + yAxisY;
+
+		int minX = (int) Math.floor(Math.min(Math.min(originX, x1), Math.min(x2, x3)));
+		int minY = (int) Math.floor(Math.min(Math.min(originY, y1), Math.min(y2, y3)));
+		int maxX = (int) Math.ceil(Math.max(Math.max(originX, x1), Math.max(x2, x3)));
+		int maxY = (int) Math.ceil(Math.max(Math.max(originY, y1), Math.max(y2, y3)));
+
+		if (minX < _clipMinX) { minX = _clipMinX; }
+		if (minY < _clipMinY) { minY = _clipMinY; }
+		if (maxX > _clipMaxX) { maxX = _clipMaxX; }
+		if (maxY > _clipMaxY) { maxY = _clipMaxY; }
+		if (minX >= maxX || minY >= maxY)
+			return;
+
+		ensureQuadCapacity(_quadCount + 1);
+
+		int quad = _quadCount++;
+		int g = quad * GeometryStride;
+		_geometry[g + 0] = originX;
+		_geometry[g + 1] = originY;
+		_geometry[g + 2] = xAxisX;
+		_geometry[g + 3] = xAxisY;
+		_geometry[g + 4] = yAxisX;
+		_geometry[g + 5] = yAxisY;
+		int s = quad * SourceStride;
+		_source[s + 0] = srcStartX;
+		_source[s + 1] = srcStartY;
+		_source[s + 2] = srcEndX;
+		_source[s + 3] = srcEndY;
+		_source[s + 4] = srcWidth;
+		_source[s + 5] = srcHeight;
+		int c = quad * ClipStride;
+		_clips[c + 0] = _clipMinX;
+		_clips[c + 1] = _clipMinY;
+		_clips[c + 2] = _clipMaxX;
+		_clips[c + 3] = _clipMaxY;
+		_tints[quad] = tint;
+		_depths[quad] = depth;
+		_texels[quad] = srcPixels;
+		_samplerStates[quad] = samplerState;
+		_blendStates[quad] = blendState;
+		_depthStencilStates[quad] = depthStencilState;
+		_alphaSpans[quad] = alphaSpans;
+
+		int tileMinX = minX >> TileShift;
+		int tileMinY = minY >> TileShift;
+		int tileMaxX = (maxX - 1) >> TileShift;
+		int tileMaxY = (maxY - 1) >> TileShift;
+		for (int ty = tileMinY; ty <= tileMaxY; ++ty)
+		{
+			int tile = ty * _tilesX + tileMinX;
+			for (int tx = tileMinX; tx <= tileMaxX; ++tx, ++tile)
+			{
+				int count = _binCounts[tile];
+				int[] bin = _bins[tile];
+				if (count == bin.length)
+					_bins[tile] = bin = Arrays.copyOf(bin, count * 2);
+				bin[count] = quad;
+				_binCounts[tile] = count + 1;
+			}
+		}
+	}
+
+	/**
+	 * Rasterizes every quad recorded since the last flush and waits for the tiles to complete.
+	 */
+	void flush()
+	{
+		if (_quadCount == 0)
+			return;
+
+		_pool.invoke(new TileAction(0, _tilesX * _tilesY));
+
+		// Release the references so the textures and states can be collected.
+		Arrays.fill(_texels, 0, _quadCount, null);
+		Arrays.fill(_samplerStates, 0, _quadCount, null);
+		Arrays.fill(_blendStates, 0, _quadCount, null);
+		Arrays.fill(_depthStencilStates, 0, _quadCount, null);
+		Arrays.fill(_alphaSpans, 0, _quadCount, null);
+		_quadCount = 0;
+	}
+
+	/**
+	 * Rasterizes any pending quads and stops the worker threads.
+	 */
+	void dispose()
+	{
+		flush();
+		_pool.shutdown();
+	}
+
+	/**
+	 * Draws the quads binned into a tile, in submission order, clipped to the tile and to the
+	 * clip region of each quad.
+	 *
+	 * @param tile
+	 *        The index of the tile to draw.
+	 */
+	private void rasterizeTile(int tile)
+	{
+		int count = _binCounts[tile];
+		if (count == 0)
+			return;
+
+		int tileX = (tile % _tilesX) << TileShift;
+		int tileY = (tile / _tilesX) << TileShift;
+
+		SoftwareRasterizer rasterizer = _tileRasterizers[tile];
+		rasterizer.setRenderTarget(_pixels, _width, _height);
+		rasterizer.setDepthBuffer(_depthBuffer);
+
+		int[] bin = _bins[tile];
+		for (int i = 0; i < count; ++i)
+		{
+			int quad = bin[i];
+			int g = quad * GeometryStride;
+			int s = quad * SourceStride;
+			int c = quad * ClipStride;
+			rasterizer.setClip(Math.max(tileX, _clips[c + 0]), Math.max(tileY, _clips[c + 1]),
+							   Math.min(tileX + TileSize, _clips[c + 2]), Math.min(tileY + TileSize, _clips[c + 3]));
+			rasterizer.setStates(_samplerStates[quad], _blendStates[quad]);
+			rasterizer.setDepthStencilState(_depthStencilStates[quad]);
+			rasterizer.setDepth(_depths[quad]);
+			rasterizer.setAlphaSpans(_alphaSpans[quad]);
+			if (_useSimd)
+				rasterizer.drawQuadSimd(_geometry[g + 0], _geometry[g + 1],
+										_geometry[g + 2], _geometry[g + 3],
+										_geometry[g + 4], _geometry[g + 5],
+										_source[s + 0], _source[s + 1], _source[s + 2], _source[s + 3],
+										_source[s + 4], _source[s + 5], _texels[quad], _tints[quad]);
+			else
+				rasterizer.drawQuadIncremental(_geometry[g + 0], _geometry[g + 1],
+											   _geometry[g + 2], _geometry[g + 3],
+											   _geometry[g + 4], _geometry[g + 5],
+											   _source[s + 0], _source[s + 1], _source[s + 2], _source[s + 3],
+											   _source[s + 4], _source[s + 5], _texels[quad], _tints[quad]);
+		}
+		_binCounts[tile] = 0;
+	}
+
+	private void ensureQuadCapacity(int quadCount)
+	{
+		if (quadCount <= _tints.length)
+			return;
+
+		int newCapacity = Math.max(quadCount, _tints.length * 2);
+		_geometry = Arrays.copyOf(_geometry, newCapacity * GeometryStride);
+		_source = Arrays.copyOf(_source, newCapacity * SourceStride);
+		_clips = Arrays.copyOf(_clips, newCapacity * ClipStride);
+		_tints = Arrays.copyOf(_tints, newCapacity);
+		_depths = Arrays.copyOf(_depths, newCapacity);
+		_texels = Arrays.copyOf(_texels, newCapacity);
+		_samplerStates = Arrays.copyOf(_samplerStates, newCapacity);
+		_blendStates = Arrays.copyOf(_blendStates, newCapacity);
+		_depthStencilStates = Arrays.copyOf(_depthStencilStates, newCapacity);
+		_alphaSpans = Arrays.copyOf(_alphaSpans, newCapacity);
+	}
+
+	/**
+	 * Splits a range of tiles in halves until a single tile remains, then rasterizes it.
+	 */
+	@SuppressWarnings("serial")
+	private final class TileAction extends RecursiveAction
+	{
+		private final int _start;
+		private final int _end;
+
+		TileAction(int start, int end)
+		{
+			_start = start;
+			_end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (_end - _start == 1)
+			{
+				rasterizeTile(_start);
+				return;
+			}
+
+			int middle = (_start + _end) >>> 1;
+			invokeAll(new TileAction(_start, middle), new TileAction(middle, _end));
+		}
+	}
+}
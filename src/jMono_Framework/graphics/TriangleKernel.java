@@ -0,0 +1,446 @@
+package jMono_Framework.graphics;
+
+import static jMono_Framework.graphics.SoftwareRasterizer.bilerp;
+import static jMono_Framework.graphics.SoftwareRasterizer.mul255;
+
+import jMono_Framework.graphics.states.CompareFunction;
+import jMono_Framework.graphics.states.CullMode;
+
+/**
+ * The triangle fill loop of {@link SoftwareRasterizer#drawTriangle}, used by the draws that are
+ * not made of sprites.
+ *
+ * <p>
+ * The vertices are snapped to a 1/16th of a pixel and the coverage is decided with integer
+ * half-space edge functions, so the pixels on an edge shared by two triangles are drawn exactly
+ * once: a pixel center lying on an edge is only inside of the triangle if the edge is a top or a
+ * left edge (the Direct3D fill rule).
+ *
+ * <p>
+ * The bounding box of the triangle is walked in 8x8 blocks. The edge functions are evaluated at
+ * the corners of a block first, which rejects the blocks outside of the triangle and accepts the
+ * ones entirely inside without testing their pixels. Only the blocks crossing an edge are tested
+ * pixel by pixel.
+ *
+ * <p>
+ * The texture coordinates and colors are interpolated in a perspective correct way, divided by
+ * w at the vertices and multiplied back per pixel, the depth is interpolated linearly in screen
+ * space. When every vertex has the same w the division is skipped.
+ *
+ * @author Eric
+ *
+ */
+final class TriangleKernel
+{
+	/** The number of bits of sub-pixel precision of the vertices */
+	private static final int SubPixelBits = 4;
+	private static final int SubPixelScale = 1 << SubPixelBits;
+	/** The size in pixels of the blocks the bounding box is walked in */
+	private static final int BlockSize = 8;
+	/** The largest coordinate, in pixels, the edge functions can hold without overflowing */
+	private static final float MaxCoordinate = 1 << 24;
+
+	/** The planes interpolated over the triangle, each one is a start value and two deltas */
+	private static final int PLANE_W = 0;
+	private static final int PLANE_U = 3;
+	private static final int PLANE_V = 6;
+	private static final int PLANE_R = 9;
+	private static final int PLANE_G = 12;
+	private static final int PLANE_B = 15;
+	private static final int PLANE_A = 18;
+	private static final int PLANE_Z = 21;
+	private static final int PlaneCount = 8;
+
+	/** The render target and the region of it the triangles are clipped to, max values are exclusive */
+	int[] pixels;
+	int stride;
+	int clipMinX;
+	int clipMinY;
+	int clipMaxX;
+	int clipMaxY;
+
+	/** The texture, or null to use the vertex colors only */
+	int[] texels;
+	int textureWidth;
+	int textureHeight;
+	/** The region of the texture held by texels, which is the whole texture unless it is compressed */
+	int regionX;
+	int regionY;
+	int regionWidth;
+	/** Whether the texels are bilinearly filtered, otherwise the nearest one is used */
+	boolean linear;
+	/** Whether the texture coordinates wrap around, otherwise they are clamped */
+	boolean wrap;
+
+	/** One of the BLEND_XXX constants of SoftwareRasterizer */
+	int blendMode;
+	/** The blend state when blendMode is BLEND_GENERIC */
+	SoftwareRasterizer.BlendEquation blendEquation;
+
+	/** The depth buffer of the render target, or null when the depth test is disabled */
+	float[] depthBuffer;
+	CompareFunction depthFunction;
+	boolean depthWrite;
+
+	/** The faces that are not drawn */
+	CullMode cullMode;
+
+	/** The planes of the triangle being drawn, relative to the top-left pixel of its bounding box */
+	private final float[] _planes = new float[PlaneCount * 3];
+	private int _originX;
+	private int _originY;
+	private boolean _perspective;
+	private boolean _textured;
+	private boolean _colored;
+	/** The color of the whole triangle when its three vertices have the same color */
+	private int _flatColor;
+
+	/** The colors shaded for the current run */
+	private final int[] _runColors = new int[BlockSize];
+
+	/**
+	 * Fills the pixels covered by a triangle.
+	 *
+	 * <p>
+	 * NOTE: There is no clipping against the near plane, the triangles with a vertex behind the
+	 * eye (w <= 0) or too far away to be snapped are skipped.
+	 *
+	 * @param vertices
+	 *        The vertices of the draw.
+	 * @param i0
+	 *        The index of the first vertex of the triangle.
+	 * @param i1
+	 *        The index of the second vertex of the triangle.
+	 * @param i2
+	 *        The index of the third vertex of the triangle.
+	 */
+	void fillTriangle(VertexReader vertices, int i0, int i1, int i2)
+	{
+		float[] vx = vertices.x;
+		float[] vy = vertices.y;
+		if (!isDrawable(vx[i0], vy[i0], vertices.invW[i0]) ||
+			!isDrawable(vx[i1], vy[i1], vertices.invW[i1]) ||
+			!isDrawable(vx[i2], vy[i2], vertices.invW[i2]))
+			return;
+
+		long x0 = snap(vx[i0]);
+		long y0 = snap(vy[i0]);
+		long x1 = snap(vx[i1]);
+		long y1 = snap(vy[i1]);
+		long x2 = snap(vx[i2]);
+		long y2 = snap(vy[i2]);
+
+		// NOTE: The render target is y down, so a positive area is a clockwise triangle on screen.
+		long area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+		if (area == 0 ||
+			(area < 0 && cullMode == CullMode.CullCounterClockwiseFace) ||
+			(area > 0 && cullMode == CullMode.CullClockwiseFace))
+			return;
+
+		if (area < 0)
+		{
+			// Make the triangle clockwise so the inside of every edge is positive.
+			int i = i1; i1 = i2; i2 = i;
+			long t = x1; x1 = x2; x2 = t;
+			t = y1; y1 = y2; y2 = t;
+			area = -area;
+		}
+
+		int minX = Math.max(clipMinX, (int) (Math.min(x0, Math.min(x1, x2)) >> SubPixelBits));
+		int minY = Math.max(clipMinY, (int) (Math.min(y0, Math.min(y1, y2)) >> SubPixelBits));
+		int maxX = Math.min(clipMaxX, (int) (Math.max(x0, Math.max(x1, x2)) >> SubPixelBits) + 1);
+		int maxY = Math.min(clipMaxY, (int) (Math.max(y0, Math.max(y1, y2)) >> SubPixelBits) + 1);
+		if (minX >= maxX || minY >= maxY)
+			return;
+
+		// The edge functions at the center of the top-left pixel of the bounding box and their
+		// per-pixel deltas. Edge N is opposite to vertex N, so it is also its barycentric weight.
+		long centerX = ((long) minX << SubPixelBits) + SubPixelScale / 2;
+		long centerY = ((long) minY << SubPixelBits) + SubPixelScale / 2;
+		long edge0 = edge(x1, y1, x2, y2, centerX, centerY);
+		long edge1 = edge(x2, y2, x0, y0, centerX, centerY);
+		long edge2 = edge(x0, y0, x1, y1, centerX, centerY);
+		long edge0StepX = (y1 - y2) * SubPixelScale;
+		long edge1StepX = (y2 - y0) * SubPixelScale;
+		long edge2StepX = (y0 - y1) * SubPixelScale;
+		long edge0StepY = (x2 - x1) * SubPixelScale;
+		long edge1StepY = (x0 - x2) * SubPixelScale;
+		long edge2StepY = (x1 - x0) * SubPixelScale;
+
+		setupPlanes(vertices, i0, i1, i2, minX, minY, (double) area,
+					edge0, edge1, edge2, edge0StepX, edge1StepX, edge2StepX, edge0StepY, edge1StepY, edge2StepY);
+
+		// Apply the fill rule, a pixel center on an edge that is not a top or left edge is outside.
+		edge0 += isTopLeft(x1, y1, x2, y2) ? 0 : -1;
+		edge1 += isTopLeft(x2, y2, x0, y0) ? 0 : -1;
+		edge2 += isTopLeft(x0, y0, x1, y1) ? 0 : -1;
+
+		// How far the edge functions can grow and shrink from the top-left pixel of a block.
+		long edge0Max = Math.max(edge0StepX, 0) * (BlockSize - 1) + Math.max(edge0StepY, 0) * (BlockSize - 1);
+		long edge1Max = Math.max(edge1StepX, 0) * (BlockSize - 1) + Math.max(edge1StepY, 0) * (BlockSize - 1);
+		long edge2Max = Math.max(edge2StepX, 0) * (BlockSize - 1) + Math.max(edge2StepY, 0) * (BlockSize - 1);
+		long edge0Min = Math.min(edge0StepX, 0) * (BlockSize - 1) + Math.min(edge0StepY, 0) * (BlockSize - 1);
+		long edge1Min = Math.min(edge1StepX, 0) * (BlockSize - 1) + Math.min(edge1StepY, 0) * (BlockSize - 1);
+		long edge2Min = Math.min(edge2StepX, 0) * (BlockSize - 1) + Math.min(edge2StepY, 0) * (BlockSize - 1);
+
+		for (int blockY = minY; blockY < maxY; blockY += BlockSize)
+		{
+			int blockMaxY = Math.min(blockY + BlockSize, maxY);
+			for (int blockX = minX; blockX < maxX; blockX += BlockSize)
+			{
+				int blockMaxX = Math.min(blockX + BlockSize, maxX);
+				long e0 = edge0 + (blockX - minX) * edge0StepX + (blockY - minY) * edge0StepY;
+				long e1 = edge1 + (blockX - minX) * edge1StepX + (blockY - minY) * edge1StepY;
+				long e2 = edge2 + (blockX - minX) * edge2StepX + (blockY - minY) * edge2StepY;
+
+				// Skip the block if all of its pixels are outside of one of the edges.
+				if (e0 + edge0Max < 0 || e1 + edge1Max < 0 || e2 + edge2Max < 0)
+					continue;
+
+				if (e0 + edge0Min >= 0 && e1 + edge1Min >= 0 && e2 + edge2Min >= 0)
+				{
+					for (int y = blockY; y < blockMaxY; ++y)
+						shadeRun(y, blockX, blockMaxX);
+					continue;
+				}
+
+				for (int y = blockY; y < blockMaxY; ++y, e0 += edge0StepY, e1 += edge1StepY, e2 += edge2StepY)
+				{
+					long w0 = e0;
+					long w1 = e1;
+					long w2 = e2;
+					int runStart = -1;
+					for (int x = blockX; x < blockMaxX; ++x, w0 += edge0StepX, w1 += edge1StepX, w2 += edge2StepX)
+					{
+						if ((w0 | w1 | w2) >= 0)
+						{
+							if (runStart < 0)
+								runStart = x;
+						}
+						else if (runStart >= 0)
+						{
+							shadeRun(y, runStart, x);
+							runStart = -1;
+						}
+					}
+					if (runStart >= 0)
+						shadeRun(y, runStart, blockMaxX);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the planes of the attributes from the barycentric weights at the top-left pixel of
+	 * the bounding box, which are the edge functions divided by the area of the triangle.
+	 */
+	private void setupPlanes(VertexReader vertices, int i0, int i1, int i2, int originX, int originY, double area,
+							 long edge0, long edge1, long edge2,
+							 long edge0StepX, long edge1StepX, long edge2StepX,
+							 long edge0StepY, long edge1StepY, long edge2StepY)
+	{
+		_originX = originX;
+		_originY = originY;
+
+		double b0 = edge0 / area;
+		double b1 = edge1 / area;
+		double b2 = edge2 / area;
+		double b0X = edge0StepX / area;
+		double b1X = edge1StepX / area;
+		double b2X = edge2StepX / area;
+		double b0Y = edge0StepY / area;
+		double b1Y = edge1StepY / area;
+		double b2Y = edge2StepY / area;
+
+		float w0 = vertices.invW[i0];
+		float w1 = vertices.invW[i1];
+		float w2 = vertices.invW[i2];
+		_perspective = w0 != w1 || w1 != w2;
+		if (!_perspective)
+		{
+			// NOTE: An affine triangle interpolates the attributes themselves.
+			w0 = 1.0f;
+			w1 = 1.0f;
+			w2 = 1.0f;
+		}
+
+		setPlane(PLANE_Z, vertices.z[i0], vertices.z[i1], vertices.z[i2], b0, b1, b2, b0X, b1X, b2X, b0Y, b1Y, b2Y);
+		setPlane(PLANE_W, w0, w1, w2, b0, b1, b2, b0X, b1X, b2X, b0Y, b1Y, b2Y);
+
+		_textured = texels != null && vertices.hasTextureCoordinate();
+		if (_textured)
+		{
+			setPlane(PLANE_U, vertices.u[i0] * w0, vertices.u[i1] * w1, vertices.u[i2] * w2, b0, b1, b2, b0X, b1X, b2X, b0Y, b1Y, b2Y);
+			setPlane(PLANE_V, vertices.v[i0] * w0, vertices.v[i1] * w1, vertices.v[i2] * w2, b0, b1, b2, b0X, b1X, b2X, b0Y, b1Y, b2Y);
+		}
+
+		int c0 = vertices.hasColor() ? vertices.color[i0] : 0xFFFFFFFF;
+		int c1 = vertices.hasColor() ? vertices.color[i1] : 0xFFFFFFFF;
+		int c2 = vertices.hasColor() ? vertices.color[i2] : 0xFFFFFFFF;
+		_colored = c0 != c1 || c1 != c2;
+		_flatColor = c0;
+		if (_colored)
+		{
+			for (int shift = 0, plane = PLANE_R; shift < 32; shift += 8, plane += 3)
+			{
+				setPlane(plane, ((c0 >>> shift) & 0xFF) * w0, ((c1 >>> shift) & 0xFF) * w1, ((c2 >>> shift) & 0xFF) * w2,
+						 b0, b1, b2, b0X, b1X, b2X, b0Y, b1Y, b2Y);
+			}
+		}
+	}
+
+	private void setPlane(int plane, float a0, float a1, float a2,
+						  double b0, double b1, double b2, double b0X, double b1X, double b2X, double b0Y, double b1Y, double b2Y)
+	{
+		_planes[plane + 0] = (float) (a0 * b0 + a1 * b1 + a2 * b2);
+		_planes[plane + 1] = (float) (a0 * b0X + a1 * b1X + a2 * b2X);
+		_planes[plane + 2] = (float) (a0 * b0Y + a1 * b1Y + a2 * b2Y);
+	}
+
+	/**
+	 * Shades a run of pixels of a row covered by the triangle and blends them over the render
+	 * target. The pixels failing the depth test split the run.
+	 *
+	 * @param y
+	 *        The row.
+	 * @param start
+	 *        The first pixel of the run.
+	 * @param end
+	 *        The last pixel (exclusive) of the run.
+	 */
+	private void shadeRun(int y, int start, int end)
+	{
+		float[] planes = _planes;
+		int[] runColors = _runColors;
+		int rowIndex = y * stride;
+		float row = (float) (y - _originY);
+		float column = (float) (start - _originX);
+
+		int count = 0;
+		for (int x = start; x < end; ++x, column += 1.0f)
+		{
+			if (depthBuffer != null)
+			{
+				float depth = planes[PLANE_Z] + column * planes[PLANE_Z + 1] + row * planes[PLANE_Z + 2];
+				if (!SoftwareRasterizer.compareDepth(depthFunction, depth, depthBuffer[rowIndex + x]))
+				{
+					if (count > 0)
+						ScalarQuadKernel.blendSpan(blendMode, blendEquation, runColors, 0, pixels, rowIndex + x - count, count);
+					count = 0;
+					continue;
+				}
+				if (depthWrite)
+					depthBuffer[rowIndex + x] = depth;
+			}
+
+			float w = 1.0f;
+			if (_perspective)
+				w = 1.0f / (planes[PLANE_W] + column * planes[PLANE_W + 1] + row * planes[PLANE_W + 2]);
+
+			int color = _flatColor;
+			if (_colored)
+			{
+				int r = toByte((planes[PLANE_R] + column * planes[PLANE_R + 1] + row * planes[PLANE_R + 2]) * w);
+				int g = toByte((planes[PLANE_G] + column * planes[PLANE_G + 1] + row * planes[PLANE_G + 2]) * w);
+				int b = toByte((planes[PLANE_B] + column * planes[PLANE_B + 1] + row * planes[PLANE_B + 2]) * w);
+				int a = toByte((planes[PLANE_A] + column * planes[PLANE_A + 1] + row * planes[PLANE_A + 2]) * w);
+				color = (a << 24) | (b << 16) | (g << 8) | r;
+			}
+
+			if (_textured)
+			{
+				float u = (planes[PLANE_U] + column * planes[PLANE_U + 1] + row * planes[PLANE_U + 2]) * w;
+				float v = (planes[PLANE_V] + column * planes[PLANE_V + 1] + row * planes[PLANE_V + 2]) * w;
+				int texel = sample(u * textureWidth, v * textureHeight);
+				color = (color == 0xFFFFFFFF) ? texel : modulate(texel, color);
+			}
+
+			runColors[count++] = color;
+		}
+
+		if (count > 0)
+			ScalarQuadKernel.blendSpan(blendMode, blendEquation, runColors, 0, pixels, rowIndex + end - count, count);
+	}
+
+	/**
+	 * Fetches the texel at a position of the texture, in texels.
+	 */
+	private int sample(float tX, float tY)
+	{
+		if (!linear)
+			return texels[address((int) Math.floor(tX), textureWidth) - regionX + (address((int) Math.floor(tY), textureHeight) - regionY) * regionWidth];
+
+		tX -= 0.5f;
+		tY -= 0.5f;
+		int fetchX = (int) Math.floor(tX);
+		int fetchY = (int) Math.floor(tY);
+		int fx = (int) ((tX - fetchX) * 256.0f);
+		int fy = (int) ((tY - fetchY) * 256.0f);
+
+		int left = address(fetchX, textureWidth) - regionX;
+		int right = address(fetchX + 1, textureWidth) - regionX;
+		int top = (address(fetchY, textureHeight) - regionY) * regionWidth;
+		int bottom = (address(fetchY + 1, textureHeight) - regionY) * regionWidth;
+		return bilerp(texels[left + top], texels[right + top], texels[left + bottom], texels[right + bottom], fx, fy);
+	}
+
+	/**
+	 * Applies the address mode to a texel coordinate.
+	 */
+	private int address(int coordinate, int size)
+	{
+		if (wrap)
+			return Math.floorMod(coordinate, size);
+		return coordinate < 0 ? 0 : (coordinate >= size ? size - 1 : coordinate);
+	}
+
+	/**
+	 * Multiplies each channel of a texel by the matching channel of the vertex color.
+	 */
+	private static int modulate(int texel, int color)
+	{
+		int r = mul255(texel & 0xFF, color & 0xFF);
+		int g = mul255((texel >>> 8) & 0xFF, (color >>> 8) & 0xFF);
+		int b = mul255((texel >>> 16) & 0xFF, (color >>> 16) & 0xFF);
+		int a = mul255(texel >>> 24, color >>> 24);
+		return (a << 24) | (b << 16) | (g << 8) | r;
+	}
+
+	private static int toByte(float value)
+	{
+		int result = (int) (value + 0.5f);
+		return result < 0 ? 0 : (result > 255 ? 255 : result);
+	}
+
+	private static boolean isDrawable(float x, float y, float invW)
+	{
+		return invW > 0.0f && invW != Float.POSITIVE_INFINITY &&
+			   Math.abs(x) < MaxCoordinate && Math.abs(y) < MaxCoordinate;
+	}
+
+	/**
+	 * Converts a coordinate in pixels to sub-pixels, rounding to nearest.
+	 */
+	private static long snap(float coordinate)
+	{
+		return (long) Math.floor(coordinate * SubPixelScale + 0.5f);
+	}
+
+	/**
+	 * Evaluates the edge function of the edge (a, b) at a point, which is positive on the inside
+	 * of a clockwise triangle.
+	 */
+	private static long edge(long aX, long aY, long bX, long bY, long x, long y)
+	{
+		return (bX - aX) * (y - aY) - (bY - aY) * (x - aX);
+	}
+
+	/**
+	 * Returns whether the edge (a, b) of a clockwise triangle is a top edge, horizontal and above
+	 * the other vertex, or a left edge, going up.
+	 */
+	private static boolean isTopLeft(long aX, long aY, long bX, long bY)
+	{
+		return (aY == bY && bX > aX) || bY < aY;
+	}
+}
@@ -0,0 +1,400 @@
+package jMono_Framework.graphics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scales the frames of the software renderer to the size of the window they are presented to,
+ * see {@link PresentScaling}.
+ *
+ * <p>
+ * The source coordinates of every column and row of the destination are computed once per size,
+ * so the inner loops are only table lookups, plus fixed point blends for the bilinear modes, which
+ * filter each source row horizontally once and then blend the filtered rows vertically. The rows
+ * can be scaled in parallel, on a pool created the first time it is needed.
+ *
+ * <p>
+ * NOTE: Only the rectangle the frame is scaled to is written every frame, the black bars around
+ * it are filled when that rectangle or the size of the window changes.
+ *
+ * @author Eric
+ *
+ */
+final class Upscaler
+{
+	/** The number of fractional bits of the bilinear weights, 8 bits keep the products in an int */
+	private static final int WeightBits = 8;
+	private static final int WeightOne = 1 << WeightBits;
+	/** The minimum number of rows scaled by one task when scaling in parallel */
+	private static final int MinRowsPerTask = 32;
+
+	/** The pool the rows are scaled on, null until a parallel scale needs it */
+	private ForkJoinPool _pool;
+
+	/** The window sized image the frames are scaled into */
+	private BufferedImage _image;
+	private int[] _pixels;
+
+	/** The mode, source size, frame size and destination rectangle the tables were computed for */
+	private PresentScaling _mode;
+	private int _sourceWidth;
+	private int _sourceHeight;
+	private int _frameWidth;
+	private int _frameHeight;
+	private int _destX;
+	private int _destY;
+	private int _destWidth;
+	private int _destHeight;
+
+	/** For each column of the destination rectangle, the source column on its left */
+	private int[] _columns = new int[0];
+	/** For each column of the destination rectangle, the weight of the source column on its right */
+	private int[] _columnWeights = new int[0];
+	/** For each row of the destination rectangle, the source row above it */
+	private int[] _rows = new int[0];
+	/** For each row of the destination rectangle, the weight of the source row below it */
+	private int[] _rowWeights = new int[0];
+
+	/** The time in nanoseconds the last scale took */
+	private volatile long _lastScaleTime;
+
+	/**
+	 * Returns the time in nanoseconds the last call to {@link #scale} took.
+	 */
+	long getLastScaleTime()
+	{
+		return _lastScaleTime;
+	}
+
+	/**
+	 * Scales a frame into a window sized image.
+	 *
+	 * @param source
+	 *        The pixels of the frame.
+	 * @param sourceWidth
+	 *        The width of the frame.
+	 * @param sourceHeight
+	 *        The height of the frame.
+	 * @param mode
+	 *        How the frame fits the window, must not be {@link PresentScaling#None}.
+	 * @param displayWidth
+	 *        The width of the window.
+	 * @param displayHeight
+	 *        The height of the window.
+	 * @param parallel
+	 *        Whether the rows are scaled concurrently.
+	 * @return The scaled frame, valid until the next call.
+	 */
+	BufferedImage scale(int[] source, int sourceWidth, int sourceHeight, PresentScaling mode, int displayWidth, int displayHeight, boolean parallel)
+	{
+		return scale(source, sourceWidth, sourceHeight, sourceWidth, sourceHeight, mode, displayWidth, displayHeight, parallel);
+	}
+
+	/**
+	 * Scales a frame rendered at a lower resolution into a window sized image, in a single pass.
+	 * The frame is laid out in the window as if it had its full size, the source is only sampled
+	 * at its own resolution.
+	 *
+	 * @param source
+	 *        The pixels of the frame.
+	 * @param sourceWidth
+	 *        The width the frame was rendered at.
+	 * @param sourceHeight
+	 *        The height the frame was rendered at.
+	 * @param frameWidth
+	 *        The full width of the frame, which places it in the window.
+	 * @param frameHeight
+	 *        The full height of the frame, which places it in the window.
+	 * @param mode
+	 *        How the frame fits the window, must not be {@link PresentScaling#None}.
+	 * @param displayWidth
+	 *        The width of the window.
+	 * @param displayHeight
+	 *        The height of the window.
+	 * @param parallel
+	 *        Whether the rows are scaled concurrently.
+	 * @return The scaled frame, valid until the next call.
+	 */
+	BufferedImage scale(int[] source, int sourceWidth, int sourceHeight, int frameWidth, int frameHeight,
+						PresentScaling mode, int displayWidth, int displayHeight, boolean parallel)
+	{
+		long start = System.nanoTime();
+
+		displayWidth = Math.max(1, displayWidth);
+		displayHeight = Math.max(1, displayHeight);
+		boolean resized = _image == null || _image.getWidth() != displayWidth || _image.getHeight() != displayHeight;
+		if (resized)
+		{
+			_image = new BufferedImage(displayWidth, displayHeight, BufferedImage.TYPE_INT_BGR);
+			_pixels = ((DataBufferInt) _image.getRaster().getDataBuffer()).getData();
+		}
+		if (resized || mode != _mode || sourceWidth != _sourceWidth || sourceHeight != _sourceHeight ||
+			frameWidth != _frameWidth || frameHeight != _frameHeight)
+			layout(sourceWidth, sourceHeight, frameWidth, frameHeight, mode, displayWidth, displayHeight);
+
+		// NOTE: The destination rectangle can be larger than the window when the frame is larger
+		//       than the window itself, only the visible rows and columns are written.
+		int minRow = Math.max(0, -_destY);
+		int maxRow = Math.min(_destHeight, displayHeight - _destY);
+		if (parallel && maxRow - minRow >= MinRowsPerTask * 2)
+		{
+			if (_pool == null)
+				_pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+			_pool.invoke(new RowsAction(source, minRow, maxRow));
+		}
+		else
+		{
+			scaleRows(source, minRow, maxRow);
+		}
+
+		_lastScaleTime = System.nanoTime() - start;
+		return _image;
+	}
+
+	/**
+	 * Stops the worker threads, if any.
+	 */
+	void dispose()
+	{
+		if (_pool != null)
+		{
+			_pool.shutdown();
+			_pool = null;
+		}
+	}
+
+	/**
+	 * Computes the destination rectangle and the tables of a mode, and paints the bars black.
+	 */
+	private void layout(int sourceWidth, int sourceHeight, int frameWidth, int frameHeight, PresentScaling mode, int displayWidth, int displayHeight)
+	{
+		_mode = mode;
+		_sourceWidth = sourceWidth;
+		_sourceHeight = sourceHeight;
+		_frameWidth = frameWidth;
+		_frameHeight = frameHeight;
+
+		switch (mode)
+		{
+			case IntegerNearest:
+				int factor = Math.max(1, Math.min(displayWidth / frameWidth, displayHeight / frameHeight));
+				_destWidth = frameWidth * factor;
+				_destHeight = frameHeight * factor;
+				break;
+
+			case Letterbox:
+				if ((long) displayWidth * frameHeight <= (long) displayHeight * frameWidth)
+				{
+					_destWidth = displayWidth;
+					_destHeight = Math.max(1, (int) ((long) frameHeight * displayWidth / frameWidth));
+				}
+				else
+				{
+					_destWidth = Math.max(1, (int) ((long) frameWidth * displayHeight / frameHeight));
+					_destHeight = displayHeight;
+				}
+				break;
+
+			case Bilinear:
+			default:
+				_destWidth = displayWidth;
+				_destHeight = displayHeight;
+				break;
+		}
+		_destX = (displayWidth - _destWidth) / 2;
+		_destY = (displayHeight - _destHeight) / 2;
+
+		if (_columns.length < _destWidth)
+		{
+			_columns = new int[_destWidth];
+			_columnWeights = new int[_destWidth];
+		}
+		if (_rows.length < _destHeight)
+		{
+			_rows = new int[_destHeight];
+			_rowWeights = new int[_destHeight];
+		}
+		boolean nearest = mode == PresentScaling.IntegerNearest;
+		computeTable(_columns, _columnWeights, _destWidth, sourceWidth, nearest);
+		computeTable(_rows, _rowWeights, _destHeight, sourceHeight, nearest);
+
+		Arrays.fill(_pixels, 0);
+	}
+
+	/**
+	 * Computes the source coordinate and weight of each destination coordinate. The bilinear
+	 * tables sample the source at the center of each destination pixel.
+	 */
+	private static void computeTable(int[] coordinates, int[] weights, int destSize, int sourceSize, boolean nearest)
+	{
+		for (int i = 0; i < destSize; ++i)
+		{
+			if (nearest)
+			{
+				coordinates[i] = (int) ((long) i * sourceSize / destSize);
+				weights[i] = 0;
+				continue;
+			}
+
+			long position = (((2L * i + 1) * sourceSize << WeightBits) / (2L * destSize)) - (WeightOne / 2);
+			if (position <= 0)
+			{
+				coordinates[i] = 0;
+				weights[i] = 0;
+			}
+			else if (position >= (long) (sourceSize - 1) << WeightBits)
+			{
+				// NOTE: The last column or row blends with itself, which clamps to the edge.
+				coordinates[i] = sourceSize - 1;
+				weights[i] = 0;
+			}
+			else
+			{
+				coordinates[i] = (int) (position >> WeightBits);
+				weights[i] = (int) (position & (WeightOne - 1));
+			}
+		}
+	}
+
+	/**
+	 * Scales a range of rows of the destination rectangle.
+	 */
+	private void scaleRows(int[] source, int minRow, int maxRow)
+	{
+		int[] pixels = _pixels;
+		int[] columns = _columns;
+		int stride = _image.getWidth();
+		int minColumn = Math.max(0, -_destX);
+		int maxColumn = Math.min(_destWidth, stride - _destX);
+		int sourceWidth = _sourceWidth;
+		boolean nearest = _mode == PresentScaling.IntegerNearest;
+
+		// The source rows filtered horizontally, and the index of these rows
+		int[] upper = nearest ? null : new int[_destWidth];
+		int[] lower = nearest ? null : new int[_destWidth];
+		int upperRow = -1;
+		int lowerRow = -1;
+
+		for (int row = minRow; row < maxRow; ++row)
+		{
+			int dest = _destX + (_destY + row) * stride;
+			int sourceRow = _rows[row];
+
+			if (nearest)
+			{
+				// NOTE: The rows sampling the same source row are identical.
+				if (row > minRow && _rows[row - 1] == sourceRow)
+				{
+					System.arraycopy(pixels, dest + minColumn - stride, pixels, dest + minColumn, maxColumn - minColumn);
+					continue;
+				}
+
+				int src = sourceRow * sourceWidth;
+				for (int x = minColumn; x < maxColumn; ++x)
+					pixels[dest + x] = source[src + columns[x]];
+				continue;
+			}
+
+			// NOTE: The filter is separable, each source row is filtered horizontally once into a
+			//       cache and the destination rows blend the two cached rows around them.
+			if (sourceRow != upperRow)
+			{
+				if (sourceRow == lowerRow)
+				{
+					int[] swap = upper;
+					upper = lower;
+					lower = swap;
+					upperRow = lowerRow;
+					lowerRow = -1;
+				}
+				else
+				{
+					filterRow(source, sourceRow * sourceWidth, upper, minColumn, maxColumn);
+					upperRow = sourceRow;
+				}
+			}
+
+			int rowWeight = _rowWeights[row];
+			if (rowWeight == 0)
+			{
+				System.arraycopy(upper, minColumn, pixels, dest + minColumn, maxColumn - minColumn);
+				continue;
+			}
+
+			if (lowerRow != sourceRow + 1)
+			{
+				filterRow(source, (sourceRow + 1) * sourceWidth, lower, minColumn, maxColumn);
+				lowerRow = sourceRow + 1;
+			}
+			for (int x = minColumn; x < maxColumn; ++x)
+				pixels[dest + x] = lerp(upper[x], lower[x], rowWeight);
+		}
+	}
+
+	/**
+	 * Filters a source row horizontally to the width of the destination rectangle.
+	 */
+	private void filterRow(int[] source, int start, int[] row, int minColumn, int maxColumn)
+	{
+		int[] columns = _columns;
+		int[] columnWeights = _columnWeights;
+		for (int x = minColumn; x < maxColumn; ++x)
+		{
+			int column = start + columns[x];
+			int columnWeight = columnWeights[x];
+			row[x] = (columnWeight != 0) ? lerp(source[column], source[column + 1], columnWeight) : source[column] & 0xFFFFFF;
+		}
+	}
+
+	/**
+	 * Blends the color channels of two pixels, the alpha channel is dropped.
+	 *
+	 * @param weight
+	 *        The weight of {@code b}, in 1/256th.
+	 */
+	private static int lerp(int a, int b, int weight)
+	{
+		if (weight == 0)
+			return a & 0xFFFFFF;
+
+		int inverse = WeightOne - weight;
+		int redBlue = (((a & 0xFF00FF) * inverse + (b & 0xFF00FF) * weight) >>> WeightBits) & 0xFF00FF;
+		int green = (((a & 0x00FF00) * inverse + (b & 0x00FF00) * weight) >>> WeightBits) & 0x00FF00;
+		return redBlue | green;
+	}
+
+	/**
+	 * Scales a range of rows, splitting it in two until it is small enough.
+	 */
+	private final class RowsAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int[] _source;
+		private final int _minRow;
+		private final int _maxRow;
+
+		RowsAction(int[] source, int minRow, int maxRow)
+		{
+			_source = source;
+			_minRow = minRow;
+			_maxRow = maxRow;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (_maxRow - _minRow < MinRowsPerTask * 2)
+			{
+				scaleRows(_source, _minRow, _maxRow);
+				return;
+			}
+
+			int middle = (_minRow + _maxRow) >>> 1;
+			invokeAll(new RowsAction(_source, _minRow, middle), new RowsAction(_source, middle, _maxRow));
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package jMono_Framework.graphics;
+
+import jMono_Framework.Color;
+import jMono_Framework.graphics.vertices.VertexDeclaration;
+import jMono_Framework.graphics.vertices.VertexElement;
+import jMono_Framework.graphics.vertices.VertexElementFormat;
+import jMono_Framework.graphics.vertices.VertexElementUsage;
+import jMono_Framework.math.Vector2;
+import jMono_Framework.math.Vector3;
+import jMono_Framework.math.Vector4;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the attributes the software renderer needs out of the vertices of a draw and stores them
+ * in flat arrays, one entry per vertex, for the {@link TriangleKernel}.
+ *
+ * <p>
+ * The vertex types are classes in Java, so the elements of a {@link VertexDeclaration} can't be
+ * read at their byte offset. Instead each element is bound once to a public field of the vertex
+ * class: the field named after its usage (position, color, textureCoordinate) if there is one,
+ * otherwise the first remaining field whose type matches the element format.
+ *
+ * <p>
+ * NOTE: There are no vertex shaders in the software renderer, so the positions are expected in
+ * pixels of the render target, like the ones of {@link SpriteBatch}. A Vector4 position is
+ * divided by its w component, which is then used for the perspective correct interpolation of
+ * the other attributes. Only the first position, color and texture coordinate elements are read,
+ * the other ones are ignored.
+ *
+ * @author Eric
+ *
+ */
+final class VertexReader
+{
+	/** The declaration and vertex class the fields were bound for */
+	private VertexDeclaration _declaration;
+	private Class<?> _vertexClass;
+
+	private Field _positionField;
+	private VertexElementFormat _positionFormat;
+	private Field _colorField;
+	private VertexElementFormat _colorFormat;
+	private Field _textureCoordinateField;
+
+	/** The position of each vertex in pixels, its depth and the reciprocal of its w component */
+	float[] x = new float[0];
+	float[] y = new float[0];
+	float[] z = new float[0];
+	float[] invW = new float[0];
+	/** The normalized texture coordinates of each vertex */
+	float[] u = new float[0];
+	float[] v = new float[0];
+	/** The packed color of each vertex */
+	int[] color = new int[0];
+
+	/**
+	 * Returns whether the vertices read have a color, otherwise they are white.
+	 */
+	boolean hasColor()
+	{
+		return _colorField != null;
+	}
+
+	/**
+	 * Returns whether the vertices read have texture coordinates.
+	 */
+	boolean hasTextureCoordinate()
+	{
+		return _textureCoordinateField != null;
+	}
+
+	/**
+	 * Reads a range of vertices. The vertex at {@code first} is stored at index 0.
+	 *
+	 * @param vertexData
+	 *        The vertices of the draw.
+	 * @param first
+	 *        The index of the first vertex to read.
+	 * @param count
+	 *        The number of vertices to read.
+	 * @param declaration
+	 *        The layout of the vertices.
+	 */
+	void read(Object[] vertexData, int first, int count, VertexDeclaration declaration)
+	{
+		if (count > x.length)
+		{
+			int capacity = Math.max(count, x.length * 2);
+			x = new float[capacity];
+			y = new float[capacity];
+			z = new float[capacity];
+			invW = new float[capacity];
+			u = new float[capacity];
+			v = new float[capacity];
+			color = new int[capacity];
+		}
+
+		try
+		{
+			for (int i = 0; i < count; ++i)
+			{
+				Object vertex = vertexData[first + i];
+				if (vertex == null)
+					throw new NullPointerException("vertexData[" + (first + i) + "] is null");
+				if (declaration != _declaration || vertex.getClass() != _vertexClass)
+					bind(declaration, vertex.getClass());
+
+				readPosition(i, _positionField.get(vertex));
+				if (_colorField != null)
+					color[i] = readColor(_colorField.get(vertex));
+				if (_textureCoordinateField != null)
+				{
+					Vector2 textureCoordinate = (Vector2) _textureCoordinateField.get(vertex);
+					u[i] = textureCoordinate.x;
+					v[i] = textureCoordinate.y;
+				}
+			}
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new IllegalArgumentException("The fields of the vertex type must be public", e);
+		}
+	}
+
+	private void readPosition(int i, Object position)
+	{
+		switch (_positionFormat)
+		{
+			case Vector2:
+				x[i] = ((Vector2) position).x;
+				y[i] = ((Vector2) position).y;
+				z[i] = 0.0f;
+				invW[i] = 1.0f;
+				break;
+
+			case Vector4:
+				Vector4 homogeneous = (Vector4) position;
+				float w = 1.0f / homogeneous.w;
+				x[i] = homogeneous.x * w;
+				y[i] = homogeneous.y * w;
+				z[i] = homogeneous.z * w;
+				invW[i] = w;
+				break;
+
+			case Vector3:
+			default:
+				x[i] = ((Vector3) position).x;
+				y[i] = ((Vector3) position).y;
+				z[i] = ((Vector3) position).z;
+				invW[i] = 1.0f;
+				break;
+		}
+	}
+
+	/**
+	 * Packs a color read as a {@link Color} or as a Vector3/Vector4 in the [0-1] range.
+	 */
+	private int readColor(Object value)
+	{
+		if (_colorFormat == VertexElementFormat.Color)
+			return ((Color) value).getPackedValue();
+
+		float r, g, b, a;
+		if (_colorFormat == VertexElementFormat.Vector4)
+		{
+			Vector4 vector = (Vector4) value;
+			r = vector.x; g = vector.y; b = vector.z; a = vector.w;
+		}
+		else
+		{
+			Vector3 vector = (Vector3) value;
+			r = vector.x; g = vector.y; b = vector.z; a = 1.0f;
+		}
+		return (toByte(a) << 24) | (toByte(b) << 16) | (toByte(g) << 8) | toByte(r);
+	}
+
+	private static int toByte(float value)
+	{
+		return Math.max(0, Math.min(255, (int) (value * 255.0f + 0.5f)));
+	}
+
+	/**
+	 * Binds the elements of a declaration to the fields of a vertex class.
+	 */
+	private void bind(VertexDeclaration declaration, Class<?> vertexClass)
+	{
+		List<Field> fields = new ArrayList<Field>();
+		for (Field field : vertexClass.getFields())
+		{
+			if (!Modifier.isStatic(field.getModifiers()))
+				fields.add(field);
+		}
+
+		_positionField = null;
+		_colorField = null;
+		_textureCoordinateField = null;
+		for (VertexElement element : declaration.getVertexElements())
+		{
+			if (element.getUsageIndex() != 0)
+				continue;
+
+			VertexElementFormat format = element.getVertexElementFormat();
+			switch (element.getVertexElementUsage())
+			{
+				case Position:
+					if (format == VertexElementFormat.Vector2 || format == VertexElementFormat.Vector3 || format == VertexElementFormat.Vector4)
+					{
+						_positionField = findField(fields, "position", format, vertexClass);
+						_positionFormat = format;
+					}
+					break;
+
+				case Color:
+					if (format == VertexElementFormat.Color || format == VertexElementFormat.Vector3 || format == VertexElementFormat.Vector4)
+					{
+						_colorField = findField(fields, "color", format, vertexClass);
+						_colorFormat = format;
+					}
+					break;
+
+				case TextureCoordinate:
+					if (format == VertexElementFormat.Vector2)
+						_textureCoordinateField = findField(fields, "textureCoordinate", format, vertexClass);
+					break;
+
+				default:
+					break;
+			}
+		}
+
+		if (_positionField == null)
+			throw new IllegalArgumentException("The vertex declaration must have a Vector2, Vector3 or Vector4 position");
+
+		_declaration = declaration;
+		_vertexClass = vertexClass;
+	}
+
+	/**
+	 * Finds the field of an element and removes it from the fields left to bind.
+	 */
+	private static Field findField(List<Field> fields, String name, VertexElementFormat format, Class<?> vertexClass)
+	{
+		Class<?> type = typeOf(format);
+		Field match = null;
+		for (Field field : fields)
+		{
+			if (field.getType() == type && field.getName().equals(name))
+			{
+				match = field;
+				break;
+			}
+			if (match == null && field.getType() == type)
+				match = field;
+		}
+
+		if (match == null)
+			throw new IllegalArgumentException("The vertex type " + vertexClass.getName() + " has no public " +
+											   type.getSimpleName() + " field for its " + name + " element");
+		fields.remove(match);
+		return match;
+	}
+
+	private static Class<?> typeOf(VertexElementFormat format)
+	{
+		switch (format)
+		{
+			case Vector2:	return Vector2.class;
+			case Vector3:	return Vector3.class;
+			case Vector4:	return Vector4.class;
+			case Color:		return Color.class;
+			default:		return Object.class;
+		}
+	}
+}
@@ -12,6 +12,9 @@ public class IndexBuffer extends GraphicsResource {
 	private int indexCount;
 	private IndexElementSize indexElementSize;
 
+	/** The indices of the buffer, the software renderer reads them straight from memory */
+	private int[] _indices;
+
 	public BufferUsage getBufferUsage() {
 		return bufferUsage;
 	}
@@ -46,9 +49,18 @@ public class IndexBuffer extends GraphicsResource {
 		platformConstruct(indexElementSize, indexCount);
 	}
 
-	// TODO: See other IndexBuffer files
 	private void platformConstruct(IndexElementSize indexElementSize, int indexCount) {
-		throw new UnsupportedOperationException();
+		_indices = new int[indexCount];
+	}
+
+	/**
+	 * Returns the indices of the buffer, which the software renderer draws from. This is not a copy
+	 * of the data and the indices are stored as ints whatever the element size of the buffer.
+	 * 
+	 * @return The array holding the indices.
+	 */
+	public int[] getIndexData() {
+		return _indices;
 	}
 
 	public IndexBuffer(GraphicsDevice graphicsDevice, IndexElementSize indexElementSize, int indexCount,
@@ -68,19 +80,13 @@ public class IndexBuffer extends GraphicsResource {
 	// / <param name="type">The type to use for the index buffer</param>
 	// / <returns>The IndexElementSize enum value that matches the type</returns>
 	static IndexElementSize sizeForType(GraphicsDevice graphicsDevice, Class<?> type) {
-		return IndexElementSize.SixteenBits;
-/*		switch (Marshal.SizeOf(type)) {
-			case 2:
-				return IndexElementSize.SixteenBits;
-			case 4:
-				if (graphicsDevice.getGraphicsProfile() == GraphicsProfile.Reach)
-					throw new IllegalArgumentException(
-							"The profile does not support an elementSize of IndexElementSize.ThirtyTwoBits; use IndexElementSize.SixteenBits or a type that has a size of two bytes.");
-				return IndexElementSize.ThirtyTwoBits;
-			default:
-				throw new IllegalArgumentException(
-						"Index buffers can only be created for types that are sixteen or thirty two bits in length");
-		} */
+		// NOTE: Java has no sizeof, so we match the index types by class instead.
+		if (type == Short.class || type == short.class)
+			return IndexElementSize.SixteenBits;
+		if (type == Integer.class || type == int.class)
+			return IndexElementSize.ThirtyTwoBits;
+		throw new IllegalArgumentException(
+				"Index buffers can only be created for types that are sixteen or thirty two bits in length");
 	}
 
 	// / <summary>
@@ -91,9 +97,8 @@ public class IndexBuffer extends GraphicsResource {
 		platformGraphicsDeviceResetting();
 	}
 
-	// TODO: See other IndexBuffer files
 	private void platformGraphicsDeviceResetting() {
-		throw new UnsupportedOperationException();
+		// NOTE: The indices live in main memory, there is nothing to recreate.
 	}
 
 	public <T> void getData(int offsetInBytes, T[] data, int startIndex, int elementCount) // where T : struct
@@ -110,9 +115,14 @@ public class IndexBuffer extends GraphicsResource {
 		platformGetData(offsetInBytes, data, startIndex, elementCount);
 	}
 
-	// TODO: See other IndexBuffer files
+	@SuppressWarnings("unchecked")
 	private <T> void platformGetData(int offsetInBytes, T[] data, int startIndex, int elementCount) {
-		throw new UnsupportedOperationException();
+		int first = offsetInBytes / getElementSizeInBytes();
+		boolean isShort = data.getClass().getComponentType() == Short.class;
+		for (int i = 0; i < elementCount; ++i) {
+			int index = _indices[first + i];
+			data[startIndex + i] = (T) (isShort ? (Object) (short) index : (Object) index);
+		}
 	}
 
 	public <T> void getData(T[] data, int startIndex, int elementCount) // where T : struct
@@ -152,10 +162,19 @@ public class IndexBuffer extends GraphicsResource {
 		platformSetDataInternal(offsetInBytes, data, startIndex, elementCount, options);
 	}
 
-	// TODO: See other IndexBuffer files
 	private <T> void platformSetDataInternal(int offsetInBytes, T[] data, int startIndex, int elementCount, SetDataOptions options) {
-		throw new UnsupportedOperationException();
+		int first = offsetInBytes / getElementSizeInBytes();
+		if (first + elementCount > indexCount)
+			throw new IllegalArgumentException("The index buffer is too small for the amount of data specified.");
+
+		// NOTE: The 16 bits indices are unsigned, like in XNA.
+		int mask = (indexElementSize == IndexElementSize.SixteenBits) ? 0xFFFF : 0xFFFFFFFF;
+		for (int i = 0; i < elementCount; ++i)
+			_indices[first + i] = ((Number) data[startIndex + i]).intValue() & mask;
+	}
+
+	private int getElementSizeInBytes() {
+		return (indexElementSize == IndexElementSize.SixteenBits) ? 2 : 4;
 	}
-	
-	
+
 }
@@ -8,6 +8,9 @@ public class VertexBuffer extends GraphicsResource {
 
 	protected boolean _isDynamic;
 
+	/** The vertices of the buffer, the software renderer reads them straight from memory */
+	private Object[] _vertices;
+
 	private int vertexCount;
 
 	public int getVertexCount() {
@@ -46,9 +49,18 @@ public class VertexBuffer extends GraphicsResource {
 		platformConstruct();
 	}
 
-	// TODO: See other VertexBuffer files.
 	private void platformConstruct() {
-		throw new UnsupportedOperationException();
+		_vertices = new Object[vertexCount];
+	}
+
+	/**
+	 * Returns the vertices of the buffer, which the software renderer draws from. This is not a
+	 * copy of the data.
+	 * 
+	 * @return The array holding the vertices, the slots that were never set are {@code null}.
+	 */
+	public Object[] getVertexData() {
+		return _vertices;
 	}
 
 	public VertexBuffer(GraphicsDevice graphicsDevice, VertexDeclaration vertexDeclaration, int vertexCount,
@@ -69,9 +81,8 @@ public class VertexBuffer extends GraphicsResource {
 		platformGraphicsDeviceResetting();
 	}
 
-	// TODO: See other VertexBuffer files.
 	private void platformGraphicsDeviceResetting() {
-		throw new UnsupportedOperationException();
+		// NOTE: The vertices live in main memory, there is nothing to recreate.
 	}
 
 	public <T> void getData(int offsetInBytes, T[] data, int startIndex, int elementCount, int vertexStride) // where T : struct
@@ -89,9 +100,11 @@ public class VertexBuffer extends GraphicsResource {
 		platformGetData(offsetInBytes, data, startIndex, elementCount, vertexStride);
 	}
 
-	// TODO: See other VertexBuffer files.
+	@SuppressWarnings("unchecked")
 	private <T> void platformGetData(int offsetInBytes, T[] data, int startIndex, int elementCount, int vertexStride) {
-		throw new UnsupportedOperationException();
+		int first = offsetInBytes / vertexDeclaration.getVertexStride();
+		for (int i = 0; i < elementCount; ++i)
+			data[startIndex + i] = (T) _vertices[first + i];
 	}
 
 	public <T> void getData(T[] data, int startIndex, int elementCount) // where T : struct
@@ -143,9 +156,13 @@ public class VertexBuffer extends GraphicsResource {
 		platformSetDataInternal(offsetInBytes, data, startIndex, elementCount, vertexStride, options, bufferSize, 1);
 	}
 
-	// TODO: See other VertexBuffer files.
+	// NOTE: The vertex types are classes in Java, so the buffer keeps references to the vertices
+	//       instead of copies of them. Modifying a vertex after setting it modifies the buffer.
 	private <T> void platformSetDataInternal(int offsetInBytes, T[] data, int startIndex, int elementCount, int vertexStride,
 			SetDataOptions options, int bufferSize, int elementSizeInByte) {
-		throw new UnsupportedOperationException();
+		int first = offsetInBytes / vertexDeclaration.getVertexStride();
+		if (first + elementCount > vertexCount)
+			throw new IllegalArgumentException("The vertex buffer is too small for the amount of data specified.");
+		System.arraycopy(data, startIndex, _vertices, first, elementCount);
 	}
 }